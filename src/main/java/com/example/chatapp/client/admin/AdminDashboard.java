@@ -1,15 +1,18 @@
 package com.example.chatapp.client.admin;
 
 import com.example.chatapp.client.user.Login;
-import com.example.chatapp.domain.ChatLogs;
 import com.example.chatapp.domain.ChatUser;
 import com.example.chatapp.domain.ChatGrp;
 import com.example.chatapp.rmi.ChatService;
 import com.example.chatapp.rmi.LogService;
 import com.example.chatapp.rmi.UserService;
+import com.example.chatapp.rmi.dto.LogQuery;
+import com.example.chatapp.rmi.dto.LogRow;
+import com.example.chatapp.rmi.dto.GroupRow;
+import com.example.chatapp.rmi.dto.UserRow;
+import com.example.chatapp.rmi.transport.RmiTransport;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -20,7 +23,7 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.text.SimpleDateFormat;
-import java.util.List;
+import java.util.Date;
 
 /**
  * Admin dashboard for system administration.
@@ -33,14 +36,20 @@ public class AdminDashboard extends JFrame {
 
     private JTabbedPane tabbedPane;
     private JTable userTable;
-    private DefaultTableModel userTableModel;
+    private RemoteCursorTableModel<UserRow> userTableModel;
     private JTable logTable;
-    private DefaultTableModel logTableModel;
+    private RemoteCursorTableModel<LogRow> logTableModel;
     private JTable chatTable;
-    private DefaultTableModel chatTableModel;
+    private RemoteCursorTableModel<GroupRow> chatTableModel;
     private JButton refreshUsersButton;
     private JButton refreshLogsButton;
     private JButton clearLogsButton;
+    private JTextField logUserField;
+    private JTextField logActionField;
+    private JLabel logStatusLabel;
+    // The filters of the logs shown; read when the log table fetches a block
+    private volatile String logFilterUser;
+    private volatile String logFilterAction;
     private JButton logoutButton;
     private JButton removeUserButton;
     private JButton createChatButton;
@@ -54,6 +63,9 @@ public class AdminDashboard extends JFrame {
     private static final int RMI_PORT = 1099;
     private static final String RMI_HOST = "localhost";
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    // Rows fetched per call, and how many blocks of them each table keeps
+    private static final int TABLE_BLOCK_SIZE = 100;
+    private static final int TABLE_CACHED_BLOCKS = 20;
 
     /**
      * Constructor initializes the admin dashboard UI.
@@ -84,9 +96,9 @@ public class AdminDashboard extends JFrame {
         // Initialize RMI services
         try {
             Registry registry = LocateRegistry.getRegistry(RMI_HOST, RMI_PORT);
-            userService = (UserService) registry.lookup(USER_SERVICE_NAME);
-            logService = (LogService) registry.lookup(LOG_SERVICE_NAME);
-            chatService = (ChatService) registry.lookup(CHAT_SERVICE_NAME);
+            userService = (UserService) registry.lookup(RmiTransport.serviceName(USER_SERVICE_NAME));
+            logService = (LogService) registry.lookup(RmiTransport.serviceName(LOG_SERVICE_NAME));
+            chatService = (ChatService) registry.lookup(RmiTransport.serviceName(CHAT_SERVICE_NAME));
         } catch (RemoteException | NotBoundException e) {
             JOptionPane.showMessageDialog(this,
                     "Error connecting to server: " + e.getMessage(),
@@ -217,18 +229,19 @@ public class AdminDashboard extends JFrame {
         panel.setBackground(backgroundColor);
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // Create table model with columns
-        userTableModel = new DefaultTableModel() {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
-        userTableModel.addColumn("ID");
-        userTableModel.addColumn("Username");
-        userTableModel.addColumn("Email");
-        userTableModel.addColumn("Admin");
-        userTableModel.addColumn("Online");
+        // Create table model with columns; rows are fetched as the table is scrolled
+        userTableModel = new RemoteCursorTableModel<>(
+                new String[]{"ID", "Username", "Email", "Admin", "Online"},
+                userService::queryUsers,
+                user -> new Object[]{
+                        user.id(),
+                        user.username(),
+                        user.email(),
+                        user.admin() ? "Yes" : "No",
+                        user.online() ? "Yes" : "No"
+                },
+                TABLE_BLOCK_SIZE, TABLE_CACHED_BLOCKS);
+        userTableModel.setErrorHandler(e -> showLoadError("users", e));
 
         // Create table with styling
         userTable = new JTable(userTableModel);
@@ -298,18 +311,19 @@ public class AdminDashboard extends JFrame {
         panel.setBackground(backgroundColor);
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // Create table model with columns
-        chatTableModel = new DefaultTableModel() {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
-        chatTableModel.addColumn("ID");
-        chatTableModel.addColumn("Name");
-        chatTableModel.addColumn("Description");
-        chatTableModel.addColumn("Creator");
-        chatTableModel.addColumn("Members");
+        // Create table model with columns; rows are fetched as the table is scrolled
+        chatTableModel = new RemoteCursorTableModel<>(
+                new String[]{"ID", "Name", "Description", "Creator", "Members"},
+                chatService::queryGroups,
+                chat -> new Object[]{
+                        chat.id(),
+                        chat.name(),
+                        chat.description(),
+                        chat.creator(),
+                        chat.memberCount()
+                },
+                TABLE_BLOCK_SIZE, TABLE_CACHED_BLOCKS);
+        chatTableModel.setErrorHandler(e -> showLoadError("chats", e));
 
         // Create table with styling
         chatTable = new JTable(chatTableModel);
@@ -412,18 +426,24 @@ public class AdminDashboard extends JFrame {
         panel.setBackground(backgroundColor);
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // Create table model with columns
-        logTableModel = new DefaultTableModel() {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
-        logTableModel.addColumn("ID");
-        logTableModel.addColumn("Timestamp");
-        logTableModel.addColumn("User");
-        logTableModel.addColumn("Action");
-        logTableModel.addColumn("Details");
+        // Create table model with columns; rows are fetched as the table is scrolled
+        logTableModel = new RemoteCursorTableModel<>(
+                new String[]{"ID", "Timestamp", "User", "Action", "Details"},
+                (cursor, limit) -> logService.queryLogs(new LogQuery()
+                        .user(logFilterUser)
+                        .action(logFilterAction)
+                        .after(cursor)
+                        .pageSize(limit)),
+                log -> new Object[]{
+                        log.id(),
+                        DATE_FORMAT.format(new Date(log.timestampMillis())),
+                        log.username() != null ? log.username() : "System",
+                        log.action(),
+                        log.details()
+                },
+                TABLE_BLOCK_SIZE, TABLE_CACHED_BLOCKS);
+        logTableModel.setErrorHandler(e -> showLoadError("logs", e));
+        logTableModel.addTableModelListener(e -> updateLogStatus());
 
         // Create table with styling
         logTable = new JTable(logTableModel);
@@ -438,6 +458,29 @@ public class AdminDashboard extends JFrame {
         scrollPane.setBorder(BorderFactory.createLineBorder(primaryColor));
         panel.add(scrollPane, BorderLayout.CENTER);
 
+        // Filter panel; the filters apply when the logs are refreshed
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        filterPanel.setBackground(backgroundColor);
+        JLabel userLabel = new JLabel("User:");
+        userLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        userLabel.setForeground(textColor);
+        logUserField = new JTextField(12);
+        logUserField.setFont(new Font("Arial", Font.PLAIN, 14));
+        JLabel actionLabel = new JLabel("Action:");
+        actionLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        actionLabel.setForeground(textColor);
+        logActionField = new JTextField(12);
+        logActionField.setFont(new Font("Arial", Font.PLAIN, 14));
+        logStatusLabel = new JLabel(" ");
+        logStatusLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        logStatusLabel.setForeground(textColor);
+        filterPanel.add(userLabel);
+        filterPanel.add(logUserField);
+        filterPanel.add(actionLabel);
+        filterPanel.add(logActionField);
+        filterPanel.add(logStatusLabel);
+        panel.add(filterPanel, BorderLayout.NORTH);
+
         // Button panel with styling
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 10));
         buttonPanel.setBackground(backgroundColor);
@@ -482,62 +525,51 @@ public class AdminDashboard extends JFrame {
      * Load the list of users.
      */
     private void loadUsers() {
-        try {
-            List<ChatUser> users = userService.getAllUsers();
-
-            // Clear table
-            userTableModel.setRowCount(0);
-
-            // Add users to table
-            for (ChatUser user : users) {
-                Object[] row = {
-                        user.getId(),
-                        user.getUsername(),
-                        user.getEmail(),
-                        user.isAdmin() ? "Yes" : "No",
-                        user.isOnline() ? "Yes" : "No"
-                };
-                userTableModel.addRow(row);
-            }
-        } catch (RemoteException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading users: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
+        userTableModel.refresh();
     }
 
     /**
-     * Load the system logs.
+     * Load the system logs that match the filters.
      */
     private void loadLogs() {
-        try {
-            List<ChatLogs> logs = logService.getAllLogs();
-
-            // Clear table
-            logTableModel.setRowCount(0);
-
-            // Add logs to table
-            for (ChatLogs log : logs) {
-                Object[] row = {
-                        log.getId(),
-                        DATE_FORMAT.format(log.getTimestamp()),
-                        log.getUser() != null ? log.getUser().getUsername() : "System",
-                        log.getAction(),
-                        log.getDetails()
-                };
-                logTableModel.addRow(row);
-            }
-        } catch (RemoteException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading logs: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+        logFilterUser = blankToNull(logUserField.getText());
+        logFilterAction = blankToNull(logActionField.getText());
+        logTableModel.refresh();
+    }
+
+    /**
+     * Show how many log entries are loaded out of how many match.
+     */
+    private void updateLogStatus() {
+        int loaded = logTableModel.getLoadedRowCount();
+        long total = logTableModel.getApproximateTotal();
+        if (logTableModel.isComplete() || total < 0) {
+            logStatusLabel.setText(loaded + " entries" + (logTableModel.isComplete() ? "" : "+"));
+        } else if (logTableModel.isTotalExact()) {
+            logStatusLabel.setText(loaded + " of " + total + " entries");
+        } else {
+            logStatusLabel.setText(loaded + " of about " + Math.max(loaded, total) + " entries");
         }
     }
 
+    /**
+     * Report a table that could not be loaded.
+     *
+     * @param what What was being loaded
+     * @param e The error
+     */
+    private void showLoadError(String what, Exception e) {
+        JOptionPane.showMessageDialog(this,
+                "Error loading " + what + ": " + e.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+        e.printStackTrace();
+    }
+
+    private static String blankToNull(String text) {
+        return text == null || text.trim().isEmpty() ? null : text.trim();
+    }
+
     /**
      * Clear all system logs.
      */
@@ -577,30 +609,7 @@ public class AdminDashboard extends JFrame {
      * Load the list of chat groups.
      */
     private void loadChats() {
-        try {
-            List<ChatGrp> chats = chatService.getAllGroups();
-
-            // Clear table
-            chatTableModel.setRowCount(0);
-
-            // Add chats to table
-            for (ChatGrp chat : chats) {
-                Object[] row = {
-                        chat.getId(),
-                        chat.getName(),
-                        chat.getDescription(),
-                        chat.getCreator().getUsername(),
-                        chat.getMembers().size()
-                };
-                chatTableModel.addRow(row);
-            }
-        } catch (RemoteException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading chats: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
+        chatTableModel.refresh();
     }
 
     /**
@@ -662,7 +671,7 @@ public class AdminDashboard extends JFrame {
      */
     private void addUserToSelectedChat() {
         int selectedRow = chatTable.getSelectedRow();
-        if (selectedRow == -1) {
+        if (selectedRow == -1 || !chatTableModel.isRowLoaded(selectedRow)) {
             JOptionPane.showMessageDialog(this,
                     "Please select a chat group.",
                     "No Chat Selected",
@@ -709,7 +718,7 @@ public class AdminDashboard extends JFrame {
      */
     private void removeUserFromSelectedChat() {
         int selectedRow = chatTable.getSelectedRow();
-        if (selectedRow == -1) {
+        if (selectedRow == -1 || !chatTableModel.isRowLoaded(selectedRow)) {
             JOptionPane.showMessageDialog(this,
                     "Please select a chat group.",
                     "No Chat Selected",
@@ -756,7 +765,7 @@ public class AdminDashboard extends JFrame {
      */
     private void removeSelectedUser() {
         int selectedRow = userTable.getSelectedRow();
-        if (selectedRow == -1) {
+        if (selectedRow == -1 || !userTableModel.isRowLoaded(selectedRow)) {
             JOptionPane.showMessageDialog(this,
                     "Please select a user to remove.",
                     "No User Selected",
@@ -0,0 +1,283 @@
+package com.example.chatapp.client.admin;
+
+import com.example.chatapp.rmi.dto.Page;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Table model whose rows are fetched from the server in blocks, when the table first paints them.
+ * Opening a table costs one block however many rows it has. Below the last fetched row is a
+ * placeholder row; painting it fetches the next block, so the table grows as it is scrolled.
+ * Blocks are fetched in the background and only the most recently used ones are kept. The cursor
+ * that starts each block is remembered, so a block that was dropped is fetched again with one call.
+ * When a block the table asked for arrives, the block after it is prefetched.
+ * All methods must be called on the event dispatch thread.
+ *
+ * @param <R> The row type the server returns
+ */
+public class RemoteCursorTableModel<R> extends AbstractTableModel {
+
+    /**
+     * Fetches one block of rows from the server.
+     *
+     * @param <R> The row type
+     */
+    public interface BlockSource<R> {
+        /**
+         * @param cursor The cursor the previous block ended with, or null for the first block
+         * @param limit The maximum number of rows to return
+         * @return The rows, and the cursor of the next block
+         * @throws Exception If the rows cannot be fetched
+         */
+        Page<R> fetch(String cursor, int limit) throws Exception;
+    }
+
+    private static final String LOADING = "Loading...";
+
+    private final String[] columns;
+    private final BlockSource<R> source;
+    private final Function<R, Object[]> rowMapper;
+    private final int blockSize;
+    private final Map<Integer, List<Object[]>> blocks;
+    private Consumer<Exception> errorHandler;
+
+    // The cursor and first row of every block found so far; block i starts at row blockStarts.get(i)
+    private final List<String> blockCursors = new ArrayList<>();
+    private final List<Integer> blockStarts = new ArrayList<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private int rowCount;
+    private boolean complete;
+    private boolean failed;
+    private long approximateTotal = -1;
+    private boolean totalExact;
+    // Incremented by refresh, so blocks of an earlier load are ignored when they arrive
+    private int generation;
+
+    /**
+     * Create a model. Nothing is fetched until the table paints it or {@link #refresh()} is called.
+     *
+     * @param columns The column names
+     * @param source Where the rows come from
+     * @param rowMapper Turns a row into the values of its cells
+     * @param blockSize The number of rows fetched at a time
+     * @param maxCachedBlocks The number of blocks kept; older ones are dropped and fetched again when needed
+     */
+    public RemoteCursorTableModel(String[] columns, BlockSource<R> source, Function<R, Object[]> rowMapper,
+                                  int blockSize, int maxCachedBlocks) {
+        this.columns = columns.clone();
+        this.source = source;
+        this.rowMapper = rowMapper;
+        this.blockSize = blockSize;
+        this.blocks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+                return size() > maxCachedBlocks;
+            }
+        };
+        reset();
+    }
+
+    /**
+     * @param errorHandler Called when a block cannot be fetched. Nothing more is fetched until
+     *                     the next {@link #refresh()}.
+     */
+    public void setErrorHandler(Consumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Drop all rows and fetch the first block again.
+     */
+    public void refresh() {
+        generation++;
+        reset();
+        fireTableDataChanged();
+        request(0, true);
+    }
+
+    /**
+     * @return The number of rows fetched so far
+     */
+    public int getLoadedRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of rows the server estimated there are, or -1 if it did not say
+     */
+    public long getApproximateTotal() {
+        return approximateTotal;
+    }
+
+    /**
+     * @return True if {@link #getApproximateTotal()} is exact rather than an estimate
+     */
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    /**
+     * @param rowIndex A row of the table
+     * @return True if the row's values have been fetched and are cached
+     */
+    public boolean isRowLoaded(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= rowCount) {
+            return false;
+        }
+        int block = blockOf(rowIndex);
+        List<Object[]> rows = blocks.get(block);
+        return rows != null && rowIndex - blockStarts.get(block) < rows.size();
+    }
+
+    /**
+     * @return True once the last block has been fetched
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public int getRowCount() {
+        return complete ? rowCount : rowCount + 1;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int block = blockOf(rowIndex);
+        List<Object[]> rows = blocks.get(block);
+        if (rows == null) {
+            request(block, true);
+            return columnIndex == 0 ? LOADING : null;
+        }
+        int offset = rowIndex - blockStarts.get(block);
+        // A block fetched again may have fewer rows than it had the first time
+        return offset < rows.size() ? rows.get(offset)[columnIndex] : null;
+    }
+
+    private void reset() {
+        blocks.clear();
+        loading.clear();
+        blockCursors.clear();
+        blockStarts.clear();
+        blockCursors.add(null);
+        blockStarts.add(0);
+        rowCount = 0;
+        complete = false;
+        failed = false;
+        approximateTotal = -1;
+        totalExact = false;
+    }
+
+    private int blockOf(int rowIndex) {
+        int index = Collections.binarySearch(blockStarts, rowIndex);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Fetch a block in the background unless it is cached, already on its way, or not found yet.
+     *
+     * @param block The block
+     * @param prefetchNext True to fetch the block after it as well once it has arrived
+     */
+    private void request(int block, boolean prefetchNext) {
+        if (failed || block >= blockCursors.size() || blocks.containsKey(block) || !loading.add(block)) {
+            return;
+        }
+        int requestGeneration = generation;
+        String cursor = blockCursors.get(block);
+
+        new SwingWorker<Page<R>, Void>() {
+            @Override
+            protected Page<R> doInBackground() throws Exception {
+                return source.fetch(cursor, blockSize);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading.remove(block);
+                Page<R> page;
+                try {
+                    page = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    failed = true;
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    if (errorHandler != null) {
+                        errorHandler.accept(cause);
+                    } else {
+                        cause.printStackTrace();
+                    }
+                    return;
+                }
+
+                List<Object[]> rows = new ArrayList<>(page.items().size());
+                for (R item : page.items()) {
+                    rows.add(rowMapper.apply(item));
+                }
+                blocks.put(block, rows);
+
+                if (block == blockCursors.size() - 1 && !complete) {
+                    addNewestBlock(block, rows.size(), page);
+                } else if (!rows.isEmpty()) {
+                    int start = blockStarts.get(block);
+                    fireTableRowsUpdated(start, start + rows.size() - 1);
+                }
+                if (prefetchNext) {
+                    request(block + 1, false);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Append the rows of a block fetched for the first time, in place of the placeholder row.
+     */
+    private void addNewestBlock(int block, int size, Page<R> page) {
+        if (block == 0) {
+            approximateTotal = page.approximateTotal();
+            totalExact = page.exactTotal();
+        }
+        int placeholder = rowCount;
+        int oldCount = getRowCount();
+        rowCount += size;
+        if (page.hasMore() && size > 0) {
+            blockCursors.add(page.nextCursor());
+            blockStarts.add(rowCount);
+        } else {
+            complete = true;
+        }
+
+        int newCount = getRowCount();
+        if (newCount >= oldCount) {
+            fireTableRowsUpdated(placeholder, placeholder);
+            if (newCount > oldCount) {
+                fireTableRowsInserted(oldCount, newCount - 1);
+            }
+        } else {
+            fireTableRowsDeleted(newCount, oldCount - 1);
+        }
+    }
+}
@@ -4,12 +4,15 @@ import com.example.chatapp.domain.ChatGrp;
 import com.example.chatapp.domain.ChatMsg;
 import com.example.chatapp.domain.ChatUser;
 import com.example.chatapp.domain.Subscribe;
-import com.example.chatapp.domain.ChatLogs;
 import com.example.chatapp.rmi.ChatObserver;
 import com.example.chatapp.rmi.ChatService;
 import com.example.chatapp.rmi.SubscribeService;
 import com.example.chatapp.rmi.UserService;
 import com.example.chatapp.rmi.LogService;
+import com.example.chatapp.rmi.dto.ChatTimeline;
+import com.example.chatapp.rmi.dto.PresenceDelta;
+import com.example.chatapp.rmi.dto.PresenceSnapshot;
+import com.example.chatapp.rmi.transport.RmiTransport;
 
 import javax.swing.*;
 import java.awt.*;
@@ -21,9 +24,7 @@ import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
-import java.rmi.server.UnicastRemoteObject;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -54,6 +55,8 @@ public class ChatLauncher extends JFrame implements ChatObserver {
 
     // Map to store chat areas for each conversation
     private Map<String, JEditorPane> chatAreas = new HashMap<>();
+    // Loaded history for each conversation, keyed like chatAreas (direct chats use DIRECT_HISTORY_PREFIX)
+    private final Map<String, ConversationHistory> histories = new HashMap<>();
     private JPanel chatCardPanel;
     private JEditorPane allGroupsChatArea;
     private JButton updateProfileButton;
@@ -61,6 +64,10 @@ public class ChatLauncher extends JFrame implements ChatObserver {
     private JButton unsubscribeButton;
     private JButton viewMembersButton;
 
+    // Online users and the presence version they reflect; only touched on the EDT
+    private final Map<String, PresenceSnapshot> onlineUsers = new HashMap<>();
+    private long presenceVersion = -1;
+
     private String selectedUser;
     private String selectedGroup;
     private boolean isGroupSelected = false;
@@ -71,6 +78,12 @@ public class ChatLauncher extends JFrame implements ChatObserver {
     private static final int RMI_PORT = 1099;
     private static final String RMI_HOST = "localhost";
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("h.mm a");
+    private static final int HISTORY_PAGE_SIZE = 50;
+    private static final String DIRECT_HISTORY_PREFIX = "direct:";
+    private static final String ALL_GROUPS_HISTORY_KEY = "All Groups";
+    private static final String HISTORY_KEY_PROPERTY = "chat.historyKey";
+    private static final String HISTORY_PAGING_PROPERTY = "chat.historyPaging";
+    private static final String TRANSCRIPT_PROPERTY = "chat.transcript";
 
     /**
      * Constructor initializes the chat UI.
@@ -88,12 +101,12 @@ public class ChatLauncher extends JFrame implements ChatObserver {
         // Initialize RMI services
         try {
             Registry registry = LocateRegistry.getRegistry(RMI_HOST, RMI_PORT);
-            chatService = (ChatService) registry.lookup(CHAT_SERVICE_NAME);
-            userService = (UserService) registry.lookup(USER_SERVICE_NAME);
-            logService = (LogService) registry.lookup(LOG_SERVICE_NAME);
+            chatService = (ChatService) registry.lookup(RmiTransport.serviceName(CHAT_SERVICE_NAME));
+            userService = (UserService) registry.lookup(RmiTransport.serviceName(USER_SERVICE_NAME));
+            logService = (LogService) registry.lookup(RmiTransport.serviceName(LOG_SERVICE_NAME));
 
-            // Export this object as a remote object
-            UnicastRemoteObject.exportObject(this, 0);
+            // Export this object as a remote object, so callbacks use the same transport as calls
+            RmiTransport.export(this);
 
             // Register as an observer
             chatService.registerObserver(this);
@@ -112,6 +125,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
         // Load initial data
         loadUsers();
         loadGroups();
+        loadPresence();
 
         // Add window closing handler
         addWindowListener(new WindowAdapter() {
@@ -187,6 +201,18 @@ public class ChatLauncher extends JFrame implements ChatObserver {
         userList.setSelectionBackground(primaryLightColor);
         userList.setSelectionForeground(Color.WHITE);
         userList.setFont(new Font("Arial", Font.PLAIN, 12));
+        userList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                // Show online users in bold
+                if (onlineUsers.containsKey(value)) {
+                    setFont(getFont().deriveFont(Font.BOLD));
+                }
+                return this;
+            }
+        });
 
         JScrollPane userScrollPane = new JScrollPane(userList);
         userScrollPane.setBorder(BorderFactory.createEmptyBorder());
@@ -883,8 +909,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                     // Load messages for this group in the background
                     SwingUtilities.invokeLater(() -> {
                         try {
-                            List<ChatMsg> messages = chatService.getGroupMessages(groupName);
-                            displayMessages(messages, groupChatArea);
+                            showHistory(groupName, loadLatestHistory(groupName), groupChatArea);
                         } catch (RemoteException e) {
                             e.printStackTrace();
                         }
@@ -899,6 +924,55 @@ public class ChatLauncher extends JFrame implements ChatObserver {
             e.printStackTrace();
         }
     }
+    /**
+     * Load the full list of online users.
+     */
+    private void loadPresence() {
+        try {
+            applyPresence(chatService.getPresenceSince(currentUser.getUsername(), -1));
+        } catch (RemoteException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Apply presence changes pushed by the server to the user list.
+     *
+     * @param delta The presence changes
+     */
+    private void applyPresence(PresenceDelta delta) {
+        if (!delta.isFull() && delta.getVersion() <= presenceVersion) {
+            // Already covered by a newer state
+            return;
+        }
+        if (!delta.isFull() && delta.getSinceVersion() > presenceVersion) {
+            // A delta was missed; ask for everything since the version we have
+            try {
+                delta = chatService.getPresenceSince(currentUser.getUsername(), presenceVersion);
+            } catch (RemoteException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+
+        if (delta.isFull()) {
+            onlineUsers.clear();
+        }
+        for (PresenceSnapshot snapshot : delta.getOnline()) {
+            onlineUsers.put(snapshot.getUsername(), snapshot);
+            // Users that registered after the list was loaded
+            if (!snapshot.getUsername().equals(currentUser.getUsername())
+                    && !userListModel.contains(snapshot.getUsername())) {
+                userListModel.addElement(snapshot.getUsername());
+            }
+        }
+        for (String username : delta.getOffline()) {
+            onlineUsers.remove(username);
+        }
+        presenceVersion = delta.getVersion();
+        userList.repaint();
+    }
+
     /**
      * Load messages for the selected user or group.
      */
@@ -939,18 +1013,17 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                 JEditorPane currentChatArea = chatAreas.get(selectedGroup);
                 currentChatArea.setText("");
 
-                // Load group messages
-                List<ChatMsg> messages = chatService.getGroupMessages(selectedGroup);
-                displayMessages(messages, currentChatArea);
+                // Load the latest page of group messages; older pages load as the user scrolls up
+                showHistory(selectedGroup, loadLatestHistory(selectedGroup), currentChatArea);
             } else if (!isGroupSelected && selectedUser != null) {
                 // For direct messages, use the default chat area
                 chatArea.setText("");
                 CardLayout cardLayout = (CardLayout) chatCardPanel.getLayout();
                 cardLayout.show(chatCardPanel, "default");
 
-                // Load direct messages
-                List<ChatMsg> messages = chatService.getMessages(currentUser.getUsername(), selectedUser);
-                displayMessages(messages, chatArea);
+                // Load the latest page of direct messages
+                String historyKey = DIRECT_HISTORY_PREFIX + selectedUser;
+                showHistory(historyKey, loadLatestHistory(historyKey), chatArea);
             }
         } catch (RemoteException e) {
             JOptionPane.showMessageDialog(this,
@@ -993,21 +1066,8 @@ public class ChatLauncher extends JFrame implements ChatObserver {
             JEditorPane currentChatArea = chatAreas.get("All Groups");
             currentChatArea.setText("");
 
-            // Get all groups the user is a member of
-            List<ChatGrp> userGroups = chatService.getUserGroups(currentUser.getUsername());
-
-            // Collect all messages from all groups
-            List<ChatMsg> allMessages = new ArrayList<>();
-            for (ChatGrp group : userGroups) {
-                List<ChatMsg> groupMessages = chatService.getGroupMessages(group.getName());
-                allMessages.addAll(groupMessages);
-            }
-
-            // Sort messages by sent time
-            allMessages.sort((m1, m2) -> m1.getSentTime().compareTo(m2.getSentTime()));
-
-            // Display all messages with group information
-            displayMessages(allMessages, currentChatArea);
+            // Load the latest page of the timeline the server merges across the user's groups
+            showHistory(ALL_GROUPS_HISTORY_KEY, loadLatestHistory(ALL_GROUPS_HISTORY_KEY), currentChatArea);
         } catch (RemoteException e) {
             JOptionPane.showMessageDialog(this,
                     "Error loading group messages: " + e.getMessage(),
@@ -1017,14 +1077,25 @@ public class ChatLauncher extends JFrame implements ChatObserver {
         }
     }
     /**
-     * Display messages in the specified chat area.
+     * Display messages in the specified chat area, replacing its content.
      *
      * @param messages The messages to display
+     * @param hasOlder Whether the conversation has messages older than the ones displayed
      * @param targetChatArea The chat area to display messages in
      */
-    private void displayMessages(List<ChatMsg> messages, JEditorPane targetChatArea) {
+    private void displayMessages(List<ChatMsg> messages, boolean hasOlder, JEditorPane targetChatArea) {
+        transcriptFor(targetChatArea).show(buildConversationHeader(messages, hasOlder), messages);
+    }
+
+    /**
+     * Build the header shown above a conversation: when it started and who took part.
+     *
+     * @param messages The messages that will be displayed
+     * @param hasOlder Whether the conversation has messages older than the ones displayed
+     * @return The header HTML
+     */
+    private String buildConversationHeader(List<ChatMsg> messages, boolean hasOlder) {
         StringBuilder sb = new StringBuilder();
-        sb.append("<html><body style='font-family: Arial, sans-serif; margin: 10px;'>");
 
         // Display the chat start time at the beginning
         if (!messages.isEmpty()) {
@@ -1048,38 +1119,11 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                         sb.append("<h3>Group Members:</h3>");
 
                         try {
-                            // Get all logs to find join and leave times
-                            List<ChatLogs> allLogs = logService.getAllLogs();
-
-                            // Create maps to store join and leave times for each user
-                            Map<String, Date> joinTimes = new HashMap<>();
-                            Map<String, Date> leaveTimes = new HashMap<>();
-                            Date chatStopTime = null;
-
-                            // Filter logs for this chat group and extract join/leave times
-                            for (ChatLogs log : allLogs) {
-                                if (log.getChatId() != null && log.getChatId().equals(selectedGroup)) {
-                                    String username = log.getUser().getUsername();
-                                    if (log.getAction().equals("JOIN")) {
-                                        // Store the most recent join time
-                                        if (!joinTimes.containsKey(username) ||
-                                                log.getTimestamp().after(joinTimes.get(username))) {
-                                            joinTimes.put(username, log.getTimestamp());
-                                        }
-                                    } else if (log.getAction().equals("LEAVE")) {
-                                        // Store the most recent leave time
-                                        if (!leaveTimes.containsKey(username) ||
-                                                log.getTimestamp().after(leaveTimes.get(username))) {
-                                            leaveTimes.put(username, log.getTimestamp());
-                                        }
-                                    } else if (log.getAction().equals("CHAT_STOPPED")) {
-                                        // Store the most recent chat stop time
-                                        if (chatStopTime == null || log.getTimestamp().after(chatStopTime)) {
-                                            chatStopTime = log.getTimestamp();
-                                        }
-                                    }
-                                }
-                            }
+                            // The server keeps the latest join, leave and stop times of each chat
+                            ChatTimeline timeline = chatService.getChatTimeline(selectedGroup);
+                            Map<String, Date> joinTimes = timeline.joinTimes();
+                            Map<String, Date> leaveTimes = timeline.leaveTimes();
+                            Date chatStopTime = timeline.stopTime();
 
                             for (ChatUser member : selectedChatGrp.getMembers()) {
                                 String memberNickName = member.getNickName() != null ? member.getNickName() : member.getUsername();
@@ -1135,77 +1179,34 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                         sb.append("</div>");
                     }
                 } else if (selectedUser != null) {
-                    // For direct messages, use the timestamp of the first message
-                    ChatMsg firstMessage = messages.get(0);
-                    String startTime = DATE_FORMAT.format(firstMessage.getSentTime());
-                    sb.append("<div style='color: #4A6572; font-weight: bold; margin-bottom: 10px;'>");
-                    sb.append("Chat started at : ").append(startTime);
-                    sb.append("</div>");
+                    // For direct messages, use the timestamp of the first message, which is only
+                    // the start of the chat once the oldest page has been loaded
+                    String startTime = hasOlder ? null : DATE_FORMAT.format(messages.get(0).getSentTime());
+                    if (startTime != null) {
+                        sb.append("<div style='color: #4A6572; font-weight: bold; margin-bottom: 10px;'>");
+                        sb.append("Chat started at : ").append(startTime);
+                        sb.append("</div>");
+                    }
 
                     // Display user join and leave times for direct messages
                     sb.append("<div style='color: #4A6572; margin-bottom: 10px;'>");
                     sb.append("<h3>Chat Participants:</h3>");
 
                     try {
-                        // Get all logs to find join and leave times
-                        List<ChatLogs> allLogs = logService.getAllLogs();
-
-                        // Create maps to store join and leave times for each user
-                        Map<String, Date> joinTimes = new HashMap<>();
-                        Map<String, Date> leaveTimes = new HashMap<>();
-                        Date chatStopTime = null;
-
-                        // Filter logs for this direct chat and extract join/leave times
-                        for (ChatLogs log : allLogs) {
-                            if (log.getChatId() != null &&
-                                    (log.getChatId().equals(currentUser.getUsername() + "-" + selectedUser) ||
-                                            log.getChatId().equals(selectedUser + "-" + currentUser.getUsername()))) {
-                                String username = log.getUser().getUsername();
-                                if (log.getAction().equals("JOIN")) {
-                                    // Store the most recent join time
-                                    if (!joinTimes.containsKey(username) ||
-                                            log.getTimestamp().after(joinTimes.get(username))) {
-                                        joinTimes.put(username, log.getTimestamp());
-                                    }
-                                } else if (log.getAction().equals("LEAVE")) {
-                                    // Store the most recent leave time
-                                    if (!leaveTimes.containsKey(username) ||
-                                            log.getTimestamp().after(leaveTimes.get(username))) {
-                                        leaveTimes.put(username, log.getTimestamp());
-                                    }
-                                } else if (log.getAction().equals("CHAT_STOPPED")) {
-                                    // Store the most recent chat stop time
-                                    if (chatStopTime == null || log.getTimestamp().after(chatStopTime)) {
-                                        chatStopTime = log.getTimestamp();
-                                    }
-                                }
-                            }
-                        }
-
-                        // Display current user's join/leave times
+                        // Direct chats are not joined or left, so both participants joined when the chat started
                         sb.append("<div style='margin-left: 15px; margin-bottom: 5px;'>");
                         sb.append(getProfilePicture(currentUser.getUsername(), currentUser.getProfilePicture()));
                         String currentUserNickName = currentUser.getNickName() != null ? currentUser.getNickName() : currentUser.getUsername();
-                        String joinTime = joinTimes.containsKey(currentUser.getUsername()) ?
-                                DATE_FORMAT.format(joinTimes.get(currentUser.getUsername())) : startTime;
-                        sb.append(currentUserNickName).append(" - Joined: ").append(joinTime);
-                        if (leaveTimes.containsKey(currentUser.getUsername())) {
-                            sb.append(" - Left: ").append(DATE_FORMAT.format(leaveTimes.get(currentUser.getUsername())));
-                        }
+                        sb.append(currentUserNickName).append(joinedText(startTime));
                         sb.append("</div>");
 
-                        // Display selected user's join/leave times
+                        // Display selected user's join time
                         ChatUser selectedUserObj = userService.getUserByUsername(selectedUser);
                         if (selectedUserObj != null) {
                             sb.append("<div style='margin-left: 15px; margin-bottom: 5px;'>");
                             sb.append(getProfilePicture(selectedUser, selectedUserObj.getProfilePicture()));
                             String selectedUserNickName = selectedUserObj.getNickName() != null ? selectedUserObj.getNickName() : selectedUser;
-                            String selectedJoinTime = joinTimes.containsKey(selectedUser) ?
-                                    DATE_FORMAT.format(joinTimes.get(selectedUser)) : startTime;
-                            sb.append(selectedUserNickName).append(" - Joined: ").append(selectedJoinTime);
-                            if (leaveTimes.containsKey(selectedUser)) {
-                                sb.append(" - Left: ").append(DATE_FORMAT.format(leaveTimes.get(selectedUser)));
-                            }
+                            sb.append(selectedUserNickName).append(joinedText(startTime));
                             sb.append("</div>");
                         }
 
@@ -1219,66 +1220,262 @@ public class ChatLauncher extends JFrame implements ChatObserver {
             }
         }
 
-        for (ChatMsg message : messages) {
-            ChatUser sender = message.getSender();
-            String username = sender.getUsername();
-            String nickName = sender.getNickName() != null ? sender.getNickName() : username;
-            String timestamp = DATE_FORMAT.format(message.getSentTime());
-            String content = message.getMessage();
-            String profilePic = sender.getProfilePicture();
-
-            // Get group information if this is the "All Groups" view
-            String groupInfo = "";
-            if (selectedGroup != null && selectedGroup.equals("All Groups") && message.getGroup() != null) {
-                groupInfo = " <span style='color: #F9AA33;'>[" + message.getGroup().getName() + "]</span>";
-            }
+        return sb.toString();
+    }
 
-            // Format the message according to the required format
-            if (content.equals("Hi")) {
-                // For Hi greeting - display as a join notification
-                sb.append("<div style='color: #4A6572; font-weight: bold; margin-top: 8px;'>");
+    /**
+     * The join time shown after a direct chat participant's name.
+     *
+     * @param startTime The formatted start time of the chat, or null if it is not known yet
+     * @return The join time text
+     */
+    private String joinedText(String startTime) {
+        return startTime != null ? " - Joined: " + startTime : " - Join time not available";
+    }
 
-                // Use profile picture if available
-                sb.append(getProfilePicture(username, profilePic));
+    /**
+     * Render the HTML of a single message.
+     *
+     * @param message The message
+     * @param showGroup Whether to show the name of the message's group
+     * @return The message HTML
+     */
+    private String renderMessage(ChatMsg message, boolean showGroup) {
+        StringBuilder sb = new StringBuilder();
+        ChatUser sender = message.getSender();
+        String username = sender.getUsername();
+        String nickName = sender.getNickName() != null ? sender.getNickName() : username;
+        String timestamp = DATE_FORMAT.format(message.getSentTime());
+        String content = message.getMessage();
+        String profilePic = sender.getProfilePicture();
+
+        // Show which group the message belongs to in the "All Groups" view
+        String groupInfo = "";
+        if (showGroup && message.getGroup() != null) {
+            groupInfo = " <span style='color: #F9AA33;'>[" + message.getGroup().getName() + "]</span>";
+        }
 
-                sb.append(nickName).append(groupInfo).append(" has joined : ").append(timestamp);
-                sb.append("</div>");
-            } else if (content.equals("Bye")) {
-                // For Bye message - display as a leave notification
-                sb.append("<div style='color: #4A6572; font-weight: bold; margin-top: 8px;'>");
+        // Format the message according to the required format
+        if (content.equals("Hi")) {
+            // For Hi greeting - display as a join notification
+            sb.append("<div style='color: #4A6572; font-weight: bold; margin-top: 8px;'>");
 
-                // Use profile picture if available
-                sb.append(getProfilePicture(username, profilePic));
+            // Use profile picture if available
+            sb.append(getProfilePicture(username, profilePic));
 
-                sb.append(nickName).append(groupInfo).append(" left : ").append(timestamp);
-                sb.append("</div>");
-            } else if (content.startsWith("@")) {
-                // For mentions, highlight them
-                sb.append("<div style='margin-top: 8px;'>");
+            sb.append(nickName).append(groupInfo).append(" has joined : ").append(timestamp);
+            sb.append("</div>");
+        } else if (content.equals("Bye")) {
+            // For Bye message - display as a leave notification
+            sb.append("<div style='color: #4A6572; font-weight: bold; margin-top: 8px;'>");
 
-                // Use profile picture if available
-                sb.append(getProfilePicture(username, profilePic));
+            // Use profile picture if available
+            sb.append(getProfilePicture(username, profilePic));
 
-                sb.append("<span style='color: #344955; font-weight: bold;'>").append(nickName).append(groupInfo).append("</span><br>");
-                sb.append("<span style='color: #F9AA33; margin-left: 15px;'>").append(content).append("</span>");
-                sb.append("</div>");
-            } else {
-                // For regular messages
-                sb.append("<div style='margin-top: 8px;'>");
+            sb.append(nickName).append(groupInfo).append(" left : ").append(timestamp);
+            sb.append("</div>");
+        } else if (content.startsWith("@")) {
+            // For mentions, highlight them
+            sb.append("<div style='margin-top: 8px;'>");
+
+            // Use profile picture if available
+            sb.append(getProfilePicture(username, profilePic));
+
+            sb.append("<span style='color: #344955; font-weight: bold;'>").append(nickName).append(groupInfo).append("</span><br>");
+            sb.append("<span style='color: #F9AA33; margin-left: 15px;'>").append(content).append("</span>");
+            sb.append("</div>");
+        } else {
+            // For regular messages
+            sb.append("<div style='margin-top: 8px;'>");
+
+            // Use profile picture if available
+            sb.append(getProfilePicture(username, profilePic));
+
+            sb.append("<span style='color: #344955; font-weight: bold;'>").append(nickName).append(groupInfo).append("</span><br>");
+            sb.append("<span style='color: #232F34; margin-left: 15px;'>").append(content).append("</span>");
+            sb.append("</div>");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Get the transcript that renders into a chat area, creating it on first use.
+     *
+     * @param targetChatArea The chat area
+     * @return The chat area's transcript
+     */
+    private HtmlTranscript transcriptFor(JEditorPane targetChatArea) {
+        HtmlTranscript transcript = (HtmlTranscript) targetChatArea.getClientProperty(TRANSCRIPT_PROPERTY);
+        if (transcript == null) {
+            boolean showGroup = targetChatArea == allGroupsChatArea;
+            transcript = new HtmlTranscript(targetChatArea, message -> renderMessage(message, showGroup));
+            targetChatArea.putClientProperty(TRANSCRIPT_PROPERTY, transcript);
+        }
+        return transcript;
+    }
+
+    /**
+     * Fetch the latest page of a conversation and make it the conversation's loaded history.
+     *
+     * @param historyKey The group name, or DIRECT_HISTORY_PREFIX followed by the other user's username
+     * @return The new history
+     * @throws RemoteException If a remote communication error occurs
+     */
+    private ConversationHistory loadLatestHistory(String historyKey) throws RemoteException {
+        ConversationHistory history = new ConversationHistory();
+        history.addOlderPage(fetchHistoryPage(historyKey, null), HISTORY_PAGE_SIZE);
+        histories.put(historyKey, history);
+        return history;
+    }
+
+    /**
+     * Fetch one page of a conversation, newest first.
+     *
+     * @param historyKey The group name, ALL_GROUPS_HISTORY_KEY, or DIRECT_HISTORY_PREFIX followed by a username
+     * @param beforeId Only fetch messages older than this id, or null for the latest page
+     * @return The page of messages
+     * @throws RemoteException If a remote communication error occurs
+     */
+    private List<ChatMsg> fetchHistoryPage(String historyKey, Long beforeId) throws RemoteException {
+        if (historyKey.equals(ALL_GROUPS_HISTORY_KEY)) {
+            return chatService.getAllGroupsTimeline(currentUser.getUsername(), beforeId, HISTORY_PAGE_SIZE);
+        }
+        if (historyKey.startsWith(DIRECT_HISTORY_PREFIX)) {
+            String otherUser = historyKey.substring(DIRECT_HISTORY_PREFIX.length());
+            return chatService.getMessagesPage(currentUser.getUsername(), otherUser, beforeId, HISTORY_PAGE_SIZE);
+        }
+        return chatService.getGroupMessagesPage(currentUser.getUsername(), historyKey, beforeId, HISTORY_PAGE_SIZE);
+    }
+
+    /**
+     * Fetch the messages of a conversation that are newer than a given id, oldest first.
+     *
+     * @param historyKey The group name, or DIRECT_HISTORY_PREFIX followed by the other user's username
+     * @param afterId Only fetch messages newer than this id
+     * @return The newer messages
+     * @throws RemoteException If a remote communication error occurs
+     */
+    private List<ChatMsg> fetchMessagesSince(String historyKey, long afterId) throws RemoteException {
+        if (historyKey.startsWith(DIRECT_HISTORY_PREFIX)) {
+            String otherUser = historyKey.substring(DIRECT_HISTORY_PREFIX.length());
+            return chatService.getMessagesSince(currentUser.getUsername(), otherUser, afterId, HISTORY_PAGE_SIZE);
+        }
+        return chatService.getGroupMessagesSince(currentUser.getUsername(), historyKey, afterId, HISTORY_PAGE_SIZE);
+    }
+
+    /**
+     * Add a new message to its conversation. The message is appended directly unless the
+     * server reports that an earlier message is missing, in which case only the missing
+     * messages are fetched.
+     *
+     * @param historyKey The key of the conversation
+     * @param message The new message
+     * @param targetChatArea The chat area showing the conversation
+     */
+    private void receiveMessage(String historyKey, ChatMsg message, JEditorPane targetChatArea) {
+        if (targetChatArea == null) {
+            return;
+        }
 
-                // Use profile picture if available
-                sb.append(getProfilePicture(username, profilePic));
+        try {
+            ConversationHistory history = histories.get(historyKey);
+            if (history == null || !historyKey.equals(targetChatArea.getClientProperty(HISTORY_KEY_PROPERTY))) {
+                showHistory(historyKey, loadLatestHistory(historyKey), targetChatArea);
+                return;
+            }
+            if (history.isLoaded(message)) {
+                return;
+            }
 
-                sb.append("<span style='color: #344955; font-weight: bold;'>").append(nickName).append(groupInfo).append("</span><br>");
-                sb.append("<span style='color: #232F34; margin-left: 15px;'>").append(content).append("</span>");
-                sb.append("</div>");
+            List<ChatMsg> added;
+            if (history.follows(message)) {
+                added = history.appendAll(List.of(message));
+            } else {
+                Long newestId = history.getNewestId();
+                List<ChatMsg> missed = fetchMessagesSince(historyKey, newestId != null ? newestId : 0L);
+                if (missed.size() >= HISTORY_PAGE_SIZE) {
+                    // Too far behind to catch up; start again from the latest page
+                    showHistory(historyKey, loadLatestHistory(historyKey), targetChatArea);
+                    return;
+                }
+                added = history.appendAll(missed);
             }
+
+            // Insert only the new messages into the existing document
+            transcriptFor(targetChatArea).append(added);
+        } catch (RemoteException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Render a conversation's loaded history in a chat area, replacing its content.
+     *
+     * @param historyKey The key of the conversation
+     * @param history The loaded history
+     * @param targetChatArea The chat area to render in
+     */
+    private void showHistory(String historyKey, ConversationHistory history, JEditorPane targetChatArea) {
+        installHistoryPaging(targetChatArea);
+        targetChatArea.putClientProperty(HISTORY_KEY_PROPERTY, historyKey);
+
+        // Ignore the scroll events caused by re-rendering until the view has settled
+        history.setLoading(true);
+        displayMessages(history.getMessages(), history.hasOlder(), targetChatArea);
+        SwingUtilities.invokeLater(() -> history.setLoading(false));
+    }
+
+    /**
+     * Load the page before the oldest loaded message of the conversation shown in a chat area.
+     *
+     * @param targetChatArea The chat area
+     */
+    private void loadOlderMessages(JEditorPane targetChatArea) {
+        String historyKey = (String) targetChatArea.getClientProperty(HISTORY_KEY_PROPERTY);
+        ConversationHistory history = historyKey != null ? histories.get(historyKey) : null;
+        if (history == null || !history.hasOlder() || history.isLoading()) {
+            return;
+        }
+
+        history.setLoading(true);
+        try {
+            List<ChatMsg> page = fetchHistoryPage(historyKey, history.getOldestId());
+            history.addOlderPage(page, HISTORY_PAGE_SIZE);
+
+            // Insert only the new page above the loaded messages
+            transcriptFor(targetChatArea).prepend(history.getMessages().subList(0, page.size()));
+        } catch (RemoteException e) {
+            e.printStackTrace();
+        } finally {
+            // Runs after the transcript has restored the view position
+            SwingUtilities.invokeLater(() -> history.setLoading(false));
         }
+    }
+
+    /**
+     * Load older messages whenever the user scrolls to the top of a chat area.
+     *
+     * @param targetChatArea The chat area
+     */
+    private void installHistoryPaging(JEditorPane targetChatArea) {
+        JScrollBar scrollBar = getVerticalScrollBar(targetChatArea);
+        if (scrollBar == null || targetChatArea.getClientProperty(HISTORY_PAGING_PROPERTY) != null) {
+            return;
+        }
+        targetChatArea.putClientProperty(HISTORY_PAGING_PROPERTY, Boolean.TRUE);
+
+        scrollBar.addAdjustmentListener(e -> {
+            if (!e.getValueIsAdjusting() && e.getValue() == scrollBar.getMinimum()
+                    && scrollBar.getMaximum() > scrollBar.getVisibleAmount()) {
+                SwingUtilities.invokeLater(() -> loadOlderMessages(targetChatArea));
+            }
+        });
+    }
 
-        sb.append("</body></html>");
-        targetChatArea.setText(sb.toString());
-        // Scroll to bottom
-        targetChatArea.setCaretPosition(0);
+    private JScrollBar getVerticalScrollBar(JEditorPane targetChatArea) {
+        JScrollPane scrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, targetChatArea);
+        return scrollPane != null ? scrollPane.getVerticalScrollBar() : null;
     }
     /**
      * Send a message to the selected user or group.
@@ -1379,19 +1576,11 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                         // Get the chat area for this group
                         JEditorPane groupChatArea = chatAreas.get(selectedGroup);
                         if (groupChatArea != null) {
-                            // Get current content without closing tags
-                            String currentText = groupChatArea.getText();
-                            currentText = currentText.replace("</body></html>", "");
-
-                            // Add new message and close tags
-                            groupChatArea.setText(currentText + leaveMessage + "</body></html>");
+                            // Insert the notice into the existing document
+                            transcriptFor(groupChatArea).appendHtml(leaveMessage);
                         } else {
                             // Fallback to default chat area if group chat area doesn't exist
-                            String currentText = chatArea.getText();
-                            currentText = currentText.replace("</body></html>", "");
-
-                            // Add new message and close tags
-                            chatArea.setText(currentText + leaveMessage + "</body></html>");
+                            transcriptFor(chatArea).appendHtml(leaveMessage);
                         }
 
                         // Notify all users in the group that this user has left
@@ -1440,11 +1629,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                         String leaveMessage = leaveMessageBuilder.toString();
 
                         // For direct messages, use the default chat area
-                        String currentText = chatArea.getText();
-                        currentText = currentText.replace("</body></html>", "");
-
-                        // Add new message and close tags
-                        chatArea.setText(currentText + leaveMessage + "</body></html>");
+                        transcriptFor(chatArea).appendHtml(leaveMessage);
 
                         messageField.setText("");
                         JOptionPane.showMessageDialog(this,
@@ -1516,7 +1701,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                     ChatMsg chatMsg = chatService.sendGroupMessage(currentUser.getUsername(), selectedGroup, message);
                     if (chatMsg != null) {
                         messageField.setText("");
-                        loadMessages();
+                        receiveMessage(selectedGroup, chatMsg, chatAreas.get(selectedGroup));
                     }
                 }
             } else if (!isGroupSelected && selectedUser != null) {
@@ -1524,7 +1709,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                 ChatMsg chatMsg = chatService.sendMessage(currentUser.getUsername(), selectedUser, message);
                 if (chatMsg != null) {
                     messageField.setText("");
-                    loadMessages();
+                    receiveMessage(DIRECT_HISTORY_PREFIX + selectedUser, chatMsg, chatArea);
                 }
             } else if (isGroupSelected && selectedGroup == null) {
                 // If a group chat is selected but no specific group is chosen,
@@ -1783,8 +1968,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                                 chatAreas.put(selectedGroup, groupChatArea);
 
                                 // Load messages for this group
-                                List<ChatMsg> messages = chatService.getGroupMessages(selectedGroup);
-                                displayMessages(messages, groupChatArea);
+                                showHistory(selectedGroup, loadLatestHistory(selectedGroup), groupChatArea);
                             }
 
                             loadGroups();
@@ -2023,7 +2207,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
         try {
             // Get the SubscribeService from the registry
             Registry registry = LocateRegistry.getRegistry(RMI_HOST, RMI_PORT);
-            SubscribeService subscribeService = (SubscribeService) registry.lookup("SubscribeService");
+            SubscribeService subscribeService = (SubscribeService) registry.lookup(RmiTransport.serviceName("SubscribeService"));
 
             // Check if already subscribed
             if (subscribeService.isSubscribed(currentUser.getUsername(), selectedUser)) {
@@ -2072,7 +2256,7 @@ public class ChatLauncher extends JFrame implements ChatObserver {
         try {
             // Get the SubscribeService from the registry
             Registry registry = LocateRegistry.getRegistry(RMI_HOST, RMI_PORT);
-            SubscribeService subscribeService = (SubscribeService) registry.lookup("SubscribeService");
+            SubscribeService subscribeService = (SubscribeService) registry.lookup(RmiTransport.serviceName("SubscribeService"));
 
             // Check if subscribed
             if (!subscribeService.isSubscribed(currentUser.getUsername(), selectedUser)) {
@@ -2199,69 +2383,37 @@ public class ChatLauncher extends JFrame implements ChatObserver {
         if (message.getGroup() != null) {
             String groupName = message.getGroup().getName();
 
-            // Check if the current user is a member of this group
-            try {
-                List<ChatGrp> userGroups = chatService.getUserGroups(currentUser.getUsername());
-                boolean isMember = userGroups.stream()
-                        .anyMatch(group -> group.getName().equals(groupName));
-
-                // Only process messages for groups the user is a member of
-                if (!isMember) {
-                    return;
-                }
-            } catch (RemoteException e) {
-                e.printStackTrace();
-                return;
-            }
+            // The server only delivers group messages to members, so no membership check is needed
+            SwingUtilities.invokeLater(() -> {
+                JEditorPane groupChatArea = chatAreas.get(groupName);
+                if (groupChatArea == null) {
+                    // Create a new chat area for this group
+                    groupChatArea = new JEditorPane("text/html", "");
+                    groupChatArea.setEditable(false);
+                    groupChatArea.putClientProperty(JEditorPane.HONOR_DISPLAY_PROPERTIES, Boolean.TRUE);
+                    groupChatArea.setBackground(new Color(245, 245, 250)); // Same as backgroundColor
+                    groupChatArea.setFont(new Font("Arial", Font.PLAIN, 12));
 
-            // Create a chat area for this group if it doesn't exist
-            if (!chatAreas.containsKey(groupName)) {
-                SwingUtilities.invokeLater(() -> {
-                    try {
-                        // Create a new chat area for this group
-                        JEditorPane groupChatArea = new JEditorPane("text/html", "");
-                        groupChatArea.setEditable(false);
-                        groupChatArea.putClientProperty(JEditorPane.HONOR_DISPLAY_PROPERTIES, Boolean.TRUE);
-                        groupChatArea.setBackground(new Color(245, 245, 250)); // Same as backgroundColor
-                        groupChatArea.setFont(new Font("Arial", Font.PLAIN, 12));
+                    // Create a scroll pane for the chat area
+                    JScrollPane scrollPane = new JScrollPane(groupChatArea);
+                    scrollPane.setBorder(BorderFactory.createLineBorder(new Color(74, 101, 114), 1)); // primaryLightColor
 
-                        // Create a scroll pane for the chat area
-                        JScrollPane scrollPane = new JScrollPane(groupChatArea);
-                        scrollPane.setBorder(BorderFactory.createLineBorder(new Color(74, 101, 114), 1)); // primaryLightColor
+                    // Add to the card panel
+                    chatCardPanel.add(scrollPane, groupName);
 
-                        // Add to the card panel
-                        chatCardPanel.add(scrollPane, groupName);
+                    // Store in the map
+                    chatAreas.put(groupName, groupChatArea);
+                }
 
-                        // Store in the map
-                        chatAreas.put(groupName, groupChatArea);
+                // Append the new message, catching up first if any were missed
+                receiveMessage(groupName, message, groupChatArea);
 
-                        // Load messages for this group
-                        List<ChatMsg> messages = chatService.getGroupMessages(groupName);
-                        displayMessages(messages, groupChatArea);
-                    } catch (RemoteException e) {
-                        e.printStackTrace();
-                    }
-                });
-            } else {
-                // Update the existing chat area with the new message
-                SwingUtilities.invokeLater(() -> {
-                    try {
-                        JEditorPane groupChatArea = chatAreas.get(groupName);
-                        List<ChatMsg> messages = chatService.getGroupMessages(groupName);
-                        displayMessages(messages, groupChatArea);
-                    } catch (RemoteException e) {
-                        e.printStackTrace();
-                    }
-                });
-            }
-
-            // If this is the currently selected group, show it
-            if (isGroupSelected && selectedGroup != null && selectedGroup.equals(groupName)) {
-                SwingUtilities.invokeLater(() -> {
+                // If this is the currently selected group, show it
+                if (isGroupSelected && selectedGroup != null && selectedGroup.equals(groupName)) {
                     CardLayout cardLayout = (CardLayout) chatCardPanel.getLayout();
                     cardLayout.show(chatCardPanel, groupName);
-                });
-            }
+                }
+            });
         } else {
             // For direct messages
             if (isGroupSelected) {
@@ -2271,15 +2423,28 @@ public class ChatLauncher extends JFrame implements ChatObserver {
 
             if ((sender.equals(selectedUser) ||
                     (message.getReceiver() != null && message.getReceiver().getUsername().equals(selectedUser)))) {
-                SwingUtilities.invokeLater(this::loadMessages);
+                String historyKey = DIRECT_HISTORY_PREFIX + selectedUser;
+                SwingUtilities.invokeLater(() -> receiveMessage(historyKey, message, chatArea));
             }
         }
     }
 
     @Override
-    public void userStatusChanged(String username, boolean isOnline) throws RemoteException {
-        // Refresh user list when a user's status changes
-        SwingUtilities.invokeLater(this::loadUsers);
+    public void presenceChanged(PresenceDelta delta) throws RemoteException {
+        SwingUtilities.invokeLater(() -> applyPresence(delta));
+    }
+
+    @Override
+    public void resyncRequired() throws RemoteException {
+        SwingUtilities.invokeLater(() -> {
+            // Notifications were skipped while this client was behind; reload everything shown
+            histories.clear();
+            loadGroups();
+            loadPresence();
+            if (selectedUser != null || selectedGroup != null) {
+                loadMessages();
+            }
+        });
     }
 
     @Override
@@ -2376,12 +2541,8 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                     // Get the chat area for this group
                     JEditorPane groupChatArea = chatAreas.get(chatName);
                     if (groupChatArea != null) {
-                        // Get current content without closing tags
-                        String currentText = groupChatArea.getText();
-                        currentText = currentText.replace("</body></html>", "");
-
-                        // Add new message and close tags
-                        groupChatArea.setText(currentText + joinMessage + "</body></html>");
+                        // Insert the notice into the existing document
+                        transcriptFor(groupChatArea).appendHtml(joinMessage);
                     } else {
                         // If the chat area doesn't exist yet, create it
                         JEditorPane newGroupChatArea = new JEditorPane("text/html", "");
@@ -2405,12 +2566,6 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                                 joinMessage + "</body></html>");
                         newGroupChatArea.setCaretPosition(0);
                     }
-
-                    // Scroll to appropriate position
-                    JEditorPane currentChatArea = chatAreas.get(chatName);
-                    if (currentChatArea != null) {
-                        currentChatArea.setCaretPosition(0);
-                    }
                 }
             } catch (RemoteException e) {
                 e.printStackTrace();
@@ -2443,15 +2598,8 @@ public class ChatLauncher extends JFrame implements ChatObserver {
                     // Get the chat area for this group
                     JEditorPane groupChatArea = chatAreas.get(chatName);
                     if (groupChatArea != null) {
-                        // Get current content without closing tags
-                        String currentText = groupChatArea.getText();
-                        currentText = currentText.replace("</body></html>", "");
-
-                        // Add new message and close tags
-                        groupChatArea.setText(currentText + leaveMessage + "</body></html>");
-
-                        // Scroll to appropriate position
-                        groupChatArea.setCaretPosition(0);
+                        // Insert the notice into the existing document
+                        transcriptFor(groupChatArea).appendHtml(leaveMessage);
                     } else {
                         // If the chat area doesn't exist yet, create it
                         JEditorPane newGroupChatArea = new JEditorPane("text/html", "");
@@ -2503,25 +2651,11 @@ public class ChatLauncher extends JFrame implements ChatObserver {
             // Get the chat area for this group
             JEditorPane groupChatArea = chatAreas.get(chatName);
             if (groupChatArea != null) {
-                // Get current content without closing tags
-                String currentText = groupChatArea.getText();
-                currentText = currentText.replace("</body></html>", "");
-
-                // Add new message and close tags
-                groupChatArea.setText(currentText + chatStoppedMessage + "</body></html>");
-
-                // Scroll to appropriate position
-                groupChatArea.setCaretPosition(groupChatArea.getDocument().getLength());
+                // Insert the notice into the existing document
+                transcriptFor(groupChatArea).appendHtml(chatStoppedMessage);
             } else {
                 // If this is a direct message or the chat area doesn't exist, use the default chat area
-                String currentText = chatArea.getText();
-                currentText = currentText.replace("</body></html>", "");
-
-                // Add new message and close tags
-                chatArea.setText(currentText + chatStoppedMessage + "</body></html>");
-
-                // Scroll to appropriate position
-                chatArea.setCaretPosition(chatArea.getDocument().getLength());
+                transcriptFor(chatArea).appendHtml(chatStoppedMessage);
             }
 
             // Show a notification
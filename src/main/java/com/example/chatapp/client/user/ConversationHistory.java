@@ -0,0 +1,114 @@
+package com.example.chatapp.client.user;
+
+import com.example.chatapp.domain.ChatMsg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The part of a conversation's history that has been loaded so far, oldest message first.
+ * The latest page is loaded when the conversation is opened; older pages are prepended
+ * as the user scrolls back.
+ */
+public class ConversationHistory {
+
+    private final List<ChatMsg> messages = new ArrayList<>();
+    private boolean hasOlder = true;
+    private boolean loading;
+
+    /**
+     * Prepend a page of older messages.
+     *
+     * @param page The page as returned by the server, newest first
+     * @param pageSize The page size that was requested
+     */
+    public void addOlderPage(List<ChatMsg> page, int pageSize) {
+        List<ChatMsg> chronological = new ArrayList<>(page);
+        Collections.reverse(chronological);
+        messages.addAll(0, chronological);
+
+        // A short page means the start of the conversation has been reached
+        if (page.size() < pageSize) {
+            hasOlder = false;
+        }
+    }
+
+    /**
+     * Append newer messages. Messages that are already loaded are skipped.
+     *
+     * @param newer The messages, oldest first
+     * @return The messages that were actually appended
+     */
+    public List<ChatMsg> appendAll(List<ChatMsg> newer) {
+        List<ChatMsg> added = new ArrayList<>();
+        for (ChatMsg message : newer) {
+            if (!isLoaded(message)) {
+                messages.add(message);
+                added.add(message);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @param message A message pushed by the server
+     * @return True if the message, or a newer one, has already been loaded
+     */
+    public boolean isLoaded(ChatMsg message) {
+        Long newestId = getNewestId();
+        return newestId != null && message.getId() != null && message.getId() <= newestId;
+    }
+
+    /**
+     * Check whether a message can be appended without leaving a gap, i.e. whether the
+     * message committed before it in this conversation has already been loaded.
+     *
+     * @param message A message pushed by the server
+     * @return True if nothing is missing between the loaded history and the message
+     */
+    public boolean follows(ChatMsg message) {
+        Long previousId = message.getPreviousId();
+        if (previousId == null) {
+            return true;
+        }
+        Long newestId = getNewestId();
+        return newestId != null && previousId <= newestId;
+    }
+
+    /**
+     * @return The id of the oldest loaded message, or null if nothing is loaded
+     */
+    public Long getOldestId() {
+        return messages.isEmpty() ? null : messages.get(0).getId();
+    }
+
+    /**
+     * @return The id of the newest loaded message, or null if nothing is loaded
+     */
+    public Long getNewestId() {
+        return messages.isEmpty() ? null : messages.get(messages.size() - 1).getId();
+    }
+
+    /**
+     * @return The loaded messages, oldest first
+     */
+    public List<ChatMsg> getMessages() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * @return True if older messages may still exist on the server
+     */
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public void setLoading(boolean loading) {
+        this.loading = loading;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.chatapp.client.user;
+
+import com.example.chatapp.domain.ChatMsg;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Caret;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.html.HTML;
+import javax.swing.text.html.HTMLDocument;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A conversation rendered into a JEditorPane as an HTML document that grows in place.
+ * The whole document is only parsed when a conversation is opened; after that, new and
+ * older messages are inserted as individual elements. Each message's HTML is rendered
+ * once and cached by message id.
+ */
+public class HtmlTranscript {
+
+    private static final String BODY_START = "<html><body style='font-family: Arial, sans-serif; margin: 10px;'>";
+    private static final String BODY_END = "</body></html>";
+    private static final String MESSAGES_ID = "messages";
+    // How close to the bottom (in pixels) still counts as following the conversation
+    private static final int BOTTOM_TOLERANCE = 4;
+
+    private final JEditorPane pane;
+    private final Function<ChatMsg, String> renderer;
+    private final Map<Long, String> fragments = new HashMap<>();
+
+    /**
+     * Create a transcript for a pane.
+     *
+     * @param pane The HTML pane to render into
+     * @param renderer Renders the HTML of a single message
+     */
+    public HtmlTranscript(JEditorPane pane, Function<ChatMsg, String> renderer) {
+        this.pane = pane;
+        this.renderer = renderer;
+
+        // Scrolling is managed here; inserts must not drag the view along with the caret
+        Caret caret = pane.getCaret();
+        if (caret instanceof DefaultCaret) {
+            ((DefaultCaret) caret).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        }
+    }
+
+    /**
+     * Replace the pane's content with a header and a list of messages, and scroll to the bottom.
+     *
+     * @param headerHtml HTML shown above the messages
+     * @param messages The messages, oldest first
+     */
+    public void show(String headerHtml, List<ChatMsg> messages) {
+        // Only keep fragments for messages that are still shown
+        Set<Long> shownIds = new HashSet<>();
+        for (ChatMsg message : messages) {
+            shownIds.add(message.getId());
+        }
+        fragments.keySet().retainAll(shownIds);
+
+        StringBuilder sb = new StringBuilder(BODY_START);
+        sb.append(headerHtml);
+        sb.append("<div id='").append(MESSAGES_ID).append("'>");
+        for (ChatMsg message : messages) {
+            sb.append(fragment(message));
+        }
+        sb.append("</div>");
+        sb.append(BODY_END);
+
+        pane.setText(sb.toString());
+        scrollToBottom();
+    }
+
+    /**
+     * Add newer messages at the end. The view follows them if it was at the bottom.
+     *
+     * @param messages The messages, oldest first
+     */
+    public void append(List<ChatMsg> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (ChatMsg message : messages) {
+            sb.append(fragment(message));
+        }
+        appendHtml(sb.toString());
+    }
+
+    /**
+     * Add arbitrary HTML, such as a join or leave notice, at the end.
+     *
+     * @param html The HTML to add
+     */
+    public void appendHtml(String html) {
+        boolean followTail = isAtBottom();
+        insert(html, false);
+        if (followTail) {
+            scrollToBottom();
+        }
+    }
+
+    /**
+     * Add older messages above the loaded ones without moving what the user is looking at.
+     *
+     * @param messages The messages, oldest first
+     */
+    public void prepend(List<ChatMsg> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        JScrollBar scrollBar = getVerticalScrollBar();
+        int distanceFromBottom = scrollBar != null
+                ? scrollBar.getMaximum() - scrollBar.getVisibleAmount() - scrollBar.getValue()
+                : 0;
+
+        StringBuilder sb = new StringBuilder();
+        for (ChatMsg message : messages) {
+            sb.append(fragment(message));
+        }
+        insert(sb.toString(), true);
+
+        // The document grows above the view; restore the view once the new layout is known
+        if (scrollBar != null) {
+            SwingUtilities.invokeLater(() -> scrollBar.setValue(
+                    scrollBar.getMaximum() - scrollBar.getVisibleAmount() - distanceFromBottom));
+        }
+    }
+
+    /**
+     * @return True if the view is scrolled to (or near) the bottom
+     */
+    public boolean isAtBottom() {
+        JScrollBar scrollBar = getVerticalScrollBar();
+        return scrollBar == null
+                || scrollBar.getValue() + scrollBar.getVisibleAmount() >= scrollBar.getMaximum() - BOTTOM_TOLERANCE;
+    }
+
+    private String fragment(ChatMsg message) {
+        if (message.getId() == null) {
+            return renderer.apply(message);
+        }
+        return fragments.computeIfAbsent(message.getId(), id -> renderer.apply(message));
+    }
+
+    private void insert(String html, boolean atStart) {
+        Document document = pane.getDocument();
+        Element container = document instanceof HTMLDocument
+                ? findContainer((HTMLDocument) document)
+                : null;
+        if (container == null) {
+            // Not an HTML document; fall back to rebuilding the text
+            pane.setText(pane.getText().replace(BODY_END, "") + html + BODY_END);
+            return;
+        }
+
+        try {
+            HTMLDocument htmlDocument = (HTMLDocument) document;
+            if (atStart) {
+                htmlDocument.insertAfterStart(container, html);
+            } else {
+                htmlDocument.insertBeforeEnd(container, html);
+            }
+        } catch (BadLocationException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Element findContainer(HTMLDocument document) {
+        Element messages = document.getElement(MESSAGES_ID);
+        if (messages != null) {
+            return messages;
+        }
+        Element root = document.getDefaultRootElement();
+        for (int i = 0; i < root.getElementCount(); i++) {
+            Element child = root.getElement(i);
+            if (child.getAttributes().getAttribute(StyleConstants.NameAttribute) == HTML.Tag.BODY) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private void scrollToBottom() {
+        SwingUtilities.invokeLater(() -> {
+            JScrollBar scrollBar = getVerticalScrollBar();
+            if (scrollBar != null) {
+                scrollBar.setValue(scrollBar.getMaximum() - scrollBar.getVisibleAmount());
+            }
+        });
+    }
+
+    private JScrollBar getVerticalScrollBar() {
+        JScrollPane scrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, pane);
+        return scrollPane != null ? scrollPane.getVerticalScrollBar() : null;
+    }
+}
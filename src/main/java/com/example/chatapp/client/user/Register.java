@@ -2,6 +2,7 @@ package com.example.chatapp.client.user;
 
 import com.example.chatapp.domain.ChatUser;
 import com.example.chatapp.rmi.UserService;
+import com.example.chatapp.rmi.transport.RmiTransport;
 import com.example.chatapp.server.implementation.Server;
 
 import javax.swing.*;
@@ -219,7 +220,7 @@ public class Register extends JFrame {
 
         try {
             Registry registry = LocateRegistry.getRegistry(RMI_HOST, RMI_PORT);
-            UserService userService = (UserService) registry.lookup(USER_SERVICE_NAME);
+            UserService userService = (UserService) registry.lookup(RmiTransport.serviceName(USER_SERVICE_NAME));
 
             // Check if username is available
             if (!userService.isUsernameAvailable(username)) {
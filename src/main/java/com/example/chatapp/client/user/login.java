@@ -3,6 +3,7 @@ package com.example.chatapp.client.user;
 import com.example.chatapp.client.admin.AdminDashboard;
 import com.example.chatapp.domain.ChatUser;
 import com.example.chatapp.rmi.UserService;
+import com.example.chatapp.rmi.transport.RmiTransport;
 import com.example.chatapp.server.implementation.Server;
 
 import javax.swing.*;
@@ -136,7 +137,7 @@ public class Login extends JFrame {
             System.out.println("Getting registry...");
             Registry registry = LocateRegistry.getRegistry(RMI_HOST, RMI_PORT);
             System.out.println("Looking up UserService...");
-            UserService userService = (UserService) registry.lookup(USER_SERVICE_NAME);
+            UserService userService = (UserService) registry.lookup(RmiTransport.serviceName(USER_SERVICE_NAME));
             System.out.println("UserService found, calling login...");
 
             // Clear any previous login status
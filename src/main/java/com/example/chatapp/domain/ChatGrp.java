@@ -1,6 +1,8 @@
-ackage com.example.chatapp.domain;
+package com.example.chatapp.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.HashSet;
@@ -9,6 +11,8 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "chat_groups")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "chat.groups")
 public class ChatGrp implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -33,6 +37,7 @@ public class ChatGrp implements Serializable {
     private Date createdDate;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "chat.groups.members")
     @JoinTable(
             name = "group_members",
             joinColumns = @JoinColumn(name = "group_id"),
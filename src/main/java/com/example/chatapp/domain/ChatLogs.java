@@ -9,7 +9,9 @@ import java.util.Date;
 public class ChatLogs implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "chat_logs_ids")
+    @TableGenerator(name = "chat_logs_ids", table = "id_blocks", pkColumnName = "entity",
+            valueColumnName = "next_id", pkColumnValue = "chat_logs", allocationSize = 100)
     private Long id;
 
     @ManyToOne
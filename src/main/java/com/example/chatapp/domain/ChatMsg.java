@@ -9,7 +9,9 @@ import java.util.Date;
 public class ChatMsg implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "chat_messages_ids")
+    @TableGenerator(name = "chat_messages_ids", table = "id_blocks", pkColumnName = "entity",
+            valueColumnName = "next_id", pkColumnValue = "chat_messages", allocationSize = 100)
     private Long id;
 
     @ManyToOne
@@ -34,6 +36,10 @@ public class ChatMsg implements Serializable {
     @Column(name = "is_read")
     private boolean isRead = false;
 
+    // Id of the message committed before this one in the same conversation; not stored
+    @Transient
+    private Long previousId;
+
     // Default constructor required by Hibernate
     public ChatMsg() {
     }
@@ -101,6 +107,14 @@ public class ChatMsg implements Serializable {
         this.sentTime = sentTime;
     }
 
+    public Long getPreviousId() {
+        return previousId;
+    }
+
+    public void setPreviousId(Long previousId) {
+        this.previousId = previousId;
+    }
+
     public boolean isRead() {
         return isRead;
     }
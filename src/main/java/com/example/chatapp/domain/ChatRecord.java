@@ -8,8 +8,24 @@ import java.util.Date;
 @Table(name = "chat_records")
 public class ChatRecord implements Serializable {
 
+    /**
+     * How far the chat's transcript has got in being archived.
+     */
+    public enum Status {
+        /** Waiting for an archiver thread. */
+        PENDING,
+        /** The transcript is being written. */
+        WRITING,
+        /** The transcript has been written to the file path. */
+        DONE,
+        /** Writing the transcript failed. */
+        FAILED
+    }
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "chat_records_ids")
+    @TableGenerator(name = "chat_records_ids", table = "id_blocks", pkColumnName = "entity",
+            valueColumnName = "next_id", pkColumnValue = "chat_records", allocationSize = 20)
     private Long id;
 
     @Column(name = "chat_id", nullable = false, unique = true)
@@ -29,6 +45,10 @@ public class ChatRecord implements Serializable {
     @Temporal(TemporalType.TIMESTAMP)
     private Date createdAt;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
     // Default constructor required by Hibernate
     public ChatRecord() {
         this.createdAt = new Date();
@@ -90,6 +110,14 @@ public class ChatRecord implements Serializable {
         this.createdAt = createdAt;
     }
 
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
     @Override
     public String toString() {
         return "ChatRecord{" +
@@ -99,6 +127,7 @@ public class ChatRecord implements Serializable {
                 ", filePath='" + filePath + '\'' +
                 ", stopTime=" + stopTime +
                 ", createdAt=" + createdAt +
+                ", status=" + status +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package com.example.chatapp.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.io.Serializable;
 
 @Entity
 @Table(name = "chat_users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "chat.users")
 public class ChatUser implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,15 +1,21 @@
 package com.example.chatapp.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.io.Serializable;
 import java.util.Date;
 
 @Entity
 @Table(name = "subscriptions")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "chat.subscriptions")
 public class Subscribe implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "subscriptions_ids")
+    @TableGenerator(name = "subscriptions_ids", table = "id_blocks", pkColumnName = "entity",
+            valueColumnName = "next_id", pkColumnValue = "subscriptions", allocationSize = 20)
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,41 @@
+package com.example.chatapp.gateway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Builds one gateway frame. The body is written through the DataOutput methods, and
+ * {@link #toFrame()} fills in the length prefix without copying the body.
+ */
+public final class FrameBuilder extends DataOutputStream {
+
+    /**
+     * Create an empty frame.
+     */
+    public FrameBuilder() {
+        super(new FrameBuffer());
+    }
+
+    /**
+     * @return The frame, length prefix included, ready to be written to a channel
+     */
+    public ByteBuffer toFrame() {
+        return ((FrameBuffer) out).toFrame();
+    }
+
+    private static final class FrameBuffer extends ByteArrayOutputStream {
+
+        FrameBuffer() {
+            super(64);
+            // Room for the length prefix
+            count = 4;
+        }
+
+        ByteBuffer toFrame() {
+            ByteBuffer frame = ByteBuffer.wrap(buf, 0, count);
+            frame.putInt(0, count - 4);
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.chatapp.gateway;
+
+import com.example.chatapp.rmi.dto.GroupView;
+import com.example.chatapp.rmi.dto.MessageList;
+import com.example.chatapp.rmi.dto.MessageView;
+import com.example.chatapp.rmi.dto.PresenceDelta;
+import com.example.chatapp.rmi.dto.UserView;
+import com.example.chatapp.rmi.dto.WireCodec;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client of the socket gateway.
+ * Calls block until their response arrives, and may be made from several threads at once.
+ * Events pushed by the server are passed to the listener on the client's reader thread.
+ */
+public class GatewayClient implements Closeable {
+
+    /**
+     * Receives the events pushed by the server. All methods do nothing by default.
+     */
+    public interface EventListener {
+        default void messageReceived(MessageView message) {
+        }
+
+        default void presenceChanged(PresenceDelta delta) {
+        }
+
+        default void chatStarted(String chatName, long startMillis) {
+        }
+
+        default void userJoined(String chatName, String username, String nickName, long joinMillis) {
+        }
+
+        default void userLeft(String chatName, String username, String nickName, long leaveMillis) {
+        }
+
+        default void chatStopped(String chatName, long stopMillis) {
+        }
+
+        /**
+         * Events were skipped because this client fell behind; reload what is shown.
+         */
+        default void resyncRequired() {
+        }
+
+        default void connectionClosed() {
+        }
+    }
+
+    private static final long CALL_TIMEOUT_MS = 30_000L;
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final EventListener listener;
+    private final Map<Integer, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Connect to a gateway.
+     *
+     * @param host The server host
+     * @param port The gateway port
+     * @param listener Receives pushed events
+     * @throws IOException If the connection fails
+     */
+    public GatewayClient(String host, int port, EventListener listener) throws IOException {
+        this.listener = listener;
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port));
+        this.out = socket.getOutputStream();
+
+        Thread reader = new Thread(this::readLoop, "gateway-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public UserView login(String username, String password) throws IOException {
+        return WireCodec.readUser(call(GatewayProtocol.LOGIN, args -> {
+            WireCodec.writeString(args, username);
+            WireCodec.writeString(args, password);
+        }));
+    }
+
+    public UserView register(String username, String password, String email, String nickName,
+                             String profilePicture) throws IOException {
+        return WireCodec.readUser(call(GatewayProtocol.REGISTER, args -> {
+            WireCodec.writeString(args, username);
+            WireCodec.writeString(args, password);
+            WireCodec.writeNullableString(args, email);
+            WireCodec.writeNullableString(args, nickName);
+            WireCodec.writeNullableString(args, profilePicture);
+        }));
+    }
+
+    public boolean isUsernameAvailable(String username) throws IOException {
+        return call(GatewayProtocol.IS_USERNAME_AVAILABLE, args -> WireCodec.writeString(args, username)).readBoolean();
+    }
+
+    public void ping() throws IOException {
+        call(GatewayProtocol.PING, args -> {
+        });
+    }
+
+    public boolean logout() throws IOException {
+        return call(GatewayProtocol.LOGOUT, args -> {
+        }).readBoolean();
+    }
+
+    public UserView updateProfile(String newPassword, String newEmail, String newNickName,
+                                  String newProfilePicture) throws IOException {
+        return WireCodec.readUser(call(GatewayProtocol.UPDATE_PROFILE, args -> {
+            WireCodec.writeNullableString(args, newPassword);
+            WireCodec.writeNullableString(args, newEmail);
+            WireCodec.writeNullableString(args, newNickName);
+            WireCodec.writeNullableString(args, newProfilePicture);
+        }));
+    }
+
+    public MessageView sendMessage(String receiver, String text) throws IOException {
+        return WireCodec.readMessage(call(GatewayProtocol.SEND_MESSAGE, args -> {
+            WireCodec.writeString(args, receiver);
+            WireCodec.writeString(args, text);
+        }));
+    }
+
+    public MessageView sendGroupMessage(String groupName, String text) throws IOException {
+        return WireCodec.readMessage(call(GatewayProtocol.SEND_GROUP_MESSAGE, args -> {
+            WireCodec.writeString(args, groupName);
+            WireCodec.writeString(args, text);
+        }));
+    }
+
+    public MessageList getMessagesPage(String otherUser, Long beforeId, int limit) throws IOException {
+        return WireCodec.readMessageList(call(GatewayProtocol.MESSAGES_PAGE, args -> {
+            WireCodec.writeString(args, otherUser);
+            writeOptionalId(args, beforeId);
+            WireCodec.writeVarLong(args, limit);
+        }));
+    }
+
+    public MessageList getGroupMessagesPage(String groupName, Long beforeId, int limit) throws IOException {
+        return WireCodec.readMessageList(call(GatewayProtocol.GROUP_MESSAGES_PAGE, args -> {
+            WireCodec.writeString(args, groupName);
+            writeOptionalId(args, beforeId);
+            WireCodec.writeVarLong(args, limit);
+        }));
+    }
+
+    public MessageList getMessagesSince(String otherUser, long afterId, int limit) throws IOException {
+        return WireCodec.readMessageList(call(GatewayProtocol.MESSAGES_SINCE, args -> {
+            WireCodec.writeString(args, otherUser);
+            WireCodec.writeVarLong(args, afterId);
+            WireCodec.writeVarLong(args, limit);
+        }));
+    }
+
+    public MessageList getGroupMessagesSince(String groupName, long afterId, int limit) throws IOException {
+        return WireCodec.readMessageList(call(GatewayProtocol.GROUP_MESSAGES_SINCE, args -> {
+            WireCodec.writeString(args, groupName);
+            WireCodec.writeVarLong(args, afterId);
+            WireCodec.writeVarLong(args, limit);
+        }));
+    }
+
+    public MessageList getAllGroupsTimeline(Long beforeId, int limit) throws IOException {
+        return WireCodec.readMessageList(call(GatewayProtocol.ALL_GROUPS_TIMELINE, args -> {
+            writeOptionalId(args, beforeId);
+            WireCodec.writeVarLong(args, limit);
+        }));
+    }
+
+    public List<GroupView> getUserGroups() throws IOException {
+        return WireCodec.readGroups(call(GatewayProtocol.USER_GROUPS, args -> {
+        }));
+    }
+
+    public GroupView createGroup(String groupName, String description) throws IOException {
+        return WireCodec.readGroup(call(GatewayProtocol.CREATE_GROUP, args -> {
+            WireCodec.writeString(args, groupName);
+            WireCodec.writeNullableString(args, description);
+        }));
+    }
+
+    public boolean addUserToGroup(String groupName, String username) throws IOException {
+        return call(GatewayProtocol.ADD_USER_TO_GROUP, args -> {
+            WireCodec.writeString(args, groupName);
+            WireCodec.writeString(args, username);
+        }).readBoolean();
+    }
+
+    public boolean removeUserFromGroup(String groupName, String username) throws IOException {
+        return call(GatewayProtocol.REMOVE_USER_FROM_GROUP, args -> {
+            WireCodec.writeString(args, groupName);
+            WireCodec.writeString(args, username);
+        }).readBoolean();
+    }
+
+    public List<UserView> getOnlineUsers() throws IOException {
+        return WireCodec.readUsers(call(GatewayProtocol.ONLINE_USERS, args -> {
+        }));
+    }
+
+    public PresenceDelta getPresenceSince(long sinceVersion) throws IOException {
+        return WireCodec.readPresenceDelta(call(GatewayProtocol.PRESENCE_SINCE,
+                args -> WireCodec.writeSignedVarLong(args, sinceVersion)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+    }
+
+    /**
+     * Send a request and wait for its response.
+     *
+     * @return The result, positioned after the status byte
+     * @throws IOException If the call fails or the server reports an error
+     */
+    private DataInput call(byte operation, Arguments arguments) throws IOException {
+        int requestId = nextRequestId.updateAndGet(id -> id == Integer.MAX_VALUE ? 1 : id + 1);
+        FrameBuilder frame = new FrameBuilder();
+        frame.writeInt(requestId);
+        frame.writeByte(operation);
+        arguments.write(frame);
+        ByteBuffer bytes = frame.toFrame();
+
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        try {
+            if (closed) {
+                throw new IOException("Gateway connection closed");
+            }
+            synchronized (out) {
+                out.write(bytes.array(), 0, bytes.limit());
+                out.flush();
+            }
+            byte[] body = response.get(CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 4, body.length - 4));
+            if (in.readByte() != GatewayProtocol.STATUS_OK) {
+                throw new IOException(WireCodec.readString(in));
+            }
+            return in;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the gateway");
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for the gateway");
+        } catch (ExecutionException e) {
+            throw new IOException("Gateway connection lost", e.getCause());
+        } finally {
+            pending.remove(requestId);
+        }
+    }
+
+    private void readLoop() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                int requestId = ByteBuffer.wrap(body).getInt(0);
+                if (requestId == GatewayProtocol.PUSH_REQUEST_ID) {
+                    dispatchEvent(new DataInputStream(new ByteArrayInputStream(body, 4, body.length - 4)));
+                } else {
+                    CompletableFuture<byte[]> response = pending.get(requestId);
+                    if (response != null) {
+                        response.complete(body);
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            // Closed by the server
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Gateway connection failed: " + e.getMessage());
+            }
+        } finally {
+            closed = true;
+            IOException lost = new IOException("Gateway connection closed");
+            pending.values().forEach(response -> response.completeExceptionally(lost));
+            listener.connectionClosed();
+        }
+    }
+
+    private void dispatchEvent(DataInputStream in) throws IOException {
+        byte event = in.readByte();
+        try {
+            switch (event) {
+                case GatewayProtocol.EVENT_MESSAGE:
+                    listener.messageReceived(WireCodec.readMessage(in));
+                    break;
+                case GatewayProtocol.EVENT_PRESENCE:
+                    listener.presenceChanged(WireCodec.readPresenceDelta(in));
+                    break;
+                case GatewayProtocol.EVENT_CHAT_STARTED:
+                    listener.chatStarted(WireCodec.readString(in), WireCodec.readVarLong(in));
+                    break;
+                case GatewayProtocol.EVENT_USER_JOINED:
+                    listener.userJoined(WireCodec.readString(in), WireCodec.readString(in),
+                            WireCodec.readNullableString(in), WireCodec.readVarLong(in));
+                    break;
+                case GatewayProtocol.EVENT_USER_LEFT:
+                    listener.userLeft(WireCodec.readString(in), WireCodec.readString(in),
+                            WireCodec.readNullableString(in), WireCodec.readVarLong(in));
+                    break;
+                case GatewayProtocol.EVENT_CHAT_STOPPED:
+                    listener.chatStopped(WireCodec.readString(in), WireCodec.readVarLong(in));
+                    break;
+                case GatewayProtocol.EVENT_RESYNC_REQUIRED:
+                    listener.resyncRequired();
+                    break;
+                default:
+                    // Newer server; ignore events this client does not know
+                    break;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error in gateway event listener: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeOptionalId(DataOutput out, Long id) throws IOException {
+        WireCodec.writeVarLong(out, id != null ? id : 0L);
+    }
+
+    private interface Arguments {
+        void write(DataOutput out) throws IOException;
+    }
+}
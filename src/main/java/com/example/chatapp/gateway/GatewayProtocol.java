@@ -0,0 +1,91 @@
+package com.example.chatapp.gateway;
+
+/**
+ * Constants of the socket gateway protocol, the binary alternative to the RMI services.
+ *
+ * <p>Every frame is a 4-byte big-endian body length followed by the body. A request body is
+ * a 4-byte request id (positive, chosen by the client), a 1-byte operation and its arguments.
+ * The server answers each request with a response body of the same request id, a 1-byte
+ * status and either the result or an error message. Events pushed by the server use request
+ * id 0, followed by a 1-byte event type and its payload.
+ *
+ * <p>Arguments and results are encoded with {@link com.example.chatapp.rmi.dto.WireCodec}:
+ * strings as varint-length UTF-8, numbers as varints, optional ids as the id or 0, and DTOs
+ * in their compact form. Operations act as the user that logged in on the connection.
+ */
+public final class GatewayProtocol {
+
+    /** Conventional port of the gateway, used when it is enabled with -Dchat.gateway.port=1100. */
+    public static final int DEFAULT_PORT = 1100;
+
+    /** Request id of frames pushed by the server. */
+    public static final int PUSH_REQUEST_ID = 0;
+
+    // Response status
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    // Operations available before logging in
+
+    /** username, password; returns UserView. */
+    public static final byte LOGIN = 1;
+    /** username, password, email, nickName, profilePicture (all nullable except the first two); returns UserView. */
+    public static final byte REGISTER = 2;
+    /** username; returns boolean. */
+    public static final byte IS_USERNAME_AVAILABLE = 3;
+    /** No arguments; returns nothing. */
+    public static final byte PING = 4;
+
+    // Operations of a logged-in user
+
+    /** No arguments; returns boolean. Closes the session but not the connection. */
+    public static final byte LOGOUT = 10;
+    /** newPassword, newEmail, newNickName, newProfilePicture (all nullable); returns UserView. */
+    public static final byte UPDATE_PROFILE = 11;
+    /** receiver, text; returns MessageView. */
+    public static final byte SEND_MESSAGE = 20;
+    /** groupName, text; returns MessageView. */
+    public static final byte SEND_GROUP_MESSAGE = 21;
+    /** otherUser, beforeId, limit; returns MessageList, newest first. */
+    public static final byte MESSAGES_PAGE = 22;
+    /** groupName, beforeId, limit; returns MessageList, newest first. */
+    public static final byte GROUP_MESSAGES_PAGE = 23;
+    /** otherUser, afterId, limit; returns MessageList, oldest first. */
+    public static final byte MESSAGES_SINCE = 24;
+    /** groupName, afterId, limit; returns MessageList, oldest first. */
+    public static final byte GROUP_MESSAGES_SINCE = 25;
+    /** beforeId, limit; returns MessageList, newest first. */
+    public static final byte ALL_GROUPS_TIMELINE = 26;
+    /** No arguments; returns a list of GroupView. */
+    public static final byte USER_GROUPS = 30;
+    /** groupName, description; returns GroupView. */
+    public static final byte CREATE_GROUP = 31;
+    /** groupName, username; returns boolean. Only the group's creator may add members. */
+    public static final byte ADD_USER_TO_GROUP = 32;
+    /** groupName, username; returns boolean. Only the group's creator may remove others; anyone may leave. */
+    public static final byte REMOVE_USER_FROM_GROUP = 33;
+    /** No arguments; returns a list of UserView. */
+    public static final byte ONLINE_USERS = 40;
+    /** sinceVersion (signed); returns PresenceDelta. */
+    public static final byte PRESENCE_SINCE = 41;
+
+    // Events pushed to a logged-in user
+
+    /** MessageView. */
+    public static final byte EVENT_MESSAGE = 1;
+    /** PresenceDelta. */
+    public static final byte EVENT_PRESENCE = 2;
+    /** chatName, startMillis. */
+    public static final byte EVENT_CHAT_STARTED = 3;
+    /** chatName, username, nickName (nullable), joinMillis. */
+    public static final byte EVENT_USER_JOINED = 4;
+    /** chatName, username, nickName (nullable), leaveMillis. */
+    public static final byte EVENT_USER_LEFT = 5;
+    /** chatName, stopMillis. */
+    public static final byte EVENT_CHAT_STOPPED = 6;
+    /** No payload; the client missed events and should reload its state. */
+    public static final byte EVENT_RESYNC_REQUIRED = 7;
+
+    private GatewayProtocol() {
+    }
+}
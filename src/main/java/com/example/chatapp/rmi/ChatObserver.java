@@ -1,6 +1,7 @@
 package com.example.chatapp.rmi;
 
 import com.example.chatapp.domain.ChatMsg;
+import com.example.chatapp.rmi.dto.PresenceDelta;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.Date;
@@ -20,13 +21,13 @@ public interface ChatObserver extends Remote {
     void update(ChatMsg message) throws RemoteException;
 
     /**
-     * Called when a user's online status changes.
+     * Called when users come online, go offline or change their profile.
+     * Changes are batched, so one call may cover many users.
      *
-     * @param username The username of the user whose status changed
-     * @param online True if the user is now online, false otherwise
+     * @param delta The presence changes
      * @throws RemoteException If a remote communication error occurs
      */
-    void userStatusChanged(String username, boolean online) throws RemoteException;
+    void presenceChanged(PresenceDelta delta) throws RemoteException;
 
     /**
      * Called when a chat is started by an admin.
@@ -68,6 +69,14 @@ public interface ChatObserver extends Remote {
      */
     void chatStopped(String chatName, Date stopTime) throws RemoteException;
 
+    /**
+     * Called when the server has skipped notifications for this client, because the client
+     * fell behind. The client should reload the conversation it shows, its groups and presence.
+     *
+     * @throws RemoteException If a remote communication error occurs
+     */
+    void resyncRequired() throws RemoteException;
+
     /**
      * Get the username of this observer.
      *
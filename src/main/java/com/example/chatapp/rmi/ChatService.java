@@ -3,6 +3,13 @@ package com.example.chatapp.rmi;
 import com.example.chatapp.domain.ChatGrp;
 import com.example.chatapp.domain.ChatMsg;
 import com.example.chatapp.domain.ChatUser;
+import com.example.chatapp.rmi.dto.ChatTimeline;
+import com.example.chatapp.rmi.dto.GroupRow;
+import com.example.chatapp.rmi.dto.GroupView;
+import com.example.chatapp.rmi.dto.MessageList;
+import com.example.chatapp.rmi.dto.Page;
+import com.example.chatapp.rmi.dto.PresenceDelta;
+import com.example.chatapp.rmi.dto.UserView;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.Date;
@@ -55,6 +62,124 @@ public interface ChatService extends Remote {
      */
     List<ChatMsg> getGroupMessages(String groupName) throws RemoteException;
 
+    /**
+     * Get one page of the messages between two users, newest first.
+     *
+     * @param user1 The first user's username
+     * @param user2 The second user's username
+     * @param beforeId Only return messages with an id lower than this, or null for the latest page
+     * @param limit The maximum number of messages to return
+     * @return List of messages between the two users, newest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatMsg> getMessagesPage(String user1, String user2, Long beforeId, int limit) throws RemoteException;
+
+    /**
+     * Get one page of the messages in a group, newest first.
+     *
+     * @param username The caller's username
+     * @param groupName The group name
+     * @param beforeId Only return messages with an id lower than this, or null for the latest page
+     * @param limit The maximum number of messages to return
+     * @return List of messages in the group, newest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatMsg> getGroupMessagesPage(String username, String groupName, Long beforeId, int limit) throws RemoteException;
+
+    /**
+     * Get the messages between two users that are newer than a given message, oldest first.
+     *
+     * @param user1 The first user's username
+     * @param user2 The second user's username
+     * @param afterId Only return messages with an id higher than this
+     * @param limit The maximum number of messages to return
+     * @return List of newer messages between the two users, oldest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatMsg> getMessagesSince(String user1, String user2, long afterId, int limit) throws RemoteException;
+
+    /**
+     * Get the messages in a group that are newer than a given message, oldest first.
+     *
+     * @param username The caller's username
+     * @param groupName The group name
+     * @param afterId Only return messages with an id higher than this
+     * @param limit The maximum number of messages to return
+     * @return List of newer messages in the group, oldest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatMsg> getGroupMessagesSince(String username, String groupName, long afterId, int limit) throws RemoteException;
+
+    /**
+     * Get one page of the merged timeline of all groups a user is a member of, newest first.
+     *
+     * @param username The username
+     * @param beforeId Only return messages with an id lower than this, or null for the latest page
+     * @param limit The maximum number of messages to return
+     * @return List of messages from the user's groups, newest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatMsg> getAllGroupsTimeline(String username, Long beforeId, int limit) throws RemoteException;
+
+    /**
+     * Same as {@link #getMessagesPage(String, String, Long, int)}, in the compact wire format.
+     *
+     * @param user1 The first username
+     * @param user2 The second username
+     * @param beforeId Only return messages with an id lower than this, or null for the latest page
+     * @param limit The maximum number of messages to return
+     * @return List of messages between the two users, newest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    MessageList getMessagesPageView(String user1, String user2, Long beforeId, int limit) throws RemoteException;
+
+    /**
+     * Same as {@link #getGroupMessagesPage(String, String, Long, int)}, in the compact wire format.
+     *
+     * @param username The caller's username
+     * @param groupName The group name
+     * @param beforeId Only return messages with an id lower than this, or null for the latest page
+     * @param limit The maximum number of messages to return
+     * @return List of messages in the group, newest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    MessageList getGroupMessagesPageView(String username, String groupName, Long beforeId, int limit) throws RemoteException;
+
+    /**
+     * Same as {@link #getMessagesSince(String, String, long, int)}, in the compact wire format.
+     *
+     * @param user1 The first username
+     * @param user2 The second username
+     * @param afterId Only return messages with an id higher than this
+     * @param limit The maximum number of messages to return
+     * @return List of newer messages between the two users, oldest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    MessageList getMessagesSinceView(String user1, String user2, long afterId, int limit) throws RemoteException;
+
+    /**
+     * Same as {@link #getGroupMessagesSince(String, String, long, int)}, in the compact wire format.
+     *
+     * @param username The caller's username
+     * @param groupName The group name
+     * @param afterId Only return messages with an id higher than this
+     * @param limit The maximum number of messages to return
+     * @return List of newer messages in the group, oldest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    MessageList getGroupMessagesSinceView(String username, String groupName, long afterId, int limit) throws RemoteException;
+
+    /**
+     * Same as {@link #getAllGroupsTimeline(String, Long, int)}, in the compact wire format.
+     *
+     * @param username The username
+     * @param beforeId Only return messages with an id lower than this, or null for the latest page
+     * @param limit The maximum number of messages to return
+     * @return List of messages from the user's groups, newest first
+     * @throws RemoteException If a remote communication error occurs
+     */
+    MessageList getAllGroupsTimelineView(String username, Long beforeId, int limit) throws RemoteException;
+
     /**
      * Create a new group.
      *
@@ -94,6 +219,16 @@ public interface ChatService extends Remote {
      */
     List<ChatGrp> getAllGroups() throws RemoteException;
 
+    /**
+     * Get one page of all groups, ordered by id.
+     *
+     * @param cursor The cursor of the previous page, or null for the first page
+     * @param limit The maximum number of groups to return; the server may return fewer
+     * @return The page; the first page carries an estimate of the number of groups
+     * @throws RemoteException If a remote communication error occurs
+     */
+    Page<GroupRow> queryGroups(String cursor, int limit) throws RemoteException;
+
     /**
      * Get all groups that a user is a member of.
      *
@@ -103,6 +238,15 @@ public interface ChatService extends Remote {
      */
     List<ChatGrp> getUserGroups(String username) throws RemoteException;
 
+    /**
+     * Same as {@link #getUserGroups(String)}, in the compact wire format.
+     *
+     * @param username The username
+     * @return List of groups the user is a member of
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<GroupView> getUserGroupViews(String username) throws RemoteException;
+
     /**
      * Register an observer to receive notifications.
      *
@@ -127,6 +271,25 @@ public interface ChatService extends Remote {
      */
     List<ChatUser> getOnlineUsers() throws RemoteException;
 
+    /**
+     * Same as {@link #getOnlineUsers()}, in the compact wire format. Passwords and email
+     * addresses are never included.
+     *
+     * @return List of online users
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<UserView> getOnlineUserViews() throws RemoteException;
+
+    /**
+     * Get the presence changes since a version the caller has already seen.
+     *
+     * @param username The caller's username
+     * @param sinceVersion The last presence version seen, or -1 to get every online user
+     * @return The changes, or a full list of online users if the caller is too far behind
+     * @throws RemoteException If a remote communication error occurs
+     */
+    PresenceDelta getPresenceSince(String username, long sinceVersion) throws RemoteException;
+
     /**
      * Notify all subscribed and online users that a chat has started.
      *
@@ -167,6 +330,15 @@ public interface ChatService extends Remote {
      */
     void notifyChatStopped(String chatName, Date stopTime) throws RemoteException;
 
+    /**
+     * Get when each member of a chat last joined and left it, and when it last stopped.
+     *
+     * @param chatName The name of the chat
+     * @return The chat's timeline
+     * @throws RemoteException If a remote communication error occurs
+     */
+    ChatTimeline getChatTimeline(String chatName) throws RemoteException;
+
     /**
      * Save chat logs to a file.
      *
@@ -0,0 +1,72 @@
+package com.example.chatapp.rmi;
+
+import com.example.chatapp.domain.ChatLogs;
+import com.example.chatapp.rmi.dto.LogQuery;
+import com.example.chatapp.rmi.dto.LogRow;
+import com.example.chatapp.rmi.dto.Page;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Remote interface for the audit log.
+ * The list methods load every matching entry; use {@link #queryLogs} to read the log a page
+ * at a time.
+ */
+public interface LogService extends Remote {
+
+    /**
+     * Get all log entries, newest first.
+     *
+     * @return List of all log entries
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatLogs> getAllLogs() throws RemoteException;
+
+    /**
+     * Get the log entries of a user, newest first.
+     *
+     * @param username The username
+     * @return List of the user's log entries
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatLogs> getUserLogs(String username) throws RemoteException;
+
+    /**
+     * Get the log entries with an action, newest first.
+     *
+     * @param action The action, such as LOGIN
+     * @return List of matching log entries
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatLogs> getLogsByAction(String action) throws RemoteException;
+
+    /**
+     * Get the log entries in a time range, newest first.
+     *
+     * @param startDate The start of the range
+     * @param endDate The end of the range
+     * @return List of matching log entries
+     * @throws RemoteException If a remote communication error occurs
+     */
+    List<ChatLogs> getLogsByDateRange(Date startDate, Date endDate) throws RemoteException;
+
+    /**
+     * Get one page of log entries.
+     *
+     * @param query The filters, sort order, cursor and page size
+     * @return The page, with an approximate total on the first page
+     * @throws RemoteException If a remote communication error occurs
+     */
+    Page<LogRow> queryLogs(LogQuery query) throws RemoteException;
+
+    /**
+     * Delete all log entries.
+     *
+     * @return True if the log was cleared, false otherwise
+     * @throws RemoteException If a remote communication error occurs
+     */
+    boolean clearLogs() throws RemoteException;
+}
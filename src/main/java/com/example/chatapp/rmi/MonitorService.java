@@ -0,0 +1,20 @@
+package com.example.chatapp.rmi;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.Map;
+
+/**
+ * Remote interface for server monitoring.
+ * Exposes counters and gauges of the server's internal caches and queues.
+ */
+public interface MonitorService extends Remote {
+
+    /**
+     * Get a snapshot of the server metrics.
+     *
+     * @return Map of metric name to current value, sorted by name
+     * @throws RemoteException If a remote communication error occurs
+     */
+    Map<String, Long> getServerMetrics() throws RemoteException;
+}
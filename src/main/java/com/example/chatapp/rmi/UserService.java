@@ -1,6 +1,8 @@
 package com.example.chatapp.rmi;
 
 import com.example.chatapp.domain.ChatUser;
+import com.example.chatapp.rmi.dto.Page;
+import com.example.chatapp.rmi.dto.UserRow;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
@@ -73,6 +75,16 @@ public interface UserService extends Remote {
      */
     List<ChatUser> getAllUsers() throws RemoteException;
 
+    /**
+     * Get one page of all users, ordered by id.
+     *
+     * @param cursor The cursor of the previous page, or null for the first page
+     * @param limit The maximum number of users to return; the server may return fewer
+     * @return The page; the first page carries an estimate of the number of users
+     * @throws RemoteException If a remote communication error occurs
+     */
+    Page<UserRow> queryUsers(String cursor, int limit) throws RemoteException;
+
     /**
      * Check if a username is available.
      *
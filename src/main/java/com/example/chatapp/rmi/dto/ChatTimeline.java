@@ -0,0 +1,17 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * When each member of a chat last joined and left it, and when the chat last stopped.
+ *
+ * @param chatName The chat
+ * @param joinTimes The latest join time of each member who has joined, by username
+ * @param leaveTimes The latest leave time of each member who has left, by username
+ * @param stopTime When the chat last stopped, or null if it never has
+ */
+public record ChatTimeline(String chatName, Map<String, Date> joinTimes, Map<String, Date> leaveTimes,
+                           Date stopTime) implements Serializable {
+}
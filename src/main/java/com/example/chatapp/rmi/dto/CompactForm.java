@@ -0,0 +1,84 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+
+/**
+ * The serialized form of the compact DTOs.
+ * Records cannot customize their own serialization, so each DTO replaces itself with this
+ * class, which writes a one-byte type tag followed by the {@link WireCodec} encoding and
+ * resolves back to the record when read.
+ */
+final class CompactForm implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final byte MESSAGE = 1;
+    static final byte USER = 2;
+    static final byte GROUP = 3;
+    static final byte MESSAGE_LIST = 4;
+
+    private byte type;
+    private Object object;
+
+    /**
+     * Constructor used by deserialization.
+     */
+    public CompactForm() {
+    }
+
+    CompactForm(byte type, Object object) {
+        this.type = type;
+        this.object = object;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(type);
+        switch (type) {
+            case MESSAGE:
+                WireCodec.writeMessage(out, (MessageView) object);
+                break;
+            case USER:
+                WireCodec.writeUser(out, (UserView) object);
+                break;
+            case GROUP:
+                WireCodec.writeGroup(out, (GroupView) object);
+                break;
+            case MESSAGE_LIST:
+                WireCodec.writeMessageList(out, (MessageList) object);
+                break;
+            default:
+                throw new InvalidObjectException("Unknown compact type: " + type);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        type = in.readByte();
+        switch (type) {
+            case MESSAGE:
+                object = WireCodec.readMessage(in);
+                break;
+            case USER:
+                object = WireCodec.readUser(in);
+                break;
+            case GROUP:
+                object = WireCodec.readGroup(in);
+                break;
+            case MESSAGE_LIST:
+                object = WireCodec.readMessageList(in);
+                break;
+            default:
+                throw new StreamCorruptedException("Unknown compact type: " + type);
+        }
+    }
+
+    private Object readResolve() {
+        return object;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+
+/**
+ * Slim, immutable view of a group for the admin chat table, with a member count instead of the members.
+ *
+ * @param id The group id
+ * @param name The group name
+ * @param description The description, or null if none is set
+ * @param creator The creator's username
+ * @param memberCount The number of members
+ */
+public record GroupRow(long id, String name, String description, String creator, int memberCount)
+        implements Serializable {
+}
@@ -0,0 +1,27 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Compact, immutable view of a group, as sent to clients instead of the ChatGrp entity.
+ * The creator and members are referred to by username only.
+ *
+ * @param id The group id
+ * @param name The group name
+ * @param description The description, or null if none is set
+ * @param creator The creator's username
+ * @param createdMillis When the group was created
+ * @param members The usernames of the members
+ */
+public record GroupView(long id, String name, String description, String creator, long createdMillis,
+                        List<String> members) implements Serializable {
+
+    public GroupView {
+        members = List.copyOf(members);
+    }
+
+    private Object writeReplace() {
+        return new CompactForm(CompactForm.GROUP, this);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Filters, sort order and position of a page of audit log entries.
+ * All filters are optional and combined with AND. Start without a cursor and pass the
+ * cursor of each page back to get the page after it.
+ */
+public final class LogQuery implements Serializable {
+
+    /**
+     * Order of the entries, by time and then by id.
+     */
+    public enum Sort {
+        NEWEST_FIRST,
+        OLDEST_FIRST
+    }
+
+    private String username;
+    private String action;
+    private Date from;
+    private Date to;
+    private String chatId;
+    private Sort sort = Sort.NEWEST_FIRST;
+    private String cursor;
+    private int pageSize = 100;
+
+    /**
+     * @param username Only entries about this user
+     * @return This query
+     */
+    public LogQuery user(String username) {
+        this.username = username;
+        return this;
+    }
+
+    /**
+     * @param action Only entries with this action
+     * @return This query
+     */
+    public LogQuery action(String action) {
+        this.action = action;
+        return this;
+    }
+
+    /**
+     * @param from Only entries at or after this time, or null for no lower bound
+     * @param to Only entries before this time, or null for no upper bound
+     * @return This query
+     */
+    public LogQuery between(Date from, Date to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * @param chatId Only entries of this chat
+     * @return This query
+     */
+    public LogQuery chatId(String chatId) {
+        this.chatId = chatId;
+        return this;
+    }
+
+    /**
+     * @param sort The order of the entries
+     * @return This query
+     */
+    public LogQuery sort(Sort sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    /**
+     * @param cursor The {@link Page#nextCursor()} of the previous page, or null for the first page
+     * @return This query
+     */
+    public LogQuery after(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    /**
+     * @param pageSize The maximum number of entries per page; the server may use fewer
+     * @return This query
+     */
+    public LogQuery pageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+}
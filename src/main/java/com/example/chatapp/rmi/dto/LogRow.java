@@ -0,0 +1,19 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+
+/**
+ * Slim, immutable view of an audit log entry, as sent to clients instead of the ChatLogs entity.
+ *
+ * @param id The entry id
+ * @param username The user the entry is about, or null for system entries
+ * @param action The action, such as LOGIN or CHAT_STOPPED
+ * @param timestampMillis When the action happened, in milliseconds since the epoch
+ * @param ipAddress The client address, or null if unknown
+ * @param details A description of the action
+ * @param chatId The chat the entry belongs to, or null
+ * @param filePath The saved chat file, or null
+ */
+public record LogRow(long id, String username, String action, long timestampMillis, String ipAddress,
+                     String details, String chatId, String filePath) implements Serializable {
+}
@@ -0,0 +1,30 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A list of messages in the compact wire format. Usernames and group names are written
+ * once per list and referred to by index, so a page of messages between the same few
+ * people costs little more than the message texts themselves.
+ *
+ * @param messages The messages, in the order the service method documents
+ */
+public record MessageList(List<MessageView> messages) implements Serializable {
+
+    public MessageList {
+        messages = List.copyOf(messages);
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    private Object writeReplace() {
+        return new CompactForm(CompactForm.MESSAGE_LIST, this);
+    }
+}
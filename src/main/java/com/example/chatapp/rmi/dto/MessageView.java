@@ -0,0 +1,31 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+
+/**
+ * Compact, immutable view of a chat message, as sent to clients instead of the ChatMsg entity.
+ * Users and groups are referred to by name only, and the send time is in epoch millis.
+ * It is written to the stream by {@link CompactForm}.
+ *
+ * @param id The message id
+ * @param previousId The id of the message committed before this one in the same conversation, or null if unknown
+ * @param sender The sender's username
+ * @param receiver The receiver's username, or null for a group message
+ * @param group The group name, or null for a direct message
+ * @param text The message text
+ * @param sentMillis When the message was sent
+ */
+public record MessageView(long id, Long previousId, String sender, String receiver, String group,
+                          String text, long sentMillis) implements Serializable {
+
+    /**
+     * @return True if the message was sent to a group
+     */
+    public boolean isGroupMessage() {
+        return group != null;
+    }
+
+    private Object writeReplace() {
+        return new CompactForm(CompactForm.MESSAGE, this);
+    }
+}
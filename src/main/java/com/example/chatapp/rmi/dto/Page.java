@@ -0,0 +1,25 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated result.
+ *
+ * @param items The items on this page
+ * @param nextCursor Pass this back to get the next page, or null if this is the last page
+ * @param approximateTotal The number of matching items, or -1 if it was not computed.
+ *                         Only the first page of a query carries a total.
+ * @param exactTotal True if the total is exact; false if it is an estimate or a lower bound
+ * @param <T> The item type
+ */
+public record Page<T>(List<T> items, String nextCursor, long approximateTotal, boolean exactTotal)
+        implements Serializable {
+
+    /**
+     * @return True if there are more items after this page
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
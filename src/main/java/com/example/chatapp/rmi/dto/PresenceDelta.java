@@ -0,0 +1,63 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Presence changes since a given version.
+ * If {@link #isFull()} is true, the delta is a complete list of online users and the
+ * client should replace its state rather than apply the changes.
+ */
+public final class PresenceDelta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long sinceVersion;
+    private final long version;
+    private final boolean full;
+    private final List<PresenceSnapshot> online;
+    private final List<String> offline;
+
+    /**
+     * @param sinceVersion The presence version the changes apply on top of
+     * @param version The presence version this delta brings the client up to
+     * @param full True if this is a complete snapshot rather than a set of changes
+     * @param online Users that came online or changed their profile
+     * @param offline Usernames of users that went offline
+     */
+    public PresenceDelta(long sinceVersion, long version, boolean full,
+                         List<PresenceSnapshot> online, List<String> offline) {
+        this.sinceVersion = sinceVersion;
+        this.version = version;
+        this.full = full;
+        this.online = online;
+        this.offline = offline;
+    }
+
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public List<PresenceSnapshot> getOnline() {
+        return online;
+    }
+
+    public List<String> getOffline() {
+        return offline;
+    }
+
+    /**
+     * @return True if nothing changed
+     */
+    public boolean isEmpty() {
+        return !full && online.isEmpty() && offline.isEmpty();
+    }
+}
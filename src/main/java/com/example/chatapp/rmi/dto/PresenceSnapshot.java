@@ -0,0 +1,54 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+
+/**
+ * Lightweight view of an online user, as sent to clients instead of the full ChatUser.
+ */
+public final class PresenceSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String username;
+    private final String nickName;
+    private final String avatarKey;
+    private final long sinceMillis;
+
+    /**
+     * @param username The username
+     * @param nickName The nickname, or null if none is set
+     * @param avatarKey The profile picture path or URL, or null if none is set
+     * @param sinceMillis When the user came online
+     */
+    public PresenceSnapshot(String username, String nickName, String avatarKey, long sinceMillis) {
+        this.username = username;
+        this.nickName = nickName;
+        this.avatarKey = avatarKey;
+        this.sinceMillis = sinceMillis;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getNickName() {
+        return nickName;
+    }
+
+    public String getAvatarKey() {
+        return avatarKey;
+    }
+
+    public long getSinceMillis() {
+        return sinceMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PresenceSnapshot{" +
+                "username='" + username + '\'' +
+                ", nickName='" + nickName + '\'' +
+                ", sinceMillis=" + sinceMillis +
+                '}';
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+
+/**
+ * Slim, immutable view of a user for the admin user table. It never carries the password.
+ *
+ * @param id The user id
+ * @param username The username
+ * @param email The email address
+ * @param admin True if the user is an admin
+ * @param online True if the user is online
+ */
+public record UserRow(long id, String username, String email, boolean admin, boolean online) implements Serializable {
+}
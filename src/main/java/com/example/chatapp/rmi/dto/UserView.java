@@ -0,0 +1,21 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.Serializable;
+
+/**
+ * Compact, immutable view of a user, as sent to clients instead of the ChatUser entity.
+ * It never carries the password or email address.
+ *
+ * @param id The user id
+ * @param username The username
+ * @param nickName The nickname, or null if none is set
+ * @param avatarKey The profile picture path or URL, or null if none is set
+ * @param online True if the user is online
+ */
+public record UserView(long id, String username, String nickName, String avatarKey, boolean online)
+        implements Serializable {
+
+    private Object writeReplace() {
+        return new CompactForm(CompactForm.USER, this);
+    }
+}
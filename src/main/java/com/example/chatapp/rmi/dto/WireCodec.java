@@ -0,0 +1,448 @@
+package com.example.chatapp.rmi.dto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary encoding of the compact DTOs.
+ * Numbers are written as variable-length integers, and usernames and group names are
+ * written once per top-level object and referred to by index after that. Names are interned
+ * when read, so every message from the same sender shares one string on the client.
+ * Used both by Java serialization of the DTOs and by the socket gateway.
+ */
+public final class WireCodec {
+
+    // Largest string buffer allocated before any of its bytes have been read
+    private static final int STRING_CHUNK_BYTES = 8192;
+
+    private WireCodec() {
+    }
+
+    /**
+     * Write a single message.
+     *
+     * @param out The output
+     * @param message The message
+     * @throws IOException If writing fails
+     */
+    public static void writeMessage(DataOutput out, MessageView message) throws IOException {
+        writeMessage(out, new Names(), message, 0L, 0L);
+    }
+
+    /**
+     * Read a message written by {@link #writeMessage(DataOutput, MessageView)}.
+     *
+     * @param in The input
+     * @return The message
+     * @throws IOException If reading fails or the data is malformed
+     */
+    public static MessageView readMessage(DataInput in) throws IOException {
+        return readMessage(in, new NameTable(), 0L, 0L);
+    }
+
+    /**
+     * Write a list of messages, with each name written only once.
+     *
+     * @param out The output
+     * @param list The messages
+     * @throws IOException If writing fails
+     */
+    public static void writeMessageList(DataOutput out, MessageList list) throws IOException {
+        writeMessageList(out, new Names(), list);
+    }
+
+    /**
+     * Read a list written by {@link #writeMessageList(DataOutput, MessageList)}.
+     *
+     * @param in The input
+     * @return The messages
+     * @throws IOException If reading fails or the data is malformed
+     */
+    public static MessageList readMessageList(DataInput in) throws IOException {
+        return readMessageList(in, new NameTable());
+    }
+
+    /**
+     * Write a list of users, with each name written only once.
+     *
+     * @param out The output
+     * @param users The users
+     * @throws IOException If writing fails
+     */
+    public static void writeUsers(DataOutput out, List<UserView> users) throws IOException {
+        Names names = new Names();
+        writeVarLong(out, users.size());
+        for (UserView user : users) {
+            writeUser(out, names, user);
+        }
+    }
+
+    /**
+     * Read a list written by {@link #writeUsers(DataOutput, List)}.
+     *
+     * @param in The input
+     * @return The users
+     * @throws IOException If reading fails or the data is malformed
+     */
+    public static List<UserView> readUsers(DataInput in) throws IOException {
+        NameTable names = new NameTable();
+        int size = readLength(in);
+        List<UserView> users = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            users.add(readUser(in, names));
+        }
+        return users;
+    }
+
+    /**
+     * Write a list of groups, with each name written only once.
+     *
+     * @param out The output
+     * @param groups The groups
+     * @throws IOException If writing fails
+     */
+    public static void writeGroups(DataOutput out, List<GroupView> groups) throws IOException {
+        Names names = new Names();
+        writeVarLong(out, groups.size());
+        for (GroupView group : groups) {
+            writeGroup(out, names, group);
+        }
+    }
+
+    /**
+     * Read a list written by {@link #writeGroups(DataOutput, List)}.
+     *
+     * @param in The input
+     * @return The groups
+     * @throws IOException If reading fails or the data is malformed
+     */
+    public static List<GroupView> readGroups(DataInput in) throws IOException {
+        NameTable names = new NameTable();
+        int size = readLength(in);
+        List<GroupView> groups = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            groups.add(readGroup(in, names));
+        }
+        return groups;
+    }
+
+    /**
+     * Write a single user.
+     *
+     * @param out The output
+     * @param user The user
+     * @throws IOException If writing fails
+     */
+    public static void writeUser(DataOutput out, UserView user) throws IOException {
+        writeUser(out, new Names(), user);
+    }
+
+    /**
+     * Read a user written by {@link #writeUser(DataOutput, UserView)}.
+     *
+     * @param in The input
+     * @return The user
+     * @throws IOException If reading fails or the data is malformed
+     */
+    public static UserView readUser(DataInput in) throws IOException {
+        return readUser(in, new NameTable());
+    }
+
+    /**
+     * Write a single group.
+     *
+     * @param out The output
+     * @param group The group
+     * @throws IOException If writing fails
+     */
+    public static void writeGroup(DataOutput out, GroupView group) throws IOException {
+        writeGroup(out, new Names(), group);
+    }
+
+    /**
+     * Read a group written by {@link #writeGroup(DataOutput, GroupView)}.
+     *
+     * @param in The input
+     * @return The group
+     * @throws IOException If reading fails or the data is malformed
+     */
+    public static GroupView readGroup(DataInput in) throws IOException {
+        return readGroup(in, new NameTable());
+    }
+
+    /**
+     * Write a set of presence changes.
+     *
+     * @param out The output
+     * @param delta The changes
+     * @throws IOException If writing fails
+     */
+    public static void writePresenceDelta(DataOutput out, PresenceDelta delta) throws IOException {
+        Names names = new Names();
+        writeSignedVarLong(out, delta.getSinceVersion());
+        writeVarLong(out, delta.getVersion());
+        out.writeBoolean(delta.isFull());
+        writeVarLong(out, delta.getOnline().size());
+        for (PresenceSnapshot snapshot : delta.getOnline()) {
+            names.write(out, snapshot.getUsername());
+            writeNullableString(out, snapshot.getNickName());
+            writeNullableString(out, snapshot.getAvatarKey());
+            writeVarLong(out, snapshot.getSinceMillis());
+        }
+        writeVarLong(out, delta.getOffline().size());
+        for (String username : delta.getOffline()) {
+            names.write(out, username);
+        }
+    }
+
+    /**
+     * Read changes written by {@link #writePresenceDelta(DataOutput, PresenceDelta)}.
+     *
+     * @param in The input
+     * @return The changes
+     * @throws IOException If reading fails or the data is malformed
+     */
+    public static PresenceDelta readPresenceDelta(DataInput in) throws IOException {
+        NameTable names = new NameTable();
+        long sinceVersion = readSignedVarLong(in);
+        long version = readVarLong(in);
+        boolean full = in.readBoolean();
+        int onlineCount = readLength(in);
+        List<PresenceSnapshot> online = new ArrayList<>(Math.min(onlineCount, 1024));
+        for (int i = 0; i < onlineCount; i++) {
+            String username = names.read(in);
+            String nickName = readNullableString(in);
+            String avatarKey = readNullableString(in);
+            online.add(new PresenceSnapshot(username, nickName, avatarKey, readVarLong(in)));
+        }
+        int offlineCount = readLength(in);
+        List<String> offline = new ArrayList<>(Math.min(offlineCount, 1024));
+        for (int i = 0; i < offlineCount; i++) {
+            offline.add(names.read(in));
+        }
+        return new PresenceDelta(sinceVersion, version, full, online, offline);
+    }
+
+    // Ids and send times are written relative to the previous message of a list
+
+    private static void writeMessage(DataOutput out, Names names, MessageView message,
+                                     long baseId, long baseMillis) throws IOException {
+        writeSignedVarLong(out, message.id() - baseId);
+        // Distance back to the previous message of the conversation; 0 means unknown
+        writeVarLong(out, message.previousId() == null ? 0L : message.id() - message.previousId());
+        names.write(out, message.sender());
+        names.write(out, message.receiver());
+        names.write(out, message.group());
+        writeString(out, message.text());
+        writeSignedVarLong(out, message.sentMillis() - baseMillis);
+    }
+
+    private static MessageView readMessage(DataInput in, NameTable names,
+                                           long baseId, long baseMillis) throws IOException {
+        long id = baseId + readSignedVarLong(in);
+        long previousDistance = readVarLong(in);
+        String sender = names.read(in);
+        String receiver = names.read(in);
+        String group = names.read(in);
+        String text = readString(in);
+        long sentMillis = baseMillis + readSignedVarLong(in);
+        return new MessageView(id, previousDistance == 0L ? null : id - previousDistance,
+                sender, receiver, group, text, sentMillis);
+    }
+
+    private static void writeMessageList(DataOutput out, Names names, MessageList list) throws IOException {
+        writeVarLong(out, list.size());
+        long baseId = 0L;
+        long baseMillis = 0L;
+        for (MessageView message : list.messages()) {
+            writeMessage(out, names, message, baseId, baseMillis);
+            baseId = message.id();
+            baseMillis = message.sentMillis();
+        }
+    }
+
+    private static MessageList readMessageList(DataInput in, NameTable names) throws IOException {
+        int size = readLength(in);
+        List<MessageView> messages = new ArrayList<>(Math.min(size, 1024));
+        long baseId = 0L;
+        long baseMillis = 0L;
+        for (int i = 0; i < size; i++) {
+            MessageView message = readMessage(in, names, baseId, baseMillis);
+            messages.add(message);
+            baseId = message.id();
+            baseMillis = message.sentMillis();
+        }
+        return new MessageList(messages);
+    }
+
+    private static void writeUser(DataOutput out, Names names, UserView user) throws IOException {
+        writeVarLong(out, user.id());
+        names.write(out, user.username());
+        writeNullableString(out, user.nickName());
+        writeNullableString(out, user.avatarKey());
+        out.writeBoolean(user.online());
+    }
+
+    private static UserView readUser(DataInput in, NameTable names) throws IOException {
+        long id = readVarLong(in);
+        String username = names.read(in);
+        String nickName = readNullableString(in);
+        String avatarKey = readNullableString(in);
+        boolean online = in.readBoolean();
+        return new UserView(id, username, nickName, avatarKey, online);
+    }
+
+    private static void writeGroup(DataOutput out, Names names, GroupView group) throws IOException {
+        writeVarLong(out, group.id());
+        names.write(out, group.name());
+        writeNullableString(out, group.description());
+        names.write(out, group.creator());
+        writeVarLong(out, group.createdMillis());
+        writeVarLong(out, group.members().size());
+        for (String member : group.members()) {
+            names.write(out, member);
+        }
+    }
+
+    private static GroupView readGroup(DataInput in, NameTable names) throws IOException {
+        long id = readVarLong(in);
+        String name = names.read(in);
+        String description = readNullableString(in);
+        String creator = names.read(in);
+        long createdMillis = readVarLong(in);
+        int memberCount = readLength(in);
+        List<String> members = new ArrayList<>(Math.min(memberCount, 1024));
+        for (int i = 0; i < memberCount; i++) {
+            members.add(names.read(in));
+        }
+        return new GroupView(id, name, description, creator, createdMillis, members);
+    }
+
+    /**
+     * Names written so far. A name is written as its index plus one, followed by the name
+     * itself the first time it appears; 0 stands for null.
+     */
+    private static final class Names {
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        void write(DataOutput out, String name) throws IOException {
+            if (name == null) {
+                writeVarLong(out, 0L);
+                return;
+            }
+            Integer index = indexes.get(name);
+            if (index != null) {
+                writeVarLong(out, index + 1L);
+                return;
+            }
+            index = indexes.size();
+            indexes.put(name, index);
+            writeVarLong(out, index + 1L);
+            writeString(out, name);
+        }
+    }
+
+    /**
+     * Names read so far, the reading side of {@link Names}.
+     */
+    private static final class NameTable {
+        private final List<String> names = new ArrayList<>();
+
+        String read(DataInput in) throws IOException {
+            long reference = readVarLong(in);
+            if (reference == 0L) {
+                return null;
+            }
+            long index = reference - 1;
+            if (index >= 0 && index < names.size()) {
+                return names.get((int) index);
+            }
+            if (index != names.size()) {
+                throw new StreamCorruptedException("Name index out of order: " + index);
+            }
+            String name = readString(in).intern();
+            names.add(name);
+            return name;
+        }
+    }
+
+    public static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    public static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    // UTF-8 with a varint length, as writeUTF is limited to 64 KB and uses a fixed two-byte length
+    public static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    // The buffer grows as bytes arrive instead of being sized by the length up front, so a
+    // corrupt or hostile length fails with EOFException rather than allocating gigabytes
+    public static String readString(DataInput in) throws IOException {
+        int length = readLength(in);
+        byte[] bytes = new byte[Math.min(length, STRING_CHUNK_BYTES)];
+        int read = 0;
+        while (true) {
+            in.readFully(bytes, read, bytes.length - read);
+            read = bytes.length;
+            if (read == length) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            bytes = Arrays.copyOf(bytes, (int) Math.min(2L * read, length));
+        }
+    }
+
+    public static int readLength(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Invalid length: " + length);
+        }
+        return (int) length;
+    }
+
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable-length integer");
+    }
+
+    // Zigzag encoding, so that small negative deltas stay small
+    public static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readSignedVarLong(DataInput in) throws IOException {
+        long encoded = readVarLong(in);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
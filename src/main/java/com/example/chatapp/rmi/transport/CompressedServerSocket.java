@@ -0,0 +1,32 @@
+package com.example.chatapp.rmi.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * A server socket that accepts {@link CompressedSocket} connections.
+ */
+class CompressedServerSocket extends ServerSocket {
+
+    private final int compressionLevel;
+    private final int bufferSize;
+
+    CompressedServerSocket(int port, int compressionLevel, int bufferSize) throws IOException {
+        super();
+        this.compressionLevel = compressionLevel;
+        this.bufferSize = bufferSize;
+        // Set before binding, so the window scale is agreed on with large receive buffers
+        setReceiveBufferSize(bufferSize);
+        bind(new InetSocketAddress(port));
+    }
+
+    @Override
+    public Socket accept() throws IOException {
+        CompressedSocket socket = new CompressedSocket(compressionLevel, bufferSize);
+        implAccept(socket);
+        socket.tune();
+        return socket;
+    }
+}
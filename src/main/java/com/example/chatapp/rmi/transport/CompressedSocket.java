@@ -0,0 +1,85 @@
+package com.example.chatapp.rmi.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A socket whose streams are deflate-compressed.
+ * The output is sync-flushed on every flush, so each RMI call and reply is sent as soon
+ * as RMI flushes it rather than when the compressor's buffer happens to fill up.
+ */
+class CompressedSocket extends Socket {
+
+    private final int compressionLevel;
+    private final int bufferSize;
+    private Deflater deflater;
+    private Inflater inflater;
+    private InputStream in;
+    private OutputStream out;
+
+    CompressedSocket(int compressionLevel, int bufferSize) {
+        this.compressionLevel = compressionLevel;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Apply the socket options shared by both ends of a connection.
+     */
+    void tune() throws SocketException {
+        // RMI writes small requests and waits for the reply; don't let Nagle hold them back
+        setTcpNoDelay(true);
+        setKeepAlive(true);
+        setSendBufferSize(bufferSize);
+        setReceiveBufferSize(bufferSize);
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (in == null) {
+            inflater = new Inflater();
+            in = new InflaterInputStream(new BufferedInputStream(super.getInputStream(), bufferSize),
+                    inflater, bufferSize);
+        }
+        return in;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            deflater = new Deflater(compressionLevel);
+            // Buffer before the compressor, so RMI's many small writes are deflated in one go
+            out = new BufferedOutputStream(
+                    new DeflaterOutputStream(super.getOutputStream(), deflater, bufferSize, true), bufferSize);
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (out != null) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The connection is going away anyway
+        } finally {
+            super.close();
+            // Deflater and Inflater hold native memory until they are ended
+            if (deflater != null) {
+                deflater.end();
+            }
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.chatapp.rmi.transport;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.zip.Deflater;
+
+/**
+ * Socket factory for RMI connections that compresses everything sent over them.
+ * The client half is serialized into the stubs the server hands out, so a client that
+ * looks up a compressed service automatically connects through compressed sockets.
+ */
+public final class CompressedSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int compressionLevel;
+    private final int bufferSize;
+
+    /**
+     * Create a factory.
+     *
+     * @param compressionLevel The deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * @param bufferSize The size of the socket send and receive buffers, and of the stream buffers
+     */
+    public CompressedSocketFactory(int compressionLevel, int bufferSize) {
+        this.compressionLevel = compressionLevel;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        CompressedSocket socket = new CompressedSocket(compressionLevel, bufferSize);
+        socket.tune();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new CompressedServerSocket(port, compressionLevel, bufferSize);
+    }
+
+    // RMI reuses connections and listening ports only between equal factories
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CompressedSocketFactory that = (CompressedSocketFactory) o;
+        return compressionLevel == that.compressionLevel && bufferSize == that.bufferSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * compressionLevel + bufferSize;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedSocketFactory{" +
+                "compressionLevel=" + compressionLevel +
+                ", bufferSize=" + bufferSize +
+                '}';
+    }
+}
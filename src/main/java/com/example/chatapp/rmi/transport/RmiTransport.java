@@ -0,0 +1,89 @@
+package com.example.chatapp.rmi.transport;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.zip.Deflater;
+
+/**
+ * Chooses between plain and compressed RMI connections.
+ * The server can export its services both ways: plainly under their usual names, and
+ * compressed under the same names with {@value #COMPRESSED_SUFFIX} appended. A client picks
+ * one with the {@value #TRANSPORT_PROPERTY} system property ({@value #PLAIN} or
+ * {@value #COMPRESSED}). Clients on slow links opt in; LAN clients keep plain sockets.
+ */
+public final class RmiTransport {
+
+    /** System property selecting the transport of a client. */
+    public static final String TRANSPORT_PROPERTY = "chat.rmi.transport";
+    public static final String PLAIN = "plain";
+    public static final String COMPRESSED = "compressed";
+
+    /** Appended to a service name to get its compressed binding. */
+    public static final String COMPRESSED_SUFFIX = ".compressed";
+
+    /** Deflate level of compressed connections; speed matters more than ratio for chat traffic. */
+    public static final int COMPRESSION_LEVEL = Integer.getInteger("chat.rmi.compressionLevel", Deflater.BEST_SPEED);
+
+    /** Socket and stream buffer size of compressed connections. */
+    public static final int BUFFER_SIZE = Integer.getInteger("chat.rmi.bufferSize", 64 * 1024);
+
+    private RmiTransport() {
+    }
+
+    /**
+     * @return True if this process is configured to use compressed connections
+     */
+    public static boolean isCompressed() {
+        return COMPRESSED.equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY, PLAIN).trim());
+    }
+
+    /**
+     * Get the registry name to look a service up by, for the configured transport.
+     *
+     * @param serviceName The service's plain name
+     * @return The name of the service's binding for the configured transport
+     */
+    public static String serviceName(String serviceName) {
+        return isCompressed() ? compressedName(serviceName) : serviceName;
+    }
+
+    /**
+     * @param serviceName The service's plain name
+     * @return The name of the service's compressed binding
+     */
+    public static String compressedName(String serviceName) {
+        return serviceName + COMPRESSED_SUFFIX;
+    }
+
+    /**
+     * @return A socket factory for compressed connections with the configured settings
+     */
+    public static CompressedSocketFactory compressedSocketFactory() {
+        return new CompressedSocketFactory(COMPRESSION_LEVEL, BUFFER_SIZE);
+    }
+
+    /**
+     * Export an object on an anonymous port, using the configured transport.
+     * Clients use this for their callback objects, so callbacks travel the same way as calls.
+     *
+     * @param object The object to export
+     * @return The stub for the object
+     * @throws RemoteException If the object could not be exported
+     */
+    public static Remote export(Remote object) throws RemoteException {
+        return isCompressed() ? exportCompressed(object) : UnicastRemoteObject.exportObject(object, 0);
+    }
+
+    /**
+     * Export an object on an anonymous port with compressed connections.
+     *
+     * @param object The object to export
+     * @return The stub for the object
+     * @throws RemoteException If the object could not be exported
+     */
+    public static Remote exportCompressed(Remote object) throws RemoteException {
+        CompressedSocketFactory factory = compressedSocketFactory();
+        return UnicastRemoteObject.exportObject(object, 0, factory, factory);
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatLogs;
+import com.example.chatapp.domain.ChatUser;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes audit log entries in the background.
+ * Callers hand entries to a lock-free ring buffer and return immediately; a writer thread
+ * drains the buffer and persists the entries in batches, one transaction per batch.
+ * What happens when the buffer is full depends on the {@link OverflowMode}.
+ */
+public class AuditLogAppender {
+
+    /**
+     * What {@link #append} does when the buffer is full.
+     */
+    public enum OverflowMode {
+        /** Wait until the writer has made room. Nothing is lost, but callers may stall. */
+        BLOCK,
+        /** Discard the entry and count it. Callers never wait. */
+        DROP,
+        /** Append the entry to a file on disk; the writer loads it once the buffer has drained. */
+        SPILL
+    }
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final SessionFactory sessionFactory;
+    private final RingBuffer<ChatLogs> buffer;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final OverflowMode overflowMode;
+    private final File spillFile;
+    private final File replayFile;
+    private final Object spillLock = new Object();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    // Set while the writer waits for entries, so appenders only wake it when needed
+    private volatile boolean writerIdle;
+
+    // Guarded by spillLock
+    private DataOutputStream spillOut;
+    private volatile boolean spillPending;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+
+    /**
+     * Create and start the appender. Entries spilled by a previous run are written first.
+     *
+     * @param sessionFactory The session factory used to write batches
+     * @param capacity The number of entries the buffer holds; rounded up to a power of two
+     * @param maxBatchSize The maximum number of entries per transaction
+     * @param flushIntervalMillis How long the writer waits for more entries before writing a partial batch
+     * @param overflowMode What to do when the buffer is full
+     * @param spillFile The file entries are spilled to in {@link OverflowMode#SPILL} mode
+     */
+    public AuditLogAppender(SessionFactory sessionFactory, int capacity, int maxBatchSize, long flushIntervalMillis,
+                            OverflowMode overflowMode, File spillFile) {
+        this.sessionFactory = sessionFactory;
+        this.buffer = new RingBuffer<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.overflowMode = overflowMode;
+        this.spillFile = spillFile;
+        this.replayFile = new File(spillFile.getPath() + ".replay");
+        this.spillPending = spillFile.exists() || replayFile.exists();
+        this.writerThread = new Thread(this::runWriter, "audit-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue an entry for writing. Never blocks unless the mode is {@link OverflowMode#BLOCK}
+     * and the buffer is full.
+     *
+     * @param entry The entry; its user, if any, only needs an id
+     */
+    public void append(ChatLogs entry) {
+        if (!running) {
+            System.err.println("Audit log is shut down, dropping entry: " + entry.getAction());
+            dropped.incrementAndGet();
+            return;
+        }
+        appended.incrementAndGet();
+        if (buffer.offer(entry)) {
+            wakeWriter();
+            return;
+        }
+
+        switch (overflowMode) {
+            case BLOCK:
+                blocked.incrementAndGet();
+                while (!buffer.offer(entry)) {
+                    LockSupport.unpark(writerThread);
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                wakeWriter();
+                break;
+            case SPILL:
+                spill(entry);
+                break;
+            default:
+                dropped.incrementAndGet();
+                break;
+        }
+    }
+
+    public long getAppendedCount() {
+        return appended.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    public long getReplayedCount() {
+        return replayed.get();
+    }
+
+    /**
+     * @return The number of appends that had to wait for room in {@link OverflowMode#BLOCK} mode
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    /**
+     * @return The number of entries waiting in the buffer
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * Stop accepting entries and write everything already queued or spilled.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeSpillFile();
+    }
+
+    private void wakeWriter() {
+        if (writerIdle) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void runWriter() {
+        List<ChatLogs> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            buffer.drainTo(batch, maxBatchSize);
+            if (batch.size() < maxBatchSize && running) {
+                // Give a partial batch a moment to fill up
+                writerIdle = true;
+                if (buffer.size() == 0) {
+                    LockSupport.parkNanos(flushIntervalNanos);
+                }
+                writerIdle = false;
+                buffer.drainTo(batch, maxBatchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            } else if (spillPending) {
+                // The buffer has drained; catch up with what overflowed to disk
+                replaySpilled();
+            } else if (!running) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write a batch in a single transaction. If the batch fails, each entry is retried on
+     * its own so that one bad entry does not lose the whole batch.
+     */
+    private void writeBatch(List<ChatLogs> batch) {
+        try {
+            commit(batch);
+            batches.incrementAndGet();
+            written.addAndGet(batch.size());
+        } catch (Exception batchError) {
+            System.err.println("Error writing audit log batch of " + batch.size() + ": " + batchError.getMessage());
+            for (ChatLogs entry : batch) {
+                entry.setId(null);
+                try {
+                    commit(List.of(entry));
+                    batches.incrementAndGet();
+                    written.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    System.err.println("Error writing audit log entry " + entry.getAction() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void commit(List<ChatLogs> batch) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                for (ChatLogs entry : batch) {
+                    // Entries come from other sessions; only the user's id is needed
+                    ChatUser user = entry.getUser();
+                    if (user != null && user.getId() != null) {
+                        entry.setUser(session.getReference(ChatUser.class, user.getId()));
+                    }
+                    session.persist(entry);
+                }
+                session.flush();
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void spill(ChatLogs entry) {
+        synchronized (spillLock) {
+            try {
+                if (spillOut == null) {
+                    File directory = spillFile.getAbsoluteFile().getParentFile();
+                    if (directory != null && !directory.exists()) {
+                        directory.mkdirs();
+                    }
+                    spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile, true)));
+                }
+                writeEntry(spillOut, entry);
+                spillOut.flush();
+                spilled.incrementAndGet();
+                spillPending = true;
+            } catch (IOException e) {
+                System.err.println("Error spilling audit log entry, dropping it: " + e.getMessage());
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Move the spill file aside and write its entries. Appenders that overflow meanwhile
+     * start a new spill file.
+     */
+    private void replaySpilled() {
+        synchronized (spillLock) {
+            closeSpillFile();
+            spillPending = false;
+            if (!replayFile.exists() && spillFile.exists() && !spillFile.renameTo(replayFile)) {
+                System.err.println("Could not move audit spill file aside: " + spillFile);
+                return;
+            }
+        }
+        if (!replayFile.exists()) {
+            return;
+        }
+
+        List<ChatLogs> batch = new ArrayList<>(maxBatchSize);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(replayFile)))) {
+            while (true) {
+                ChatLogs entry;
+                try {
+                    entry = readEntry(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                batch.add(entry);
+                if (batch.size() == maxBatchSize) {
+                    writeBatch(batch);
+                    replayed.addAndGet(batch.size());
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading audit spill file: " + e.getMessage());
+            e.printStackTrace();
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+            replayed.addAndGet(batch.size());
+        }
+        if (!replayFile.delete()) {
+            System.err.println("Could not delete replayed audit spill file: " + replayFile);
+        }
+    }
+
+    private void closeSpillFile() {
+        synchronized (spillLock) {
+            if (spillOut != null) {
+                try {
+                    spillOut.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing audit spill file: " + e.getMessage());
+                }
+                spillOut = null;
+            }
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, ChatLogs entry) throws IOException {
+        ChatUser user = entry.getUser();
+        out.writeLong(user != null && user.getId() != null ? user.getId() : -1L);
+        out.writeUTF(entry.getAction());
+        out.writeLong(entry.getTimestamp() != null ? entry.getTimestamp().getTime() : System.currentTimeMillis());
+        writeNullable(out, entry.getIpAddress());
+        writeNullable(out, entry.getDetails());
+        writeNullable(out, entry.getChatId());
+        writeNullable(out, entry.getFilePath());
+    }
+
+    private static ChatLogs readEntry(DataInputStream in) throws IOException {
+        long userId = in.readLong();
+        ChatUser user = null;
+        if (userId >= 0) {
+            user = new ChatUser();
+            user.setId(userId);
+        }
+        String action = in.readUTF();
+        long timestamp = in.readLong();
+        ChatLogs entry = new ChatLogs(user, action, readNullable(in), readNullable(in), readNullable(in), readNullable(in));
+        entry.setTimestamp(new Date(timestamp));
+        return entry;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.chatapp.server.implementation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each phase of server startup takes, including phases that run in
+ * parallel, and formats them as a report.
+ */
+public class BootTimer {
+
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private long totalNanos = -1;
+
+    /**
+     * Run a phase on the calling thread.
+     *
+     * @param name The phase name
+     * @param step The work of the phase
+     */
+    public void time(String name, Runnable step) {
+        time(name, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a phase that produces a result on the calling thread.
+     *
+     * @param name The phase name
+     * @param step The work of the phase
+     * @return The result of the step
+     */
+    public <T> T time(String name, Supplier<T> step) {
+        long begin = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            record(name, begin, System.nanoTime());
+        }
+    }
+
+    /**
+     * Start a phase on an executor.
+     *
+     * @param name The phase name
+     * @param step The work of the phase
+     * @param executor The executor to run it on
+     * @return A future completed when the phase has finished
+     */
+    public CompletableFuture<Void> timeAsync(String name, Runnable step, Executor executor) {
+        return CompletableFuture.runAsync(() -> time(name, step), executor);
+    }
+
+    /**
+     * Start a phase whose work cannot be wrapped in a lambda, for example because it throws
+     * checked exceptions. The phase is recorded when {@link #end} is called.
+     *
+     * @return The start time to pass to {@link #end}
+     */
+    public long begin() {
+        return System.nanoTime();
+    }
+
+    /**
+     * End a phase started with {@link #begin}.
+     *
+     * @param name The phase name
+     * @param beginNanos The value returned by {@link #begin}
+     */
+    public void end(String name, long beginNanos) {
+        record(name, beginNanos, System.nanoTime());
+    }
+
+    /**
+     * Mark the end of startup.
+     */
+    public synchronized void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return The duration of each phase and of the whole startup, in milliseconds
+     */
+    public synchronized Map<String, Long> getPhaseMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        for (Phase phase : phases) {
+            millis.put(phase.name, TimeUnit.NANOSECONDS.toMillis(phase.endNanos - phase.beginNanos));
+        }
+        if (totalNanos >= 0) {
+            millis.put("total", TimeUnit.NANOSECONDS.toMillis(totalNanos));
+        }
+        return millis;
+    }
+
+    /**
+     * @return One line per phase with its duration, when it started and on which thread
+     */
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder("Startup timing:");
+        for (Phase phase : phases) {
+            sb.append(String.format("%n  %-20s %6d ms  (at %d ms, %s)", phase.name,
+                    TimeUnit.NANOSECONDS.toMillis(phase.endNanos - phase.beginNanos),
+                    TimeUnit.NANOSECONDS.toMillis(phase.beginNanos - startNanos), phase.thread));
+        }
+        if (totalNanos >= 0) {
+            sb.append(String.format("%n  %-20s %6d ms", "total", TimeUnit.NANOSECONDS.toMillis(totalNanos)));
+        }
+        return sb.toString();
+    }
+
+    private synchronized void record(String name, long beginNanos, long endNanos) {
+        phases.add(new Phase(name, beginNanos, endNanos, Thread.currentThread().getName()));
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final long beginNanos;
+        private final long endNanos;
+        private final String thread;
+
+        Phase(String name, long beginNanos, long endNanos, String thread) {
+            this.name = name;
+            this.beginNanos = beginNanos;
+            this.endNanos = endNanos;
+            this.thread = thread;
+        }
+    }
+}
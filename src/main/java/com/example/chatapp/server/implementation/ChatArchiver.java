@@ -0,0 +1,258 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatRecord;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes chat transcripts in the background, so stopping a chat does not wait for its archive.
+ * Jobs wait in a bounded queue for a fixed number of archiver threads, and each job's progress
+ * is kept in the status of its {@link ChatRecord}. A job that finds the queue full stays
+ * PENDING in the database and is queued again once the queue has drained; so are the jobs a
+ * previous run left unfinished, when {@link #resumePending()} is called at startup.
+ */
+public class ChatArchiver {
+
+    /**
+     * Writes one chat's transcript.
+     */
+    public interface Archive {
+        /**
+         * @param chatName The name of the chat
+         * @param chatId The unique ID of the chat
+         * @param stopTime When the chat stopped
+         * @return The number of messages written
+         * @throws IOException If the transcript cannot be written
+         */
+        long write(String chatName, String chatId, Date stopTime) throws IOException;
+    }
+
+    /** Records whose transcript was not written yet, oldest first; checked by {@link QueryPlanVerifier}. */
+    static final String UNFINISHED_RECORDS_QUERY = "SELECT r.id, r.chatName, r.chatId, r.stopTime FROM ChatRecord r " +
+            "WHERE r.status IN (:pending, :writing) ORDER BY r.id";
+    /** Moves one record to another archiving status; checked by {@link QueryPlanVerifier}. */
+    static final String UPDATE_STATUS_QUERY = "UPDATE ChatRecord SET status = :status WHERE id = :id";
+
+    private final SessionFactory sessionFactory;
+    private final Archive archive;
+    private final ThreadPoolExecutor executor;
+    // Records queued or being written, so that no record is queued twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    // Set when a job did not fit in the queue and is only remembered by the database
+    private final AtomicBoolean backlogInDatabase = new AtomicBoolean();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong messagesWritten = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    /**
+     * Create an archiver and start its threads.
+     *
+     * @param sessionFactory The session factory used to update the records
+     * @param archive Writes the transcripts
+     * @param threads The number of transcripts written at the same time
+     * @param queueCapacity The number of jobs that can wait for a thread
+     */
+    public ChatArchiver(SessionFactory sessionFactory, Archive archive, int threads, int queueCapacity) {
+        this.sessionFactory = sessionFactory;
+        this.archive = archive;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "chat-archiver-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue a saved record's transcript for writing. Returns at once.
+     *
+     * @param record The record, in the PENDING state
+     */
+    public void submit(ChatRecord record) {
+        enqueue(record.getId(), record.getChatName(), record.getChatId(), record.getStopTime());
+    }
+
+    /**
+     * Queue the records left PENDING or WRITING, by a previous run or by a full queue,
+     * as far as there is room in the queue.
+     *
+     * @return The number of records queued
+     */
+    public int resumePending() {
+        backlogInDatabase.set(false);
+        int room = executor.getQueue().remainingCapacity();
+        if (room == 0 || executor.isShutdown()) {
+            backlogInDatabase.set(true);
+            return 0;
+        }
+
+        int limit = room + inFlight.size();
+        List<Object[]> records;
+        try (Session session = sessionFactory.openSession()) {
+            records = session.createQuery(UNFINISHED_RECORDS_QUERY, Object[].class)
+                    .setParameter("pending", ChatRecord.Status.PENDING)
+                    .setParameter("writing", ChatRecord.Status.WRITING)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (Exception e) {
+            System.err.println("Error finding chat records to archive: " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+
+        int queued = 0;
+        for (Object[] record : records) {
+            Long id = (Long) record[0];
+            if (inFlight.contains(id)) {
+                continue;
+            }
+            if (!enqueue(id, (String) record[1], (String) record[2], (Date) record[3])) {
+                break;
+            }
+            queued++;
+        }
+        // More records may be waiting than were read; look again once the queue has drained
+        if (records.size() >= limit) {
+            backlogInDatabase.set(true);
+        }
+        return queued;
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return The number of jobs that found the queue full and had to wait in the database
+     */
+    public long getDeferredCount() {
+        return deferred.get();
+    }
+
+    public long getMessagesWritten() {
+        return messagesWritten.get();
+    }
+
+    /**
+     * @return The number of jobs waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of transcripts being written
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return Messages written per second of archiver thread time, or 0 before the first job
+     */
+    public long getMessagesPerSecond() {
+        long nanos = busyNanos.get();
+        return nanos == 0 ? 0 : messagesWritten.get() * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * Stop taking jobs and give the queued and running ones up to 30 seconds to finish.
+     * Whatever is left unfinished keeps its status in the database and is resumed on the next start.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Chat archiver did not finish in time; unfinished archives resume on the next start");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return False if the queue was full; the job then waits in the database
+     */
+    private boolean enqueue(long recordId, String chatName, String chatId, Date stopTime) {
+        if (!inFlight.add(recordId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> run(recordId, chatName, chatId, stopTime));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(recordId);
+            deferred.incrementAndGet();
+            backlogInDatabase.set(true);
+            System.err.println("Chat archive queue is full; " + chatName + " will be archived later");
+            return false;
+        }
+    }
+
+    private void run(long recordId, String chatName, String chatId, Date stopTime) {
+        long start = System.nanoTime();
+        try {
+            updateStatus(recordId, ChatRecord.Status.WRITING);
+            long messages = archive.write(chatName, chatId, stopTime);
+            updateStatus(recordId, ChatRecord.Status.DONE);
+            completed.incrementAndGet();
+            messagesWritten.addAndGet(messages);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Error archiving chat " + chatName + ": " + e.getMessage());
+            e.printStackTrace();
+            try {
+                updateStatus(recordId, ChatRecord.Status.FAILED);
+            } catch (Exception statusError) {
+                System.err.println("Error marking chat archive as failed: " + statusError.getMessage());
+            }
+        } finally {
+            busyNanos.addAndGet(System.nanoTime() - start);
+            inFlight.remove(recordId);
+            if (backlogInDatabase.get() && executor.getQueue().isEmpty() && !executor.isShutdown()) {
+                resumePending();
+            }
+        }
+    }
+
+    private void updateStatus(long recordId, ChatRecord.Status status) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                Query<?> query = session.createQuery(UPDATE_STATUS_QUERY);
+                query.setParameter("status", status);
+                query.setParameter("id", recordId);
+                query.executeUpdate();
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.chatapp.server.implementation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One client connection of the socket gateway.
+ * Reading and writing happen on the connection's selector thread; requests are handled
+ * one at a time on a worker thread, so a client's requests are processed in the order it
+ * sent them. Responses and pushed events can be queued from any thread.
+ */
+public class GatewayConnection {
+
+    // Most frames are small; the buffer only grows while a larger frame is being read
+    private static final int INITIAL_READ_BUFFER_SIZE = 4096;
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final int maxFrameBytes;
+    private final long maxPendingBytes;
+    private final Consumer<GatewayConnection> writeRequester;
+    private final Consumer<GatewayConnection> closeListener;
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final Queue<byte[]> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+    // Session state, set by the worker handling this connection's requests
+    private volatile String username;
+    private volatile GatewayObserver observer;
+
+    /**
+     * Create a connection.
+     *
+     * @param channel The client's channel, registered for reading
+     * @param key The channel's selection key
+     * @param maxFrameBytes The largest frame body the client may send
+     * @param maxPendingBytes How many bytes may wait to be written before the client is dropped
+     * @param writeRequester Asks the selector thread to write the queued frames
+     * @param closeListener Notified once when the connection is closed
+     */
+    public GatewayConnection(SocketChannel channel, SelectionKey key, int maxFrameBytes, long maxPendingBytes,
+                             Consumer<GatewayConnection> writeRequester, Consumer<GatewayConnection> closeListener) {
+        this.channel = channel;
+        this.key = key;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxPendingBytes = maxPendingBytes;
+        this.writeRequester = writeRequester;
+        this.closeListener = closeListener;
+    }
+
+    /**
+     * Read what is available and split it into frames. Called on the selector thread.
+     *
+     * @return The bodies of the complete frames read, or null if the client closed the connection
+     * @throws IOException If reading fails or the client sent a frame that is too large
+     */
+    List<byte[]> read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            return null;
+        }
+
+        List<byte[]> frames = new ArrayList<>(1);
+        readBuffer.flip();
+        while (readBuffer.remaining() >= 4) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < 0 || length > maxFrameBytes) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (readBuffer.remaining() < 4 + length) {
+                break;
+            }
+            readBuffer.getInt();
+            byte[] body = new byte[length];
+            readBuffer.get(body);
+            frames.add(body);
+        }
+        readBuffer.compact();
+
+        // Grow for a frame larger than the buffer; shrink back once it has been read
+        if (readBuffer.position() >= 4) {
+            int needed = 4 + readBuffer.getInt(0);
+            if (needed > readBuffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+        } else if (readBuffer.position() == 0 && readBuffer.capacity() > INITIAL_READ_BUFFER_SIZE) {
+            readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+        }
+        return frames;
+    }
+
+    /**
+     * Write queued frames until the socket's send buffer is full. Called on the selector thread.
+     *
+     * @return True if everything queued has been written
+     * @throws IOException If writing fails
+     */
+    boolean flush() throws IOException {
+        ByteBuffer frame;
+        while ((frame = outbound.peek()) != null) {
+            int written = channel.write(frame);
+            pendingBytes.addAndGet(-written);
+            if (frame.hasRemaining()) {
+                return false;
+            }
+            outbound.poll();
+        }
+        return true;
+    }
+
+    /**
+     * Queue a frame to be written. A client that does not read fast enough to keep the
+     * backlog under the limit is disconnected.
+     *
+     * @param frame The frame, length prefix included
+     * @return True if the frame was queued, false if the connection is closed
+     */
+    public boolean send(ByteBuffer frame) {
+        if (closed.get()) {
+            return false;
+        }
+        if (pendingBytes.addAndGet(frame.remaining()) > maxPendingBytes) {
+            System.err.println("Gateway client not reading, disconnecting: " + describe());
+            close();
+            return false;
+        }
+        outbound.add(frame);
+        writeRequester.accept(this);
+        return true;
+    }
+
+    /**
+     * Queue a request for the worker.
+     *
+     * @param body The request body
+     * @param maxPending The maximum number of requests that may wait
+     * @return False if too many requests are already waiting
+     */
+    boolean queueRequest(byte[] body, int maxPending) {
+        if (pendingRequests.incrementAndGet() > maxPending) {
+            pendingRequests.decrementAndGet();
+            return false;
+        }
+        requests.add(body);
+        return true;
+    }
+
+    byte[] pollRequest() {
+        byte[] body = requests.poll();
+        if (body != null) {
+            pendingRequests.decrementAndGet();
+        }
+        return body;
+    }
+
+    boolean hasRequests() {
+        return !requests.isEmpty();
+    }
+
+    /**
+     * @return True if the caller should start draining the requests
+     */
+    boolean markScheduled() {
+        return scheduled.compareAndSet(false, true);
+    }
+
+    void clearScheduled() {
+        scheduled.set(false);
+    }
+
+    /**
+     * Close the connection. Safe to call more than once and from any thread.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing gateway connection: " + e.getMessage());
+        }
+        outbound.clear();
+        requests.clear();
+        closeListener.accept(this);
+    }
+
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    String getUsername() {
+        return username;
+    }
+
+    GatewayObserver getObserver() {
+        return observer;
+    }
+
+    void setSession(String username, GatewayObserver observer) {
+        this.username = username;
+        this.observer = observer;
+    }
+
+    /**
+     * @return The client's address and user, for log messages
+     */
+    public String describe() {
+        String address;
+        try {
+            address = String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            address = "unknown";
+        }
+        return username != null ? username + "@" + address : address;
+    }
+}
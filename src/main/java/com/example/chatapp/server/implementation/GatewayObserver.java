@@ -0,0 +1,110 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatMsg;
+import com.example.chatapp.gateway.FrameBuilder;
+import com.example.chatapp.gateway.GatewayProtocol;
+import com.example.chatapp.rmi.ChatObserver;
+import com.example.chatapp.rmi.dto.PresenceDelta;
+import com.example.chatapp.rmi.dto.WireCodec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.Date;
+
+/**
+ * Observer of a user logged in through the socket gateway.
+ * It is registered with the server like any RMI client's observer, but instead of making a
+ * remote call it queues an event frame on the user's connection, so delivery never waits
+ * on the network. If the connection is gone, the callback fails and the server unregisters
+ * the observer as it would an unreachable RMI client.
+ */
+public class GatewayObserver implements ChatObserver {
+
+    private final GatewayConnection connection;
+    private final String username;
+
+    /**
+     * @param connection The connection the user logged in on
+     * @param username The username
+     */
+    public GatewayObserver(GatewayConnection connection, String username) {
+        this.connection = connection;
+        this.username = username;
+    }
+
+    @Override
+    public void update(ChatMsg message) throws RemoteException {
+        push(GatewayProtocol.EVENT_MESSAGE, out -> WireCodec.writeMessage(out, WireViews.toView(message)));
+    }
+
+    @Override
+    public void presenceChanged(PresenceDelta delta) throws RemoteException {
+        push(GatewayProtocol.EVENT_PRESENCE, out -> WireCodec.writePresenceDelta(out, delta));
+    }
+
+    @Override
+    public void chatStarted(String chatName, Date startTime) throws RemoteException {
+        push(GatewayProtocol.EVENT_CHAT_STARTED, out -> {
+            WireCodec.writeString(out, chatName);
+            WireCodec.writeVarLong(out, startTime.getTime());
+        });
+    }
+
+    @Override
+    public void userJoined(String chatName, String username, String nickName, Date joinTime) throws RemoteException {
+        push(GatewayProtocol.EVENT_USER_JOINED, out -> {
+            WireCodec.writeString(out, chatName);
+            WireCodec.writeString(out, username);
+            WireCodec.writeNullableString(out, nickName);
+            WireCodec.writeVarLong(out, joinTime.getTime());
+        });
+    }
+
+    @Override
+    public void userLeft(String chatName, String username, String nickName, Date leaveTime) throws RemoteException {
+        push(GatewayProtocol.EVENT_USER_LEFT, out -> {
+            WireCodec.writeString(out, chatName);
+            WireCodec.writeString(out, username);
+            WireCodec.writeNullableString(out, nickName);
+            WireCodec.writeVarLong(out, leaveTime.getTime());
+        });
+    }
+
+    @Override
+    public void chatStopped(String chatName, Date stopTime) throws RemoteException {
+        push(GatewayProtocol.EVENT_CHAT_STOPPED, out -> {
+            WireCodec.writeString(out, chatName);
+            WireCodec.writeVarLong(out, stopTime.getTime());
+        });
+    }
+
+    @Override
+    public void resyncRequired() throws RemoteException {
+        push(GatewayProtocol.EVENT_RESYNC_REQUIRED, out -> {
+        });
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    private void push(byte event, Payload payload) throws RemoteException {
+        FrameBuilder frame = new FrameBuilder();
+        try {
+            frame.writeInt(GatewayProtocol.PUSH_REQUEST_ID);
+            frame.writeByte(event);
+            payload.write(frame);
+        } catch (IOException e) {
+            throw new RemoteException("Could not encode event for " + username, e);
+        }
+        if (!connection.send(frame.toFrame())) {
+            throw new RemoteException("Gateway connection closed: " + username);
+        }
+    }
+
+    private interface Payload {
+        void write(DataOutput out) throws IOException;
+    }
+}
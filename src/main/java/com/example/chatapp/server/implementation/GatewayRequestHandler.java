@@ -0,0 +1,286 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatGrp;
+import com.example.chatapp.domain.ChatMsg;
+import com.example.chatapp.domain.ChatUser;
+import com.example.chatapp.gateway.FrameBuilder;
+import com.example.chatapp.gateway.GatewayProtocol;
+import com.example.chatapp.rmi.ChatService;
+import com.example.chatapp.rmi.UserService;
+import com.example.chatapp.rmi.dto.WireCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.Collections;
+
+/**
+ * Decodes gateway requests, runs them against the same service implementation the RMI
+ * clients use, and encodes the responses. See {@link GatewayProtocol} for the format.
+ */
+public class GatewayRequestHandler {
+
+    private final ChatService chatService;
+    private final UserService userService;
+    private final GroupMembershipIndex groupIndex;
+
+    /**
+     * @param chatService The chat service implementation
+     * @param userService The user service implementation
+     * @param groupIndex The group membership index, to check access to groups
+     */
+    public GatewayRequestHandler(ChatService chatService, UserService userService, GroupMembershipIndex groupIndex) {
+        this.chatService = chatService;
+        this.userService = userService;
+        this.groupIndex = groupIndex;
+    }
+
+    /**
+     * Handle one request.
+     *
+     * @param connection The connection the request came from
+     * @param body The request body
+     * @return The response frame
+     */
+    public ByteBuffer handle(GatewayConnection connection, byte[] body) {
+        int requestId = requestIdOf(body);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 4, body.length - 4));
+            byte operation = in.readByte();
+            FrameBuilder out = new FrameBuilder();
+            out.writeInt(requestId);
+            out.writeByte(GatewayProtocol.STATUS_OK);
+            execute(connection, operation, in, out);
+            return out.toFrame();
+        } catch (RequestException e) {
+            return error(requestId, e.getMessage());
+        } catch (RemoteException e) {
+            System.err.println("Error handling gateway request from " + connection.describe() + ": " + e.getMessage());
+            return error(requestId, "Server error: " + e.getMessage());
+        } catch (IOException e) {
+            return error(requestId, "Malformed request");
+        } catch (RuntimeException e) {
+            System.err.println("Error handling gateway request from " + connection.describe() + ": " + e.getMessage());
+            e.printStackTrace();
+            return error(requestId, "Internal server error");
+        }
+    }
+
+    /**
+     * Build an error response.
+     *
+     * @param requestId The id of the failed request
+     * @param message The error message
+     * @return The response frame
+     */
+    public ByteBuffer error(int requestId, String message) {
+        FrameBuilder out = new FrameBuilder();
+        try {
+            out.writeInt(requestId);
+            out.writeByte(GatewayProtocol.STATUS_ERROR);
+            WireCodec.writeString(out, message != null ? message : "Error");
+        } catch (IOException e) {
+            // Not thrown when writing to memory
+        }
+        return out.toFrame();
+    }
+
+    /**
+     * @param body A request body
+     * @return The request id, or 0 if the body is too short to have one
+     */
+    public static int requestIdOf(byte[] body) {
+        return body.length >= 4 ? ByteBuffer.wrap(body).getInt(0) : 0;
+    }
+
+    /**
+     * Log the connection's user out once the connection is gone.
+     *
+     * @param connection The closed connection
+     */
+    public void connectionClosed(GatewayConnection connection) {
+        try {
+            endSession(connection);
+        } catch (RemoteException e) {
+            System.err.println("Error ending gateway session of " + connection.describe() + ": " + e.getMessage());
+        }
+    }
+
+    private void execute(GatewayConnection connection, byte operation, DataInput in, FrameBuilder out)
+            throws IOException, RequestException {
+        switch (operation) {
+            case GatewayProtocol.LOGIN: {
+                String username = WireCodec.readString(in);
+                String password = WireCodec.readString(in);
+                ChatUser user = userService.login(username, password);
+                if (user == null) {
+                    throw new RequestException("Invalid username or password");
+                }
+                endSession(connection);
+                GatewayObserver observer = new GatewayObserver(connection, user.getUsername());
+                connection.setSession(user.getUsername(), observer);
+                chatService.registerObserver(observer);
+                WireCodec.writeUser(out, WireViews.toView(user, true));
+                break;
+            }
+            case GatewayProtocol.REGISTER: {
+                ChatUser user = userService.register(WireCodec.readString(in), WireCodec.readString(in),
+                        WireCodec.readNullableString(in), WireCodec.readNullableString(in),
+                        WireCodec.readNullableString(in));
+                if (user == null) {
+                    throw new RequestException("Registration failed");
+                }
+                WireCodec.writeUser(out, WireViews.toView(user, false));
+                break;
+            }
+            case GatewayProtocol.IS_USERNAME_AVAILABLE:
+                out.writeBoolean(userService.isUsernameAvailable(WireCodec.readString(in)));
+                break;
+            case GatewayProtocol.PING:
+                break;
+            case GatewayProtocol.LOGOUT:
+                requireUser(connection);
+                out.writeBoolean(endSession(connection));
+                break;
+            case GatewayProtocol.UPDATE_PROFILE: {
+                ChatUser user = userService.updateProfile(requireUser(connection),
+                        WireCodec.readNullableString(in), WireCodec.readNullableString(in),
+                        WireCodec.readNullableString(in), WireCodec.readNullableString(in));
+                if (user == null) {
+                    throw new RequestException("Profile could not be updated");
+                }
+                WireCodec.writeUser(out, WireViews.toView(user, true));
+                break;
+            }
+            case GatewayProtocol.SEND_MESSAGE:
+                writeSentMessage(out, chatService.sendMessage(requireUser(connection),
+                        WireCodec.readString(in), WireCodec.readString(in)));
+                break;
+            case GatewayProtocol.SEND_GROUP_MESSAGE:
+                writeSentMessage(out, chatService.sendGroupMessage(requireUser(connection),
+                        WireCodec.readString(in), WireCodec.readString(in)));
+                break;
+            case GatewayProtocol.MESSAGES_PAGE:
+                WireCodec.writeMessageList(out, chatService.getMessagesPageView(requireUser(connection),
+                        WireCodec.readString(in), readOptionalId(in), readLimit(in)));
+                break;
+            case GatewayProtocol.GROUP_MESSAGES_PAGE:
+                WireCodec.writeMessageList(out, chatService.getGroupMessagesPageView(requireUser(connection),
+                        requireMember(connection, WireCodec.readString(in)), readOptionalId(in), readLimit(in)));
+                break;
+            case GatewayProtocol.MESSAGES_SINCE:
+                WireCodec.writeMessageList(out, chatService.getMessagesSinceView(requireUser(connection),
+                        WireCodec.readString(in), WireCodec.readVarLong(in), readLimit(in)));
+                break;
+            case GatewayProtocol.GROUP_MESSAGES_SINCE:
+                WireCodec.writeMessageList(out, chatService.getGroupMessagesSinceView(requireUser(connection),
+                        requireMember(connection, WireCodec.readString(in)), WireCodec.readVarLong(in), readLimit(in)));
+                break;
+            case GatewayProtocol.ALL_GROUPS_TIMELINE:
+                WireCodec.writeMessageList(out, chatService.getAllGroupsTimelineView(requireUser(connection),
+                        readOptionalId(in), readLimit(in)));
+                break;
+            case GatewayProtocol.USER_GROUPS:
+                WireCodec.writeGroups(out, chatService.getUserGroupViews(requireUser(connection)));
+                break;
+            case GatewayProtocol.CREATE_GROUP: {
+                String username = requireUser(connection);
+                ChatGrp group = chatService.createGroup(WireCodec.readString(in),
+                        WireCodec.readNullableString(in), username);
+                if (group == null) {
+                    throw new RequestException("Group could not be created");
+                }
+                // The creator is the only member of a new group
+                WireCodec.writeGroup(out, WireViews.toView(group, Collections.singletonList(username)));
+                break;
+            }
+            case GatewayProtocol.ADD_USER_TO_GROUP: {
+                String groupName = requireCreator(connection, WireCodec.readString(in));
+                out.writeBoolean(chatService.addUserToGroup(groupName, WireCodec.readString(in)));
+                break;
+            }
+            case GatewayProtocol.REMOVE_USER_FROM_GROUP: {
+                String username = requireUser(connection);
+                String groupName = WireCodec.readString(in);
+                String member = WireCodec.readString(in);
+                // Members may leave on their own; only the creator may remove someone else
+                if (!member.equals(username)) {
+                    requireCreator(connection, groupName);
+                }
+                out.writeBoolean(chatService.removeUserFromGroup(groupName, member));
+                break;
+            }
+            case GatewayProtocol.ONLINE_USERS:
+                requireUser(connection);
+                WireCodec.writeUsers(out, chatService.getOnlineUserViews());
+                break;
+            case GatewayProtocol.PRESENCE_SINCE:
+                WireCodec.writePresenceDelta(out, chatService.getPresenceSince(requireUser(connection),
+                        WireCodec.readSignedVarLong(in)));
+                break;
+            default:
+                throw new RequestException("Unknown operation: " + operation);
+        }
+    }
+
+    private boolean endSession(GatewayConnection connection) throws RemoteException {
+        String username = connection.getUsername();
+        GatewayObserver observer = connection.getObserver();
+        if (username == null) {
+            return false;
+        }
+        connection.setSession(null, null);
+        chatService.unregisterObserver(observer);
+        return userService.logout(username);
+    }
+
+    private static String requireUser(GatewayConnection connection) throws RequestException {
+        String username = connection.getUsername();
+        if (username == null) {
+            throw new RequestException("Not logged in");
+        }
+        return username;
+    }
+
+    private String requireMember(GatewayConnection connection, String groupName) throws RequestException {
+        if (!groupIndex.isMember(groupName, requireUser(connection))) {
+            throw new RequestException("Not a member of " + groupName);
+        }
+        return groupName;
+    }
+
+    private String requireCreator(GatewayConnection connection, String groupName) throws RequestException {
+        if (!requireUser(connection).equals(groupIndex.getCreator(groupName))) {
+            throw new RequestException("Only the creator of " + groupName + " may change its members");
+        }
+        return groupName;
+    }
+
+    private static void writeSentMessage(FrameBuilder out, ChatMsg message) throws IOException, RequestException {
+        if (message == null) {
+            throw new RequestException("Message could not be sent");
+        }
+        WireCodec.writeMessage(out, WireViews.toView(message));
+    }
+
+    private static Long readOptionalId(DataInput in) throws IOException {
+        long id = WireCodec.readVarLong(in);
+        return id == 0L ? null : id;
+    }
+
+    private static int readLimit(DataInput in) throws IOException {
+        return WireCodec.readLength(in);
+    }
+
+    /**
+     * A request that cannot be served; the message is sent back to the client.
+     */
+    private static final class RequestException extends Exception {
+        RequestException(String message) {
+            super(message);
+        }
+    }
+}
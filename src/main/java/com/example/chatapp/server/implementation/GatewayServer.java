@@ -0,0 +1,333 @@
+package com.example.chatapp.server.implementation;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking socket front door to the chat services, next to the RMI registry.
+ * An acceptor thread hands new connections to a small, fixed set of selector threads that
+ * do all socket reads and writes, so idle clients cost no thread. Requests run on a worker
+ * pool, one at a time per connection, and events are pushed back over the same connection
+ * instead of through a callback connection into the client.
+ */
+public class GatewayServer {
+
+    private final GatewayRequestHandler handler;
+    private final int port;
+    private final int maxFrameBytes;
+    private final long maxPendingBytes;
+    private final int maxPendingRequests;
+    private final SelectorLoop[] loops;
+    private final ExecutorService workers;
+    private final Set<GatewayConnection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean running;
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Create a gateway. Nothing is opened until {@link #start()}.
+     *
+     * @param handler Handles decoded requests
+     * @param port The port to listen on
+     * @param selectorThreads The number of selector threads
+     * @param workerThreads The number of threads running requests
+     * @param maxFrameBytes The largest frame body a client may send
+     * @param maxPendingBytes How many bytes may wait to be written to a client before it is dropped
+     * @param maxPendingRequests How many requests of one client may wait before new ones are refused
+     */
+    public GatewayServer(GatewayRequestHandler handler, int port, int selectorThreads, int workerThreads,
+                         int maxFrameBytes, long maxPendingBytes, int maxPendingRequests) {
+        this.handler = handler;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxPendingBytes = maxPendingBytes;
+        this.maxPendingRequests = maxPendingRequests;
+        this.loops = new SelectorLoop[Math.max(1, selectorThreads)];
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "gateway-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Open the listening socket and start the acceptor and selector threads.
+     *
+     * @throws IOException If the port cannot be opened
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        running = true;
+
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new SelectorLoop(Selector.open());
+            startThread(loops[i], "gateway-selector-" + (i + 1));
+        }
+        startThread(this::acceptLoop, "gateway-acceptor");
+        System.out.println("Gateway listening on port " + port + " with " + loops.length + " selector threads");
+    }
+
+    /**
+     * Close the listening socket and every connection.
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing gateway socket: " + e.getMessage());
+        }
+        for (GatewayConnection connection : connections) {
+            connection.close();
+        }
+        for (SelectorLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+        workers.shutdown();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return The number of requests refused because the client had too many waiting
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private void startThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                accepted.incrementAndGet();
+                // Spread connections over the selector threads
+                loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].add(channel);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Error accepting gateway connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void dispatch(GatewayConnection connection, byte[] body) {
+        requests.incrementAndGet();
+        if (!connection.queueRequest(body, maxPendingRequests)) {
+            rejected.incrementAndGet();
+            connection.send(handler.error(GatewayRequestHandler.requestIdOf(body), "Too many pending requests"));
+            return;
+        }
+        schedule(connection);
+    }
+
+    private void schedule(GatewayConnection connection) {
+        if (connection.markScheduled()) {
+            try {
+                workers.execute(() -> drain(connection));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                connection.clearScheduled();
+            }
+        }
+    }
+
+    private void drain(GatewayConnection connection) {
+        try {
+            byte[] body;
+            while (connection.isOpen() && (body = connection.pollRequest()) != null) {
+                connection.send(handler.handle(connection, body));
+            }
+        } finally {
+            connection.clearScheduled();
+            // A request may have arrived after the loop ended
+            if (connection.isOpen() && connection.hasRequests()) {
+                schedule(connection);
+            }
+        }
+    }
+
+    private void connectionClosed(GatewayConnection connection) {
+        if (connections.remove(connection)) {
+            try {
+                // Logging out touches the database; keep it off the selector thread
+                workers.execute(() -> handler.connectionClosed(connection));
+            } catch (RejectedExecutionException e) {
+                handler.connectionClosed(connection);
+            }
+        }
+    }
+
+    /**
+     * One selector thread and the connections assigned to it.
+     */
+    private final class SelectorLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+        private final Queue<GatewayConnection> writeRequests = new ConcurrentLinkedQueue<>();
+
+        SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void add(SocketChannel channel) {
+            newChannels.add(channel);
+            selector.wakeup();
+        }
+
+        void requestWrite(GatewayConnection connection) {
+            writeRequests.add(connection);
+            selector.wakeup();
+        }
+
+        void close() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing gateway selector: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerNewChannels();
+                    enableWrites();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handleKey(key);
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                // Shut down
+            } catch (IOException e) {
+                System.err.println("Gateway selector failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        private void registerNewChannels() {
+            SocketChannel channel;
+            while ((channel = newChannels.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    GatewayConnection connection = new GatewayConnection(channel, key, maxFrameBytes,
+                            maxPendingBytes, this::requestWrite, GatewayServer.this::connectionClosed);
+                    key.attach(connection);
+                    connections.add(connection);
+                } catch (IOException e) {
+                    System.err.println("Error registering gateway connection: " + e.getMessage());
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // Already failed
+                    }
+                }
+            }
+        }
+
+        private void enableWrites() {
+            GatewayConnection connection;
+            while ((connection = writeRequests.poll()) != null) {
+                SelectionKey key = connection.getKey();
+                if (key.isValid()) {
+                    // Try right away; only wait for OP_WRITE if the socket buffer is full
+                    write(connection, key);
+                }
+            }
+        }
+
+        private void handleKey(SelectionKey key) {
+            GatewayConnection connection = (GatewayConnection) key.attachment();
+            if (!key.isValid()) {
+                connection.close();
+                return;
+            }
+            if (key.isReadable()) {
+                try {
+                    List<byte[]> frames = connection.read();
+                    if (frames == null) {
+                        connection.close();
+                        return;
+                    }
+                    for (byte[] frame : frames) {
+                        dispatch(connection, frame);
+                    }
+                } catch (IOException e) {
+                    connection.close();
+                    return;
+                }
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(connection, key);
+            }
+        }
+
+        private void write(GatewayConnection connection, SelectionKey key) {
+            try {
+                boolean done = connection.flush();
+                if (key.isValid()) {
+                    int ops = key.interestOps();
+                    key.interestOps(done ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE);
+                }
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+    }
+}
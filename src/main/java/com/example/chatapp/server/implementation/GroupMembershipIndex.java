@@ -0,0 +1,176 @@
+package com.example.chatapp.server.implementation;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of group membership.
+ * Maps group names to their ids, creators and member usernames, and usernames to the groups they
+ * belong to. The server updates it incrementally whenever membership changes, so message
+ * fan-out and group listings do not need to query the database.
+ */
+public class GroupMembershipIndex {
+
+    private final Map<String, GroupEntry> groups = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> groupsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Add a group, or replace the id and creator of an existing one.
+     *
+     * @param groupId The group id
+     * @param groupName The group name
+     * @param creator The username of the group's creator
+     */
+    public void addGroup(Long groupId, String groupName, String creator) {
+        groups.compute(groupName, (name, existing) -> {
+            if (existing == null) {
+                return new GroupEntry(groupId, creator);
+            }
+            existing.id = groupId;
+            existing.creator = creator;
+            return existing;
+        });
+    }
+
+    /**
+     * Record that a user is a member of a group.
+     *
+     * @param groupName The group name
+     * @param username The username
+     */
+    public void addMember(String groupName, String username) {
+        GroupEntry entry = groups.get(groupName);
+        if (entry == null) {
+            return;
+        }
+        entry.members.add(username);
+        groupsByUser.computeIfAbsent(username, key -> ConcurrentHashMap.newKeySet()).add(groupName);
+    }
+
+    /**
+     * Record that a user has left a group.
+     *
+     * @param groupName The group name
+     * @param username The username
+     */
+    public void removeMember(String groupName, String username) {
+        GroupEntry entry = groups.get(groupName);
+        if (entry != null) {
+            entry.members.remove(username);
+        }
+        groupsByUser.computeIfPresent(username, (key, names) -> {
+            names.remove(groupName);
+            return names.isEmpty() ? null : names;
+        });
+    }
+
+    /**
+     * Remove a user from every group.
+     *
+     * @param username The username
+     */
+    public void removeUser(String username) {
+        Set<String> names = groupsByUser.remove(username);
+        if (names == null) {
+            return;
+        }
+        for (String groupName : names) {
+            GroupEntry entry = groups.get(groupName);
+            if (entry != null) {
+                entry.members.remove(username);
+            }
+        }
+    }
+
+    /**
+     * Remove everything from the index.
+     */
+    public void clear() {
+        groups.clear();
+        groupsByUser.clear();
+    }
+
+    /**
+     * @param groupName The group name
+     * @return True if the group exists
+     */
+    public boolean hasGroup(String groupName) {
+        return groupName != null && groups.containsKey(groupName);
+    }
+
+    /**
+     * @param groupName The group name
+     * @return The group id, or null if the group is unknown
+     */
+    public Long getGroupId(String groupName) {
+        GroupEntry entry = groupName != null ? groups.get(groupName) : null;
+        return entry != null ? entry.id : null;
+    }
+
+    /**
+     * @param groupName The group name
+     * @return The username of the group's creator, or null if the group is unknown
+     */
+    public String getCreator(String groupName) {
+        GroupEntry entry = groupName != null ? groups.get(groupName) : null;
+        return entry != null ? entry.creator : null;
+    }
+
+    /**
+     * @param groupName The group name
+     * @param username The username
+     * @return True if the user is a member of the group
+     */
+    public boolean isMember(String groupName, String username) {
+        GroupEntry entry = groupName != null ? groups.get(groupName) : null;
+        return entry != null && entry.members.contains(username);
+    }
+
+    /**
+     * @param groupName The group name
+     * @return A snapshot of the group's member usernames, empty if the group is unknown
+     */
+    public Set<String> getMembers(String groupName) {
+        GroupEntry entry = groupName != null ? groups.get(groupName) : null;
+        return entry != null ? new HashSet<>(entry.members) : Collections.emptySet();
+    }
+
+    /**
+     * @param groupName The group name
+     * @return The number of members in the group
+     */
+    public int getMemberCount(String groupName) {
+        GroupEntry entry = groupName != null ? groups.get(groupName) : null;
+        return entry != null ? entry.members.size() : 0;
+    }
+
+    /**
+     * @param username The username
+     * @return A snapshot of the names of the groups the user belongs to
+     */
+    public Set<String> getGroupsOf(String username) {
+        Set<String> names = username != null ? groupsByUser.get(username) : null;
+        return names != null ? new HashSet<>(names) : Collections.emptySet();
+    }
+
+    /**
+     * @return The number of indexed groups
+     */
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    private static final class GroupEntry {
+        private volatile Long id;
+        private volatile String creator;
+        private final Set<String> members = ConcurrentHashMap.newKeySet();
+
+        GroupEntry(Long id, String creator) {
+            this.id = id;
+            this.creator = creator;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatMsg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the histories of several groups into one timeline, newest first.
+ * Each group is read through its own cursor that fetches small pages on demand, and the
+ * cursors are combined with a k-way merge on message id, so only about one page of
+ * messages per group is ever read, however long the histories are.
+ */
+public class GroupTimelineMerger {
+
+    /**
+     * Fetches one page of a group's messages.
+     */
+    public interface PageSource {
+        /**
+         * @param groupId The group id
+         * @param beforeId Only return messages with an id lower than this, or null for the latest
+         * @param limit The maximum number of messages to return
+         * @return The messages, newest first
+         */
+        List<ChatMsg> fetchOlder(Long groupId, Long beforeId, int limit);
+    }
+
+    // Smallest page fetched from a group, so that many small groups do not mean many tiny queries
+    private static final int MIN_FETCH_SIZE = 8;
+
+    private final PageSource source;
+
+    /**
+     * Create a merger.
+     *
+     * @param source Fetches pages of individual groups
+     */
+    public GroupTimelineMerger(PageSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Merge one page of the timeline.
+     *
+     * @param groupIds The groups to merge
+     * @param beforeId Only return messages with an id lower than this, or null for the latest page
+     * @param limit The maximum number of messages to return
+     * @return The messages, newest first
+     */
+    public List<ChatMsg> merge(Collection<Long> groupIds, Long beforeId, int limit) {
+        List<ChatMsg> timeline = new ArrayList<>(limit);
+        if (groupIds.isEmpty() || limit <= 0) {
+            return timeline;
+        }
+
+        // Start with an even share of the page per group; cursors fetch more only if they need it
+        int firstFetch = Math.min(limit, Math.max(MIN_FETCH_SIZE, limit / groupIds.size() + 1));
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(
+                Comparator.comparing((Cursor cursor) -> cursor.peek().getId()).reversed());
+        for (Long groupId : groupIds) {
+            Cursor cursor = new Cursor(groupId, beforeId);
+            if (cursor.hasNext(firstFetch)) {
+                heads.add(cursor);
+            }
+        }
+
+        while (timeline.size() < limit && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            timeline.add(cursor.next());
+
+            // A cursor never needs more than what is still missing from the page
+            if (cursor.hasNext(limit - timeline.size())) {
+                heads.add(cursor);
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Reads one group's messages newest first, a page at a time.
+     */
+    private final class Cursor {
+        private final Long groupId;
+        private final Deque<ChatMsg> buffer = new ArrayDeque<>();
+        private Long beforeId;
+        private boolean exhausted;
+
+        Cursor(Long groupId, Long beforeId) {
+            this.groupId = groupId;
+            this.beforeId = beforeId;
+        }
+
+        boolean hasNext(int wanted) {
+            if (buffer.isEmpty() && !exhausted && wanted > 0) {
+                int fetchSize = Math.max(MIN_FETCH_SIZE, wanted);
+                List<ChatMsg> page = source.fetchOlder(groupId, beforeId, fetchSize);
+                buffer.addAll(page);
+                if (page.size() < fetchSize) {
+                    exhausted = true;
+                }
+                if (!page.isEmpty()) {
+                    beforeId = page.get(page.size() - 1).getId();
+                }
+            }
+            return !buffer.isEmpty();
+        }
+
+        ChatMsg peek() {
+            return buffer.peekFirst();
+        }
+
+        ChatMsg next() {
+            return buffer.pollFirst();
+        }
+    }
+}
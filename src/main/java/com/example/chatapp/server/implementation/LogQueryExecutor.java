@@ -0,0 +1,185 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.dto.LogQuery;
+import com.example.chatapp.rmi.dto.LogRow;
+import com.example.chatapp.rmi.dto.Page;
+import com.example.chatapp.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs paged, filtered queries on the audit log.
+ * Pages are found with a keyset cursor on (timestamp, id), so every page costs the same
+ * however deep into the log it is, and only the columns shown to clients are read.
+ * The total that comes with the first page is an estimate from the table statistics
+ * when nothing is filtered, and a count stopped at a cap otherwise.
+ */
+public class LogQueryExecutor {
+
+    /**
+     * The page query for one log query.
+     */
+    static final class PageQuery {
+        final String hql;
+        final Map<String, Object> parameters;
+        final String sqlWhere;
+        final Map<String, Object> filterParameters;
+
+        PageQuery(String hql, Map<String, Object> parameters, String sqlWhere, Map<String, Object> filterParameters) {
+            this.hql = hql;
+            this.parameters = parameters;
+            this.sqlWhere = sqlWhere;
+            this.filterParameters = filterParameters;
+        }
+    }
+
+    private final SessionFactory sessionFactory;
+    private final int maxPageSize;
+    private final int countCap;
+
+    /**
+     * Create an executor.
+     *
+     * @param sessionFactory The session factory to query with
+     * @param maxPageSize The largest page returned, whatever the client asks for
+     * @param countCap Matching entries are counted up to this number at most
+     */
+    public LogQueryExecutor(SessionFactory sessionFactory, int maxPageSize, int countCap) {
+        this.sessionFactory = sessionFactory;
+        this.maxPageSize = maxPageSize;
+        this.countCap = countCap;
+    }
+
+    /**
+     * Get one page of log entries.
+     *
+     * @param logQuery The query
+     * @param userId The id of the user to filter on, or null for all users
+     * @return The page
+     * @throws IllegalArgumentException If the query's cursor is malformed
+     */
+    public Page<LogRow> query(LogQuery logQuery, Long userId) {
+        int pageSize = Math.max(1, Math.min(logQuery.getPageSize(), maxPageSize));
+        PageQuery pageQuery = pageQuery(logQuery, userId);
+
+        try (Session session = sessionFactory.openSession()) {
+            Query<Object[]> query = session.createQuery(pageQuery.hql, Object[].class);
+            pageQuery.parameters.forEach(query::setParameter);
+            // One extra row tells whether there is a next page
+            query.setMaxResults(pageSize + 1);
+            List<Object[]> results = query.list();
+
+            List<LogRow> rows = new ArrayList<>(Math.min(results.size(), pageSize));
+            for (int i = 0; i < results.size() && i < pageSize; i++) {
+                Object[] result = results.get(i);
+                rows.add(new LogRow((Long) result[0], (String) result[1], (String) result[2],
+                        ((Date) result[3]).getTime(), (String) result[4], (String) result[5],
+                        (String) result[6], (String) result[7]));
+            }
+            String nextCursor = null;
+            if (results.size() > pageSize) {
+                LogRow last = rows.get(rows.size() - 1);
+                nextCursor = last.timestampMillis() + ":" + last.id();
+            }
+
+            if (logQuery.getCursor() != null) {
+                return new Page<>(rows, nextCursor, -1, false);
+            }
+            if (pageQuery.filterParameters.isEmpty()) {
+                return new Page<>(rows, nextCursor, HibernateUtil.estimateRowCount(session, "chat_logs"), false);
+            }
+            long count = countCapped(session, pageQuery.sqlWhere, pageQuery.filterParameters);
+            return new Page<>(rows, nextCursor, count, count < countCap);
+        }
+    }
+
+    /**
+     * Build the page query for a log query. {@link QueryPlanVerifier} checks the plans of
+     * the queries built here.
+     *
+     * @param logQuery The query
+     * @param userId The id of the user to filter on, or null for all users
+     * @return The HQL and parameters of the page, and the SQL filter for the count
+     * @throws IllegalArgumentException If the query's cursor is malformed
+     */
+    static PageQuery pageQuery(LogQuery logQuery, Long userId) {
+        boolean newestFirst = logQuery.getSort() != LogQuery.Sort.OLDEST_FIRST;
+
+        // The same filters, once in HQL for the page and once in SQL for the count
+        StringBuilder hqlWhere = new StringBuilder();
+        StringBuilder sqlWhere = new StringBuilder();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (userId != null) {
+            addFilter(hqlWhere, sqlWhere, "l.user.id = :userId", "user_id = :userId");
+            parameters.put("userId", userId);
+        }
+        if (logQuery.getAction() != null) {
+            addFilter(hqlWhere, sqlWhere, "l.action = :action", "action = :action");
+            parameters.put("action", logQuery.getAction());
+        }
+        if (logQuery.getFrom() != null) {
+            addFilter(hqlWhere, sqlWhere, "l.timestamp >= :from", "timestamp >= :from");
+            parameters.put("from", logQuery.getFrom());
+        }
+        if (logQuery.getTo() != null) {
+            addFilter(hqlWhere, sqlWhere, "l.timestamp < :to", "timestamp < :to");
+            parameters.put("to", logQuery.getTo());
+        }
+        if (logQuery.getChatId() != null) {
+            addFilter(hqlWhere, sqlWhere, "l.chatId = :chatId", "chat_id = :chatId");
+            parameters.put("chatId", logQuery.getChatId());
+        }
+        Map<String, Object> filterParameters = new LinkedHashMap<>(parameters);
+
+        // Continue after the last entry of the previous page
+        String cursor = logQuery.getCursor();
+        if (cursor != null) {
+            String comparison = newestFirst ? "<" : ">";
+            addFilter(hqlWhere, null, "(l.timestamp " + comparison + " :cursorTime OR " +
+                    "(l.timestamp = :cursorTime AND l.id " + comparison + " :cursorId))", null);
+            parameters.put("cursorTime", new Date(parseCursorTime(cursor)));
+            parameters.put("cursorId", parseCursorId(cursor));
+        }
+        String direction = newestFirst ? " DESC" : " ASC";
+
+        String hql = "SELECT l.id, u.username, l.action, l.timestamp, l.ipAddress, l.details, l.chatId, l.filePath " +
+                "FROM ChatLogs l LEFT JOIN l.user u" + hqlWhere +
+                " ORDER BY l.timestamp" + direction + ", l.id" + direction;
+        return new PageQuery(hql, parameters, sqlWhere.toString(), filterParameters);
+    }
+
+    private static void addFilter(StringBuilder hqlWhere, StringBuilder sqlWhere, String hql, String sql) {
+        hqlWhere.append(hqlWhere.length() == 0 ? " WHERE " : " AND ").append(hql);
+        if (sqlWhere != null) {
+            sqlWhere.append(sqlWhere.length() == 0 ? " WHERE " : " AND ").append(sql);
+        }
+    }
+
+    private long countCapped(Session session, String sqlWhere, Map<String, Object> parameters) {
+        NativeQuery<?> count = session.createNativeQuery(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM chat_logs" + sqlWhere + " LIMIT " + countCap + ") AS matches");
+        parameters.forEach(count::setParameter);
+        Object result = count.uniqueResult();
+        return result instanceof Number ? ((Number) result).longValue() : -1;
+    }
+
+    private static long parseCursorTime(String cursor) {
+        int separator = cursor.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed log cursor: " + cursor);
+        }
+        return Long.parseLong(cursor.substring(0, separator));
+    }
+
+    private static long parseCursorId(String cursor) {
+        return Long.parseLong(cursor.substring(cursor.indexOf(':') + 1));
+    }
+}
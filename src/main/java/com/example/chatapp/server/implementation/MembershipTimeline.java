@@ -0,0 +1,220 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.dto.ChatTimeline;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest join, leave and stop times of each chat in memory.
+ * The join, leave and stop notifications update it as they happen. The first time a chat is
+ * asked for, its history is loaded from the audit log and the chat records and merged in;
+ * since only the latest time of each kind is kept, the order of the two does not matter.
+ * Only groups known to the membership index are kept, so names sent by clients cannot grow
+ * the map; groups that left the index are dropped, and beyond a size limit arbitrary chats
+ * are dropped too, to be loaded again from the database when they are next asked for.
+ */
+public class MembershipTimeline {
+
+    /** The audit log action recorded when a user joins a chat. */
+    public static final String JOIN_ACTION = "USER_JOINED_CHAT";
+    /** The audit log action recorded when a user leaves a chat. */
+    public static final String LEAVE_ACTION = "USER_LEFT_CHAT";
+
+    private static final class Entry {
+        final Map<String, Long> joinTimes = new HashMap<>();
+        final Map<String, Long> leaveTimes = new HashMap<>();
+        long stopTime = Long.MIN_VALUE;
+        volatile boolean loaded;
+    }
+
+    private final SessionFactory sessionFactory;
+    private final GroupMembershipIndex groupIndex;
+    private final int maxChats;
+    private final Map<String, Entry> chats = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a timeline.
+     *
+     * @param sessionFactory The session factory used to load a chat's history
+     * @param groupIndex The groups whose chats may be kept
+     * @param maxChats The number of chats kept in memory before some are dropped
+     */
+    public MembershipTimeline(SessionFactory sessionFactory, GroupMembershipIndex groupIndex, int maxChats) {
+        this.sessionFactory = sessionFactory;
+        this.groupIndex = groupIndex;
+        this.maxChats = maxChats;
+    }
+
+    public void recordJoin(String chatName, String username, Date time) {
+        Entry entry = entry(chatName);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            latest(entry.joinTimes, username, time.getTime());
+        }
+    }
+
+    public void recordLeave(String chatName, String username, Date time) {
+        Entry entry = entry(chatName);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            latest(entry.leaveTimes, username, time.getTime());
+        }
+    }
+
+    public void recordStop(String chatName, Date time) {
+        Entry entry = entry(chatName);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.stopTime = Math.max(entry.stopTime, time.getTime());
+        }
+    }
+
+    /**
+     * Get a chat's timeline, loading its history first if this is the first request for it.
+     *
+     * @param chatName The chat
+     * @return The timeline; empty if nothing is known about the chat
+     */
+    public ChatTimeline get(String chatName) {
+        Entry entry = entry(chatName);
+        if (entry == null) {
+            return new ChatTimeline(chatName, new HashMap<>(), new HashMap<>(), null);
+        }
+        if (!entry.loaded) {
+            // Load outside the lock, so notifications for the chat are not held up by the database
+            Entry history = load(chatName);
+            synchronized (entry) {
+                if (history != null) {
+                    history.joinTimes.forEach((username, time) -> latest(entry.joinTimes, username, time));
+                    history.leaveTimes.forEach((username, time) -> latest(entry.leaveTimes, username, time));
+                    entry.stopTime = Math.max(entry.stopTime, history.stopTime);
+                    entry.loaded = true;
+                }
+            }
+        }
+
+        synchronized (entry) {
+            return new ChatTimeline(chatName, toDates(entry.joinTimes), toDates(entry.leaveTimes),
+                    entry.stopTime == Long.MIN_VALUE ? null : new Date(entry.stopTime));
+        }
+    }
+
+    /**
+     * @return The number of chats held in memory
+     */
+    public int size() {
+        return chats.size();
+    }
+
+    /**
+     * @return The total number of chats dropped to stay within the size limit or because their group is gone
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The chat's entry, or null if its group is not in the membership index
+     */
+    private Entry entry(String chatName) {
+        if (chatName == null || !groupIndex.hasGroup(chatName)) {
+            if (chatName != null && chats.remove(chatName) != null) {
+                evictions.incrementAndGet();
+            }
+            return null;
+        }
+        Entry entry = chats.get(chatName);
+        if (entry != null) {
+            return entry;
+        }
+        entry = chats.computeIfAbsent(chatName, name -> new Entry());
+        if (chats.size() > maxChats) {
+            evict(chatName);
+        }
+        return entry;
+    }
+
+    /**
+     * Drop the chats of groups that are gone, then others until the limit is met.
+     * Whatever is dropped is still in the database and is loaded again when asked for.
+     *
+     * @param keep The chat being added, which is never dropped
+     */
+    private void evict(String keep) {
+        for (Iterator<String> names = chats.keySet().iterator(); names.hasNext(); ) {
+            String name = names.next();
+            if (!groupIndex.hasGroup(name)) {
+                names.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        for (Iterator<String> names = chats.keySet().iterator(); names.hasNext() && chats.size() > maxChats; ) {
+            if (!names.next().equals(keep)) {
+                names.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Read a chat's latest join and leave times from the audit log, and its latest stop
+     * time from the chat records.
+     *
+     * @return The history, or null if it could not be read; it is then tried again on the next request
+     */
+    private Entry load(String chatName) {
+        try (Session session = sessionFactory.openSession()) {
+            Entry history = new Entry();
+            List<Object[]> rows = session.createQuery(
+                    "SELECT u.username, l.action, MAX(l.timestamp) FROM ChatLogs l JOIN l.user u " +
+                            "WHERE l.chatId = :chatName AND l.action IN (:joinAction, :leaveAction) " +
+                            "GROUP BY u.username, l.action", Object[].class)
+                    .setParameter("chatName", chatName)
+                    .setParameter("joinAction", JOIN_ACTION)
+                    .setParameter("leaveAction", LEAVE_ACTION)
+                    .list();
+            for (Object[] row : rows) {
+                long time = ((Date) row[2]).getTime();
+                latest(JOIN_ACTION.equals(row[1]) ? history.joinTimes : history.leaveTimes, (String) row[0], time);
+            }
+
+            Date stopTime = session.createQuery(
+                    "SELECT MAX(r.stopTime) FROM ChatRecord r WHERE r.chatName = :chatName", Date.class)
+                    .setParameter("chatName", chatName)
+                    .uniqueResult();
+            if (stopTime != null) {
+                history.stopTime = stopTime.getTime();
+            }
+            return history;
+        } catch (Exception e) {
+            System.err.println("Error loading membership timeline of " + chatName + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void latest(Map<String, Long> times, String username, long time) {
+        times.merge(username, time, Math::max);
+    }
+
+    private static Map<String, Date> toDates(Map<String, Long> times) {
+        Map<String, Date> dates = new HashMap<>(times.size() * 2);
+        times.forEach((username, time) -> dates.put(username, new Date(time)));
+        return dates;
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatMsg;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Group-commit pipeline for chat messages.
+ * Messages from concurrent senders are collected for a short window (or until a batch
+ * is full) and written in one transaction, so many messages share a single commit.
+ * A sender's future completes only after the batch containing its message is durable.
+ * Committed messages are passed to a listener on the writer thread, in commit order,
+ * before their senders are released.
+ * The queue is bounded, so an overloaded database turns senders away instead of filling the
+ * heap. A sender that gives up can cancel its future; the message is then skipped, unless the
+ * writer has already taken it, in which case the cancellation fails and the write completes.
+ */
+public class MessageWriteBehind {
+
+    private final SessionFactory sessionFactory;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Consumer<ChatMsg> commitListener;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong messagesWritten = new AtomicLong();
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong rejectedWrites = new AtomicLong();
+    private final AtomicLong cancelledWrites = new AtomicLong();
+
+    /**
+     * Create and start the pipeline.
+     *
+     * @param sessionFactory The session factory used to write batches
+     * @param maxBatchSize The maximum number of messages per commit
+     * @param maxDelayMillis The maximum time to wait for more messages before committing
+     * @param queueCapacity The maximum number of messages waiting to be written
+     * @param commitListener Called for each committed message, in commit order
+     */
+    public MessageWriteBehind(SessionFactory sessionFactory, int maxBatchSize, long maxDelayMillis,
+                              int queueCapacity, Consumer<ChatMsg> commitListener) {
+        this.sessionFactory = sessionFactory;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.commitListener = commitListener;
+        this.writerThread = new Thread(this::runWriter, "message-write-behind");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue a message for persistence.
+     *
+     * @param message The message to persist
+     * @return A future that completes with the persisted message once its batch is committed,
+     *         or fails at once if the queue is full
+     */
+    public CompletableFuture<ChatMsg> persist(ChatMsg message) {
+        PendingWrite write = new PendingWrite(message);
+        if (!running) {
+            write.future.completeExceptionally(new IllegalStateException("Message writer is shut down"));
+            return write.future;
+        }
+        if (!queue.offer(write)) {
+            rejectedWrites.incrementAndGet();
+            write.future.completeExceptionally(new RejectedExecutionException("Message queue is full"));
+            return write.future;
+        }
+        // Shutdown may have begun after the check above, and the writer may already have finished;
+        // whoever removes the write from the queue is responsible for completing it
+        if (!running && queue.remove(write)) {
+            write.future.completeExceptionally(new IllegalStateException("Message writer is shut down"));
+        }
+        return write.future;
+    }
+
+    /**
+     * @return The total number of messages committed
+     */
+    public long getMessagesWritten() {
+        return messagesWritten.get();
+    }
+
+    /**
+     * @return The total number of batches committed
+     */
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    /**
+     * @return The total number of messages that could not be persisted
+     */
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * @return The total number of messages turned away because the queue was full
+     */
+    public long getRejectedWrites() {
+        return rejectedWrites.get();
+    }
+
+    /**
+     * @return The total number of messages skipped because their sender cancelled them
+     */
+    public long getCancelledWrites() {
+        return cancelledWrites.get();
+    }
+
+    /**
+     * @return The number of messages waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting messages and flush everything already queued.
+     * Messages still queued when the writer has not finished within 10 seconds are failed,
+     * so no sender is left waiting for its timeout.
+     */
+    public void shutdown() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingWrite> unwritten = new ArrayList<>();
+        queue.drainTo(unwritten);
+        if (!unwritten.isEmpty()) {
+            System.err.println("Message writer did not flush in time; " + unwritten.size() + " messages were not saved");
+            for (PendingWrite write : unwritten) {
+                failedWrites.incrementAndGet();
+                write.future.completeExceptionally(new IllegalStateException("Message writer is shut down"));
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Collect more messages until the batch is full or the window closes
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown requested; drain whatever is left without waiting
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Write a batch in a single transaction. If the batch fails, each message is retried on
+     * its own so that one bad message does not fail every sender in the batch.
+     */
+    private void writeBatch(List<PendingWrite> batch) {
+        // From here on a sender can no longer cancel; drop the ones that already have
+        batch.removeIf(write -> {
+            if (write.claim()) {
+                return false;
+            }
+            cancelledWrites.incrementAndGet();
+            return true;
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            commit(batch);
+            batchesCommitted.incrementAndGet();
+            messagesWritten.addAndGet(batch.size());
+            for (PendingWrite write : batch) {
+                complete(write);
+            }
+        } catch (Exception batchError) {
+            System.err.println("Error writing message batch of " + batch.size() + ": " + batchError.getMessage());
+            for (PendingWrite write : batch) {
+                write.message.setId(null);
+                try {
+                    commit(List.of(write));
+                    batchesCommitted.incrementAndGet();
+                    messagesWritten.incrementAndGet();
+                    complete(write);
+                } catch (Exception e) {
+                    failedWrites.incrementAndGet();
+                    write.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void complete(PendingWrite write) {
+        try {
+            commitListener.accept(write.message);
+        } catch (RuntimeException e) {
+            System.err.println("Error in message commit listener: " + e.getMessage());
+        }
+        write.future.complete(write.message);
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                for (PendingWrite write : batch) {
+                    session.persist(write.message);
+                }
+                session.flush();
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * A message waiting to be written, paired with the sender's acknowledgement.
+     */
+    private static final class PendingWrite {
+        private final ChatMsg message;
+        // Set by the writer when it takes the message, or by a cancellation; whichever comes first wins
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<ChatMsg> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return claimed.compareAndSet(false, true) && super.cancel(mayInterruptIfRunning);
+            }
+        };
+
+        PendingWrite(ChatMsg message) {
+            this.message = message;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.ChatObserver;
+
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers callbacks to registered observers asynchronously.
+ * Every observer gets its own bounded queue which is drained in order by at most
+ * one worker at a time, so a slow client only delays its own notifications.
+ * A watchdog tracks how far behind each observer is. Observers that fall behind the
+ * degrade threshold stop receiving individual callbacks and get a single resync request
+ * once they catch up; observers that fall behind the eviction threshold are dropped.
+ * A callback stuck on a client that stopped responding is released by the RMI response
+ * timeout, see {@link ServerConfig#OBSERVER_CALLBACK_TIMEOUT_MS}, and fails like any other.
+ */
+public class ObserverDispatcher {
+
+    /**
+     * A single callback to run against an observer.
+     */
+    @FunctionalInterface
+    public interface Delivery {
+        void deliver(ChatObserver observer) throws RemoteException;
+    }
+
+    /**
+     * Called when an observer can no longer be reached.
+     */
+    @FunctionalInterface
+    public interface FailureListener {
+        void observerFailed(String username, ChatObserver observer, RemoteException cause);
+    }
+
+    /**
+     * Called when an observer is dropped for being too slow.
+     */
+    @FunctionalInterface
+    public interface EvictionListener {
+        void observerEvicted(String username, ChatObserver observer, long lagMillis);
+    }
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final int queueCapacity;
+    private final long degradeLagNanos;
+    private final long evictLagNanos;
+    private final FailureListener failureListener;
+    private final EvictionListener evictionListener;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final AtomicLong degradations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a dispatcher.
+     *
+     * @param queueCapacity The maximum number of pending callbacks per observer
+     * @param degradeLagMillis How far behind an observer may fall before it only gets resync requests
+     * @param evictLagMillis How far behind an observer may fall before it is dropped
+     * @param failureListener Listener notified when an observer becomes unreachable
+     * @param evictionListener Listener notified when an observer is dropped for being too slow
+     */
+    public ObserverDispatcher(int queueCapacity, long degradeLagMillis, long evictLagMillis,
+                              FailureListener failureListener, EvictionListener evictionListener) {
+        this.queueCapacity = queueCapacity;
+        this.degradeLagNanos = TimeUnit.MILLISECONDS.toNanos(degradeLagMillis);
+        this.evictLagNanos = TimeUnit.MILLISECONDS.toNanos(evictLagMillis);
+        this.failureListener = failureListener;
+        this.evictionListener = evictionListener;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "observer-delivery-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "observer-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkInterval = Math.max(100, Math.min(1000, degradeLagMillis / 2));
+        watchdog.scheduleWithFixedDelay(this::checkLag, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register an observer, replacing any previous observer for the same username.
+     *
+     * @param username The username of the observer
+     * @param observer The remote observer
+     */
+    public void register(String username, ChatObserver observer) {
+        Channel previous = channels.put(username, new Channel(username, observer));
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Unregister the observer for a username. Pending callbacks are discarded.
+     *
+     * @param username The username of the observer
+     */
+    public void unregister(String username) {
+        Channel channel = channels.remove(username);
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Queue a callback for a user's observer.
+     *
+     * @param username The username of the observer
+     * @param delivery The callback to run
+     * @return True if the callback was queued, false if the user has no observer, its queue is full,
+     *         or it is degraded and the callback was folded into a resync request
+     */
+    public boolean submit(String username, Delivery delivery) {
+        Channel channel = channels.get(username);
+        return channel != null && channel.offer(delivery);
+    }
+
+    /**
+     * Check whether a user currently has a registered observer.
+     *
+     * @param username The username
+     * @return True if an observer is registered
+     */
+    public boolean isRegistered(String username) {
+        return channels.containsKey(username);
+    }
+
+    /**
+     * @return The usernames of all registered observers
+     */
+    public Set<String> getRegisteredUsernames() {
+        return new HashSet<>(channels.keySet());
+    }
+
+    /**
+     * @return The total number of callbacks delivered successfully
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return The total number of callbacks dropped because an observer queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return The total number of callbacks replaced by a resync request for a degraded observer
+     */
+    public long getCollapsedCount() {
+        return collapsed.get();
+    }
+
+    /**
+     * @return The total number of times an observer was degraded
+     */
+    public long getDegradationCount() {
+        return degradations.get();
+    }
+
+    /**
+     * @return The total number of observers evicted for being too slow
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The number of observers currently degraded
+     */
+    public int getDegradedObserverCount() {
+        int count = 0;
+        for (Channel channel : channels.values()) {
+            if (channel.degraded) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return How far behind each observer currently is, in milliseconds, by username
+     */
+    public Map<String, Long> getLagMillis() {
+        Map<String, Long> lag = new HashMap<>();
+        long now = System.nanoTime();
+        for (Channel channel : channels.values()) {
+            lag.put(channel.username, TimeUnit.NANOSECONDS.toMillis(channel.lagNanos(now)));
+        }
+        return lag;
+    }
+
+    /**
+     * @return The latency of the last delivery to each observer, in milliseconds, by username
+     */
+    public Map<String, Long> getLastLatencyMillis() {
+        Map<String, Long> latency = new HashMap<>();
+        for (Channel channel : channels.values()) {
+            latency.put(channel.username, TimeUnit.NANOSECONDS.toMillis(channel.lastLatencyNanos));
+        }
+        return latency;
+    }
+
+    /**
+     * Stop all delivery workers.
+     */
+    public void shutdown() {
+        watchdog.shutdownNow();
+        channels.values().forEach(Channel::close);
+        channels.clear();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Degrade or evict observers that have fallen too far behind.
+     */
+    private void checkLag() {
+        long now = System.nanoTime();
+        for (Channel channel : channels.values()) {
+            try {
+                long lag = channel.lagNanos(now);
+                if (lag >= evictLagNanos) {
+                    if (channels.remove(channel.username, channel)) {
+                        channel.close();
+                        evictions.incrementAndGet();
+                        long lagMillis = TimeUnit.NANOSECONDS.toMillis(lag);
+                        System.err.println("Evicting slow observer " + channel.username + ", " + lagMillis + " ms behind");
+                        evictionListener.observerEvicted(channel.username, channel.observer, lagMillis);
+                    }
+                } else if (lag >= degradeLagNanos && !channel.degraded) {
+                    channel.degrade();
+                    degradations.incrementAndGet();
+                    System.err.println("Observer " + channel.username + " is "
+                            + TimeUnit.NANOSECONDS.toMillis(lag) + " ms behind, switching to resync mode");
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error checking observer " + channel.username + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A queued callback and the time it was queued.
+     */
+    private static final class Pending {
+        private final Delivery delivery;
+        private final long enqueuedNanos = System.nanoTime();
+
+        Pending(Delivery delivery) {
+            this.delivery = delivery;
+        }
+    }
+
+    /**
+     * Outbound queue for a single observer.
+     */
+    private final class Channel implements Runnable {
+        private final String username;
+        private final ChatObserver observer;
+        private final BlockingQueue<Pending> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        // While degraded, callbacks are not queued; the observer gets one resync request instead
+        private volatile boolean degraded;
+        private volatile boolean resyncPending;
+
+        // Queue time of the callback being delivered, or 0 when idle
+        private volatile long inFlightSinceNanos;
+        private volatile long lastLatencyNanos;
+
+        Channel(String username, ChatObserver observer) {
+            this.username = username;
+            this.observer = observer;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        boolean offer(Delivery delivery) {
+            if (closed) {
+                return false;
+            }
+            if (degraded) {
+                collapsed.incrementAndGet();
+                resyncPending = true;
+                schedule();
+                return false;
+            }
+            if (!queue.offer(new Pending(delivery))) {
+                dropped.incrementAndGet();
+                System.err.println("Observer queue full, dropping notification for: " + username);
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        void degrade() {
+            degraded = true;
+            resyncPending = true;
+            // Anything still queued is stale; the resync replaces it
+            queue.clear();
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        long lagNanos(long now) {
+            long since = inFlightSinceNanos;
+            if (since == 0) {
+                Pending head = queue.peek();
+                if (head == null) {
+                    return 0;
+                }
+                since = head.enqueuedNanos;
+            }
+            return Math.max(0, now - since);
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    System.err.println("Error scheduling delivery for " + username + ": " + e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Pending pending;
+                while (!closed && (pending = queue.poll()) != null) {
+                    if (!deliver(pending.delivery, pending.enqueuedNanos)) {
+                        return;
+                    }
+                }
+
+                // Caught up after being degraded: ask the client to reload its state
+                if (!closed && degraded && resyncPending) {
+                    resyncPending = false;
+                    if (deliver(ChatObserver::resyncRequired, System.nanoTime())) {
+                        degraded = false;
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                // Another producer may have queued work after the last poll
+                if (!closed && (!queue.isEmpty() || (degraded && resyncPending))) {
+                    schedule();
+                }
+            }
+        }
+
+        /**
+         * @return False if the observer is unreachable and the channel was closed
+         */
+        private boolean deliver(Delivery delivery, long enqueuedNanos) {
+            inFlightSinceNanos = enqueuedNanos;
+            try {
+                delivery.deliver(observer);
+                delivered.incrementAndGet();
+                lastLatencyNanos = System.nanoTime() - enqueuedNanos;
+                return true;
+            } catch (RemoteException e) {
+                // The client is gone; stop delivering and let the server clean up
+                close();
+                channels.remove(username, this);
+                System.err.println("Error notifying user " + username + ": " + e.getMessage());
+                failureListener.observerFailed(username, observer, e);
+                return false;
+            } catch (RuntimeException e) {
+                System.err.println("Unexpected error notifying user " + username + ": " + e.getMessage());
+                e.printStackTrace();
+                return true;
+            } finally {
+                inFlightSinceNanos = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.dto.PresenceDelta;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes presence changes to observers in batches.
+ * The first change after a quiet period opens a short window; when it closes, every change
+ * made in the meantime is sent to each observer as a single delta. A burst of N logins
+ * therefore costs one callback per observer instead of N.
+ */
+public class PresenceBroadcaster {
+
+    private final PresenceRegistry registry;
+    private final ObserverDispatcher dispatcher;
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Only touched by the scheduler thread
+    private long broadcastVersion;
+
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong changesBroadcast = new AtomicLong();
+
+    /**
+     * Create a broadcaster.
+     *
+     * @param registry The registry whose changes are broadcast
+     * @param dispatcher Delivers the deltas to the observers
+     * @param windowMillis How long changes are collected before they are sent
+     */
+    public PresenceBroadcaster(PresenceRegistry registry, ObserverDispatcher dispatcher, long windowMillis) {
+        this.registry = registry;
+        this.dispatcher = dispatcher;
+        this.windowMillis = windowMillis;
+        this.broadcastVersion = registry.getVersion();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-broadcast");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Signal that the registry has changed. The change is sent when the current window closes.
+     */
+    public void changed() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return The number of batched deltas sent
+     */
+    public long getBroadcastCount() {
+        return broadcasts.get();
+    }
+
+    /**
+     * @return The number of user changes included in the deltas sent
+     */
+    public long getChangesBroadcastCount() {
+        return changesBroadcast.get();
+    }
+
+    /**
+     * Stop the broadcaster. Changes still waiting for their window are not sent.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void flush() {
+        // Clear the flag first so that changes made during the flush open a new window
+        flushScheduled.set(false);
+        try {
+            PresenceDelta delta = registry.getChangesSince(broadcastVersion);
+            if (delta.isEmpty()) {
+                return;
+            }
+            broadcastVersion = delta.getVersion();
+            broadcasts.incrementAndGet();
+            changesBroadcast.addAndGet(delta.getOnline().size() + delta.getOffline().size());
+
+            for (String username : dispatcher.getRegisteredUsernames()) {
+                dispatcher.submit(username, observer -> observer.presenceChanged(delta));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error broadcasting presence: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.dto.PresenceDelta;
+import com.example.chatapp.rmi.dto.PresenceSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory registry of online users.
+ * Every change bumps a version number and is kept in a bounded change log, so clients
+ * can ask for just the changes since the version they last saw. Clients that are too far
+ * behind get a full snapshot instead.
+ */
+public class PresenceRegistry {
+
+    private final Map<String, PresenceSnapshot> online = new LinkedHashMap<>();
+    private final Deque<Change> changes = new ArrayDeque<>();
+    private final int maxChanges;
+    private long version;
+
+    /**
+     * Create a registry.
+     *
+     * @param maxChanges The number of changes kept for delta queries
+     */
+    public PresenceRegistry(int maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * Record that a user is online, or replace the snapshot of a user that already is.
+     *
+     * @param snapshot The user's presence
+     * @return The new version
+     */
+    public synchronized long markOnline(PresenceSnapshot snapshot) {
+        online.put(snapshot.getUsername(), snapshot);
+        return record(snapshot.getUsername());
+    }
+
+    /**
+     * Record that a user went offline.
+     *
+     * @param username The username
+     * @return The new version, or the current one if the user was not online
+     */
+    public synchronized long markOffline(String username) {
+        if (online.remove(username) == null) {
+            return version;
+        }
+        return record(username);
+    }
+
+    /**
+     * Update the nickname and avatar of an online user, keeping the time they came online.
+     *
+     * @param username The username
+     * @param nickName The new nickname
+     * @param avatarKey The new profile picture path or URL
+     */
+    public synchronized void updateProfile(String username, String nickName, String avatarKey) {
+        PresenceSnapshot current = online.get(username);
+        if (current != null) {
+            markOnline(new PresenceSnapshot(username, nickName, avatarKey, current.getSinceMillis()));
+        }
+    }
+
+    /**
+     * Get the changes since a version.
+     *
+     * @param sinceVersion The last version the caller has seen, or a negative value for everything
+     * @return The changes, or a full snapshot if the change log no longer reaches back that far
+     */
+    public synchronized PresenceDelta getChangesSince(long sinceVersion) {
+        if (sinceVersion == version) {
+            return new PresenceDelta(sinceVersion, version, false, new ArrayList<>(), new ArrayList<>());
+        }
+        long oldestKept = changes.isEmpty() ? version + 1 : changes.peekFirst().version;
+        if (sinceVersion < 0 || sinceVersion > version || sinceVersion + 1 < oldestKept) {
+            return new PresenceDelta(sinceVersion, version, true, new ArrayList<>(online.values()), new ArrayList<>());
+        }
+
+        // Collapse the log into each user's latest state
+        Set<String> changed = new LinkedHashSet<>();
+        for (Change change : changes) {
+            if (change.version > sinceVersion) {
+                changed.add(change.username);
+            }
+        }
+        List<PresenceSnapshot> nowOnline = new ArrayList<>();
+        List<String> nowOffline = new ArrayList<>();
+        for (String username : changed) {
+            PresenceSnapshot snapshot = online.get(username);
+            if (snapshot != null) {
+                nowOnline.add(snapshot);
+            } else {
+                nowOffline.add(username);
+            }
+        }
+        return new PresenceDelta(sinceVersion, version, false, nowOnline, nowOffline);
+    }
+
+    /**
+     * @return Snapshots of all online users, in the order they came online
+     */
+    public synchronized List<PresenceSnapshot> getOnline() {
+        return new ArrayList<>(online.values());
+    }
+
+    /**
+     * @param username The username
+     * @return True if the user is online
+     */
+    public synchronized boolean isOnline(String username) {
+        return online.containsKey(username);
+    }
+
+    public synchronized int getOnlineCount() {
+        return online.size();
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private long record(String username) {
+        version++;
+        changes.addLast(new Change(version, username));
+        while (changes.size() > maxChanges) {
+            changes.removeFirst();
+        }
+        return version;
+    }
+
+    private static final class Change {
+        private final long version;
+        private final String username;
+
+        Change(long version, String username) {
+            this.version = version;
+            this.username = username;
+        }
+    }
+}
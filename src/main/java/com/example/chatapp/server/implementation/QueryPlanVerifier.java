@@ -0,0 +1,509 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatLogs;
+import com.example.chatapp.domain.ChatGrp;
+import com.example.chatapp.domain.ChatMsg;
+import com.example.chatapp.domain.ChatRecord;
+import com.example.chatapp.domain.ChatUser;
+import com.example.chatapp.domain.Subscribe;
+import com.example.chatapp.rmi.dto.LogQuery;
+import com.example.chatapp.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the MySQL query plans of the HQL queries the server runs.
+ * Each query is translated by Hibernate, its SQL is captured before it is executed and
+ * run through EXPLAIN with sample parameters. A query fails the check if it scans a whole
+ * table or index that has no usable index for it, unless such a scan is expected.
+ * Queries built outside this class, such as the log pages of {@link LogQueryExecutor}, are
+ * taken from where they are built, so the checked query is the one that runs. Every query
+ * the server runs needs a case here; QueryPlanVerifierTest fails for one that has none.
+ */
+public class QueryPlanVerifier {
+
+    /**
+     * A query as the server runs it, with sample parameters.
+     */
+    private static final class QueryCase {
+        private final String name;
+        private final String hql;
+        private final Class<?> resultType;
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+        private int maxResults;
+        private boolean scanExpected;
+
+        QueryCase(String name, String hql, Class<?> resultType) {
+            this.name = name;
+            this.hql = hql;
+            this.resultType = resultType;
+        }
+
+        QueryCase param(String parameter, Object value) {
+            parameters.put(parameter, value);
+            return this;
+        }
+
+        QueryCase limit(int maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        // The query reads a small table, or all of a table, on purpose
+        QueryCase scanExpected() {
+            this.scanExpected = true;
+            return this;
+        }
+    }
+
+    /**
+     * The plan of one table access, as reported by EXPLAIN.
+     */
+    public static final class PlanRow {
+        private final String table;
+        private final String accessType;
+        private final String possibleKeys;
+        private final String key;
+        private final long rows;
+        private final String extra;
+
+        PlanRow(String table, String accessType, String possibleKeys, String key, long rows, String extra) {
+            this.table = table;
+            this.accessType = accessType;
+            this.possibleKeys = possibleKeys;
+            this.key = key;
+            this.rows = rows;
+            this.extra = extra;
+        }
+
+        /**
+         * @return True if the whole table or a whole index is read
+         */
+        public boolean isFullScan() {
+            return "ALL".equals(accessType) || "index".equals(accessType);
+        }
+
+        @Override
+        public String toString() {
+            return table + ": " + accessType + " key=" + key + " rows=" + rows + (extra != null ? " (" + extra + ")" : "");
+        }
+    }
+
+    /**
+     * The outcome of checking one query.
+     */
+    public static final class Result {
+        private final String name;
+        private final String sql;
+        private final List<PlanRow> plan;
+        private final List<String> problems;
+
+        Result(String name, String sql, List<PlanRow> plan, List<String> problems) {
+            this.name = name;
+            this.sql = sql;
+            this.plan = plan;
+            this.problems = problems;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<PlanRow> getPlan() {
+            return plan;
+        }
+
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        public boolean isOk() {
+            return problems.isEmpty();
+        }
+    }
+
+    private static final Pattern NAMED_PARAMETER = Pattern.compile(":(\\w+)");
+    // Two usernames and their ids, and a group name and its id
+    private static final Object[] PLACEHOLDER_SAMPLE = {"admin", "user", 1L, 2L, "general", 1L};
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Create a verifier.
+     *
+     * @param sessionFactory The session factory of the database to check
+     */
+    public QueryPlanVerifier(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Check every query.
+     *
+     * @return One result per query, in the order they are listed
+     */
+    public List<Result> verify() {
+        List<Result> results = new ArrayList<>();
+        for (QueryCase queryCase : queryCases(sampleValues())) {
+            results.add(verify(queryCase));
+        }
+        return results;
+    }
+
+    /**
+     * Format results as a report.
+     *
+     * @param results The results of {@link #verify()}
+     * @return One line per query, followed by its plan and problems
+     */
+    public static String report(List<Result> results) {
+        StringBuilder sb = new StringBuilder("Query plans:");
+        int failed = 0;
+        for (Result result : results) {
+            sb.append(String.format("%n  %-4s %s", result.isOk() ? "OK" : "FAIL", result.name));
+            for (PlanRow row : result.plan) {
+                sb.append(String.format("%n         %s", row));
+            }
+            for (String problem : result.problems) {
+                sb.append(String.format("%n         ! %s", problem));
+            }
+            if (!result.isOk()) {
+                failed++;
+            }
+        }
+        sb.append(String.format("%n%d of %d queries failed", failed, results.size()));
+        return sb.toString();
+    }
+
+    /**
+     * Migrate the database configured in hibernate.cfg.xml, check all query plans and print
+     * the report. Exits with status 1 if any query fails the check.
+     */
+    public static void main(String[] args) {
+        SessionFactory sessionFactory = HibernateUtil.initialize(Collections.emptyMap());
+        int exitCode = 0;
+        try {
+            new SchemaMigrator(sessionFactory).migrate();
+            List<Result> results = new QueryPlanVerifier(sessionFactory).verify();
+            System.out.println(report(results));
+            for (Result result : results) {
+                if (!result.isOk()) {
+                    exitCode = 1;
+                }
+            }
+        } finally {
+            HibernateUtil.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    private Result verify(QueryCase queryCase) {
+        String sql = null;
+        try {
+            sql = captureSql(queryCase);
+            if (sql == null) {
+                return failure(queryCase, null, "Hibernate did not produce any SQL");
+            }
+            List<PlanRow> plan = explain(sql, positionalParameters(queryCase));
+            List<String> problems = new ArrayList<>();
+            for (PlanRow row : plan) {
+                // A scan is only a problem when no index could have been used instead;
+                // on small tables MySQL may prefer a scan even if an index exists
+                if (row.isFullScan() && row.possibleKeys == null && !queryCase.scanExpected) {
+                    problems.add("no usable index on " + row.table);
+                }
+            }
+            return new Result(queryCase.name, sql, plan, problems);
+        } catch (Exception e) {
+            return failure(queryCase, sql, "could not be checked: " + e.getMessage());
+        }
+    }
+
+    private static Result failure(QueryCase queryCase, String sql, String problem) {
+        return new Result(queryCase.name, sql, new ArrayList<>(), Collections.singletonList(problem));
+    }
+
+    /**
+     * Let Hibernate translate and prepare the query, and stop it before it runs.
+     */
+    private String captureSql(QueryCase queryCase) {
+        List<String> captured = new ArrayList<>();
+        try (Session session = sessionFactory.withOptions().statementInspector(sql -> {
+            captured.add(sql);
+            throw new CapturedException();
+        }).openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                Query<?> query = queryCase.resultType != null
+                        ? session.createQuery(queryCase.hql, queryCase.resultType)
+                        : session.createQuery(queryCase.hql);
+                queryCase.parameters.forEach(query::setParameter);
+                if (queryCase.maxResults > 0) {
+                    query.setMaxResults(queryCase.maxResults);
+                }
+                if (queryCase.resultType != null) {
+                    query.list();
+                } else {
+                    query.executeUpdate();
+                }
+            } catch (RuntimeException e) {
+                if (captured.isEmpty()) {
+                    throw e;
+                }
+            } finally {
+                transaction.rollback();
+            }
+        }
+        return captured.isEmpty() ? null : captured.get(0);
+    }
+
+    private List<PlanRow> explain(String sql, List<Object> parameters) {
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(connection -> explain(connection, sql, parameters));
+        }
+    }
+
+    private static List<PlanRow> explain(Connection connection, String sql, List<Object> parameters) throws SQLException {
+        List<PlanRow> plan = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.add(new PlanRow(resultSet.getString("table"), resultSet.getString("type"),
+                            resultSet.getString("possible_keys"), resultSet.getString("key"),
+                            resultSet.getLong("rows"), resultSet.getString("Extra")));
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Hibernate binds parameters in the order they appear, and the limit last.
+     */
+    private static List<Object> positionalParameters(QueryCase queryCase) {
+        List<Object> values = new ArrayList<>();
+        Matcher matcher = NAMED_PARAMETER.matcher(queryCase.hql);
+        while (matcher.find()) {
+            Object value = queryCase.parameters.get(matcher.group(1));
+            if (value instanceof ChatUser) {
+                value = ((ChatUser) value).getId();
+            } else if (value instanceof Date) {
+                value = new Timestamp(((Date) value).getTime());
+            } else if (value instanceof Enum) {
+                // Enums are stored by name
+                value = ((Enum<?>) value).name();
+            }
+            values.add(value);
+        }
+        if (queryCase.maxResults > 0) {
+            values.add(queryCase.maxResults);
+        }
+        return values;
+    }
+
+    /**
+     * @return The HQL of every checked query, in the order they are listed
+     */
+    static List<String> checkedQueries() {
+        List<String> hql = new ArrayList<>();
+        for (QueryCase queryCase : queryCases(PLACEHOLDER_SAMPLE)) {
+            hql.add(queryCase.hql);
+        }
+        return hql;
+    }
+
+    /**
+     * @param sample Sample values taken from the database where the plan may depend on them
+     */
+    private static List<QueryCase> queryCases(Object[] sample) {
+        String user = (String) sample[0];
+        String otherUser = (String) sample[1];
+        Long userId = (Long) sample[2];
+        Long otherUserId = (Long) sample[3];
+        String groupName = (String) sample[4];
+        Long groupId = (Long) sample[5];
+        ChatUser userEntity = new ChatUser();
+        userEntity.setId(userId);
+        Date now = new Date();
+        Date dayAgo = new Date(now.getTime() - 24L * 60 * 60 * 1000);
+        int page = ServerConfig.HISTORY_MAX_PAGE_SIZE;
+
+        List<QueryCase> cases = new ArrayList<>();
+        cases.add(new QueryCase("initializeDatabase.admins", "FROM ChatUser WHERE isAdmin = true", ChatUser.class).scanExpected());
+        cases.add(new QueryCase("initializeDatabase.records", "SELECT COUNT(c) FROM ChatRecord c", Long.class).scanExpected());
+        cases.add(new QueryCase("warmUpUserDirectory", "FROM ChatUser", ChatUser.class).scanExpected());
+        cases.add(new QueryCase("loadGroupIndex.groups", "SELECT g.id, g.name, c.username FROM ChatGrp g JOIN g.creator c", Object[].class).scanExpected());
+        cases.add(new QueryCase("loadGroupIndex.members", "SELECT g.name, m.username FROM ChatGrp g JOIN g.members m",
+                Object[].class).scanExpected());
+
+        cases.add(new QueryCase("getMessages", "FROM ChatMsg WHERE (sender.username = :user1 AND receiver.username = :user2) " +
+                "OR (sender.username = :user2 AND receiver.username = :user1) ORDER BY sentTime", ChatMsg.class)
+                .param("user1", user).param("user2", otherUser));
+        cases.add(new QueryCase("getGroupMessages", "FROM ChatMsg WHERE group.name = :groupName ORDER BY sentTime", ChatMsg.class)
+                .param("groupName", groupName));
+        cases.add(new QueryCase("findDirectMessages.latest", Server.directMessagesQuery(null, null), ChatMsg.class)
+                .param("first", userId).param("second", otherUserId).limit(page));
+        cases.add(new QueryCase("findDirectMessages.before", Server.directMessagesQuery(Long.MAX_VALUE, null), ChatMsg.class)
+                .param("first", userId).param("second", otherUserId).param("beforeId", Long.MAX_VALUE).limit(page));
+        cases.add(new QueryCase("findDirectMessages.after", Server.directMessagesQuery(null, 0L), ChatMsg.class)
+                .param("first", userId).param("second", otherUserId).param("afterId", 0L).limit(page));
+        cases.add(new QueryCase("queryGroupMessages.latest", Server.groupMessagesQuery(null, null), ChatMsg.class)
+                .param("groupId", groupId).limit(page));
+        cases.add(new QueryCase("queryGroupMessages.before", Server.groupMessagesQuery(Long.MAX_VALUE, null), ChatMsg.class)
+                .param("groupId", groupId).param("beforeId", Long.MAX_VALUE).limit(page));
+        cases.add(new QueryCase("queryGroupMessages.after", Server.groupMessagesQuery(null, 0L), ChatMsg.class)
+                .param("groupId", groupId).param("afterId", 0L).limit(page));
+        cases.add(new QueryCase("chainMessage.group",
+                "SELECT max(m.id) FROM ChatMsg m WHERE m.group.id = :groupId AND m.id < :id", Long.class)
+                .param("groupId", groupId).param("id", Long.MAX_VALUE));
+        cases.add(new QueryCase("chainMessage.direct",
+                "SELECT max(m.id) FROM ChatMsg m WHERE ((m.sender.id = :first AND m.receiver.id = :second) " +
+                        "OR (m.sender.id = :second AND m.receiver.id = :first)) AND m.id < :id", Long.class)
+                .param("first", userId).param("second", otherUserId).param("id", Long.MAX_VALUE));
+
+        cases.add(new QueryCase("createGroup.byName", "FROM ChatGrp WHERE name = :name", ChatGrp.class)
+                .param("name", groupName));
+        cases.add(new QueryCase("getAllGroups", "FROM ChatGrp", ChatGrp.class).scanExpected());
+        cases.add(new QueryCase("queryGroups", "SELECT g.id, g.name, g.description, c.username, SIZE(g.members) " +
+                "FROM ChatGrp g LEFT JOIN g.creator c WHERE g.id > :afterId ORDER BY g.id", Object[].class)
+                .param("afterId", 0L).limit(page));
+
+        cases.add(new QueryCase("login.user", "FROM ChatUser WHERE username = :username", ChatUser.class)
+                .param("username", user));
+        cases.add(new QueryCase("login.credentials", "FROM ChatUser WHERE username = :username AND password = :password",
+                ChatUser.class).param("username", user).param("password", ""));
+        cases.add(new QueryCase("getAllUsers", "FROM ChatUser", ChatUser.class).scanExpected());
+        cases.add(new QueryCase("queryUsers",
+                "SELECT u.id, u.username, u.email, u.isAdmin FROM ChatUser u WHERE u.id > :afterId ORDER BY u.id",
+                Object[].class).param("afterId", 0L).limit(page));
+        cases.add(new QueryCase("isUsernameAvailable", "SELECT COUNT(u) FROM ChatUser u WHERE u.username = :username", Long.class)
+                .param("username", user));
+        cases.add(new QueryCase("createAdmin.count", "SELECT COUNT(u) FROM ChatUser u WHERE u.isAdmin = true", Long.class)
+                .scanExpected());
+        cases.add(new QueryCase("isAdmin", "FROM ChatUser WHERE username = :username AND isAdmin = true", ChatUser.class)
+                .param("username", user));
+        cases.add(new QueryCase("removeUser.groups", "FROM ChatGrp g WHERE :user MEMBER OF g.members", ChatGrp.class)
+                .param("user", userEntity));
+        cases.add(new QueryCase("removeUser.subscriptions", "FROM Subscribe s WHERE s.subscriber = :user OR s.target = :user",
+                Subscribe.class).param("user", userEntity));
+
+        cases.add(new QueryCase("unsubscribe",
+                "FROM Subscribe WHERE subscriber.username = :subscriber AND target.username = :target", Subscribe.class)
+                .param("subscriber", user).param("target", otherUser));
+        cases.add(new QueryCase("getSubscriptions", "FROM Subscribe WHERE subscriber.username = :username", Subscribe.class)
+                .param("username", user));
+        cases.add(new QueryCase("getSubscribers",
+                "SELECT s.subscriber FROM Subscribe s WHERE s.target.username = :username", ChatUser.class)
+                .param("username", user));
+        cases.add(new QueryCase("isSubscribed", "SELECT COUNT(s) FROM Subscribe s " +
+                "WHERE s.subscriber.username = :subscriber AND s.target.username = :target", Long.class)
+                .param("subscriber", user).param("target", otherUser));
+        cases.add(new QueryCase("getSubscribedUsers",
+                "SELECT s.target FROM Subscribe s WHERE s.subscriber.username = :username", ChatUser.class)
+                .param("username", user));
+
+        cases.add(new QueryCase("getAllLogs", "FROM ChatLogs ORDER BY timestamp DESC", ChatLogs.class).scanExpected());
+        cases.add(new QueryCase("getUserLogs", "FROM ChatLogs WHERE user.username = :username ORDER BY timestamp DESC",
+                ChatLogs.class).param("username", user));
+        cases.add(new QueryCase("getLogsByAction", "FROM ChatLogs WHERE action = :action ORDER BY timestamp DESC",
+                ChatLogs.class).param("action", "LOGIN"));
+        cases.add(new QueryCase("getLogsByDateRange",
+                "FROM ChatLogs WHERE timestamp BETWEEN :startDate AND :endDate ORDER BY timestamp DESC", ChatLogs.class)
+                .param("startDate", dayAgo).param("endDate", now));
+        cases.add(new QueryCase("clearLogs", "DELETE FROM ChatLogs", null).scanExpected());
+
+        // The first page of the whole log reads the time index in order and stops at the limit
+        cases.add(logPage("queryLogs.latest", new LogQuery(), null).scanExpected());
+        cases.add(logPage("queryLogs.next", new LogQuery().after(now.getTime() + ":" + Long.MAX_VALUE), null));
+        cases.add(logPage("queryLogs.oldest", new LogQuery().sort(LogQuery.Sort.OLDEST_FIRST).after("0:0"), null));
+        cases.add(logPage("queryLogs.user", new LogQuery(), userId));
+        cases.add(logPage("queryLogs.user.next", new LogQuery().after(now.getTime() + ":" + Long.MAX_VALUE), userId));
+        cases.add(logPage("queryLogs.action", new LogQuery().action("LOGIN"), null));
+        cases.add(logPage("queryLogs.dateRange", new LogQuery().between(dayAgo, now), null));
+        cases.add(logPage("queryLogs.chat", new LogQuery().chatId(groupName), null));
+
+        cases.add(new QueryCase("archiveGroupChat", Server.TRANSCRIPT_QUERY, Object[].class)
+                .param("groupName", groupName));
+        cases.add(new QueryCase("chatArchiver.unfinished", ChatArchiver.UNFINISHED_RECORDS_QUERY, Object[].class)
+                .param("pending", ChatRecord.Status.PENDING).param("writing", ChatRecord.Status.WRITING)
+                .limit(ServerConfig.ARCHIVE_QUEUE_CAPACITY));
+        cases.add(new QueryCase("chatArchiver.updateStatus", ChatArchiver.UPDATE_STATUS_QUERY, null)
+                .param("status", ChatRecord.Status.DONE).param("id", 0L));
+
+        cases.add(new QueryCase("membershipTimeline.members",
+                "SELECT u.username, l.action, MAX(l.timestamp) FROM ChatLogs l JOIN l.user u " +
+                        "WHERE l.chatId = :chatName AND l.action IN (:joinAction, :leaveAction) " +
+                        "GROUP BY u.username, l.action", Object[].class)
+                .param("chatName", groupName)
+                .param("joinAction", MembershipTimeline.JOIN_ACTION)
+                .param("leaveAction", MembershipTimeline.LEAVE_ACTION));
+        cases.add(new QueryCase("membershipTimeline.stop",
+                "SELECT MAX(r.stopTime) FROM ChatRecord r WHERE r.chatName = :chatName", Date.class)
+                .param("chatName", groupName));
+        return cases;
+    }
+
+    /**
+     * A log page as {@link LogQueryExecutor} builds it, at the largest page size.
+     */
+    private static QueryCase logPage(String name, LogQuery logQuery, Long userId) {
+        LogQueryExecutor.PageQuery pageQuery = LogQueryExecutor.pageQuery(logQuery, userId);
+        QueryCase queryCase = new QueryCase(name, pageQuery.hql, Object[].class).limit(ServerConfig.LOG_MAX_PAGE_SIZE + 1);
+        pageQuery.parameters.forEach(queryCase::param);
+        return queryCase;
+    }
+
+    /**
+     * @return Two usernames and their ids, and a group name and its id, with placeholders
+     *         for whatever the database does not have
+     */
+    private Object[] sampleValues() {
+        Object[] sample = PLACEHOLDER_SAMPLE.clone();
+        try (Session session = sessionFactory.openSession()) {
+            List<Object[]> users = session.createQuery("SELECT u.username, u.id FROM ChatUser u ORDER BY u.id", Object[].class)
+                    .setMaxResults(2).list();
+            for (int i = 0; i < users.size(); i++) {
+                sample[i] = users.get(i)[0];
+                sample[2 + i] = users.get(i)[1];
+            }
+            List<Object[]> groups = session.createQuery("SELECT g.name, g.id FROM ChatGrp g ORDER BY g.id", Object[].class)
+                    .setMaxResults(1).list();
+            if (!groups.isEmpty()) {
+                sample[4] = groups.get(0)[0];
+                sample[5] = groups.get(0)[1];
+            }
+        } catch (Exception e) {
+            System.err.println("Error reading sample values: " + e.getMessage());
+        }
+        return sample;
+    }
+
+    private static final class CapturedException extends RuntimeException {
+        CapturedException() {
+            super("statement captured", null, false, false);
+        }
+    }
+}
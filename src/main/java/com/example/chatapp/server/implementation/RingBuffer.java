@@ -0,0 +1,90 @@
+package com.example.chatapp.server.implementation;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Producers claim a slot by advancing the tail with a compare-and-set and then publish
+ * their element into it; the consumer takes published elements in claim order and frees
+ * their slots. Neither side ever takes a lock or waits for the other.
+ *
+ * @param <T> The element type
+ */
+public class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only written by the consumer
+    private volatile long head;
+
+    /**
+     * Create a buffer.
+     *
+     * @param minCapacity The minimum number of elements; rounded up to a power of two
+     */
+    public RingBuffer(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Add an element unless the buffer is full. Safe to call from any thread.
+     *
+     * @param element The element, not null
+     * @return True if the element was added
+     */
+    public boolean offer(T element) {
+        while (true) {
+            long claim = tail.get();
+            if (claim - head >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(claim, claim + 1)) {
+                slots.lazySet((int) claim & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Move published elements into a list, in the order their slots were claimed.
+     * Must only be called by the consumer thread.
+     *
+     * @param target The list to add to
+     * @param max The maximum number of elements to move
+     * @return The number of elements moved
+     */
+    public int drainTo(List<T> target, int max) {
+        long position = head;
+        int count = 0;
+        while (count < max) {
+            int index = (int) position & mask;
+            T element = slots.get(index);
+            if (element == null) {
+                // Empty, or claimed but not yet published
+                break;
+            }
+            slots.lazySet(index, null);
+            target.add(element);
+            position++;
+            count++;
+        }
+        head = position;
+        return count;
+    }
+
+    /**
+     * @return The number of claimed slots, including ones not yet published
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.chatapp.server.implementation;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies versioned changes to the database schema on top of the tables Hibernate creates.
+ * Each migration runs once; applied versions are recorded in the schema_version table.
+ * Steps check the current schema before changing it, so a migration also succeeds on a
+ * database where some of its changes were already made by hand.
+ */
+public class SchemaMigrator {
+
+    /**
+     * One change to the schema.
+     */
+    public interface Step {
+        /**
+         * @param connection A connection to the chat database
+         * @throws SQLException If the change fails
+         */
+        void apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * A numbered group of steps applied together.
+     */
+    public static final class Migration {
+        private final int version;
+        private final String description;
+        private final List<Step> steps;
+
+        public Migration(int version, String description, Step... steps) {
+            this.version = version;
+            this.description = description;
+            this.steps = Arrays.asList(steps);
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final String VERSION_TABLE = "schema_version";
+    // Held while migrating, so servers starting together do not apply the same migration twice
+    private static final String LOCK_NAME = "chat_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    /**
+     * All migrations, in the order they are applied. Append new ones; never change applied ones.
+     */
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            new Migration(1, "Index message history by conversation and time",
+                    index("chat_messages", "idx_chat_messages_sender_receiver_time", "sender_id", "receiver_id", "sent_time"),
+                    index("chat_messages", "idx_chat_messages_group_time", "group_id", "sent_time")),
+            new Migration(2, "Index the audit log filters",
+                    // Each filter is followed by the sort column, so filtered pages need no sort
+                    index("chat_logs", "idx_chat_logs_action_time", "action", "timestamp"),
+                    index("chat_logs", "idx_chat_logs_user_time", "user_id", "timestamp"),
+                    index("chat_logs", "idx_chat_logs_time", "timestamp"),
+                    index("chat_logs", "idx_chat_logs_chat_id", "chat_id")),
+            new Migration(3, "Index subscriptions from both sides",
+                    index("subscriptions", "idx_subscriptions_subscriber_target", "subscriber_id", "target_id"),
+                    index("subscriptions", "idx_subscriptions_target", "target_id")),
+            new Migration(4, "Hand out ids in blocks from the id_blocks table",
+                    sql("CREATE TABLE IF NOT EXISTS id_blocks (" +
+                            "entity VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                            "next_id BIGINT)"),
+                    seedIdBlock("chat_messages"),
+                    seedIdBlock("chat_logs"),
+                    seedIdBlock("chat_records"),
+                    seedIdBlock("subscriptions")),
+            new Migration(5, "Index chat records by chat for the membership timeline",
+                    index("chat_records", "idx_chat_records_name_stop", "chat_name", "stop_time")),
+            new Migration(6, "Track the archiving status of chat records",
+                    // Records from before this migration were archived before they were saved.
+                    // If Hibernate added the column first, MySQL filled those rows with ''
+                    addColumn("chat_records", "status", "VARCHAR(16) NOT NULL DEFAULT 'DONE'"),
+                    backfillArchiveStatus(),
+                    index("chat_records", "idx_chat_records_status", "status")),
+            new Migration(7, "Index message history by conversation and id",
+                    // History pages filter on the conversation and walk it by id; see Server.directMessagesQuery
+                    index("chat_messages", "idx_chat_messages_group_id", "group_id", "id"),
+                    index("chat_messages", "idx_chat_messages_sender_receiver_id", "sender_id", "receiver_id", "id")),
+            new Migration(8, "Backfill the archiving status left empty by migration 6",
+                    backfillArchiveStatus())
+    ));
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Create a migrator.
+     *
+     * @param sessionFactory The session factory whose connections are used
+     */
+    public SchemaMigrator(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * @return All known migrations, oldest first
+     */
+    public static List<Migration> getMigrations() {
+        return MIGRATIONS;
+    }
+
+    /**
+     * Apply every migration that has not been applied yet.
+     * Stops at the first migration that fails, so later ones never run on top of it.
+     *
+     * @return The number of migrations applied
+     */
+    public int migrate() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(this::migrate);
+        } catch (Exception e) {
+            System.err.println("Error migrating database schema: " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * @return The versions recorded as applied, or an empty set if the database is unreachable
+     */
+    public Set<Integer> getAppliedVersions() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(connection -> {
+                ensureVersionTable(connection);
+                return appliedVersions(connection);
+            });
+        } catch (Exception e) {
+            System.err.println("Error reading schema version: " + e.getMessage());
+            e.printStackTrace();
+            return new HashSet<>();
+        }
+    }
+
+    private int migrate(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try {
+            if (!acquireLock(connection)) {
+                System.err.println("Schema migration skipped: another server holds the migration lock");
+                return 0;
+            }
+            try {
+                ensureVersionTable(connection);
+                Set<Integer> applied = appliedVersions(connection);
+                int count = 0;
+                for (Migration migration : MIGRATIONS) {
+                    if (applied.contains(migration.version)) {
+                        continue;
+                    }
+                    long start = System.currentTimeMillis();
+                    try {
+                        for (Step step : migration.steps) {
+                            step.apply(connection);
+                        }
+                    } catch (SQLException e) {
+                        System.err.println("Schema migration " + migration.version + " failed: " + e.getMessage());
+                        e.printStackTrace();
+                        break;
+                    }
+                    long durationMillis = System.currentTimeMillis() - start;
+                    recordVersion(connection, migration, durationMillis);
+                    System.out.println("Applied schema migration " + migration.version + " (" + migration.description
+                            + ") in " + durationMillis + " ms");
+                    count++;
+                }
+                if (count == 0) {
+                    System.out.println("Database schema is up to date");
+                }
+                return count;
+            } finally {
+                releaseLock(connection);
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Create an index unless an index with that name already exists on the table.
+     *
+     * @param table The table
+     * @param name The index name
+     * @param columns The indexed columns, in order
+     * @return The step
+     */
+    static Step index(String table, String name, String... columns) {
+        return connection -> {
+            if (indexExists(connection, table, name)) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE INDEX " + name + " ON " + table + " (" + String.join(", ", columns) + ")");
+            }
+        };
+    }
+
+    /**
+     * Add a column unless the table already has a column with that name.
+     *
+     * @param table The table
+     * @param column The column name
+     * @param definition The column type and constraints
+     * @return The step
+     */
+    static Step addColumn(String table, String column, String definition) {
+        return connection -> {
+            if (columnExists(connection, table, column)) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            }
+        };
+    }
+
+    /**
+     * Run a statement as it is.
+     *
+     * @param sql The statement
+     * @return The step
+     */
+    static Step sql(String sql) {
+        return connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+        };
+    }
+
+    /**
+     * Start a table's id block after its highest existing id, so ids handed out in blocks
+     * never collide with ids the table generated itself before.
+     *
+     * @param table The table, which is also its row in id_blocks
+     * @return The step
+     */
+    static Step seedIdBlock(String table) {
+        return sql("INSERT INTO id_blocks (entity, next_id) " +
+                "SELECT * FROM (SELECT '" + table + "' AS entity, COALESCE(MAX(id), 0) + 1 AS seed FROM " + table + ") AS s " +
+                "ON DUPLICATE KEY UPDATE next_id = GREATEST(COALESCE(id_blocks.next_id, 0), s.seed)");
+    }
+
+    /**
+     * Mark chat records without an archiving status as archived.
+     *
+     * @return The step
+     */
+    static Step backfillArchiveStatus() {
+        return sql("UPDATE chat_records SET status = 'DONE' WHERE status IS NULL OR status = ''");
+    }
+
+    private static boolean indexExists(Connection connection, String table, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?")) {
+            statement.setString(1, table);
+            statement.setString(2, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getLong(1) > 0;
+            }
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*) FROM information_schema.columns " +
+                        "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?")) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getLong(1) > 0;
+            }
+        }
+    }
+
+    private static void ensureVersionTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + VERSION_TABLE + " (" +
+                    "version INT NOT NULL PRIMARY KEY, " +
+                    "description VARCHAR(255) NOT NULL, " +
+                    "applied_at TIMESTAMP NOT NULL, " +
+                    "duration_ms BIGINT NOT NULL)");
+        }
+    }
+
+    private static Set<Integer> appliedVersions(Connection connection) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version FROM " + VERSION_TABLE)) {
+            while (resultSet.next()) {
+                versions.add(resultSet.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private static void recordVersion(Connection connection, Migration migration, long durationMillis) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + VERSION_TABLE + " (version, description, applied_at, duration_ms) VALUES (?, ?, ?, ?)")) {
+            statement.setInt(1, migration.version);
+            statement.setString(2, migration.description);
+            statement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            statement.setLong(4, durationMillis);
+            statement.executeUpdate();
+        }
+    }
+
+    private static boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Error releasing schema migration lock: " + e.getMessage());
+        }
+    }
+}
@@ -1,75 +1,192 @@
+package com.example.chatapp.server.implementation;
+
 import com.example.chatapp.domain.*;
 import com.example.chatapp.rmi.*;
+import com.example.chatapp.rmi.dto.ChatTimeline;
+import com.example.chatapp.rmi.dto.GroupRow;
+import com.example.chatapp.rmi.dto.GroupView;
+import com.example.chatapp.rmi.dto.LogQuery;
+import com.example.chatapp.rmi.dto.LogRow;
+import com.example.chatapp.rmi.dto.MessageList;
+import com.example.chatapp.rmi.dto.Page;
+import com.example.chatapp.rmi.dto.PresenceDelta;
+import com.example.chatapp.rmi.dto.PresenceSnapshot;
+import com.example.chatapp.rmi.dto.UserRow;
+import com.example.chatapp.rmi.dto.UserView;
+import com.example.chatapp.rmi.transport.RmiTransport;
+import com.example.chatapp.util.HibernateUtil;
+import com.example.chatapp.util.SecondLevelCache;
+import com.example.chatapp.util.TranscriptWriter;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
 import org.hibernate.query.Query;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.lang.reflect.Proxy;
+import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Server implementation for the chat application.
  * Implements all RMI interfaces and manages the chat application.
  */
-public class Server implements ChatService, UserService, SubscribeService, LogService {
+public class Server implements ChatService, UserService, SubscribeService, LogService, MonitorService {
 
     private static final int RMI_PORT = 1099;
     private static final String CHAT_SERVICE_NAME = "ChatService";
     private static final String USER_SERVICE_NAME = "UserService";
     private static final String SUBSCRIBE_SERVICE_NAME = "SubscribeService";
     private static final String LOG_SERVICE_NAME = "LogService";
+    private static final String MONITOR_SERVICE_NAME = "MonitorService";
+
+    /** A group's messages in the order they were sent, as written to its transcript; checked by {@link QueryPlanVerifier}. */
+    static final String TRANSCRIPT_QUERY = "SELECT COALESCE(s.nickName, s.username), m.message, m.sentTime " +
+            "FROM ChatMsg m JOIN m.sender s WHERE m.group.name = :groupName ORDER BY m.sentTime";
 
+    // Durations of the startup phases, reported once the services are up
+    private final BootTimer bootTimer = new BootTimer();
     private final SessionFactory sessionFactory;
+    private final MessageWriteBehind messageWriter;
+    private final AuditLogAppender auditLog;
+    private final LogQueryExecutor logQueries;
+    private final MembershipTimeline membershipTimeline;
+    private final ChatArchiver chatArchiver;
     private final Map<String, ChatObserver> observers = new ConcurrentHashMap<>();
+    private final ObserverDispatcher dispatcher = new ObserverDispatcher(
+            ServerConfig.OBSERVER_QUEUE_CAPACITY,
+            ServerConfig.OBSERVER_DEGRADE_LAG_MS, ServerConfig.OBSERVER_EVICT_LAG_MS,
+            this::handleObserverFailure, this::handleObserverEviction);
+    // Observers evicted for being too slow; restored with a resync request on their user's next call
+    private final Map<String, ChatObserver> evictedObservers = new ConcurrentHashMap<>();
+    private final UserDirectory userDirectory = new UserDirectory(ServerConfig.USER_CACHE_MAX_SIZE);
+    private final GroupMembershipIndex groupIndex = new GroupMembershipIndex();
+    private final PresenceRegistry presence = new PresenceRegistry(ServerConfig.PRESENCE_CHANGE_LOG_SIZE);
+    private final PresenceBroadcaster presenceBroadcaster = new PresenceBroadcaster(
+            presence, dispatcher, ServerConfig.PRESENCE_BROADCAST_WINDOW_MS);
+    // Username of each registered observer, so no remote call is needed to identify one
+    private final Map<ChatObserver, String> observerNames = new ConcurrentHashMap<>();
+    // Id of the last committed message per conversation; only touched by the message writer thread
+    private final Map<String, Long> lastMessageIds = new HashMap<>();
+    // Socket gateway, if enabled; started with the RMI services
+    private volatile GatewayServer gateway;
 
     /**
      * Constructor initializes the Hibernate session factory and ensures logs directory exists.
+     * In fast-boot mode the database is assumed to exist, the connection probes are skipped
+     * and the steps that do not depend on each other run in parallel.
      */
     public Server() {
-        // Ensure logs directory exists
-        ensureLogsDirectoryExists();
-
-        // Ensure database exists
-        ensureDatabaseExists();
+        boolean fastBoot = ServerConfig.FAST_BOOT;
+        ExecutorService bootExecutor = fastBoot ? Executors.newFixedThreadPool(ServerConfig.BOOT_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "server-boot");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
 
         try {
+            CompletableFuture<Void> logsDirectory;
+            if (fastBoot) {
+                // Nothing else needs the logs directory during startup
+                logsDirectory = bootTimer.timeAsync("logsDirectory", this::ensureLogsDirectoryExists, bootExecutor);
+            } else {
+                // Ensure logs directory exists
+                bootTimer.time("logsDirectory", this::ensureLogsDirectoryExists);
+
+                // Ensure database exists
+                bootTimer.time("databaseProbe", this::ensureDatabaseExists);
+                logsDirectory = CompletableFuture.completedFuture(null);
+            }
+
             // Initialize Hibernate with detailed error handling
             System.out.println("Initializing Hibernate...");
-            Configuration configuration = new Configuration().configure();
-            System.out.println("Hibernate configuration loaded successfully.");
-
-            // Log some configuration details for debugging
-            System.out.println("Hibernate connection URL: " + configuration.getProperty("hibernate.connection.url"));
-            System.out.println("Hibernate dialect: " + configuration.getProperty("hibernate.dialect"));
 
-            // Build the session factory
+            // Build the shared session factory and its connection pool,
+            // letting Hibernate send message batches as JDBC batches
             System.out.println("Building Hibernate SessionFactory...");
-            sessionFactory = configuration.buildSessionFactory();
+            sessionFactory = bootTimer.time("sessionFactory", () -> HibernateUtil.initialize(Collections.singletonMap(
+                    "hibernate.jdbc.batch_size", String.valueOf(ServerConfig.MESSAGE_BATCH_SIZE))));
             System.out.println("Hibernate SessionFactory built successfully.");
 
-            // Test the session factory by opening and closing a session
-            System.out.println("Testing Hibernate session...");
-            Session testSession = sessionFactory.openSession();
-            testSession.close();
-            System.out.println("Hibernate session test successful.");
+            if (!fastBoot) {
+                // Test the session factory by opening and closing a session
+                bootTimer.time("sessionProbe", () -> {
+                    System.out.println("Testing Hibernate session...");
+                    Session testSession = sessionFactory.openSession();
+                    testSession.close();
+                    System.out.println("Hibernate session test successful.");
+                });
+            }
+
+            // Start the group-commit pipeline for chat messages
+            messageWriter = new MessageWriteBehind(sessionFactory,
+                    ServerConfig.MESSAGE_BATCH_SIZE, ServerConfig.MESSAGE_BATCH_DELAY_MS,
+                    ServerConfig.MESSAGE_QUEUE_CAPACITY, this::chainMessage);
+            Runtime.getRuntime().addShutdownHook(new Thread(messageWriter::shutdown, "message-write-behind-flush"));
+            logQueries = new LogQueryExecutor(sessionFactory, ServerConfig.LOG_MAX_PAGE_SIZE, ServerConfig.LOG_COUNT_CAP);
+            membershipTimeline = new MembershipTimeline(sessionFactory, groupIndex, ServerConfig.TIMELINE_MAX_CHATS);
+
+            if (fastBoot) {
+                // Each step uses its own session and fills its own structure
+                CompletableFuture.allOf(
+                        bootTimer.timeAsync("schemaMigration", this::migrateSchema, bootExecutor),
+                        bootTimer.timeAsync("databaseInit", () -> initializeDatabase(false), bootExecutor),
+                        bootTimer.timeAsync("userDirectory", this::warmUpUserDirectory, bootExecutor),
+                        bootTimer.timeAsync("groupIndex", this::loadGroupIndex, bootExecutor),
+                        logsDirectory).join();
+            } else {
+                // Bring indexes and other schema changes up to date
+                bootTimer.time("schemaMigration", this::migrateSchema);
+
+                // Initialize database if needed
+                bootTimer.time("databaseInit", () -> initializeDatabase(true));
 
-            // Initialize database if needed
-            initializeDatabase();
+                // Load users and group membership into memory
+                bootTimer.time("userDirectory", this::warmUpUserDirectory);
+                bootTimer.time("groupIndex", this::loadGroupIndex);
+            }
+
+            // Audit log entries are written in the background, once the schema is up to date
+            auditLog = new AuditLogAppender(sessionFactory, ServerConfig.AUDIT_BUFFER_CAPACITY,
+                    ServerConfig.AUDIT_BATCH_SIZE, ServerConfig.AUDIT_FLUSH_INTERVAL_MS,
+                    ServerConfig.AUDIT_OVERFLOW_MODE, new File(ServerConfig.AUDIT_SPILL_FILE));
+            Runtime.getRuntime().addShutdownHook(new Thread(auditLog::shutdown, "audit-log-flush"));
+
+            // Chat transcripts are written in the background; pick up any a previous run left unfinished
+            chatArchiver = new ChatArchiver(sessionFactory, this::archiveGroupChat,
+                    ServerConfig.ARCHIVE_THREADS, ServerConfig.ARCHIVE_QUEUE_CAPACITY);
+            Runtime.getRuntime().addShutdownHook(new Thread(chatArchiver::shutdown, "chat-archiver-shutdown"));
+            int resumed = chatArchiver.resumePending();
+            if (resumed > 0) {
+                System.out.println("Resumed " + resumed + " unfinished chat archives");
+            }
         } catch (Exception e) {
             System.err.println("ERROR: Failed to initialize Hibernate: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Failed to initialize Hibernate. Application cannot start.", e);
+        } finally {
+            if (bootExecutor != null) {
+                bootExecutor.shutdown();
+            }
         }
     }
 
@@ -153,8 +270,11 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
     /**
      * Initialize the database with an admin user if none exists.
      * Also ensures that the chat_records table is created.
+     *
+     * @param probeTables Whether to check the chat_records table; Hibernate's schema update
+     *                    creates it anyway, so fast boot skips the check
      */
-    private void initializeDatabase() {
+    private void initializeDatabase(boolean probeTables) {
         try (Session session = sessionFactory.openSession()) {
             Transaction transaction = session.beginTransaction();
 
@@ -169,23 +289,25 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                 System.out.println("Admin user created: " + admin.getUsername());
             }
 
-            // Ensure chat_records table is created by checking if it exists
-            try {
-                Query<Long> recordQuery = session.createQuery(
-                        "SELECT COUNT(c) FROM ChatRecord c", Long.class);
-                recordQuery.uniqueResult();
-                System.out.println("chat_records table exists");
-            } catch (Exception e) {
-                System.out.println("Creating chat_records table...");
-                // Create a test record to ensure the table is created
-                String testChatId = "test-" + UUID.randomUUID().toString();
-                ChatRecord testRecord = new ChatRecord(testChatId, "Test Chat", "test-path", new Date());
-                session.persist(testRecord);
-                System.out.println("Test chat record created with ID: " + testRecord.getId());
-
-                // Remove the test record
-                session.remove(testRecord);
-                System.out.println("Test chat record removed");
+            if (probeTables) {
+                // Ensure chat_records table is created by checking if it exists
+                try {
+                    Query<Long> recordQuery = session.createQuery(
+                            "SELECT COUNT(c) FROM ChatRecord c", Long.class);
+                    recordQuery.uniqueResult();
+                    System.out.println("chat_records table exists");
+                } catch (Exception e) {
+                    System.out.println("Creating chat_records table...");
+                    // Create a test record to ensure the table is created
+                    String testChatId = "test-" + UUID.randomUUID().toString();
+                    ChatRecord testRecord = new ChatRecord(testChatId, "Test Chat", "test-path", new Date());
+                    session.persist(testRecord);
+                    System.out.println("Test chat record created with ID: " + testRecord.getId());
+
+                    // Remove the test record
+                    session.remove(testRecord);
+                    System.out.println("Test chat record removed");
+                }
             }
 
             transaction.commit();
@@ -195,16 +317,72 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         }
     }
 
+    /**
+     * Apply pending schema migrations, then check the query plans if asked to.
+     */
+    private void migrateSchema() {
+        if (ServerConfig.SCHEMA_MIGRATION) {
+            new SchemaMigrator(sessionFactory).migrate();
+        }
+        if (ServerConfig.VERIFY_QUERY_PLANS) {
+            System.out.println(QueryPlanVerifier.report(new QueryPlanVerifier(sessionFactory).verify()));
+        }
+    }
+
+    /**
+     * Load users into the user directory so the first lookups do not hit the database.
+     */
+    private void warmUpUserDirectory() {
+        try (Session session = sessionFactory.openSession()) {
+            Query<ChatUser> query = session.createQuery("FROM ChatUser", ChatUser.class);
+            query.setMaxResults(ServerConfig.USER_CACHE_MAX_SIZE);
+            userDirectory.putAll(query.list());
+            System.out.println("User directory loaded with " + userDirectory.size() + " users.");
+        } catch (Exception e) {
+            System.err.println("Error loading user directory: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Build the group membership index from the database.
+     */
+    private void loadGroupIndex() {
+        try (Session session = sessionFactory.openSession()) {
+            groupIndex.clear();
+
+            Query<Object[]> groupQuery = session.createQuery(
+                    "SELECT g.id, g.name, c.username FROM ChatGrp g JOIN g.creator c", Object[].class);
+            for (Object[] row : groupQuery.list()) {
+                groupIndex.addGroup((Long) row[0], (String) row[1], (String) row[2]);
+            }
+
+            Query<Object[]> memberQuery = session.createQuery(
+                    "SELECT g.name, m.username FROM ChatGrp g JOIN g.members m", Object[].class);
+            for (Object[] row : memberQuery.list()) {
+                groupIndex.addMember((String) row[0], (String) row[1]);
+            }
+
+            System.out.println("Group index loaded with " + groupIndex.getGroupCount() + " groups.");
+        } catch (Exception e) {
+            System.err.println("Error loading group index: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Start the RMI server.
      */
     public void start() {
         try {
+            long rmiExport = bootTimer.begin();
+
             // Create and export remote objects
             ChatService chatService = (ChatService) UnicastRemoteObject.exportObject(this, 0);
             UserService userService = (UserService) chatService; // no need to export again
             SubscribeService subscribeService = (SubscribeService) chatService;
             LogService logService = (LogService) chatService;
+            MonitorService monitorService = (MonitorService) chatService;
 
             // Create or get the registry
             Registry registry = null;
@@ -221,21 +399,80 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             registry.rebind(USER_SERVICE_NAME, userService);
             registry.rebind(SUBSCRIBE_SERVICE_NAME, subscribeService);
             registry.rebind(LOG_SERVICE_NAME, logService);
+            registry.rebind(MONITOR_SERVICE_NAME, monitorService);
 
             System.out.println("Server started. Services registered:");
             System.out.println("- " + CHAT_SERVICE_NAME);
             System.out.println("- " + USER_SERVICE_NAME);
             System.out.println("- " + SUBSCRIBE_SERVICE_NAME);
             System.out.println("- " + LOG_SERVICE_NAME);
+            System.out.println("- " + MONITOR_SERVICE_NAME);
+            bootTimer.end("rmiExport", rmiExport);
+
+            if (ServerConfig.RMI_COMPRESSED_TRANSPORT) {
+                long compressedTransport = bootTimer.begin();
+                // Clients on slow links opt in by looking the services up under their compressed names
+                Remote compressed = RmiTransport.exportCompressed(createRemoteDelegate());
+                for (String serviceName : new String[]{CHAT_SERVICE_NAME, USER_SERVICE_NAME,
+                        SUBSCRIBE_SERVICE_NAME, LOG_SERVICE_NAME, MONITOR_SERVICE_NAME}) {
+                    registry.rebind(RmiTransport.compressedName(serviceName), compressed);
+                }
+                System.out.println("Compressed transport available under \"<service>"
+                        + RmiTransport.COMPRESSED_SUFFIX + "\"");
+                bootTimer.end("compressedTransport", compressedTransport);
+            }
+
+            if (ServerConfig.GATEWAY_PORT > 0) {
+                long gatewayStart = bootTimer.begin();
+                gateway = new GatewayServer(new GatewayRequestHandler(this, this, groupIndex),
+                        ServerConfig.GATEWAY_PORT, ServerConfig.GATEWAY_SELECTOR_THREADS,
+                        ServerConfig.GATEWAY_WORKER_THREADS, ServerConfig.GATEWAY_MAX_FRAME_BYTES,
+                        ServerConfig.GATEWAY_MAX_PENDING_BYTES, ServerConfig.GATEWAY_MAX_PENDING_REQUESTS);
+                gateway.start();
+                bootTimer.end("gateway", gatewayStart);
+            }
+
+            bootTimer.finish();
+            System.out.println(bootTimer.report());
         } catch (Exception e) {
             System.err.println("Server exception: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    /**
+     * Create a second remote identity for this server that forwards every call to it.
+     * RMI exports an object only once, so exporting the server with other socket
+     * factories needs a separate object.
+     *
+     * @return An object implementing all of the server's remote interfaces
+     */
+    private Remote createRemoteDelegate() {
+        List<Class<?>> remoteInterfaces = new ArrayList<>();
+        for (Class<?> type : getClass().getInterfaces()) {
+            if (Remote.class.isAssignableFrom(type)) {
+                remoteInterfaces.add(type);
+            }
+        }
+        return (Remote) Proxy.newProxyInstance(getClass().getClassLoader(),
+                remoteInterfaces.toArray(new Class<?>[0]), (proxy, method, args) -> {
+                    try {
+                        return method.invoke(this, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
     /**
      * Main method to start the server.
      */
     public static void main(String[] args) {
+        // Read once when RMI starts; without it, a client that stops reading holds a delivery worker forever
+        if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+            System.setProperty("sun.rmi.transport.tcp.responseTimeout",
+                    String.valueOf(ServerConfig.OBSERVER_CALLBACK_TIMEOUT_MS));
+        }
         Server server = new Server();
         server.start();
     }
@@ -244,9 +481,8 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public ChatMsg sendMessage(String sender, String receiver, String message) throws RemoteException {
-        try (Session session = sessionFactory.openSession()) {
-            Transaction transaction = session.beginTransaction();
-
+        restoreEvictedObserver(sender);
+        try {
             ChatUser senderUser = getUserByUsername(sender);
             ChatUser receiverUser = getUserByUsername(receiver);
 
@@ -257,9 +493,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             // Check if this is a "Bye" message to leave the chat
             if (message.trim().equalsIgnoreCase("Bye")) {
                 // User is leaving the chat
-                ChatMsg chatMsg = new ChatMsg(senderUser, receiverUser, message);
-                session.persist(chatMsg);
-                transaction.commit();
+                ChatMsg chatMsg = persistMessage(new ChatMsg(senderUser, receiverUser, message));
 
                 // Notify the receiver that the user has left
                 notifyUserLeft(receiver, senderUser.getUsername(),
@@ -269,10 +503,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                 return chatMsg;
             }
 
-            ChatMsg chatMsg = new ChatMsg(senderUser, receiverUser, message);
-            session.persist(chatMsg);
-
-            transaction.commit();
+            ChatMsg chatMsg = persistMessage(new ChatMsg(senderUser, receiverUser, message));
 
             // Notify the receiver if online
             notifyUser(receiverUser.getUsername(), chatMsg);
@@ -287,21 +518,17 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public ChatMsg sendGroupMessage(String sender, String groupName, String message) throws RemoteException {
-        try (Session session = sessionFactory.openSession()) {
-            Transaction transaction = session.beginTransaction();
-
+        restoreEvictedObserver(sender);
+        try {
             ChatUser senderUser = getUserByUsername(sender);
+            Long groupId = groupIndex.getGroupId(groupName);
 
-            Query<ChatGrp> query = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
-            query.setParameter("name", groupName);
-            ChatGrp group = query.uniqueResult();
-
-            if (senderUser == null || group == null) {
+            if (senderUser == null || groupId == null) {
                 return null;
             }
 
             // Check if sender is a member of the group
-            if (!group.isMember(senderUser)) {
+            if (!groupIndex.isMember(groupName, senderUser.getUsername())) {
                 return null;
             }
 
@@ -312,29 +539,38 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                 return null;
             }
 
-            // Get the admin user
-            Query<ChatUser> adminQuery = session.createQuery("FROM ChatUser WHERE isAdmin = true", ChatUser.class);
-            ChatUser admin = adminQuery.uniqueResult();
+            // Look everything up first: the session's connection must not be held while the
+            // message waits for its batch, or waiting senders could drain the connection pool
+            ChatGrp group;
+            try (Session session = sessionFactory.openSession()) {
+                // Get the admin user
+                Query<ChatUser> adminQuery = session.createQuery("FROM ChatUser WHERE isAdmin = true", ChatUser.class);
+                adminQuery.setCacheable(true).setCacheRegion(SecondLevelCache.USER_QUERY_REGION);
+                ChatUser admin = adminQuery.uniqueResult();
+
+                if (admin == null) {
+                    System.err.println("No admin found for subscription check");
+                    return null;
+                }
 
-            if (admin == null) {
-                System.err.println("No admin found for subscription check");
+                // Removed subscription check to allow all group members to send messages
+                // Users who are members of a group should be able to send messages to that group
+                // regardless of their subscription status with the admin
+
+                group = session.get(ChatGrp.class, groupId);
+            }
+            if (group == null) {
                 return null;
             }
 
-            // Removed subscription check to allow all group members to send messages
-            // Users who are members of a group should be able to send messages to that group
-            // regardless of their subscription status with the admin
-
             // Create message with sender's profile information
             String formattedMessage = senderUser.getNickName() + " [" + senderUser.getUsername() + "]: " + message;
-            ChatMsg chatMsg = new ChatMsg(senderUser, group, formattedMessage);
-            session.persist(chatMsg);
+            ChatMsg chatMsg = persistMessage(new ChatMsg(senderUser, group, formattedMessage));
 
-            transaction.commit();
-
-            // Notify all members of this specific group, including the sender
-            for (ChatUser member : group.getMembers()) {
-                notifyUser(member.getUsername(), chatMsg);
+            // Queue the message for all members of this specific group, including the sender.
+            // Delivery happens on the dispatcher so the sender does not wait for slow clients.
+            for (String member : groupIndex.getMembers(groupName)) {
+                notifyUser(member, chatMsg);
             }
 
             return chatMsg;
@@ -376,8 +612,211 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         }
     }
 
+    @Override
+    public List<ChatMsg> getMessagesPage(String user1, String user2, Long beforeId, int limit) throws RemoteException {
+        // Clients ask for their own conversations, so the first user is the caller
+        restoreEvictedObserver(user1);
+        return findDirectMessages(user1, user2, beforeId, null, limit);
+    }
+
+    @Override
+    public List<ChatMsg> getGroupMessagesPage(String username, String groupName, Long beforeId, int limit) throws RemoteException {
+        restoreEvictedObserver(username);
+        return findGroupMessages(groupName, beforeId, null, limit);
+    }
+
+    @Override
+    public List<ChatMsg> getMessagesSince(String user1, String user2, long afterId, int limit) throws RemoteException {
+        restoreEvictedObserver(user1);
+        return findDirectMessages(user1, user2, null, afterId, limit);
+    }
+
+    @Override
+    public List<ChatMsg> getGroupMessagesSince(String username, String groupName, long afterId, int limit) throws RemoteException {
+        restoreEvictedObserver(username);
+        return findGroupMessages(groupName, null, afterId, limit);
+    }
+
+    @Override
+    public MessageList getMessagesPageView(String user1, String user2, Long beforeId, int limit) throws RemoteException {
+        return WireViews.toMessageList(getMessagesPage(user1, user2, beforeId, limit));
+    }
+
+    @Override
+    public MessageList getGroupMessagesPageView(String username, String groupName, Long beforeId, int limit) throws RemoteException {
+        return WireViews.toMessageList(getGroupMessagesPage(username, groupName, beforeId, limit));
+    }
+
+    @Override
+    public MessageList getMessagesSinceView(String user1, String user2, long afterId, int limit) throws RemoteException {
+        return WireViews.toMessageList(getMessagesSince(user1, user2, afterId, limit));
+    }
+
+    @Override
+    public MessageList getGroupMessagesSinceView(String username, String groupName, long afterId, int limit) throws RemoteException {
+        return WireViews.toMessageList(getGroupMessagesSince(username, groupName, afterId, limit));
+    }
+
+    @Override
+    public MessageList getAllGroupsTimelineView(String username, Long beforeId, int limit) throws RemoteException {
+        return WireViews.toMessageList(getAllGroupsTimeline(username, beforeId, limit));
+    }
+
+    @Override
+    public List<ChatMsg> getAllGroupsTimeline(String username, Long beforeId, int limit) throws RemoteException {
+        restoreEvictedObserver(username);
+        List<Long> groupIds = new ArrayList<>();
+        for (String groupName : groupIndex.getGroupsOf(username)) {
+            Long groupId = groupIndex.getGroupId(groupName);
+            if (groupId != null) {
+                groupIds.add(groupId);
+            }
+        }
+        if (groupIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try (Session session = sessionFactory.openSession()) {
+            GroupTimelineMerger merger = new GroupTimelineMerger(
+                    (groupId, before, max) -> queryGroupMessages(session, groupId, before, null, max));
+            return merger.merge(groupIds, beforeId, historyPageSize(limit));
+        } catch (Exception e) {
+            System.err.println("Error getting group timeline: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Find messages between two users by id range. Messages older than beforeId are returned
+     * newest first; messages newer than afterId are returned oldest first.
+     */
+    private List<ChatMsg> findDirectMessages(String user1, String user2, Long beforeId, Long afterId, int limit)
+            throws RemoteException {
+        ChatUser first = getUserByUsername(user1);
+        ChatUser second = getUserByUsername(user2);
+        if (first == null || second == null) {
+            return new ArrayList<>();
+        }
+
+        try (Session session = sessionFactory.openSession()) {
+            // Filter on the foreign keys so the (sender_id, receiver_id, id) index serves both directions
+            Query<ChatMsg> query = session.createQuery(directMessagesQuery(beforeId, afterId), ChatMsg.class);
+            query.setParameter("first", first.getId());
+            query.setParameter("second", second.getId());
+            setIdRange(query, beforeId, afterId, limit);
+            return query.list();
+        } catch (Exception e) {
+            System.err.println("Error getting messages: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Find messages in a group by id range, ordered like {@link #findDirectMessages}.
+     */
+    private List<ChatMsg> findGroupMessages(String groupName, Long beforeId, Long afterId, int limit) {
+        Long groupId = groupIndex.getGroupId(groupName);
+        if (groupId == null) {
+            return new ArrayList<>();
+        }
+
+        try (Session session = sessionFactory.openSession()) {
+            return queryGroupMessages(session, groupId, beforeId, afterId, limit);
+        } catch (Exception e) {
+            System.err.println("Error getting group messages: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    private List<ChatMsg> queryGroupMessages(Session session, Long groupId, Long beforeId, Long afterId, int limit) {
+        Query<ChatMsg> query = session.createQuery(groupMessagesQuery(beforeId, afterId), ChatMsg.class);
+        query.setParameter("groupId", groupId);
+        setIdRange(query, beforeId, afterId, limit);
+        return query.list();
+    }
+
+    /**
+     * @return The HQL of a page of a direct conversation, by id range; checked by {@link QueryPlanVerifier}
+     */
+    static String directMessagesQuery(Long beforeId, Long afterId) {
+        return "FROM ChatMsg m WHERE ((m.sender.id = :first AND m.receiver.id = :second) " +
+                "OR (m.sender.id = :second AND m.receiver.id = :first))" + idRangeClause(beforeId, afterId);
+    }
+
+    /**
+     * @return The HQL of a page of a group conversation, by id range; checked by {@link QueryPlanVerifier}
+     */
+    static String groupMessagesQuery(Long beforeId, Long afterId) {
+        return "FROM ChatMsg m WHERE m.group.id = :groupId" + idRangeClause(beforeId, afterId);
+    }
+
+    private static String idRangeClause(Long beforeId, Long afterId) {
+        if (afterId != null) {
+            return " AND m.id > :afterId ORDER BY m.id ASC";
+        }
+        return (beforeId != null ? " AND m.id < :beforeId" : "") + " ORDER BY m.id DESC";
+    }
+
+    private void setIdRange(Query<ChatMsg> query, Long beforeId, Long afterId, int limit) {
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        } else if (beforeId != null) {
+            query.setParameter("beforeId", beforeId);
+        }
+        query.setMaxResults(historyPageSize(limit));
+    }
+
+    private int historyPageSize(int limit) {
+        return Math.max(1, Math.min(limit, ServerConfig.HISTORY_MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Link a newly committed message to the message committed before it in the same
+     * conversation, so clients can tell whether they missed anything.
+     * Runs on the message writer thread, in commit order.
+     */
+    private void chainMessage(ChatMsg message) {
+        String conversation = message.getGroup() != null
+                ? "group:" + message.getGroup().getId()
+                : "direct:" + Math.min(message.getSender().getId(), message.getReceiver().getId())
+                        + ":" + Math.max(message.getSender().getId(), message.getReceiver().getId());
+
+        Long previousId = lastMessageIds.put(conversation, message.getId());
+        if (previousId == null) {
+            // First message in this conversation since startup
+            previousId = findPreviousMessageId(message);
+        }
+        message.setPreviousId(previousId);
+    }
+
+    private Long findPreviousMessageId(ChatMsg message) {
+        try (Session session = sessionFactory.openSession()) {
+            Query<Long> query;
+            if (message.getGroup() != null) {
+                query = session.createQuery(
+                        "SELECT max(m.id) FROM ChatMsg m WHERE m.group.id = :groupId AND m.id < :id", Long.class);
+                query.setParameter("groupId", message.getGroup().getId());
+            } else {
+                query = session.createQuery(
+                        "SELECT max(m.id) FROM ChatMsg m WHERE ((m.sender.id = :first AND m.receiver.id = :second) " +
+                                "OR (m.sender.id = :second AND m.receiver.id = :first)) AND m.id < :id", Long.class);
+                query.setParameter("first", message.getSender().getId());
+                query.setParameter("second", message.getReceiver().getId());
+            }
+            query.setParameter("id", message.getId());
+            return query.uniqueResult();
+        } catch (Exception e) {
+            System.err.println("Error finding previous message: " + e.getMessage());
+            return null;
+        }
+    }
+
     @Override
     public ChatGrp createGroup(String groupName, String description, String creatorUsername) throws RemoteException {
+        restoreEvictedObserver(creatorUsername);
         try (Session session = sessionFactory.openSession()) {
             Transaction transaction = session.beginTransaction();
 
@@ -389,6 +828,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
             // Check if group name is already taken
             Query<ChatGrp> query = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.GROUP_QUERY_REGION);
             query.setParameter("name", groupName);
             if (query.uniqueResult() != null) {
                 return null;
@@ -398,6 +838,8 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             session.persist(group);
 
             transaction.commit();
+            groupIndex.addGroup(group.getId(), groupName, creator.getUsername());
+            groupIndex.addMember(groupName, creator.getUsername());
 
             // Notify all observers that a new chat has started
             notifyChatStarted(groupName, new Date());
@@ -417,9 +859,8 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
             ChatUser user = getUserByUsername(username);
 
-            Query<ChatGrp> query = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
-            query.setParameter("name", groupName);
-            ChatGrp group = query.uniqueResult();
+            Long groupId = groupIndex.getGroupId(groupName);
+            ChatGrp group = groupId != null ? session.get(ChatGrp.class, groupId) : null;
 
             if (user == null || group == null) {
                 return false;
@@ -429,6 +870,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             session.merge(group);
 
             transaction.commit();
+            groupIndex.addMember(groupName, username);
 
             // Notify all observers that a user has joined the chat
             String nickName = user.getNickName() != null ? user.getNickName() : user.getUsername();
@@ -449,9 +891,8 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
             ChatUser user = getUserByUsername(username);
 
-            Query<ChatGrp> query = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
-            query.setParameter("name", groupName);
-            ChatGrp group = query.uniqueResult();
+            Long groupId = groupIndex.getGroupId(groupName);
+            ChatGrp group = groupId != null ? session.get(ChatGrp.class, groupId) : null;
 
             if (user == null || group == null) {
                 return false;
@@ -462,10 +903,12 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                 return false;
             }
 
-            group.removeMember(user);
+            // Match by username; the user instance comes from the user directory, not this session
+            group.getMembers().removeIf(member -> member.getUsername().equals(username));
             session.merge(group);
 
             transaction.commit();
+            groupIndex.removeMember(groupName, username);
 
             // Notify all observers that a user has left the chat
             String nickName = user.getNickName() != null ? user.getNickName() : user.getUsername();
@@ -483,6 +926,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
     public List<ChatGrp> getAllGroups() throws RemoteException {
         try (Session session = sessionFactory.openSession()) {
             Query<ChatGrp> query = session.createQuery("FROM ChatGrp", ChatGrp.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.GROUP_QUERY_REGION);
             return query.list();
         } catch (Exception e) {
             System.err.println("Error getting all groups: " + e.getMessage());
@@ -491,13 +935,58 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         }
     }
 
+    @Override
+    public Page<GroupRow> queryGroups(String cursor, int limit) throws RemoteException {
+        int pageSize = Math.max(1, Math.min(limit, ServerConfig.ADMIN_MAX_PAGE_SIZE));
+        long afterId = parseIdCursor(cursor);
+        try (Session session = sessionFactory.openSession()) {
+            // Project the member count, so no member collection is loaded
+            List<Object[]> results = session.createQuery(
+                    "SELECT g.id, g.name, g.description, c.username, SIZE(g.members) " +
+                            "FROM ChatGrp g LEFT JOIN g.creator c WHERE g.id > :afterId ORDER BY g.id", Object[].class)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(pageSize + 1)
+                    .list();
+
+            List<GroupRow> rows = new ArrayList<>(Math.min(results.size(), pageSize));
+            for (int i = 0; i < results.size() && i < pageSize; i++) {
+                Object[] result = results.get(i);
+                rows.add(new GroupRow((Long) result[0], (String) result[1], (String) result[2], (String) result[3],
+                        ((Number) result[4]).intValue()));
+            }
+            String nextCursor = results.size() > pageSize ? String.valueOf(rows.get(rows.size() - 1).id()) : null;
+            long total = cursor == null ? HibernateUtil.estimateRowCount(session, "chat_groups") : -1;
+            return new Page<>(rows, nextCursor, total, false);
+        } catch (Exception e) {
+            System.err.println("Error querying groups: " + e.getMessage());
+            e.printStackTrace();
+            return new Page<>(new ArrayList<>(), null, -1, false);
+        }
+    }
+
     @Override
     public List<ChatGrp> getUserGroups(String username) throws RemoteException {
+        restoreEvictedObserver(username);
+        List<Long> groupIds = new ArrayList<>();
+        for (String groupName : groupIndex.getGroupsOf(username)) {
+            Long groupId = groupIndex.getGroupId(groupName);
+            if (groupId != null) {
+                groupIds.add(groupId);
+            }
+        }
+        if (groupIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Groups found in the second-level cache are not loaded from the database again
         try (Session session = sessionFactory.openSession()) {
-            Query<ChatGrp> query = session.createQuery(
-                    "SELECT g FROM ChatGrp g JOIN g.members m WHERE m.username = :username", ChatGrp.class);
-            query.setParameter("username", username);
-            return query.list();
+            List<ChatGrp> groups = new ArrayList<>();
+            for (ChatGrp group : session.byMultipleIds(ChatGrp.class).multiLoad(groupIds)) {
+                if (group != null) {
+                    groups.add(group);
+                }
+            }
+            return groups;
         } catch (Exception e) {
             System.err.println("Error getting user groups: " + e.getMessage());
             e.printStackTrace();
@@ -505,61 +994,85 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         }
     }
 
+    @Override
+    public List<GroupView> getUserGroupViews(String username) throws RemoteException {
+        List<GroupView> views = new ArrayList<>();
+        // Members come from the membership index, so the lazy member collections are never loaded
+        for (ChatGrp group : getUserGroups(username)) {
+            views.add(WireViews.toView(group, groupIndex.getMembers(group.getName())));
+        }
+        return views;
+    }
+
     @Override
     public void registerObserver(ChatObserver observer) throws RemoteException {
+        // The only remote call needed; the name is cached for every later lookup
         String username = observer.getUsername();
+        evictedObservers.remove(username);
+        observerNames.put(observer, username);
         observers.put(username, observer);
+        dispatcher.register(username, observer);
         System.out.println("Observer registered: " + username);
 
-        // Notify all other users that this user is now online
-        for (ChatObserver otherObserver : observers.values()) {
-            if (!otherObserver.getUsername().equals(username)) {
-                try {
-                    otherObserver.userStatusChanged(username, true);
-                } catch (RemoteException e) {
-                    // Remove the observer if it's no longer reachable
-                    observers.remove(otherObserver.getUsername());
-                }
-            }
-        }
+        // Other users learn about this in the next batched presence delta
+        markOnline(username);
+        presenceBroadcaster.changed();
     }
 
     @Override
     public void unregisterObserver(ChatObserver observer) throws RemoteException {
-        String username = observer.getUsername();
+        String username = observerNames.remove(observer);
+        if (username == null) {
+            username = observer.getUsername();
+        }
+        evictedObservers.remove(username);
         observers.remove(username);
+        dispatcher.unregister(username);
         System.out.println("Observer unregistered: " + username);
 
-        // Notify all other users that this user is now offline
-        for (ChatObserver otherObserver : observers.values()) {
-            try {
-                otherObserver.userStatusChanged(username, false);
-            } catch (RemoteException e) {
-                // Remove the observer if it's no longer reachable
-                observers.remove(otherObserver.getUsername());
-            }
-        }
+        presence.markOffline(username);
+        presenceBroadcaster.changed();
     }
 
     @Override
     public List<ChatUser> getOnlineUsers() throws RemoteException {
         List<ChatUser> onlineUsers = new ArrayList<>();
 
-        try (Session session = sessionFactory.openSession()) {
-            for (String username : observers.keySet()) {
-                ChatUser user = getUserByUsername(username);
-                if (user != null) {
-                    onlineUsers.add(user);
-                }
+        // Users come from the in-memory directory, so this does not touch the database
+        for (PresenceSnapshot snapshot : presence.getOnline()) {
+            ChatUser user = getUserByUsername(snapshot.getUsername());
+            if (user != null) {
+                onlineUsers.add(user);
             }
-        } catch (Exception e) {
-            System.err.println("Error getting online users: " + e.getMessage());
-            e.printStackTrace();
         }
 
         return onlineUsers;
     }
 
+    @Override
+    public List<UserView> getOnlineUserViews() throws RemoteException {
+        List<UserView> views = new ArrayList<>();
+        for (ChatUser user : getOnlineUsers()) {
+            views.add(WireViews.toView(user, true));
+        }
+        return views;
+    }
+
+    @Override
+    public PresenceDelta getPresenceSince(String username, long sinceVersion) throws RemoteException {
+        // Restoring marks the user online again, so it comes before reading the changes
+        restoreEvictedObserver(username);
+        return presence.getChangesSince(sinceVersion);
+    }
+
+    private void markOnline(String username) throws RemoteException {
+        ChatUser user = getUserByUsername(username);
+        presence.markOnline(new PresenceSnapshot(username,
+                user != null ? user.getNickName() : null,
+                user != null ? user.getProfilePicture() : null,
+                System.currentTimeMillis()));
+    }
+
     // UserService implementation
 
     @Override
@@ -576,6 +1089,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             session.persist(user);
 
             transaction.commit();
+            userDirectory.put(user);
 
             return user;
         } catch (Exception e) {
@@ -594,6 +1108,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             // First check if the user exists
             Query<ChatUser> userQuery = session.createQuery(
                     "FROM ChatUser WHERE username = :username", ChatUser.class);
+            userQuery.setCacheable(true).setCacheRegion(SecondLevelCache.USER_QUERY_REGION);
             userQuery.setParameter("username", username);
             ChatUser userCheck = userQuery.uniqueResult();
 
@@ -631,16 +1146,18 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                     session.merge(user);
                 }
 
-                // Log the login
-                com.example.chatapp.domain.ChatLogs log = new com.example.chatapp.domain.ChatLogs(user, "LOGIN", null, "User logged in");
-                session.persist(log);
-
                 System.out.println("User login completed successfully: " + user.getUsername());
             } else {
                 System.out.println("Login failed: Incorrect password for user: " + username);
             }
 
             transaction.commit();
+            if (user != null) {
+                userDirectory.put(user);
+
+                // Log the login
+                auditLog.append(new com.example.chatapp.domain.ChatLogs(user, "LOGIN", null, "User logged in"));
+            }
 
             return user;
         } catch (Exception e) {
@@ -667,11 +1184,11 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             user.setOnline(false);
             session.merge(user);
 
-            // Log the logout
-            com.example.chatapp.domain.ChatLogs log = new com.example.chatapp.domain.ChatLogs(user, "LOGOUT", null, "User logged out");
-            session.persist(log);
-
             transaction.commit();
+            userDirectory.put(user);
+
+            // Log the logout
+            auditLog.append(new com.example.chatapp.domain.ChatLogs(user, "LOGOUT", null, "User logged out"));
             System.out.println("User successfully logged out: " + username);
 
             // If this is an admin user, make sure to unregister any observers
@@ -684,15 +1201,25 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         } catch (Exception e) {
             System.err.println("Error logging out user: " + e.getMessage());
             e.printStackTrace();
+            // The commit may or may not have reached the database; reload the user on next use
+            userDirectory.invalidate(username);
             return false;
         }
     }
 
     @Override
     public ChatUser getUserByUsername(String username) throws RemoteException {
+        return userDirectory.get(username, this::loadUserByUsername);
+    }
+
+    /**
+     * Load a user from the database, bypassing the user directory.
+     */
+    private ChatUser loadUserByUsername(String username) {
         try (Session session = sessionFactory.openSession()) {
             Query<ChatUser> query = session.createQuery(
                     "FROM ChatUser WHERE username = :username", ChatUser.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.USER_QUERY_REGION);
             query.setParameter("username", username);
             return query.uniqueResult();
         } catch (Exception e) {
@@ -704,6 +1231,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public ChatUser updateProfile(String username, String newPassword, String newEmail, String newNickName, String newProfilePicture) throws RemoteException {
+        restoreEvictedObserver(username);
         try (Session session = sessionFactory.openSession()) {
             Transaction transaction = session.beginTransaction();
 
@@ -728,11 +1256,16 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             session.merge(user);
 
             transaction.commit();
+            userDirectory.put(user);
+            presence.updateProfile(username, user.getNickName(), user.getProfilePicture());
+            presenceBroadcaster.changed();
 
             return user;
         } catch (Exception e) {
             System.err.println("Error updating profile: " + e.getMessage());
             e.printStackTrace();
+            // The commit may or may not have reached the database; reload the user on next use
+            userDirectory.invalidate(username);
             return null;
         }
     }
@@ -749,6 +1282,51 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         }
     }
 
+    @Override
+    public Page<UserRow> queryUsers(String cursor, int limit) throws RemoteException {
+        int pageSize = Math.max(1, Math.min(limit, ServerConfig.ADMIN_MAX_PAGE_SIZE));
+        long afterId = parseIdCursor(cursor);
+        try (Session session = sessionFactory.openSession()) {
+            List<Object[]> results = session.createQuery(
+                    "SELECT u.id, u.username, u.email, u.isAdmin FROM ChatUser u WHERE u.id > :afterId ORDER BY u.id",
+                    Object[].class)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(pageSize + 1)
+                    .list();
+
+            List<UserRow> rows = new ArrayList<>(Math.min(results.size(), pageSize));
+            for (int i = 0; i < results.size() && i < pageSize; i++) {
+                Object[] result = results.get(i);
+                String username = (String) result[1];
+                rows.add(new UserRow((Long) result[0], username, (String) result[2], (Boolean) result[3],
+                        presence.isOnline(username)));
+            }
+            String nextCursor = results.size() > pageSize ? String.valueOf(rows.get(rows.size() - 1).id()) : null;
+            long total = cursor == null ? HibernateUtil.estimateRowCount(session, "chat_users") : -1;
+            return new Page<>(rows, nextCursor, total, false);
+        } catch (Exception e) {
+            System.err.println("Error querying users: " + e.getMessage());
+            e.printStackTrace();
+            return new Page<>(new ArrayList<>(), null, -1, false);
+        }
+    }
+
+    /**
+     * @param cursor A cursor returned by {@link #queryUsers} or {@link #queryGroups}, or null
+     * @return The id the next page starts after
+     * @throws RemoteException If the cursor is malformed
+     */
+    private static long parseIdCursor(String cursor) throws RemoteException {
+        if (cursor == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new RemoteException("Malformed cursor: " + cursor);
+        }
+    }
+
     @Override
     public boolean isUsernameAvailable(String username) throws RemoteException {
         try (Session session = sessionFactory.openSession()) {
@@ -798,6 +1376,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         try (Session session = sessionFactory.openSession()) {
             Query<ChatUser> query = session.createQuery(
                     "FROM ChatUser WHERE username = :username AND isAdmin = true", ChatUser.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.USER_QUERY_REGION);
             query.setParameter("username", username);
             return query.uniqueResult() != null;
         } catch (Exception e) {
@@ -809,6 +1388,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public boolean removeUser(String adminUsername, String userToRemove) throws RemoteException {
+        restoreEvictedObserver(adminUsername);
         // Check if the user performing the operation is an admin
         if (!isAdmin(adminUsername)) {
             System.err.println("User " + adminUsername + " is not an admin. Cannot remove users.");
@@ -844,7 +1424,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             List<ChatGrp> groups = groupQuery.list();
 
             for (ChatGrp group : groups) {
-                group.removeMember(user);
+                group.getMembers().removeIf(member -> member.getUsername().equals(userToRemove));
                 session.merge(group);
             }
 
@@ -861,12 +1441,13 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             // Remove the user
             session.remove(user);
 
+            transaction.commit();
+
             // Log the action
             ChatUser admin = getUserByUsername(adminUsername);
-            com.example.chatapp.domain.ChatLogs log = new com.example.chatapp.domain.ChatLogs(admin, "REMOVE_USER", null, "Admin " + adminUsername + " removed user " + userToRemove);
-            session.persist(log);
-
-            transaction.commit();
+            auditLog.append(new com.example.chatapp.domain.ChatLogs(admin, "REMOVE_USER", null, "Admin " + adminUsername + " removed user " + userToRemove));
+            userDirectory.invalidate(userToRemove);
+            groupIndex.removeUser(userToRemove);
 
             System.out.println("User " + userToRemove + " successfully removed by admin " + adminUsername);
             return true;
@@ -881,6 +1462,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public Subscribe subscribe(String subscriberUsername, String targetUsername) throws RemoteException {
+        restoreEvictedObserver(subscriberUsername);
         try (Session session = sessionFactory.openSession()) {
             Transaction transaction = session.beginTransaction();
 
@@ -911,6 +1493,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public boolean unsubscribe(String subscriberUsername, String targetUsername) throws RemoteException {
+        restoreEvictedObserver(subscriberUsername);
         try (Session session = sessionFactory.openSession()) {
             Transaction transaction = session.beginTransaction();
 
@@ -938,9 +1521,11 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public List<Subscribe> getSubscriptions(String username) throws RemoteException {
+        restoreEvictedObserver(username);
         try (Session session = sessionFactory.openSession()) {
             Query<Subscribe> query = session.createQuery(
                     "FROM Subscribe WHERE subscriber.username = :username", Subscribe.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.SUBSCRIPTION_QUERY_REGION);
             query.setParameter("username", username);
             return query.list();
         } catch (Exception e) {
@@ -952,9 +1537,11 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public List<ChatUser> getSubscribers(String username) throws RemoteException {
+        restoreEvictedObserver(username);
         try (Session session = sessionFactory.openSession()) {
             Query<ChatUser> query = session.createQuery(
                     "SELECT s.subscriber FROM Subscribe s WHERE s.target.username = :username", ChatUser.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.SUBSCRIPTION_QUERY_REGION);
             query.setParameter("username", username);
             return query.list();
         } catch (Exception e) {
@@ -969,6 +1556,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         try (Session session = sessionFactory.openSession()) {
             Query<Long> query = session.createQuery(
                     "SELECT COUNT(s) FROM Subscribe s WHERE s.subscriber.username = :subscriber AND s.target.username = :target", Long.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.SUBSCRIPTION_QUERY_REGION);
             query.setParameter("subscriber", subscriberUsername);
             query.setParameter("target", targetUsername);
             return query.uniqueResult() > 0;
@@ -981,9 +1569,11 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
     @Override
     public List<ChatUser> getSubscribedUsers(String username) throws RemoteException {
+        restoreEvictedObserver(username);
         try (Session session = sessionFactory.openSession()) {
             Query<ChatUser> query = session.createQuery(
                     "SELECT s.target FROM Subscribe s WHERE s.subscriber.username = :username", ChatUser.class);
+            query.setCacheable(true).setCacheRegion(SecondLevelCache.SUBSCRIPTION_QUERY_REGION);
             query.setParameter("username", username);
             return query.list();
         } catch (Exception e) {
@@ -1002,6 +1592,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         try (Session session = sessionFactory.openSession()) {
             // Get the admin user who started the chat
             Query<ChatUser> adminQuery = session.createQuery("FROM ChatUser WHERE isAdmin = true", ChatUser.class);
+            adminQuery.setCacheable(true).setCacheRegion(SecondLevelCache.USER_QUERY_REGION);
             ChatUser admin = adminQuery.uniqueResult();
 
             if (admin == null) {
@@ -1009,36 +1600,19 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                 return;
             }
 
-            // Get the group
-            Query<ChatGrp> groupQuery = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
-            groupQuery.setParameter("name", chatName);
-            ChatGrp group = groupQuery.uniqueResult();
-
-            if (group == null) {
+            if (!groupIndex.hasGroup(chatName)) {
                 System.err.println("Group not found: " + chatName);
                 return;
             }
 
             // Notify all online members of the group
-            for (ChatUser member : group.getMembers()) {
-                ChatObserver observer = observers.get(member.getUsername());
-                if (observer != null) {
-                    try {
-                        observer.chatStarted(chatName, startTime);
-                    } catch (RemoteException e) {
-                        // Remove the observer if it's no longer reachable
-                        observers.remove(member.getUsername());
-                        System.err.println("Error notifying user about chat start: " + e.getMessage());
-                    }
-                }
+            for (String member : groupIndex.getMembers(chatName)) {
+                dispatcher.submit(member, o -> o.chatStarted(chatName, startTime));
             }
 
             // Log the chat start
-            com.example.chatapp.domain.ChatLogs log = new com.example.chatapp.domain.ChatLogs(
-                    admin, "CHAT_STARTED", null, "Admin started chat: " + chatName);
-            Transaction transaction = session.beginTransaction();
-            session.persist(log);
-            transaction.commit();
+            auditLog.append(new com.example.chatapp.domain.ChatLogs(
+                    admin, "CHAT_STARTED", null, "Admin started chat: " + chatName));
         } catch (Exception e) {
             System.err.println("Error notifying chat started: " + e.getMessage());
             e.printStackTrace();
@@ -1049,7 +1623,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
     public void notifyUserJoined(String chatName, String username, String nickName, Date joinTime) throws RemoteException {
         System.out.println("User joined: " + username + " (" + nickName + ") to chat: " + chatName + " at " + joinTime);
 
-        try (Session session = sessionFactory.openSession()) {
+        try {
             ChatUser user = getUserByUsername(username);
 
             if (user == null) {
@@ -1057,41 +1631,25 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                 return;
             }
 
-            // Get the group
-            Query<ChatGrp> groupQuery = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
-            groupQuery.setParameter("name", chatName);
-            ChatGrp group = groupQuery.uniqueResult();
-
-            if (group == null) {
+            if (!groupIndex.hasGroup(chatName)) {
                 System.err.println("Group not found: " + chatName);
                 return;
             }
 
             // Notify all online members of the group
-            for (ChatUser member : group.getMembers()) {
+            for (String member : groupIndex.getMembers(chatName)) {
                 // Don't notify the user who joined
-                if (member.getUsername().equals(username)) {
+                if (member.equals(username)) {
                     continue;
                 }
 
-                ChatObserver observer = observers.get(member.getUsername());
-                if (observer != null) {
-                    try {
-                        observer.userJoined(chatName, username, nickName, joinTime);
-                    } catch (RemoteException e) {
-                        // Remove the observer if it's no longer reachable
-                        observers.remove(member.getUsername());
-                        System.err.println("Error notifying user about join: " + e.getMessage());
-                    }
-                }
+                dispatcher.submit(member, o -> o.userJoined(chatName, username, nickName, joinTime));
             }
+            membershipTimeline.recordJoin(chatName, username, joinTime != null ? joinTime : new Date());
 
             // Log the user join
-            com.example.chatapp.domain.ChatLogs log = new com.example.chatapp.domain.ChatLogs(
-                    user, "USER_JOINED_CHAT", null, "User joined chat: " + chatName);
-            Transaction transaction = session.beginTransaction();
-            session.persist(log);
-            transaction.commit();
+            auditLog.append(new com.example.chatapp.domain.ChatLogs(
+                    user, MembershipTimeline.JOIN_ACTION, null, "User joined chat: " + chatName, chatName, null));
         } catch (Exception e) {
             System.err.println("Error notifying user joined: " + e.getMessage());
             e.printStackTrace();
@@ -1102,7 +1660,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
     public void notifyUserLeft(String chatName, String username, String nickName, Date leaveTime) throws RemoteException {
         System.out.println("User left: " + username + " (" + nickName + ") from chat: " + chatName + " at " + leaveTime);
 
-        try (Session session = sessionFactory.openSession()) {
+        try {
             ChatUser user = getUserByUsername(username);
 
             if (user == null) {
@@ -1110,50 +1668,28 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
                 return;
             }
 
-            // Get the group
-            Query<ChatGrp> groupQuery = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
-            groupQuery.setParameter("name", chatName);
-            ChatGrp group = groupQuery.uniqueResult();
-
-            if (group == null) {
+            if (!groupIndex.hasGroup(chatName)) {
                 System.err.println("Group not found: " + chatName);
                 return;
             }
 
             // Notify all online members of the group
-            for (ChatUser member : group.getMembers()) {
+            for (String member : groupIndex.getMembers(chatName)) {
                 // Don't notify the user who left
-                if (member.getUsername().equals(username)) {
+                if (member.equals(username)) {
                     continue;
                 }
 
-                ChatObserver observer = observers.get(member.getUsername());
-                if (observer != null) {
-                    try {
-                        observer.userLeft(chatName, username, nickName, leaveTime);
-                    } catch (RemoteException e) {
-                        // Remove the observer if it's no longer reachable
-                        observers.remove(member.getUsername());
-                        System.err.println("Error notifying user about leave: " + e.getMessage());
-                    }
-                }
+                dispatcher.submit(member, o -> o.userLeft(chatName, username, nickName, leaveTime));
             }
+            membershipTimeline.recordLeave(chatName, username, leaveTime != null ? leaveTime : new Date());
 
             // Log the user leave
-            com.example.chatapp.domain.ChatLogs log = new com.example.chatapp.domain.ChatLogs(
-                    user, "USER_LEFT_CHAT", null, "User left chat: " + chatName);
-            Transaction transaction = session.beginTransaction();
-            session.persist(log);
-            transaction.commit();
+            auditLog.append(new com.example.chatapp.domain.ChatLogs(
+                    user, MembershipTimeline.LEAVE_ACTION, null, "User left chat: " + chatName, chatName, null));
 
             // Check if this was the last user in the group
-            Query<Long> countQuery = session.createQuery(
-                    "SELECT COUNT(*) FROM ChatGrp g JOIN g.members m WHERE g.name = :groupName",
-                    Long.class);
-            countQuery.setParameter("groupName", chatName);
-            Long userCount = countQuery.uniqueResult();
-
-            if (userCount != null && userCount == 0) {
+            if (groupIndex.getMemberCount(chatName) == 0) {
                 // This was the last user, stop the chat
                 notifyChatStopped(chatName, new Date());
             }
@@ -1172,6 +1708,7 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
 
             // Get the admin user
             Query<ChatUser> adminQuery = session.createQuery("FROM ChatUser WHERE isAdmin = true", ChatUser.class);
+            adminQuery.setCacheable(true).setCacheRegion(SecondLevelCache.USER_QUERY_REGION);
             ChatUser admin = adminQuery.uniqueResult();
 
             if (admin == null) {
@@ -1182,61 +1719,78 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             // Generate a unique chat ID
             String chatId = UUID.randomUUID().toString();
 
-            // Get all messages for this chat
-            List<ChatMsg> messages = getGroupMessages(chatName);
-
-            // Save chat logs to a file using the FileWriter utility
-            String filePath;
-            try {
-                filePath = com.example.chatapp.util.FileWriter.saveChatToFile(chatName, chatId, messages, stopTime);
-                System.out.println("Chat logs saved to: " + filePath);
-            } catch (IOException e) {
-                System.err.println("Error saving chat logs to file: " + e.getMessage());
-                e.printStackTrace();
-                filePath = "Error saving file";
-            }
-
-            // Create and save a ChatRecord in the database
+            // Create and save a ChatRecord in the database; its transcript is written in the background
+            String filePath = com.example.chatapp.util.FileWriter.transcriptPath(chatName, chatId).toString();
             com.example.chatapp.domain.ChatRecord chatRecord = new com.example.chatapp.domain.ChatRecord(
                     chatId, chatName, filePath, stopTime);
             session.persist(chatRecord);
             System.out.println("Chat record saved to database with ID: " + chatRecord.getId());
 
-            // Get the group
-            Query<ChatGrp> groupQuery = session.createQuery("FROM ChatGrp WHERE name = :name", ChatGrp.class);
-            groupQuery.setParameter("name", chatName);
-            ChatGrp group = groupQuery.uniqueResult();
-
-            if (group != null) {
+            if (groupIndex.hasGroup(chatName)) {
                 // Notify all online members of the group
-                for (ChatUser member : group.getMembers()) {
-                    ChatObserver observer = observers.get(member.getUsername());
-                    if (observer != null) {
-                        try {
-                            observer.chatStopped(chatName, stopTime);
-                        } catch (RemoteException e) {
-                            // Remove the observer if it's no longer reachable
-                            observers.remove(member.getUsername());
-                            System.err.println("Error notifying user about chat stop: " + e.getMessage());
-                        }
-                    }
+                for (String member : groupIndex.getMembers(chatName)) {
+                    dispatcher.submit(member, o -> o.chatStopped(chatName, stopTime));
                 }
             } else {
                 System.err.println("Group not found: " + chatName);
             }
 
-            // Log the chat stop
-            com.example.chatapp.domain.ChatLogs log = new com.example.chatapp.domain.ChatLogs(
-                    admin, "CHAT_STOPPED", null, "Chat stopped: " + chatName, chatId, filePath);
-            session.persist(log);
-
             transaction.commit();
+            chatArchiver.submit(chatRecord);
+            membershipTimeline.recordStop(chatName, stopTime != null ? stopTime : new Date());
+
+            // Log the chat stop
+            auditLog.append(new com.example.chatapp.domain.ChatLogs(
+                    admin, "CHAT_STOPPED", null, "Chat stopped: " + chatName, chatId, filePath));
         } catch (Exception e) {
             System.err.println("Error notifying chat stopped: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    @Override
+    public ChatTimeline getChatTimeline(String chatName) throws RemoteException {
+        try {
+            return membershipTimeline.get(chatName);
+        } catch (Exception e) {
+            System.err.println("Error getting chat timeline: " + e.getMessage());
+            e.printStackTrace();
+            return new ChatTimeline(chatName, new HashMap<>(), new HashMap<>(), null);
+        }
+    }
+
+    /**
+     * Write a group's whole history to its transcript file. Messages are read through a
+     * forward-only cursor and written as they arrive, so memory use does not grow with the history.
+     *
+     * @param chatName The name of the group
+     * @param chatId The unique ID of the chat
+     * @param stopTime When the chat stopped
+     * @return The number of messages written
+     * @throws IOException If the file cannot be written
+     */
+    private long archiveGroupChat(String chatName, String chatId, Date stopTime) throws IOException {
+        Path file = com.example.chatapp.util.FileWriter.transcriptPath(chatName, chatId);
+        long start = System.currentTimeMillis();
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             TranscriptWriter transcript = new TranscriptWriter(file, ServerConfig.ARCHIVE_BUFFER_BYTES)) {
+            transcript.writeHeader(chatName, chatId);
+            Query<Object[]> query = session.createQuery(TRANSCRIPT_QUERY, Object[].class);
+            query.setParameter("groupName", chatName);
+            query.setFetchSize(ServerConfig.ARCHIVE_FETCH_SIZE);
+            try (ScrollableResults<Object[]> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    transcript.writeMessage((String) row[0], (String) row[1], (Date) row[2]);
+                }
+            }
+            transcript.writeFooter(stopTime);
+            System.out.println("Archived " + transcript.getMessageCount() + " messages of " + chatName
+                    + " to " + file + " in " + (System.currentTimeMillis() - start) + " ms");
+            return transcript.getMessageCount();
+        }
+    }
+
     /**
      * This method is no longer used. Chat logs are now saved using the FileWriter utility class.
      * @deprecated Use {@link com.example.chatapp.util.FileWriter#saveChatToFile} instead.
@@ -1249,8 +1803,8 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         System.out.println("Deprecated method called: saveChatLogs. Using FileWriter utility instead.");
 
         try {
-            List<ChatMsg> messages = getGroupMessages(chatName);
-            return com.example.chatapp.util.FileWriter.saveChatToFile(chatName, chatId, messages, new Date());
+            archiveGroupChat(chatName, chatId, new Date());
+            return com.example.chatapp.util.FileWriter.transcriptPath(chatName, chatId).toString();
         } catch (Exception e) {
             System.err.println("Error in deprecated saveChatLogs method: " + e.getMessage());
             e.printStackTrace();
@@ -1261,21 +1815,73 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
     // Helper methods
 
     /**
-     * Notify a user about a new message.
+     * Persist a message through the group-commit pipeline and wait until its batch is durable.
+     * A message that times out before the writer takes it is cancelled, so that it is not
+     * stored behind the sender's back and stored again when the sender retries.
      */
-    private void notifyUser(String username, ChatMsg message) {
-        ChatObserver observer = observers.get(username);
-        if (observer != null) {
-            try {
-                observer.update(message);
-            } catch (RemoteException e) {
-                // Remove the observer if it's no longer reachable
-                observers.remove(username);
-                System.err.println("Error notifying user: " + e.getMessage());
+    private ChatMsg persistMessage(ChatMsg chatMsg) throws Exception {
+        CompletableFuture<ChatMsg> write = messageWriter.persist(chatMsg);
+        try {
+            return write.get(ServerConfig.MESSAGE_WRITE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (write.cancel(false)) {
+                throw e;
             }
+            // The writer already has the message; its commit is about to finish
+            return write.get(ServerConfig.MESSAGE_WRITE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queue a new message for delivery to a user, if the user is online.
+     */
+    private void notifyUser(String username, ChatMsg message) {
+        dispatcher.submit(username, o -> o.update(message));
+    }
+
+    /**
+     * Called by the dispatcher when an observer can no longer be reached.
+     */
+    private void handleObserverFailure(String username, ChatObserver observer, RemoteException cause) {
+        // Only remove the observer if it has not been replaced by a newer registration
+        if (observers.remove(username, observer)) {
+            observerNames.remove(observer);
+            presence.markOffline(username);
+            presenceBroadcaster.changed();
+            System.out.println("Observer removed after delivery failure: " + username);
+        }
+    }
+
+    /**
+     * Called by the dispatcher when an observer falls too far behind. The observer is kept
+     * aside so that it can be restored the next time its user calls the server.
+     */
+    private void handleObserverEviction(String username, ChatObserver observer, long lagMillis) {
+        if (observers.remove(username, observer)) {
+            evictedObservers.put(username, observer);
+            presence.markOffline(username);
+            presenceBroadcaster.changed();
+            System.out.println("Observer evicted after falling " + lagMillis + " ms behind: " + username);
         }
     }
 
+    /**
+     * Re-register a user's evicted observer, if any, and ask it to reload its state.
+     *
+     * @param username The username of the caller
+     */
+    private void restoreEvictedObserver(String username) throws RemoteException {
+        ChatObserver observer = username != null ? evictedObservers.remove(username) : null;
+        if (observer == null || observers.putIfAbsent(username, observer) != null) {
+            return;
+        }
+        dispatcher.register(username, observer);
+        markOnline(username);
+        presenceBroadcaster.changed();
+        dispatcher.submit(username, ChatObserver::resyncRequired);
+        System.out.println("Evicted observer restored: " + username);
+    }
+
     // LogService implementation
 
     @Override
@@ -1337,6 +1943,28 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
         }
     }
 
+    @Override
+    public Page<LogRow> queryLogs(LogQuery logQuery) throws RemoteException {
+        Long userId = null;
+        if (logQuery.getUsername() != null) {
+            ChatUser user = getUserByUsername(logQuery.getUsername());
+            if (user == null) {
+                return new Page<>(new ArrayList<>(), null, 0, true);
+            }
+            userId = user.getId();
+        }
+
+        try {
+            return logQueries.query(logQuery, userId);
+        } catch (IllegalArgumentException e) {
+            throw new RemoteException(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error querying logs: " + e.getMessage());
+            e.printStackTrace();
+            return new Page<>(new ArrayList<>(), null, -1, false);
+        }
+    }
+
     @Override
     public boolean clearLogs() throws RemoteException {
         try (Session session = sessionFactory.openSession()) {
@@ -1355,4 +1983,74 @@ public class Server implements ChatService, UserService, SubscribeService, LogSe
             return false;
         }
     }
+
+    // MonitorService implementation
+
+    @Override
+    public Map<String, Long> getServerMetrics() throws RemoteException {
+        Map<String, Long> metrics = new TreeMap<>();
+
+        metrics.put("observers.registered", (long) observers.size());
+        metrics.put("observers.delivered", dispatcher.getDeliveredCount());
+        metrics.put("observers.dropped", dispatcher.getDroppedCount());
+        metrics.put("observers.collapsed", dispatcher.getCollapsedCount());
+        metrics.put("observers.degraded", (long) dispatcher.getDegradedObserverCount());
+        metrics.put("observers.degradations", dispatcher.getDegradationCount());
+        metrics.put("observers.evictions", dispatcher.getEvictionCount());
+        metrics.put("observers.awaitingResync", (long) evictedObservers.size());
+        dispatcher.getLagMillis().forEach((username, lag) -> metrics.put("observer." + username + ".lagMs", lag));
+        dispatcher.getLastLatencyMillis().forEach((username, latency) ->
+                metrics.put("observer." + username + ".lastLatencyMs", latency));
+
+        metrics.put("messages.written", messageWriter.getMessagesWritten());
+        metrics.put("messages.batches", messageWriter.getBatchesCommitted());
+        metrics.put("messages.failed", messageWriter.getFailedWrites());
+        metrics.put("messages.rejected", messageWriter.getRejectedWrites());
+        metrics.put("messages.cancelled", messageWriter.getCancelledWrites());
+        metrics.put("messages.queueDepth", (long) messageWriter.getQueueDepth());
+
+        metrics.put("audit.appended", auditLog.getAppendedCount());
+        metrics.put("audit.written", auditLog.getWrittenCount());
+        metrics.put("audit.batches", auditLog.getBatchCount());
+        metrics.put("audit.failed", auditLog.getFailedCount());
+        metrics.put("audit.dropped", auditLog.getDroppedCount());
+        metrics.put("audit.spilled", auditLog.getSpilledCount());
+        metrics.put("audit.replayed", auditLog.getReplayedCount());
+        metrics.put("audit.blocked", auditLog.getBlockedCount());
+        metrics.put("audit.queueDepth", (long) auditLog.getQueueDepth());
+
+        bootTimer.getPhaseMillis().forEach((phase, millis) -> metrics.put("boot." + phase + "Ms", millis));
+
+        metrics.put("userDirectory.size", (long) userDirectory.size());
+        metrics.put("userDirectory.hits", userDirectory.getHitCount());
+        metrics.put("userDirectory.misses", userDirectory.getMissCount());
+        metrics.put("userDirectory.evictions", userDirectory.getEvictionCount());
+
+        metrics.put("timeline.chats", (long) membershipTimeline.size());
+        metrics.put("timeline.evictions", membershipTimeline.getEvictionCount());
+        metrics.put("archive.queued", (long) chatArchiver.getQueueDepth());
+        metrics.put("archive.active", (long) chatArchiver.getActiveCount());
+        metrics.put("archive.completed", chatArchiver.getCompletedCount());
+        metrics.put("archive.failed", chatArchiver.getFailedCount());
+        metrics.put("archive.deferred", chatArchiver.getDeferredCount());
+        metrics.put("archive.messagesWritten", chatArchiver.getMessagesWritten());
+        metrics.put("archive.messagesPerSecond", chatArchiver.getMessagesPerSecond());
+        metrics.put("presence.online", (long) presence.getOnlineCount());
+        metrics.put("presence.version", presence.getVersion());
+        metrics.put("presence.broadcasts", presenceBroadcaster.getBroadcastCount());
+        metrics.put("presence.changesBroadcast", presenceBroadcaster.getChangesBroadcastCount());
+
+        HibernateUtil.getPoolMetrics().forEach((name, value) -> metrics.put("db.pool." + name, value));
+        HibernateUtil.getCacheMetrics().forEach((name, value) -> metrics.put("db.cache." + name, value));
+
+        GatewayServer gateway = this.gateway;
+        if (gateway != null) {
+            metrics.put("gateway.connections", (long) gateway.getConnectionCount());
+            metrics.put("gateway.accepted", gateway.getAcceptedCount());
+            metrics.put("gateway.requests", gateway.getRequestCount());
+            metrics.put("gateway.rejected", gateway.getRejectedCount());
+        }
+
+        return metrics;
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.gateway.GatewayProtocol;
+
+/**
+ * Tunable server settings.
+ * Each value can be overridden with a system property, e.g. -Dchat.observer.queueCapacity=512.
+ */
+public final class ServerConfig {
+
+    /** Maximum number of pending callbacks queued for a single observer. */
+    public static final int OBSERVER_QUEUE_CAPACITY = Integer.getInteger("chat.observer.queueCapacity", 1024);
+
+    /** How far behind an observer may fall before its callbacks are replaced by one resync request. */
+    public static final long OBSERVER_DEGRADE_LAG_MS = Long.getLong("chat.observer.degradeLagMs", 5_000L);
+
+    /** How far behind an observer may fall before it is evicted. */
+    public static final long OBSERVER_EVICT_LAG_MS = Long.getLong("chat.observer.evictLagMs", 30_000L);
+
+    /** How long a callback may wait for a client's reply before it fails; applied as the RMI response timeout. */
+    public static final long OBSERVER_CALLBACK_TIMEOUT_MS =
+            Long.getLong("chat.observer.callbackTimeoutMs", OBSERVER_EVICT_LAG_MS);
+
+    /** Maximum number of messages written in one group commit. */
+    public static final int MESSAGE_BATCH_SIZE = Integer.getInteger("chat.message.batchSize", 64);
+
+    /** How long the message writer waits for more messages before committing a batch. */
+    public static final long MESSAGE_BATCH_DELAY_MS = Long.getLong("chat.message.batchDelayMs", 5L);
+
+    /** Number of messages that may wait for the message writer; senders beyond it are turned away at once. */
+    public static final int MESSAGE_QUEUE_CAPACITY = Integer.getInteger("chat.message.queueCapacity", 4096);
+
+    /** How long a sender waits for its message batch to be committed. */
+    public static final long MESSAGE_WRITE_TIMEOUT_MS = Long.getLong("chat.message.writeTimeoutMs", 10_000L);
+
+    /** Maximum number of users kept in the in-memory user directory. */
+    public static final int USER_CACHE_MAX_SIZE = Integer.getInteger("chat.userCache.maxSize", 10_000);
+
+    /** Largest page of message history a client can request in one call. */
+    public static final int HISTORY_MAX_PAGE_SIZE = Integer.getInteger("chat.history.maxPageSize", 200);
+
+    /** Number of presence changes kept so clients can catch up with a delta instead of a full list. */
+    public static final int PRESENCE_CHANGE_LOG_SIZE = Integer.getInteger("chat.presence.changeLogSize", 4096);
+
+    /** How long presence changes are collected before they are pushed to observers. */
+    public static final long PRESENCE_BROADCAST_WINDOW_MS = Long.getLong("chat.presence.broadcastWindowMs", 250L);
+
+    /** Also export every service with compressed connections, under its name plus ".compressed"; off by default. */
+    public static final boolean RMI_COMPRESSED_TRANSPORT =
+            Boolean.parseBoolean(System.getProperty("chat.rmi.compressedTransport", "false"));
+
+    /** Port of the socket gateway, usually {@link GatewayProtocol#DEFAULT_PORT}; 0 or less (the default) disables it. */
+    public static final int GATEWAY_PORT = Integer.getInteger("chat.gateway.port", 0);
+
+    /** Number of gateway selector threads, which do all socket reads and writes. */
+    public static final int GATEWAY_SELECTOR_THREADS =
+            Integer.getInteger("chat.gateway.selectorThreads", Runtime.getRuntime().availableProcessors());
+
+    /** Number of gateway threads running requests; they may block on the database. */
+    public static final int GATEWAY_WORKER_THREADS = Integer.getInteger("chat.gateway.workerThreads", 64);
+
+    /** Largest request a gateway client may send. */
+    public static final int GATEWAY_MAX_FRAME_BYTES = Integer.getInteger("chat.gateway.maxFrameBytes", 1024 * 1024);
+
+    /** How many bytes may wait to be written to a gateway client before it is disconnected. */
+    public static final long GATEWAY_MAX_PENDING_BYTES = Long.getLong("chat.gateway.maxPendingBytes", 4L * 1024 * 1024);
+
+    /** How many requests of one gateway client may wait before new ones are refused. */
+    public static final int GATEWAY_MAX_PENDING_REQUESTS = Integer.getInteger("chat.gateway.maxPendingRequests", 256);
+
+    /** Skip the startup probes and run independent startup steps in parallel. */
+    public static final boolean FAST_BOOT = Boolean.getBoolean("chat.server.fastBoot");
+
+    /** Number of threads running startup steps in fast-boot mode. */
+    public static final int BOOT_THREADS = Integer.getInteger("chat.server.bootThreads", 4);
+
+    /** Apply pending schema migrations, such as new indexes, when the server starts. */
+    public static final boolean SCHEMA_MIGRATION =
+            Boolean.parseBoolean(System.getProperty("chat.db.migrate", "true"));
+
+    /** Check the query plans of the server's queries at startup and print the report. */
+    public static final boolean VERIFY_QUERY_PLANS = Boolean.getBoolean("chat.db.verifyQueryPlans");
+
+    /** Largest page of audit log entries returned to clients. */
+    public static final int LOG_MAX_PAGE_SIZE = Integer.getInteger("chat.log.maxPageSize", 500);
+
+    /** Matching audit log entries are counted up to this number; beyond it the total is a lower bound. */
+    public static final int LOG_COUNT_CAP = Integer.getInteger("chat.log.countCap", 10_000);
+
+    /** Largest page of users or groups returned to the admin tables. */
+    public static final int ADMIN_MAX_PAGE_SIZE = Integer.getInteger("chat.admin.maxPageSize", 500);
+
+    /** Number of audit log entries buffered in memory before the overflow mode applies. */
+    public static final int AUDIT_BUFFER_CAPACITY = Integer.getInteger("chat.audit.bufferCapacity", 8192);
+
+    /** Maximum number of audit log entries written in one transaction. */
+    public static final int AUDIT_BATCH_SIZE = Integer.getInteger("chat.audit.batchSize", 256);
+
+    /** How long the audit writer waits for more entries before writing a partial batch. */
+    public static final long AUDIT_FLUSH_INTERVAL_MS = Long.getLong("chat.audit.flushIntervalMs", 200L);
+
+    /** What happens to audit log entries when the buffer is full: BLOCK, DROP or SPILL. */
+    public static final AuditLogAppender.OverflowMode AUDIT_OVERFLOW_MODE = AuditLogAppender.OverflowMode.valueOf(
+            System.getProperty("chat.audit.overflowMode", "SPILL").toUpperCase());
+
+    /** File audit log entries overflow to in SPILL mode. */
+    public static final String AUDIT_SPILL_FILE = System.getProperty("chat.audit.spillFile", "logs/audit-spill.bin");
+
+    /** Number of chats whose join, leave and stop times are kept in memory. */
+    public static final int TIMELINE_MAX_CHATS = Integer.getInteger("chat.timeline.maxChats", 10_000);
+
+    /** Number of messages read from the database at a time when a chat is archived. */
+    public static final int ARCHIVE_FETCH_SIZE = Integer.getInteger("chat.archive.fetchSize", 1000);
+
+    /** Size of the buffer chat transcripts are written through. */
+    public static final int ARCHIVE_BUFFER_BYTES = Integer.getInteger("chat.archive.bufferBytes", 1 << 20);
+
+    /** Number of chat transcripts written at the same time. */
+    public static final int ARCHIVE_THREADS = Integer.getInteger("chat.archive.threads", 2);
+
+    /** Number of chat archives that can wait for a thread; beyond it they wait in the database. */
+    public static final int ARCHIVE_QUEUE_CAPACITY = Integer.getInteger("chat.archive.queueCapacity", 100);
+
+    private ServerConfig() {
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatUser;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of users keyed by username.
+ * Lookups are lock-free; when the cache grows past its limit, entries that have not
+ * been read since the last sweep are evicted first (a CLOCK-style approximation of LRU).
+ * The directory keeps its own copy of every user and hands out copies, so a caller that
+ * modifies a user changes nothing here until it stores the user again after its commit.
+ */
+public class UserDirectory {
+
+    private final Map<String, Entry> users = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final Object evictionLock = new Object();
+    // Incremented before every store or invalidation, so a load that overlapped one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a directory.
+     *
+     * @param maxSize The maximum number of users kept in memory
+     */
+    public UserDirectory(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get a user, loading it with the given loader on a cache miss.
+     *
+     * @param username The username
+     * @param loader Loads the user from the database; may return null
+     * @return A copy of the user, or null if not found
+     */
+    public ChatUser get(String username, Function<String, ChatUser> loader) {
+        if (username == null) {
+            return null;
+        }
+        Entry entry = users.get(username);
+        if (entry != null) {
+            hits.incrementAndGet();
+            entry.referenced = true;
+            return copyOf(entry.user);
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        ChatUser user = loader.apply(username);
+        if (user != null) {
+            Entry loaded = new Entry(user);
+            // Keep a newer value stored while the loader was running, and cache nothing if the
+            // user was stored or invalidated meanwhile: the loaded value may predate that change
+            users.compute(username, (key, existing) ->
+                    existing != null || generation.get() != loadGeneration ? existing : loaded);
+            evictIfNeeded();
+            return copyOf(loaded.user);
+        }
+        return null;
+    }
+
+    /**
+     * Store or replace a user. Call only once the user's changes are committed.
+     *
+     * @param user The user; the directory stores a copy
+     */
+    public void put(ChatUser user) {
+        if (user == null || user.getUsername() == null) {
+            return;
+        }
+        Entry entry = new Entry(user);
+        generation.incrementAndGet();
+        users.put(user.getUsername(), entry);
+        evictIfNeeded();
+    }
+
+    /**
+     * Load a set of users, e.g. at startup. Stops once the directory is full.
+     *
+     * @param loaded The users to add
+     */
+    public void putAll(Collection<ChatUser> loaded) {
+        for (ChatUser user : loaded) {
+            if (users.size() >= maxSize) {
+                break;
+            }
+            users.putIfAbsent(user.getUsername(), new Entry(user));
+        }
+    }
+
+    /**
+     * Remove a user from the directory.
+     *
+     * @param username The username
+     */
+    public void invalidate(String username) {
+        if (username != null) {
+            generation.incrementAndGet();
+            users.remove(username);
+        }
+    }
+
+    /**
+     * @return The number of users currently cached
+     */
+    public int size() {
+        return users.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void evictIfNeeded() {
+        if (users.size() <= maxSize) {
+            return;
+        }
+        synchronized (evictionLock) {
+            // Sweep until enough space is free; recently read entries get a second chance
+            while (users.size() > maxSize) {
+                Iterator<Entry> iterator = users.values().iterator();
+                boolean removed = false;
+                while (iterator.hasNext() && users.size() > maxSize) {
+                    Entry entry = iterator.next();
+                    if (entry.referenced) {
+                        entry.referenced = false;
+                    } else {
+                        iterator.remove();
+                        evictions.incrementAndGet();
+                        removed = true;
+                    }
+                }
+                if (!removed && users.isEmpty()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static ChatUser copyOf(ChatUser user) {
+        ChatUser copy = new ChatUser(user.getUsername(), user.getPassword(), user.getEmail(),
+                user.getNickName(), user.getProfilePicture(), user.isAdmin());
+        copy.setId(user.getId());
+        copy.setOnline(user.isOnline());
+        return copy;
+    }
+
+    private static final class Entry {
+        // Never handed out, so it cannot change once stored
+        private final ChatUser user;
+        private volatile boolean referenced;
+
+        Entry(ChatUser user) {
+            this.user = copyOf(user);
+        }
+    }
+}
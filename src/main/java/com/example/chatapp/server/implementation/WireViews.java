@@ -0,0 +1,71 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatGrp;
+import com.example.chatapp.domain.ChatMsg;
+import com.example.chatapp.domain.ChatUser;
+import com.example.chatapp.rmi.dto.GroupView;
+import com.example.chatapp.rmi.dto.MessageList;
+import com.example.chatapp.rmi.dto.MessageView;
+import com.example.chatapp.rmi.dto.UserView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Converts entities into the compact DTOs sent to clients.
+ */
+public final class WireViews {
+
+    private WireViews() {
+    }
+
+    /**
+     * @param message A message entity
+     * @return The message's compact view
+     */
+    public static MessageView toView(ChatMsg message) {
+        return new MessageView(
+                message.getId() != null ? message.getId() : 0L,
+                message.getPreviousId(),
+                message.getSender() != null ? message.getSender().getUsername() : null,
+                message.getReceiver() != null ? message.getReceiver().getUsername() : null,
+                message.getGroup() != null ? message.getGroup().getName() : null,
+                message.getMessage(),
+                message.getSentTime() != null ? message.getSentTime().getTime() : 0L);
+    }
+
+    /**
+     * @param messages Message entities
+     * @return The messages' compact views, in the same order
+     */
+    public static MessageList toMessageList(List<ChatMsg> messages) {
+        List<MessageView> views = new ArrayList<>(messages.size());
+        for (ChatMsg message : messages) {
+            views.add(toView(message));
+        }
+        return new MessageList(views);
+    }
+
+    /**
+     * @param user A user entity
+     * @param online True if the user is online
+     * @return The user's compact view
+     */
+    public static UserView toView(ChatUser user, boolean online) {
+        return new UserView(user.getId() != null ? user.getId() : 0L, user.getUsername(),
+                user.getNickName(), user.getProfilePicture(), online);
+    }
+
+    /**
+     * @param group A group entity
+     * @param members The usernames of the group's members
+     * @return The group's compact view
+     */
+    public static GroupView toView(ChatGrp group, Collection<String> members) {
+        return new GroupView(group.getId() != null ? group.getId() : 0L, group.getName(), group.getDescription(),
+                group.getCreator() != null ? group.getCreator().getUsername() : null,
+                group.getCreatedDate() != null ? group.getCreatedDate().getTime() : 0L,
+                new ArrayList<>(members));
+    }
+}
@@ -2,8 +2,8 @@ package com.example.chatapp.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Date;
 import java.util.List;
 
@@ -27,37 +27,38 @@ public class FileWriter {
      * @throws IOException If an error occurs while writing to the file
      */
     public static String saveChatToFile(String chatName, String chatId, List<ChatMsg> messages, Date stopTime) throws IOException {
-        // Create directory if it doesn't exist
-        File dir = new File(BASE_DIR);
-        if (!dir.exists()) {
-            dir.mkdirs();
-        }
-
-        // Create file path
-        String fileName = chatName + "_" + chatId + ".txt";
-        String filePath = BASE_DIR + File.separator + fileName;
-        File file = new File(filePath);
+        Path file = transcriptPath(chatName, chatId);
 
         // Write messages to file
-        try (PrintWriter writer = new PrintWriter(new java.io.FileWriter(file))) {
-            // Write chat header
-            writer.println("Chat: " + chatName);
-            writer.println("Chat ID: " + chatId);
-            writer.println("----------------------------------------");
-
-            // Write all messages
+        try (TranscriptWriter writer = new TranscriptWriter(file, TranscriptWriter.DEFAULT_BUFFER_BYTES)) {
+            writer.writeHeader(chatName, chatId);
             for (ChatMsg msg : messages) {
                 String sender = msg.getSender().getNickName() != null ?
                         msg.getSender().getNickName() : msg.getSender().getUsername();
-                writer.println(sender + ": " + msg.getMessage() + " : " +
-                        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(msg.getSentTime()));
+                writer.writeMessage(sender, msg.getMessage(), msg.getSentTime());
             }
+            writer.writeFooter(stopTime);
+        }
+
+        return file.toString();
+    }
 
-            // Write chat stop time
-            writer.println("----------------------------------------");
-            writer.println("Chat stopped at: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(stopTime));
+    /**
+     * Gets the file a chat's transcript is saved to, creating its directory if needed
+     *
+     * @param chatName The name of the chat
+     * @param chatId The unique ID of the chat
+     * @return The path of the transcript file
+     */
+    public static Path transcriptPath(String chatName, String chatId) {
+        // Create directory if it doesn't exist
+        File dir = new File(BASE_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
         }
 
-        return filePath;
+        // Create file path
+        String fileName = chatName + "_" + chatId + ".txt";
+        return Paths.get(BASE_DIR, fileName);
     }
-}
\ No newline at end of file
+}
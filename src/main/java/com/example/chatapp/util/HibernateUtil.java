@@ -1,34 +1,105 @@
 package com.example.chatapp.util;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * Utility class for Hibernate operations.
- * Provides safe access to the session factory and sessions.
+ * Owns the application's single session factory, the connection pool behind it and its
+ * second-level cache. Connection settings come from hibernate.cfg.xml; the pool is tuned
+ * with the chat.db.pool.* system properties and the cache with chat.db.cache.*.
  */
 public class HibernateUtil {
 
+    /** Connections kept open even when idle. */
+    private static final int POOL_MIN_IDLE = Integer.getInteger("chat.db.pool.minIdle", 5);
+
+    /** Upper bound on open connections. */
+    private static final int POOL_MAX_SIZE = Integer.getInteger("chat.db.pool.maxSize", 20);
+
+    /** How long a caller waits for a connection before failing. */
+    private static final long POOL_CONNECTION_TIMEOUT_MS = Long.getLong("chat.db.pool.connectionTimeoutMs", 10_000L);
+
+    /** How long an idle connection above the minimum is kept. */
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("chat.db.pool.idleTimeoutMs", 600_000L);
+
+    /** Connections are replaced after this long, before the server's wait_timeout closes them. */
+    private static final long POOL_MAX_LIFETIME_MS = Long.getLong("chat.db.pool.maxLifetimeMs", 1_800_000L);
+
+    /** How long checking that a connection is alive may take. */
+    private static final long POOL_VALIDATION_TIMEOUT_MS = Long.getLong("chat.db.pool.validationTimeoutMs", 3_000L);
+
+    /** A connection kept longer than this is reported as a possible leak; 0 disables the check. */
+    private static final long POOL_LEAK_DETECTION_MS = Long.getLong("chat.db.pool.leakDetectionMs", 60_000L);
+
+    /** Prepared statements cached per connection by the driver; 0 disables the cache. */
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("chat.db.statementCacheSize", 250);
+
     private static SessionFactory sessionFactory;
+    private static HikariDataSource dataSource;
+    private static final PoolMetricsTracker poolMetrics = new PoolMetricsTracker();
+
+    /**
+     * Build the session factory, if it has not been built yet.
+     *
+     * @param settings Hibernate settings applied on top of hibernate.cfg.xml
+     * @return The session factory
+     * @throws RuntimeException If the factory cannot be built
+     */
+    public static synchronized SessionFactory initialize(Map<String, String> settings) {
+        if (sessionFactory != null) {
+            return sessionFactory;
+        }
+
+        // Load Hibernate configuration from hibernate.cfg.xml
+        Configuration configuration = new Configuration().configure();
+        // Entities with table-generated ids take them from pooled blocks (the stored value is the
+        // next free id), so their inserts can be grouped per table and sent as JDBC batches
+        configuration.setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        configuration.setProperty("hibernate.id.generator.stored_last_used", "false");
+        configuration.setProperty("hibernate.order_inserts", "true");
+        configuration.setProperty("hibernate.order_updates", "true");
+        settings.forEach(configuration::setProperty);
+        System.out.println("Hibernate connection URL: " + configuration.getProperty("hibernate.connection.url"));
+        System.out.println("Hibernate dialect: " + configuration.getProperty("hibernate.dialect"));
 
-    static {
+        SecondLevelCache.configure(configuration);
+        HikariDataSource pool = createPool(configuration);
         try {
-            // Load Hibernate configuration from hibernate.cfg.xml
-            Configuration configuration = new Configuration().configure();
+            // Hibernate takes connections from the pool instead of opening its own
+            configuration.getProperties().put("hibernate.connection.datasource", pool);
             sessionFactory = configuration.buildSessionFactory();
-        } catch (Exception e) {
-            System.err.println("Error initializing Hibernate session factory: " + e.getMessage());
-            e.printStackTrace();
+            dataSource = pool;
+            return sessionFactory;
+        } catch (RuntimeException e) {
+            pool.close();
+            SecondLevelCache.shutdown();
+            throw e;
         }
     }
 
     /**
-     * Get the session factory.
+     * Get the session factory, building it with the default settings if needed.
      *
-     * @return The session factory
+     * @return The session factory, or null if it could not be built
      */
-    public static SessionFactory getSessionFactory() {
+    public static synchronized SessionFactory getSessionFactory() {
+        if (sessionFactory == null) {
+            try {
+                initialize(Collections.emptyMap());
+            } catch (Exception e) {
+                System.err.println("Error initializing Hibernate session factory: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
         return sessionFactory;
     }
 
@@ -38,12 +109,117 @@ public class HibernateUtil {
      * @return A new session, or null if the factory is not available
      */
     public static Session openSession() {
-        if (sessionFactory != null) {
-            return sessionFactory.openSession();
+        SessionFactory factory = getSessionFactory();
+        if (factory != null) {
+            return factory.openSession();
         } else {
             System.err.println("Cannot open session: session factory is null");
             return null;
         }
     }
-}
 
+    /**
+     * Estimate a table's row count from the table statistics, without scanning the table.
+     *
+     * @param session The session to query with
+     * @param table The table name
+     * @return The estimated number of rows, or -1 if there are no statistics for the table
+     */
+    public static long estimateRowCount(Session session, String table) {
+        Object estimate = session.createNativeQuery(
+                "SELECT TABLE_ROWS FROM information_schema.tables " +
+                        "WHERE table_schema = DATABASE() AND table_name = :table")
+                .setParameter("table", table)
+                .uniqueResult();
+        return estimate instanceof Number ? ((Number) estimate).longValue() : -1;
+    }
+
+    /**
+     * Get the state of the connection pool and how long callers wait for it.
+     *
+     * @return The pool metrics by name, empty if the pool has not been created
+     */
+    public static synchronized Map<String, Long> getPoolMetrics() {
+        Map<String, Long> metrics = new TreeMap<>();
+        if (dataSource == null) {
+            return metrics;
+        }
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            metrics.put("active", (long) pool.getActiveConnections());
+            metrics.put("idle", (long) pool.getIdleConnections());
+            metrics.put("total", (long) pool.getTotalConnections());
+            metrics.put("waiting", (long) pool.getThreadsAwaitingConnection());
+        }
+        metrics.put("max", (long) POOL_MAX_SIZE);
+        metrics.put("acquired", poolMetrics.getAcquiredCount());
+        metrics.put("waitMicrosAvg", poolMetrics.getAverageWaitMicros());
+        metrics.put("waitMicrosMax", poolMetrics.getMaxWaitMicros());
+        metrics.put("timeouts", poolMetrics.getTimeoutCount());
+        metrics.put("usageMsAvg", poolMetrics.getAverageUsageMillis());
+        metrics.put("usageMsMax", poolMetrics.getMaxUsageMillis());
+        metrics.put("created", poolMetrics.getCreatedCount());
+        return metrics;
+    }
+
+    /**
+     * Get the hit rates of the second-level and query cache regions.
+     *
+     * @return The cache metrics by name, empty if the cache is disabled or the factory is not built
+     */
+    public static synchronized Map<String, Long> getCacheMetrics() {
+        return SecondLevelCache.getMetrics(sessionFactory);
+    }
+
+    /**
+     * Close the session factory, its cache and the connection pool.
+     */
+    public static synchronized void shutdown() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+            sessionFactory = null;
+        }
+        SecondLevelCache.shutdown();
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+
+    private static HikariDataSource createPool(Configuration configuration) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("chat-db");
+        config.setJdbcUrl(configuration.getProperty("hibernate.connection.url"));
+        config.setUsername(configuration.getProperty("hibernate.connection.username"));
+        config.setPassword(configuration.getProperty("hibernate.connection.password"));
+        String driverClass = configuration.getProperty("hibernate.connection.driver_class");
+        if (driverClass != null) {
+            config.setDriverClassName(driverClass);
+        }
+
+        config.setMinimumIdle(Math.min(POOL_MIN_IDLE, POOL_MAX_SIZE));
+        config.setMaximumPoolSize(POOL_MAX_SIZE);
+        config.setConnectionTimeout(POOL_CONNECTION_TIMEOUT_MS);
+        config.setIdleTimeout(POOL_IDLE_TIMEOUT_MS);
+        config.setMaxLifetime(POOL_MAX_LIFETIME_MS);
+        // Connections are validated with the driver's isValid() before being handed out
+        config.setValidationTimeout(POOL_VALIDATION_TIMEOUT_MS);
+        config.setLeakDetectionThreshold(POOL_LEAK_DETECTION_MS);
+        config.setMetricsTrackerFactory(poolMetrics);
+
+        if (STATEMENT_CACHE_SIZE > 0) {
+            // MySQL Connector/J keeps its prepared statement cache per connection
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(STATEMENT_CACHE_SIZE));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        }
+        // Send JDBC batches of inserts as multi-row INSERT statements
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // Statements given a fetch size read their rows through a server-side cursor, a fetch at a time
+        config.addDataSourceProperty("useCursorFetch", "true");
+
+        System.out.println("Creating connection pool: " + POOL_MIN_IDLE + "-" + POOL_MAX_SIZE + " connections");
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.chatapp.util;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Collects how long callers wait for a pooled connection and how long they keep it.
+ * The pool's own counters only show the current state; these show whether it is too small
+ * at peak load.
+ */
+public class PoolMetricsTracker implements MetricsTrackerFactory, IMetricsTracker {
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong waitNanosTotal = new AtomicLong();
+    private final LongAccumulator waitNanosMax = new LongAccumulator(Math::max, 0L);
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong usageMillisTotal = new AtomicLong();
+    private final LongAccumulator usageMillisMax = new LongAccumulator(Math::max, 0L);
+    private final AtomicLong created = new AtomicLong();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquired.incrementAndGet();
+        waitNanosTotal.addAndGet(elapsedAcquiredNanos);
+        waitNanosMax.accumulate(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usageMillisTotal.addAndGet(elapsedBorrowedMillis);
+        usageMillisMax.accumulate(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+        created.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        // Counters stay readable after the pool is closed
+    }
+
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    /**
+     * @return The average time spent waiting for a connection, in microseconds
+     */
+    public long getAverageWaitMicros() {
+        long count = acquired.get();
+        return count == 0 ? 0L : TimeUnit.NANOSECONDS.toMicros(waitNanosTotal.get() / count);
+    }
+
+    /**
+     * @return The longest time spent waiting for a connection, in microseconds
+     */
+    public long getMaxWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(waitNanosMax.get());
+    }
+
+    /**
+     * @return The number of callers that gave up waiting for a connection
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return The average time a connection was kept before being returned, in milliseconds
+     */
+    public long getAverageUsageMillis() {
+        long count = acquired.get();
+        return count == 0 ? 0L : usageMillisTotal.get() / count;
+    }
+
+    public long getMaxUsageMillis() {
+        return usageMillisMax.get();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+}
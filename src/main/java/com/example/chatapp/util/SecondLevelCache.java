@@ -0,0 +1,181 @@
+package com.example.chatapp.util;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hibernate's second-level and query cache, kept in process with Ehcache.
+ * Users, groups, group members and subscriptions are cached as entities; the hot lookups
+ * on them are cached as queries. Each region holds a bounded number of entries that expire
+ * after a while, tuned with the chat.db.cache.* system properties.
+ */
+public class SecondLevelCache {
+
+    /** Region of cached users. */
+    public static final String USER_REGION = "chat.users";
+
+    /** Region of cached groups. */
+    public static final String GROUP_REGION = "chat.groups";
+
+    /** Region of cached group member collections. */
+    public static final String GROUP_MEMBERS_REGION = "chat.groups.members";
+
+    /** Region of cached subscriptions. */
+    public static final String SUBSCRIPTION_REGION = "chat.subscriptions";
+
+    /** Region of cached results of queries on users. */
+    public static final String USER_QUERY_REGION = "chat.query.users";
+
+    /** Region of cached results of queries on groups. */
+    public static final String GROUP_QUERY_REGION = "chat.query.groups";
+
+    /** Region of cached results of queries on subscriptions. */
+    public static final String SUBSCRIPTION_QUERY_REGION = "chat.query.subscriptions";
+
+    // Hibernate's own regions, for queries without a region and for table modification times
+    private static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+    private static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    /** Turn the second-level and query cache on or off. */
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("chat.db.cache.enabled", "true"));
+
+    /** Entries kept per entity or collection region. */
+    private static final long ENTITY_MAX_ENTRIES = Long.getLong("chat.db.cache.entityMaxEntries", 10_000L);
+
+    /** How long a cached entity or collection is kept. */
+    private static final long ENTITY_TTL_SECONDS = Long.getLong("chat.db.cache.entityTtlSeconds", 600L);
+
+    /** Entries kept per query region. */
+    private static final long QUERY_MAX_ENTRIES = Long.getLong("chat.db.cache.queryMaxEntries", 5_000L);
+
+    /** How long a cached query result is kept; results are also dropped when their tables change. */
+    private static final long QUERY_TTL_SECONDS = Long.getLong("chat.db.cache.queryTtlSeconds", 120L);
+
+    private static final String[] ENTITY_REGIONS = {USER_REGION, GROUP_REGION, GROUP_MEMBERS_REGION, SUBSCRIPTION_REGION};
+    private static final String[] QUERY_REGIONS = {USER_QUERY_REGION, GROUP_QUERY_REGION,
+            SUBSCRIPTION_QUERY_REGION, DEFAULT_QUERY_REGION};
+
+    private static CacheManager cacheManager;
+
+    private SecondLevelCache() {
+    }
+
+    /**
+     * Create the cache regions and point a configuration at them.
+     * Does nothing if the cache is disabled.
+     *
+     * @param configuration The configuration the session factory will be built from
+     */
+    public static synchronized void configure(Configuration configuration) {
+        if (!ENABLED) {
+            configuration.setProperty("hibernate.cache.use_second_level_cache", "false");
+            configuration.setProperty("hibernate.cache.use_query_cache", "false");
+            System.out.println("Second-level cache disabled");
+            return;
+        }
+
+        if (cacheManager == null) {
+            cacheManager = createCacheManager();
+        }
+        configuration.setProperty("hibernate.cache.use_second_level_cache", "true");
+        configuration.setProperty("hibernate.cache.use_query_cache", "true");
+        configuration.setProperty("hibernate.cache.region.factory_class", "jcache");
+        configuration.setProperty("hibernate.javax.cache.missing_cache_strategy", "create");
+        configuration.getProperties().put("hibernate.javax.cache.cache_manager", cacheManager);
+        // Region hit rates are read from Hibernate's statistics
+        configuration.setProperty("hibernate.generate_statistics", "true");
+        System.out.println("Second-level cache enabled: " + ENTITY_MAX_ENTRIES + " entities for "
+                + ENTITY_TTL_SECONDS + "s, " + QUERY_MAX_ENTRIES + " query results for " + QUERY_TTL_SECONDS + "s per region");
+    }
+
+    /**
+     * Get the hits, misses, puts, size and hit rate of every cache region.
+     *
+     * @param sessionFactory The session factory using the cache
+     * @return The metrics by "region.name", empty if the cache is disabled
+     */
+    public static Map<String, Long> getMetrics(SessionFactory sessionFactory) {
+        Map<String, Long> metrics = new TreeMap<>();
+        if (!ENABLED || sessionFactory == null) {
+            return metrics;
+        }
+
+        Statistics statistics = sessionFactory.getStatistics();
+        for (String region : ENTITY_REGIONS) {
+            putRegionMetrics(metrics, region, statistics.getDomainDataRegionStatistics(region));
+        }
+        for (String region : QUERY_REGIONS) {
+            putRegionMetrics(metrics, region, statistics.getQueryRegionStatistics(region));
+        }
+        metrics.put("entities.hitRatePct", hitRatePercent(
+                statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()));
+        metrics.put("queries.hitRatePct", hitRatePercent(
+                statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()));
+        return metrics;
+    }
+
+    /**
+     * Close the cache regions. Must be called after the session factory is closed.
+     */
+    public static synchronized void shutdown() {
+        if (cacheManager != null) {
+            cacheManager.close();
+            cacheManager = null;
+        }
+    }
+
+    private static CacheManager createCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        CacheManager manager = provider.getCacheManager(provider.getDefaultURI(), SecondLevelCache.class.getClassLoader());
+
+        ExpiryPolicy<Object, Object> entityExpiry = ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ENTITY_TTL_SECONDS));
+        for (String region : ENTITY_REGIONS) {
+            createRegion(manager, region, ENTITY_MAX_ENTRIES, entityExpiry);
+        }
+        ExpiryPolicy<Object, Object> queryExpiry = ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(QUERY_TTL_SECONDS));
+        for (String region : QUERY_REGIONS) {
+            createRegion(manager, region, QUERY_MAX_ENTRIES, queryExpiry);
+        }
+        // Query results are validated against these times, so they must outlive every cached query
+        createRegion(manager, TIMESTAMPS_REGION, 1_000, ExpiryPolicyBuilder.noExpiration());
+        return manager;
+    }
+
+    private static void createRegion(CacheManager manager, String region, long maxEntries, ExpiryPolicy<Object, Object> expiry) {
+        manager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(maxEntries)).withExpiry(expiry)));
+    }
+
+    private static void putRegionMetrics(Map<String, Long> metrics, String region, CacheRegionStatistics regionStatistics) {
+        if (regionStatistics == null) {
+            return;
+        }
+        metrics.put(region + ".hits", regionStatistics.getHitCount());
+        metrics.put(region + ".misses", regionStatistics.getMissCount());
+        metrics.put(region + ".puts", regionStatistics.getPutCount());
+        metrics.put(region + ".size", regionStatistics.getElementCountInMemory());
+        metrics.put(region + ".hitRatePct", hitRatePercent(regionStatistics.getHitCount(), regionStatistics.getMissCount()));
+    }
+
+    private static long hitRatePercent(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits * 100 / lookups;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.chatapp.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Writes a chat transcript to a file one message at a time, so a transcript of any length
+ * is written in constant memory. Lines are encoded as UTF-8 into one reusable buffer, which
+ * is written to a file channel each time it fills up.
+ */
+public class TranscriptWriter implements Closeable {
+
+    /** Buffer size used when none is given. */
+    public static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+
+    // Immutable, so one instance serves every writer on every thread
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final String SEPARATOR = "----------------------------------------";
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder line = new StringBuilder(256);
+    private long messageCount;
+
+    /**
+     * Create or truncate a transcript file.
+     *
+     * @param file The file
+     * @param bufferBytes The size of the write buffer
+     * @throws IOException If the file cannot be opened
+     */
+    public TranscriptWriter(Path file, int bufferBytes) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferBytes, 4096));
+    }
+
+    /**
+     * Write the lines that open a transcript.
+     *
+     * @param chatName The name of the chat
+     * @param chatId The unique ID of the chat
+     * @throws IOException If writing fails
+     */
+    public void writeHeader(String chatName, String chatId) throws IOException {
+        line.setLength(0);
+        line.append("Chat: ").append(chatName).append('\n')
+                .append("Chat ID: ").append(chatId).append('\n')
+                .append(SEPARATOR).append('\n');
+        write(line);
+    }
+
+    /**
+     * Write one message.
+     *
+     * @param sender The name shown for the sender
+     * @param message The message text
+     * @param sentTime When the message was sent
+     * @throws IOException If writing fails
+     */
+    public void writeMessage(String sender, String message, Date sentTime) throws IOException {
+        line.setLength(0);
+        line.append(sender).append(": ").append(message).append(" : ");
+        if (sentTime != null) {
+            TIME_FORMAT.formatTo(sentTime.toInstant(), line);
+        }
+        line.append('\n');
+        write(line);
+        messageCount++;
+    }
+
+    /**
+     * Write the lines that close a transcript.
+     *
+     * @param stopTime When the chat stopped
+     * @throws IOException If writing fails
+     */
+    public void writeFooter(Date stopTime) throws IOException {
+        line.setLength(0);
+        line.append(SEPARATOR).append('\n').append("Chat stopped at: ");
+        TIME_FORMAT.formatTo(stopTime.toInstant(), line);
+        line.append('\n');
+        write(line);
+    }
+
+    /**
+     * @return The number of messages written so far
+     */
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Write what is left in the buffer and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encode text into the buffer, writing the buffer out whenever it is full.
+     * Each call ends with a line break, so no character is ever split between calls.
+     */
+    private void write(CharSequence text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
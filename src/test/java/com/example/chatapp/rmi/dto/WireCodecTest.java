@@ -0,0 +1,162 @@
+package com.example.chatapp.rmi.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireCodecTest {
+
+    @Test
+    void varLongRoundTripsAcrossByteBoundaries() throws IOException {
+        long[] values = {0L, 1L, 127L, 128L, 16_383L, 16_384L, Integer.MAX_VALUE, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+        for (long value : values) {
+            byte[] bytes = write(out -> WireCodec.writeVarLong(out, value));
+            assertEquals(value, WireCodec.readVarLong(in(bytes)), "value " + value);
+        }
+        assertEquals(1, write(out -> WireCodec.writeVarLong(out, 127L)).length);
+        assertEquals(2, write(out -> WireCodec.writeVarLong(out, 128L)).length);
+        assertEquals(10, write(out -> WireCodec.writeVarLong(out, -1L)).length);
+    }
+
+    @Test
+    void zigzagKeepsSmallNegativeNumbersSmall() throws IOException {
+        long[] values = {0L, -1L, 1L, -64L, 63L, -65L, Long.MIN_VALUE, Long.MAX_VALUE};
+        for (long value : values) {
+            byte[] bytes = write(out -> WireCodec.writeSignedVarLong(out, value));
+            assertEquals(value, WireCodec.readSignedVarLong(in(bytes)), "value " + value);
+        }
+        assertEquals(1, write(out -> WireCodec.writeSignedVarLong(out, -64L)).length);
+        assertEquals(2, write(out -> WireCodec.writeSignedVarLong(out, -65L)).length);
+    }
+
+    @Test
+    void overlongVarLongIsRejected() {
+        byte[] bytes = new byte[11];
+        Arrays.fill(bytes, (byte) 0x80);
+        assertThrows(StreamCorruptedException.class, () -> WireCodec.readVarLong(in(bytes)));
+    }
+
+    @Test
+    void stringsRoundTripIncludingEmptyAndNonAscii() throws IOException {
+        for (String value : new String[]{"", "hello", "grüß dich ☺", "x".repeat(20_000)}) {
+            byte[] bytes = write(out -> WireCodec.writeString(out, value));
+            assertEquals(value, WireCodec.readString(in(bytes)));
+        }
+        byte[] nullBytes = write(out -> WireCodec.writeNullableString(out, null));
+        assertNull(WireCodec.readNullableString(in(nullBytes)));
+    }
+
+    @Test
+    void negativeLengthIsRejected() throws IOException {
+        byte[] bytes = write(out -> WireCodec.writeVarLong(out, -5L));
+        assertThrows(StreamCorruptedException.class, () -> WireCodec.readString(in(bytes)));
+    }
+
+    @Test
+    void lengthLongerThanTheInputFailsWithoutAllocatingIt() throws IOException {
+        // Claims a string of almost 2 GB but carries only a few bytes
+        byte[] bytes = write(out -> {
+            WireCodec.writeVarLong(out, Integer.MAX_VALUE - 8L);
+            out.write(new byte[]{'a', 'b', 'c'});
+        });
+        assertThrows(EOFException.class, () -> WireCodec.readString(in(bytes)));
+    }
+
+    @Test
+    void messageListSharesNamesAndRoundTrips() throws IOException {
+        MessageList list = new MessageList(List.of(
+                new MessageView(100L, null, "alice", "bob", null, "hi", 1_000L),
+                new MessageView(101L, 100L, "bob", "alice", null, "hello", 1_500L),
+                new MessageView(90L, 85L, "alice", null, "team", "earlier id", 900L)));
+
+        byte[] bytes = write(out -> WireCodec.writeMessageList(out, list));
+        MessageList read = WireCodec.readMessageList(in(bytes));
+
+        assertEquals(list, read);
+        // Names are written once and interned when read
+        assertSame(read.messages().get(0).sender(), read.messages().get(2).sender());
+        int occurrences = countOccurrences(bytes, "alice".getBytes());
+        assertEquals(1, occurrences);
+    }
+
+    @Test
+    void groupsAndUsersRoundTrip() throws IOException {
+        List<GroupView> groups = List.of(
+                new GroupView(1L, "team", "Team chat", "alice", 5_000L, List.of("alice", "bob")),
+                new GroupView(2L, "empty", null, "bob", 6_000L, List.of()));
+        assertEquals(groups, WireCodec.readGroups(in(write(out -> WireCodec.writeGroups(out, groups)))));
+
+        List<UserView> users = List.of(
+                new UserView(1L, "alice", "Al", null, true),
+                new UserView(2L, "bob", null, "avatars/bob.png", false));
+        assertEquals(users, WireCodec.readUsers(in(write(out -> WireCodec.writeUsers(out, users)))));
+    }
+
+    @Test
+    void presenceDeltaRoundTrips() throws IOException {
+        PresenceDelta delta = new PresenceDelta(-1L, 7L, true,
+                List.of(new PresenceSnapshot("alice", "Al", null, 1_000L)), List.of("bob"));
+
+        PresenceDelta read = WireCodec.readPresenceDelta(in(write(out -> WireCodec.writePresenceDelta(out, delta))));
+
+        assertEquals(-1L, read.getSinceVersion());
+        assertEquals(7L, read.getVersion());
+        assertTrue(read.isFull());
+        assertEquals(1, read.getOnline().size());
+        assertEquals("alice", read.getOnline().get(0).getUsername());
+        assertEquals("Al", read.getOnline().get(0).getNickName());
+        assertNull(read.getOnline().get(0).getAvatarKey());
+        assertEquals(1_000L, read.getOnline().get(0).getSinceMillis());
+        assertEquals(List.of("bob"), read.getOffline());
+    }
+
+    @Test
+    void nameReferenceAheadOfTheTableIsRejected() throws IOException {
+        byte[] bytes = write(out -> {
+            WireCodec.writeVarLong(out, 1L);
+            WireCodec.writeVarLong(out, 1L);
+            WireCodec.writeVarLong(out, 5L);
+        });
+        assertThrows(StreamCorruptedException.class, () -> WireCodec.readUsers(in(bytes)));
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] write(Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream in(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static int countOccurrences(byte[] haystack, byte[] needle) {
+        int count = 0;
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            if (Arrays.equals(haystack, i, i + needle.length, needle, 0, needle.length)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatRecord;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.chatapp.server.implementation.TestProxies.proxy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatArchiverTest {
+
+    // The chat_records table: status by record id
+    private final Map<Long, ChatRecord.Status> statuses = new TreeMap<>();
+    private final List<String> written = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Map<String, CountDownLatch> started = new ConcurrentHashMap<>();
+
+    @Test
+    void jobsThatDoNotFitAreDeferredAndResumedFromTheDatabase() throws Exception {
+        for (long id = 1; id <= 5; id++) {
+            statuses.put(id, ChatRecord.Status.PENDING);
+        }
+        started.put("chat1", new CountDownLatch(1));
+        ChatArchiver archiver = new ChatArchiver(sessionFactory(), this::write, 1, 1);
+
+        // One job runs, one waits in the queue, the rest find it full
+        archiver.submit(record(1L));
+        assertTrue(started.get("chat1").await(5, TimeUnit.SECONDS));
+        archiver.submit(record(2L));
+        archiver.submit(record(3L));
+        archiver.submit(record(4L));
+        archiver.submit(record(5L));
+        assertEquals(3L, archiver.getDeferredCount());
+
+        release.countDown();
+        awaitIdle();
+        archiver.shutdown();
+
+        assertEquals(5L, archiver.getCompletedCount());
+        assertEquals(List.of("chat1", "chat2", "chat3", "chat4", "chat5"), writtenInOrder());
+        for (ChatRecord.Status status : snapshot().values()) {
+            assertEquals(ChatRecord.Status.DONE, status);
+        }
+    }
+
+    @Test
+    void resumeQueuesWhatAPreviousRunLeftUnfinished() throws Exception {
+        statuses.put(1L, ChatRecord.Status.DONE);
+        statuses.put(2L, ChatRecord.Status.WRITING);
+        statuses.put(3L, ChatRecord.Status.PENDING);
+        statuses.put(4L, ChatRecord.Status.FAILED);
+        release.countDown();
+        ChatArchiver archiver = new ChatArchiver(sessionFactory(), this::write, 1, 10);
+
+        assertEquals(2, archiver.resumePending());
+        awaitIdle();
+        archiver.shutdown();
+
+        assertEquals(List.of("chat2", "chat3"), writtenInOrder());
+        assertEquals(ChatRecord.Status.FAILED, snapshot().get(4L));
+    }
+
+    @Test
+    void failedArchiveIsMarkedFailed() throws Exception {
+        statuses.put(1L, ChatRecord.Status.PENDING);
+        ChatArchiver archiver = new ChatArchiver(sessionFactory(), (chatName, chatId, stopTime) -> {
+            throw new IOException("disk full");
+        }, 1, 1);
+
+        archiver.submit(record(1L));
+        archiver.shutdown();
+
+        assertEquals(1L, archiver.getFailedCount());
+        assertEquals(ChatRecord.Status.FAILED, snapshot().get(1L));
+    }
+
+    private long write(String chatName, String chatId, Date stopTime) throws IOException {
+        CountDownLatch start = started.get(chatName);
+        if (start != null) {
+            start.countDown();
+        }
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        synchronized (written) {
+            written.add(chatName);
+        }
+        return 1L;
+    }
+
+    private List<String> writtenInOrder() {
+        synchronized (written) {
+            return new ArrayList<>(written);
+        }
+    }
+
+    private Map<Long, ChatRecord.Status> snapshot() {
+        synchronized (statuses) {
+            return new TreeMap<>(statuses);
+        }
+    }
+
+    /**
+     * Wait until no record is PENDING or WRITING any more, or five seconds have passed.
+     */
+    private void awaitIdle() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Map<Long, ChatRecord.Status> current = snapshot();
+            boolean busy = false;
+            for (ChatRecord.Status status : current.values()) {
+                busy |= status == ChatRecord.Status.PENDING || status == ChatRecord.Status.WRITING;
+            }
+            if (!busy) {
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    private static ChatRecord record(long id) {
+        ChatRecord record = new ChatRecord("id" + id, "chat" + id, null, new Date(id));
+        record.setId(id);
+        return record;
+    }
+
+    /**
+     * A session factory over {@link #statuses} that answers the two queries the archiver runs.
+     */
+    private SessionFactory sessionFactory() {
+        return proxy(SessionFactory.class, (method, args) ->
+                method.equals("openSession") ? session() : null);
+    }
+
+    private Session session() {
+        Transaction transaction = proxy(Transaction.class, (method, args) -> method.equals("isActive") ? false : null);
+        return proxy(Session.class, (method, args) -> {
+            switch (method) {
+                case "beginTransaction":
+                    return transaction;
+                case "createQuery":
+                    return query();
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private Query<?> query() {
+        Map<String, Object> parameters = new ConcurrentHashMap<>();
+        int[] maxResults = {Integer.MAX_VALUE};
+        Object[] self = new Object[1];
+        self[0] = proxy(Query.class, (method, args) -> {
+            switch (method) {
+                case "setParameter":
+                    parameters.put((String) args[0], args[1]);
+                    return self[0];
+                case "setMaxResults":
+                    maxResults[0] = (Integer) args[0];
+                    return self[0];
+                case "executeUpdate":
+                    synchronized (statuses) {
+                        statuses.put((Long) parameters.get("id"), (ChatRecord.Status) parameters.get("status"));
+                    }
+                    return 1;
+                case "list":
+                    List<Object[]> rows = new ArrayList<>();
+                    for (Map.Entry<Long, ChatRecord.Status> entry : snapshot().entrySet()) {
+                        if (rows.size() < maxResults[0] && (entry.getValue() == parameters.get("pending")
+                                || entry.getValue() == parameters.get("writing"))) {
+                            ChatRecord record = record(entry.getKey());
+                            rows.add(new Object[]{record.getId(), record.getChatName(), record.getChatId(),
+                                    record.getStopTime()});
+                        }
+                    }
+                    return rows;
+                default:
+                    return null;
+            }
+        });
+        return (Query<?>) self[0];
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.gateway.FrameBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GatewayConnectionTest {
+
+    private static final int MAX_FRAME_BYTES = 64 * 1024;
+
+    private SocketChannel client;
+    private SocketChannel server;
+    private GatewayConnection connection;
+
+    @BeforeEach
+    void connect() throws IOException {
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            client = SocketChannel.open(listener.getLocalAddress());
+            server = listener.accept();
+        }
+        connection = new GatewayConnection(server, null, MAX_FRAME_BYTES, 1024 * 1024,
+                c -> { }, c -> { });
+    }
+
+    @AfterEach
+    void disconnect() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void splitsSeveralFramesFromOneRead() throws IOException {
+        ByteBuffer both = ByteBuffer.allocate(64);
+        both.put(frame(new byte[]{1, 2, 3})).put(frame(new byte[0])).flip();
+        send(both);
+
+        List<byte[]> frames = readFrames(2);
+
+        assertArrayEquals(new byte[]{1, 2, 3}, frames.get(0));
+        assertArrayEquals(new byte[0], frames.get(1));
+    }
+
+    @Test
+    void keepsAPartialFrameUntilTheRestArrives() throws IOException {
+        ByteBuffer frame = frame(new byte[]{7, 8, 9, 10});
+        send(ByteBuffer.wrap(frame.array(), 0, 6));
+        assertTrue(connection.read().isEmpty());
+
+        send(ByteBuffer.wrap(frame.array(), 6, frame.limit() - 6));
+        List<byte[]> frames = readFrames(1);
+
+        assertArrayEquals(new byte[]{7, 8, 9, 10}, frames.get(0));
+    }
+
+    @Test
+    void growsTheBufferForAFrameLargerThanIt() throws IOException {
+        byte[] body = new byte[20_000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        send(frame(body));
+        send(frame(new byte[]{42}));
+
+        List<byte[]> frames = readFrames(2);
+
+        assertArrayEquals(body, frames.get(0));
+        assertArrayEquals(new byte[]{42}, frames.get(1));
+    }
+
+    @Test
+    void rejectsAFrameOverTheLimit() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(0, MAX_FRAME_BYTES + 1);
+        send(header);
+        assertThrows(IOException.class, () -> connection.read());
+    }
+
+    @Test
+    void rejectsANegativeFrameLength() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(0, -1);
+        send(header);
+        assertThrows(IOException.class, () -> connection.read());
+    }
+
+    @Test
+    void returnsNullOnceTheClientHasClosed() throws IOException {
+        client.close();
+        assertNull(connection.read());
+    }
+
+    private static ByteBuffer frame(byte[] body) throws IOException {
+        FrameBuilder builder = new FrameBuilder();
+        builder.write(body);
+        return builder.toFrame();
+    }
+
+    private void send(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            client.write(bytes);
+        }
+    }
+
+    /**
+     * Read until the expected number of frames has arrived; the server channel is blocking,
+     * so each read waits for more data.
+     */
+    private List<byte[]> readFrames(int expected) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        while (frames.size() < expected) {
+            List<byte[]> read = connection.read();
+            assertTrue(read != null, "connection closed early");
+            frames.addAll(read);
+        }
+        assertEquals(expected, frames.size());
+        return frames;
+    }
+}
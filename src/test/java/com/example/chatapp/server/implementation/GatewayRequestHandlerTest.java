@@ -0,0 +1,130 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.gateway.FrameBuilder;
+import com.example.chatapp.gateway.GatewayProtocol;
+import com.example.chatapp.rmi.ChatService;
+import com.example.chatapp.rmi.UserService;
+import com.example.chatapp.rmi.dto.WireCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.chatapp.server.implementation.TestProxies.proxy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GatewayRequestHandlerTest {
+
+    private final List<String> membershipCalls = new ArrayList<>();
+    private GatewayRequestHandler handler;
+    private GatewayConnection connection;
+
+    @BeforeEach
+    void setUp() {
+        ChatService chatService = proxy(ChatService.class, (method, args) -> {
+            if (method.equals("addUserToGroup") || method.equals("removeUserFromGroup")) {
+                membershipCalls.add(method + " " + args[0] + " " + args[1]);
+                return true;
+            }
+            throw new UnsupportedOperationException(method);
+        });
+        UserService userService = proxy(UserService.class, (method, args) -> {
+            throw new UnsupportedOperationException(method);
+        });
+
+        GroupMembershipIndex groupIndex = new GroupMembershipIndex();
+        groupIndex.addGroup(1L, "team", "alice");
+        groupIndex.addMember("team", "alice");
+        groupIndex.addMember("team", "bob");
+
+        handler = new GatewayRequestHandler(chatService, userService, groupIndex);
+        connection = new GatewayConnection(null, null, 1024, 1024, c -> { }, c -> { });
+    }
+
+    @Test
+    void creatorMayAddAndRemoveMembers() throws IOException {
+        connection.setSession("alice", null);
+
+        assertOk(send(GatewayProtocol.ADD_USER_TO_GROUP, "team", "carol"));
+        assertOk(send(GatewayProtocol.REMOVE_USER_FROM_GROUP, "team", "bob"));
+
+        assertEquals(List.of("addUserToGroup team carol", "removeUserFromGroup team bob"), membershipCalls);
+    }
+
+    @Test
+    void memberMayLeaveButNotChangeOthers() throws IOException {
+        connection.setSession("bob", null);
+
+        assertError(send(GatewayProtocol.ADD_USER_TO_GROUP, "team", "carol"));
+        assertError(send(GatewayProtocol.REMOVE_USER_FROM_GROUP, "team", "alice"));
+        assertOk(send(GatewayProtocol.REMOVE_USER_FROM_GROUP, "team", "bob"));
+
+        assertEquals(List.of("removeUserFromGroup team bob"), membershipCalls);
+    }
+
+    @Test
+    void unknownGroupAndMissingLoginAreRejected() throws IOException {
+        assertError(send(GatewayProtocol.ADD_USER_TO_GROUP, "team", "carol"));
+
+        connection.setSession("alice", null);
+        assertError(send(GatewayProtocol.ADD_USER_TO_GROUP, "nowhere", "carol"));
+
+        assertTrue(membershipCalls.isEmpty());
+    }
+
+    @Test
+    void malformedRequestGetsAnErrorResponse() throws IOException {
+        connection.setSession("alice", null);
+        FrameBuilder request = new FrameBuilder();
+        request.writeInt(9);
+        request.writeByte(GatewayProtocol.ADD_USER_TO_GROUP);
+        // A string claiming far more bytes than the request holds
+        WireCodec.writeVarLong(request, Integer.MAX_VALUE);
+
+        DataInputStream response = response(handler.handle(connection, body(request)));
+
+        assertEquals(9, response.readInt());
+        assertEquals(GatewayProtocol.STATUS_ERROR, response.readByte());
+        assertEquals("Malformed request", WireCodec.readString(response));
+    }
+
+    private DataInputStream send(byte operation, String groupName, String username) throws IOException {
+        FrameBuilder request = new FrameBuilder();
+        request.writeInt(7);
+        request.writeByte(operation);
+        WireCodec.writeString(request, groupName);
+        WireCodec.writeString(request, username);
+
+        DataInputStream response = response(handler.handle(connection, body(request)));
+        assertEquals(7, response.readInt());
+        return response;
+    }
+
+    private static void assertOk(DataInputStream response) throws IOException {
+        assertEquals(GatewayProtocol.STATUS_OK, response.readByte());
+        assertTrue(response.readBoolean());
+    }
+
+    private static void assertError(DataInputStream response) throws IOException {
+        assertEquals(GatewayProtocol.STATUS_ERROR, response.readByte());
+    }
+
+    private static byte[] body(FrameBuilder request) {
+        ByteBuffer frame = request.toFrame();
+        byte[] body = new byte[frame.remaining() - 4];
+        frame.position(4);
+        frame.get(body);
+        return body;
+    }
+
+    private static DataInputStream response(ByteBuffer frame) {
+        assertEquals(frame.remaining() - 4, frame.getInt(0));
+        return new DataInputStream(new ByteArrayInputStream(frame.array(), 4, frame.remaining() - 4));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.chatapp.server.implementation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupMembershipIndexTest {
+
+    private final GroupMembershipIndex index = new GroupMembershipIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.addGroup(1L, "team", "alice");
+        index.addMember("team", "alice");
+        index.addMember("team", "bob");
+        index.addGroup(2L, "books", "bob");
+        index.addMember("books", "bob");
+    }
+
+    @Test
+    void indexesMembersBothWays() {
+        assertTrue(index.isMember("team", "bob"));
+        assertFalse(index.isMember("books", "alice"));
+        assertEquals(Set.of("alice", "bob"), index.getMembers("team"));
+        assertEquals(Set.of("team", "books"), index.getGroupsOf("bob"));
+        assertEquals(2, index.getMemberCount("team"));
+        assertEquals(2, index.getGroupCount());
+    }
+
+    @Test
+    void keepsGroupIdsAndCreators() {
+        assertEquals(1L, (long) index.getGroupId("team"));
+        assertEquals("alice", index.getCreator("team"));
+        assertNull(index.getGroupId("nowhere"));
+        assertNull(index.getCreator("nowhere"));
+        assertNull(index.getCreator(null));
+
+        index.addGroup(3L, "team", "carol");
+        assertEquals(3L, (long) index.getGroupId("team"));
+        assertEquals("carol", index.getCreator("team"));
+        // Replacing the id keeps the members
+        assertTrue(index.isMember("team", "alice"));
+    }
+
+    @Test
+    void membersOfUnknownGroupsAreIgnored() {
+        index.addMember("nowhere", "alice");
+
+        assertFalse(index.hasGroup("nowhere"));
+        assertEquals(Set.of("team"), index.getGroupsOf("alice"));
+    }
+
+    @Test
+    void removingMembersUpdatesBothSides() {
+        index.removeMember("team", "bob");
+
+        assertFalse(index.isMember("team", "bob"));
+        assertEquals(Set.of("books"), index.getGroupsOf("bob"));
+
+        index.removeUser("bob");
+
+        assertTrue(index.getGroupsOf("bob").isEmpty());
+        assertEquals(0, index.getMemberCount("books"));
+        assertTrue(index.hasGroup("books"));
+    }
+
+    @Test
+    void snapshotsDoNotChangeWithTheIndex() {
+        Set<String> members = index.getMembers("team");
+
+        index.addMember("team", "carol");
+
+        assertEquals(Set.of("alice", "bob"), members);
+    }
+
+    @Test
+    void clearEmptiesTheIndex() {
+        index.clear();
+
+        assertEquals(0, index.getGroupCount());
+        assertTrue(index.getGroupsOf("alice").isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatMsg;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupTimelineMergerTest {
+
+    // Message ids of each group, newest first, as the database would return them
+    private final Map<Long, List<Long>> histories = new HashMap<>();
+    private final List<Integer> fetchSizes = new ArrayList<>();
+    private final GroupTimelineMerger merger = new GroupTimelineMerger(this::fetchOlder);
+
+    @Test
+    void interleavesGroupsNewestFirst() {
+        histories.put(1L, List.of(9L, 6L, 2L));
+        histories.put(2L, List.of(8L, 7L, 3L, 1L));
+        histories.put(3L, List.of(5L, 4L));
+
+        assertEquals(List.of(9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), ids(merger.merge(List.of(1L, 2L, 3L), null, 20)));
+    }
+
+    @Test
+    void stopsAtTheLimitAndContinuesFromACursor() {
+        histories.put(1L, List.of(10L, 8L, 6L, 4L, 2L));
+        histories.put(2L, List.of(9L, 7L, 5L, 3L, 1L));
+
+        List<Long> first = ids(merger.merge(List.of(1L, 2L), null, 4));
+        List<Long> second = ids(merger.merge(List.of(1L, 2L), first.get(first.size() - 1), 4));
+
+        assertEquals(List.of(10L, 9L, 8L, 7L), first);
+        assertEquals(List.of(6L, 5L, 4L, 3L), second);
+    }
+
+    @Test
+    void fetchesMoreFromAGroupThatDominatesThePage() {
+        List<Long> busy = new ArrayList<>();
+        for (long id = 100; id > 50; id--) {
+            busy.add(id);
+        }
+        histories.put(1L, busy);
+        histories.put(2L, List.of(1L));
+
+        List<Long> timeline = ids(merger.merge(List.of(1L, 2L), null, 30));
+
+        assertEquals(30, timeline.size());
+        assertEquals(100L, (long) timeline.get(0));
+        assertEquals(71L, (long) timeline.get(29));
+        // Later fetches ask only for what is still missing from the page
+        for (int size : fetchSizes) {
+            assertTrue(size <= 30, "fetch of " + size);
+        }
+    }
+
+    @Test
+    void emptyInputsGiveAnEmptyTimeline() {
+        histories.put(1L, List.of());
+
+        assertTrue(merger.merge(List.of(), null, 10).isEmpty());
+        assertTrue(merger.merge(List.of(1L), null, 10).isEmpty());
+        assertTrue(merger.merge(List.of(1L), null, 0).isEmpty());
+    }
+
+    private List<ChatMsg> fetchOlder(Long groupId, Long beforeId, int limit) {
+        fetchSizes.add(limit);
+        List<ChatMsg> page = new ArrayList<>();
+        for (Long id : histories.getOrDefault(groupId, List.of())) {
+            if ((beforeId == null || id < beforeId) && page.size() < limit) {
+                ChatMsg message = new ChatMsg();
+                message.setId(id);
+                page.add(message);
+            }
+        }
+        return page;
+    }
+
+    private static List<Long> ids(List<ChatMsg> messages) {
+        List<Long> ids = new ArrayList<>();
+        for (ChatMsg message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.dto.LogQuery;
+import com.example.chatapp.rmi.dto.LogRow;
+import com.example.chatapp.rmi.dto.Page;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.chatapp.server.implementation.TestProxies.proxy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogQueryExecutorTest {
+
+    // What the last page query was given, and the rows it returns
+    private final Map<String, Object> parameters = new HashMap<>();
+    private final List<Object[]> results = new ArrayList<>();
+    private String hql;
+    private int maxResults;
+
+    private final LogQueryExecutor executor = new LogQueryExecutor(sessionFactory(), 50, 10_000);
+
+    @Test
+    void nextCursorPointsAtTheLastRowOfAFullPage() {
+        results.add(row(30L, 3_000L));
+        results.add(row(20L, 2_000L));
+        results.add(row(10L, 1_000L));
+
+        Page<LogRow> page = executor.query(new LogQuery().after("4000:40").pageSize(2), null);
+
+        assertEquals(3, maxResults);
+        assertEquals(2, page.items().size());
+        assertEquals("2000:20", page.nextCursor());
+        assertTrue(page.hasMore());
+        assertEquals(-1L, page.approximateTotal());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        results.add(row(10L, 1_000L));
+
+        Page<LogRow> page = executor.query(new LogQuery().after("4000:40").pageSize(2), null);
+
+        assertNull(page.nextCursor());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void cursorIsDecodedIntoTimeAndId() {
+        executor.query(new LogQuery().after("2000:20"), null);
+
+        assertEquals(new Date(2_000L), parameters.get("cursorTime"));
+        assertEquals(20L, parameters.get("cursorId"));
+        assertTrue(hql.contains("l.timestamp < :cursorTime"));
+        assertTrue(hql.endsWith("ORDER BY l.timestamp DESC, l.id DESC"));
+
+        executor.query(new LogQuery().sort(LogQuery.Sort.OLDEST_FIRST).after("2000:20"), null);
+
+        assertTrue(hql.contains("l.timestamp > :cursorTime"));
+        assertTrue(hql.endsWith("ORDER BY l.timestamp ASC, l.id ASC"));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> executor.query(new LogQuery().after("2000"), null));
+        assertThrows(IllegalArgumentException.class, () -> executor.query(new LogQuery().after("x:20"), null));
+        assertThrows(IllegalArgumentException.class, () -> executor.query(new LogQuery().after("2000:y"), null));
+    }
+
+    @Test
+    void pageSizeIsLimitedByTheServer() {
+        executor.query(new LogQuery().after("1:1").pageSize(1_000), null);
+        assertEquals(51, maxResults);
+
+        executor.query(new LogQuery().after("1:1").pageSize(0), null);
+        assertEquals(2, maxResults);
+    }
+
+    private static Object[] row(long id, long timestampMillis) {
+        return new Object[]{id, "alice", "LOGIN", new Date(timestampMillis), null, null, null, null};
+    }
+
+    /**
+     * A session factory whose page query records its HQL and parameters and returns {@link #results}.
+     */
+    private SessionFactory sessionFactory() {
+        Object[] query = new Object[1];
+        query[0] = proxy(Query.class, (method, args) -> {
+            switch (method) {
+                case "setParameter":
+                    parameters.put((String) args[0], args[1]);
+                    return query[0];
+                case "setMaxResults":
+                    maxResults = (Integer) args[0];
+                    return query[0];
+                case "list":
+                    return new ArrayList<>(results.subList(0, Math.min(results.size(), maxResults)));
+                default:
+                    return null;
+            }
+        });
+        Session session = proxy(Session.class, (method, args) -> {
+            if (method.equals("createQuery")) {
+                hql = (String) args[0];
+                parameters.clear();
+                return query[0];
+            }
+            return null;
+        });
+        return proxy(SessionFactory.class, (method, args) -> method.equals("openSession") ? session : null);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.dto.ChatTimeline;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.chatapp.server.implementation.TestProxies.proxy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MembershipTimelineTest {
+
+    private final GroupMembershipIndex groupIndex = new GroupMembershipIndex();
+    // What the audit log and the chat records hold: (username, action, time) rows and the stop time
+    private final List<Object[]> history = new ArrayList<>();
+    private Date stopTime;
+    private int loads;
+    private boolean databaseDown;
+
+    @BeforeEach
+    void setUp() {
+        groupIndex.addGroup(1L, "team", "alice");
+        groupIndex.addGroup(2L, "books", "bob");
+        groupIndex.addGroup(3L, "films", "carol");
+    }
+
+    @Test
+    void updatesBeforeTheFirstRequestAreMergedWithTheHistory() {
+        history.add(new Object[]{"alice", MembershipTimeline.JOIN_ACTION, new Date(300L)});
+        history.add(new Object[]{"alice", MembershipTimeline.LEAVE_ACTION, new Date(400L)});
+        history.add(new Object[]{"bob", MembershipTimeline.JOIN_ACTION, new Date(200L)});
+        stopTime = new Date(100L);
+        MembershipTimeline timeline = timeline(10);
+
+        // Newer than the log for alice, older than the log for the stop time
+        timeline.recordJoin("team", "alice", new Date(500L));
+        timeline.recordStop("team", new Date(50L));
+        timeline.recordJoin("team", "carol", new Date(250L));
+
+        ChatTimeline merged = timeline.get("team");
+
+        assertEquals(Map.of("alice", new Date(500L), "bob", new Date(200L), "carol", new Date(250L)),
+                merged.joinTimes());
+        assertEquals(Map.of("alice", new Date(400L)), merged.leaveTimes());
+        assertEquals(new Date(100L), merged.stopTime());
+    }
+
+    @Test
+    void historyIsLoadedOnceAndThenKeptUpToDate() {
+        history.add(new Object[]{"bob", MembershipTimeline.JOIN_ACTION, new Date(200L)});
+        MembershipTimeline timeline = timeline(10);
+
+        timeline.get("team");
+        timeline.recordLeave("team", "bob", new Date(600L));
+        ChatTimeline updated = timeline.get("team");
+
+        assertEquals(1, loads);
+        assertEquals(Map.of("bob", new Date(600L)), updated.leaveTimes());
+        assertEquals(Map.of("bob", new Date(200L)), updated.joinTimes());
+    }
+
+    @Test
+    void failedLoadIsTriedAgain() {
+        history.add(new Object[]{"bob", MembershipTimeline.JOIN_ACTION, new Date(200L)});
+        MembershipTimeline timeline = timeline(10);
+        timeline.recordJoin("team", "alice", new Date(500L));
+
+        databaseDown = true;
+        assertEquals(Map.of("alice", new Date(500L)), timeline.get("team").joinTimes());
+
+        databaseDown = false;
+        assertEquals(Map.of("alice", new Date(500L), "bob", new Date(200L)), timeline.get("team").joinTimes());
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void unknownChatsAreNotKept() {
+        MembershipTimeline timeline = timeline(10);
+
+        timeline.recordJoin("nowhere", "alice", new Date(500L));
+        ChatTimeline unknown = timeline.get("nowhere");
+
+        assertTrue(unknown.joinTimes().isEmpty());
+        assertNull(unknown.stopTime());
+        assertEquals(0, timeline.size());
+        assertEquals(0, loads);
+    }
+
+    @Test
+    void chatsOfRemovedGroupsAreDropped() {
+        MembershipTimeline timeline = timeline(10);
+        timeline.get("team");
+        timeline.get("books");
+
+        groupIndex.clear();
+        groupIndex.addGroup(1L, "team", "alice");
+        timeline.recordStop("books", new Date(100L));
+
+        assertEquals(1, timeline.size());
+        assertEquals(1L, timeline.getEvictionCount());
+    }
+
+    @Test
+    void chatsBeyondTheLimitAreDroppedAndReloaded() {
+        history.add(new Object[]{"bob", MembershipTimeline.JOIN_ACTION, new Date(200L)});
+        MembershipTimeline timeline = timeline(2);
+
+        timeline.get("team");
+        timeline.get("books");
+        timeline.get("films");
+
+        assertEquals(2, timeline.size());
+        assertEquals(1L, timeline.getEvictionCount());
+
+        // Whichever chat was dropped comes back from the database
+        for (String chat : List.of("team", "books", "films")) {
+            assertEquals(Map.of("bob", new Date(200L)), timeline.get(chat).joinTimes());
+        }
+        assertTrue(loads > 3);
+    }
+
+    private MembershipTimeline timeline(int maxChats) {
+        return new MembershipTimeline(sessionFactory(), groupIndex, maxChats);
+    }
+
+    /**
+     * A session factory that answers the two history queries from {@link #history} and {@link #stopTime}.
+     */
+    private SessionFactory sessionFactory() {
+        return proxy(SessionFactory.class, (method, args) -> {
+            if (!method.equals("openSession")) {
+                return null;
+            }
+            loads++;
+            if (databaseDown) {
+                throw new IllegalStateException("database is down");
+            }
+            return proxy(Session.class, (sessionMethod, sessionArgs) ->
+                    sessionMethod.equals("createQuery") ? query((String) sessionArgs[0]) : null);
+        });
+    }
+
+    private Query<?> query(String hql) {
+        Object[] self = new Object[1];
+        self[0] = proxy(Query.class, (method, args) -> {
+            switch (method) {
+                case "setParameter":
+                    return self[0];
+                case "list":
+                    return new ArrayList<>(history);
+                case "uniqueResult":
+                    return hql.contains("ChatRecord") ? stopTime : null;
+                default:
+                    return null;
+            }
+        });
+        return (Query<?>) self[0];
+    }
+}
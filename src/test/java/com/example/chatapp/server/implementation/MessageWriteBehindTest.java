@@ -0,0 +1,248 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatMsg;
+import com.example.chatapp.domain.ChatUser;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.chatapp.server.implementation.TestProxies.proxy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageWriteBehindTest {
+
+    private static final ChatUser ALICE = new ChatUser("alice", "secret", "alice@example.com", null, null, false);
+    private static final ChatUser BOB = new ChatUser("bob", "secret", "bob@example.com", null, null, false);
+
+    // Texts of the messages in each committed transaction, in commit order
+    private final List<List<String>> commits = new ArrayList<>();
+    private final List<String> listened = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    // A commit signals the first latch, then waits for the second
+    private final CountDownLatch commitStarted = new CountDownLatch(1);
+    private final CountDownLatch commitGate = new CountDownLatch(1);
+    private boolean gated;
+
+    private MessageWriteBehind writer;
+
+    @AfterEach
+    void tearDown() {
+        commitGate.countDown();
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void fullBatchIsCommittedWithoutWaitingForTheWindow() throws Exception {
+        writer = writer(3, 10_000L, 100);
+
+        List<CompletableFuture<ChatMsg>> futures = new ArrayList<>();
+        for (String text : List.of("a", "b", "c", "d", "e", "f")) {
+            futures.add(writer.persist(message(text)));
+        }
+        for (CompletableFuture<ChatMsg> future : futures) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS).getId());
+        }
+
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("d", "e", "f")), committed());
+        assertEquals(List.of("a", "b", "c", "d", "e", "f"), listenedInOrder());
+        assertEquals(2L, writer.getBatchesCommitted());
+        assertEquals(6L, writer.getMessagesWritten());
+    }
+
+    @Test
+    void partialBatchIsCommittedWhenTheWindowCloses() throws Exception {
+        writer = writer(100, 50L, 100);
+
+        CompletableFuture<ChatMsg> first = writer.persist(message("a"));
+        CompletableFuture<ChatMsg> second = writer.persist(message("b"));
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(List.of("a", "b")), committed());
+    }
+
+    @Test
+    void failedBatchIsRetriedOneMessageAtATime() throws Exception {
+        writer = writer(3, 10_000L, 100);
+
+        CompletableFuture<ChatMsg> a = writer.persist(message("a"));
+        CompletableFuture<ChatMsg> bad = writer.persist(message("bad"));
+        CompletableFuture<ChatMsg> c = writer.persist(message("c"));
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS).getMessage());
+        assertEquals("c", c.get(5, TimeUnit.SECONDS).getMessage());
+        ExecutionException error = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertEquals("rejected", error.getCause().getMessage());
+
+        assertEquals(List.of(List.of("a"), List.of("c")), committed());
+        assertEquals(List.of("a", "c"), listenedInOrder());
+        assertEquals(2L, writer.getMessagesWritten());
+        assertEquals(1L, writer.getFailedWrites());
+    }
+
+    @Test
+    void shutdownWritesWhatIsQueuedAndRefusesMore() throws Exception {
+        writer = writer(100, 10_000L, 100);
+        List<CompletableFuture<ChatMsg>> futures = new ArrayList<>();
+        for (String text : List.of("a", "b", "c")) {
+            futures.add(writer.persist(message(text)));
+        }
+
+        writer.shutdown();
+
+        for (CompletableFuture<ChatMsg> future : futures) {
+            assertTrue(future.isDone());
+            assertNotNull(future.get().getId());
+        }
+        assertEquals(List.of(List.of("a", "b", "c")), committed());
+        ExecutionException error = assertThrows(ExecutionException.class, () -> writer.persist(message("d")).get());
+        assertTrue(error.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void fullQueueTurnsSendersAwayAtOnce() throws Exception {
+        gated = true;
+        writer = writer(1, 0L, 1);
+        CompletableFuture<ChatMsg> writing = writer.persist(message("a"));
+        assertTrue(commitStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<ChatMsg> queued = writer.persist(message("b"));
+        CompletableFuture<ChatMsg> rejected = writer.persist(message("c"));
+
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+        assertEquals(1L, writer.getRejectedWrites());
+
+        commitGate.countDown();
+        writing.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(List.of("a"), List.of("b")), committed());
+    }
+
+    @Test
+    void cancelledWriteIsSkippedButATakenOneIsNot() throws Exception {
+        gated = true;
+        writer = writer(1, 0L, 100);
+        CompletableFuture<ChatMsg> writing = writer.persist(message("a"));
+        assertTrue(commitStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ChatMsg> queued = writer.persist(message("b"));
+
+        // The writer already holds "a"; "b" is still in the queue
+        assertFalse(writing.cancel(false));
+        assertTrue(queued.cancel(false));
+
+        commitGate.countDown();
+        writing.get(5, TimeUnit.SECONDS);
+        writer.persist(message("c")).get(5, TimeUnit.SECONDS);
+
+        assertTrue(queued.isCancelled());
+        assertEquals(List.of(List.of("a"), List.of("c")), committed());
+        assertEquals(1L, writer.getCancelledWrites());
+    }
+
+    private MessageWriteBehind writer(int maxBatchSize, long maxDelayMillis, int queueCapacity) {
+        return new MessageWriteBehind(sessionFactory(), maxBatchSize, maxDelayMillis, queueCapacity, message -> {
+            synchronized (listened) {
+                listened.add(message.getMessage());
+            }
+        });
+    }
+
+    private List<List<String>> committed() {
+        synchronized (commits) {
+            return new ArrayList<>(commits);
+        }
+    }
+
+    private List<String> listenedInOrder() {
+        synchronized (listened) {
+            return new ArrayList<>(listened);
+        }
+    }
+
+    private static ChatMsg message(String text) {
+        return new ChatMsg(ALICE, BOB, text);
+    }
+
+    /**
+     * A session factory whose sessions collect persisted messages and record them in
+     * {@link #commits} when their transaction commits. Persisting "bad" fails.
+     */
+    private SessionFactory sessionFactory() {
+        return proxy(SessionFactory.class, (method, args) -> method.equals("openSession") ? session() : null);
+    }
+
+    private Session session() {
+        List<ChatMsg> persisted = new ArrayList<>();
+        boolean[] active = {false};
+        Transaction transaction = proxy(Transaction.class, (method, args) -> {
+            switch (method) {
+                case "isActive":
+                    return active[0];
+                case "rollback":
+                    active[0] = false;
+                    return null;
+                case "commit":
+                    awaitGate();
+                    List<String> texts = new ArrayList<>();
+                    for (ChatMsg message : persisted) {
+                        message.setId(nextId.getAndIncrement());
+                        texts.add(message.getMessage());
+                    }
+                    synchronized (commits) {
+                        commits.add(texts);
+                    }
+                    active[0] = false;
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        return proxy(Session.class, (method, args) -> {
+            switch (method) {
+                case "beginTransaction":
+                    active[0] = true;
+                    return transaction;
+                case "persist":
+                    ChatMsg message = (ChatMsg) args[0];
+                    if (message.getMessage().equals("bad")) {
+                        throw new IllegalStateException("rejected");
+                    }
+                    persisted.add(message);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private void awaitGate() {
+        commitStarted.countDown();
+        if (!gated) {
+            return;
+        }
+        try {
+            commitGate.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
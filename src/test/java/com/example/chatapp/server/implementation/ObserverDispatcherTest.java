@@ -0,0 +1,222 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.ChatObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static com.example.chatapp.server.implementation.TestProxies.proxy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObserverDispatcherTest {
+
+    // Callbacks received, as "username:what", in arrival order
+    private final List<String> received = new ArrayList<>();
+    private final List<String> failed = new ArrayList<>();
+    private final List<String> evicted = new ArrayList<>();
+    private final CountDownLatch blockStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ObserverDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void callbacksArriveInOrderPerUser() {
+        dispatcher = dispatcher(1_000, 10_000L, 20_000L);
+        dispatcher.register("alice", observer("alice"));
+        dispatcher.register("bob", observer("bob"));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(dispatcher.submit("alice", record("alice", i)));
+            assertTrue(dispatcher.submit("bob", record("bob", i)));
+        }
+        assertFalse(dispatcher.submit("carol", record("carol", 0)));
+
+        awaitTrue(() -> dispatcher.getDeliveredCount() == 200);
+        List<String> alice = new ArrayList<>();
+        List<String> bob = new ArrayList<>();
+        for (String callback : receivedInOrder()) {
+            (callback.startsWith("alice:") ? alice : bob).add(callback);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("alice:" + i, alice.get(i));
+            assertEquals("bob:" + i, bob.get(i));
+        }
+    }
+
+    @Test
+    void slowObserverDoesNotDelayOthers() {
+        dispatcher = dispatcher(10, 10_000L, 20_000L);
+        dispatcher.register("alice", observer("alice"));
+        dispatcher.register("bob", observer("bob"));
+
+        dispatcher.submit("alice", this::block);
+        dispatcher.submit("alice", record("alice", 1));
+        dispatcher.submit("bob", record("bob", 1));
+
+        awaitTrue(() -> receivedInOrder().contains("bob:1"));
+        assertFalse(receivedInOrder().contains("alice:1"));
+
+        release.countDown();
+        awaitTrue(() -> receivedInOrder().contains("alice:1"));
+    }
+
+    @Test
+    void fullQueueDropsNewCallbacks() throws Exception {
+        dispatcher = dispatcher(2, 10_000L, 20_000L);
+        dispatcher.register("alice", observer("alice"));
+
+        dispatcher.submit("alice", this::block);
+        assertTrue(blockStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.submit("alice", record("alice", 1)));
+        assertTrue(dispatcher.submit("alice", record("alice", 2)));
+        assertFalse(dispatcher.submit("alice", record("alice", 3)));
+        assertEquals(1L, dispatcher.getDroppedCount());
+
+        release.countDown();
+        awaitTrue(() -> dispatcher.getDeliveredCount() == 3);
+        assertEquals(List.of("alice:1", "alice:2"), receivedInOrder());
+    }
+
+    @Test
+    void laggingObserverIsDegradedThenResynced() throws Exception {
+        dispatcher = dispatcher(10, 100L, 20_000L);
+        dispatcher.register("alice", observer("alice"));
+
+        dispatcher.submit("alice", this::block);
+        assertTrue(blockStarted.await(5, TimeUnit.SECONDS));
+        dispatcher.submit("alice", record("alice", 1));
+        awaitTrue(() -> dispatcher.getDegradedObserverCount() == 1);
+
+        // While degraded, callbacks are folded into the resync request
+        assertFalse(dispatcher.submit("alice", record("alice", 2)));
+        assertEquals(1L, dispatcher.getCollapsedCount());
+        assertEquals(1L, dispatcher.getDegradationCount());
+
+        release.countDown();
+        awaitTrue(() -> dispatcher.getDegradedObserverCount() == 0);
+        assertEquals(List.of("alice:resyncRequired"), receivedInOrder());
+
+        assertTrue(dispatcher.submit("alice", record("alice", 3)));
+        awaitTrue(() -> receivedInOrder().contains("alice:3"));
+        assertTrue(dispatcher.isRegistered("alice"));
+    }
+
+    @Test
+    void observerThatFallsTooFarBehindIsEvicted() throws Exception {
+        dispatcher = dispatcher(10, 100L, 300L);
+        dispatcher.register("alice", observer("alice"));
+
+        dispatcher.submit("alice", this::block);
+        assertTrue(blockStarted.await(5, TimeUnit.SECONDS));
+
+        awaitTrue(() -> !evictedInOrder().isEmpty());
+        assertEquals(List.of("alice"), evictedInOrder());
+        assertFalse(dispatcher.isRegistered("alice"));
+        assertEquals(1L, dispatcher.getEvictionCount());
+        assertFalse(dispatcher.submit("alice", record("alice", 1)));
+    }
+
+    @Test
+    void unreachableObserverIsReportedAndRemoved() {
+        dispatcher = dispatcher(10, 10_000L, 20_000L);
+        dispatcher.register("alice", observer("alice"));
+
+        dispatcher.submit("alice", observer -> {
+            throw new RemoteException("connection refused");
+        });
+        dispatcher.submit("alice", record("alice", 1));
+
+        awaitTrue(() -> !failedInOrder().isEmpty());
+        assertEquals(List.of("alice"), failedInOrder());
+        assertFalse(dispatcher.isRegistered("alice"));
+        assertTrue(receivedInOrder().isEmpty());
+    }
+
+    private ObserverDispatcher dispatcher(int queueCapacity, long degradeLagMillis, long evictLagMillis) {
+        return new ObserverDispatcher(queueCapacity, degradeLagMillis, evictLagMillis,
+                (username, observer, cause) -> {
+                    synchronized (failed) {
+                        failed.add(username);
+                    }
+                },
+                (username, observer, lagMillis) -> {
+                    synchronized (evicted) {
+                        evicted.add(username);
+                    }
+                });
+    }
+
+    /**
+     * An observer that records every callback it gets.
+     */
+    private ChatObserver observer(String username) {
+        return proxy(ChatObserver.class, (method, args) -> {
+            add(username + ":" + method);
+            return null;
+        });
+    }
+
+    private ObserverDispatcher.Delivery record(String username, int sequence) {
+        return observer -> add(username + ":" + sequence);
+    }
+
+    /**
+     * A delivery that holds its worker until {@link #release} is counted down.
+     */
+    private void block(ChatObserver observer) {
+        blockStarted.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void add(String callback) {
+        synchronized (received) {
+            received.add(callback);
+        }
+    }
+
+    private List<String> receivedInOrder() {
+        synchronized (received) {
+            return new ArrayList<>(received);
+        }
+    }
+
+    private List<String> failedInOrder() {
+        synchronized (failed) {
+            return new ArrayList<>(failed);
+        }
+    }
+
+    private List<String> evictedInOrder() {
+        synchronized (evicted) {
+            return new ArrayList<>(evicted);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the dispatcher");
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.rmi.dto.PresenceDelta;
+import com.example.chatapp.rmi.dto.PresenceSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresenceRegistryTest {
+
+    private final PresenceRegistry registry = new PresenceRegistry(4);
+
+    @Test
+    void everyChangeBumpsTheVersion() {
+        assertEquals(1L, registry.markOnline(snapshot("alice")));
+        assertEquals(2L, registry.markOnline(snapshot("bob")));
+        assertEquals(3L, registry.markOffline("alice"));
+        // Going offline twice is not a change
+        assertEquals(3L, registry.markOffline("alice"));
+
+        assertFalse(registry.isOnline("alice"));
+        assertTrue(registry.isOnline("bob"));
+        assertEquals(3L, registry.getVersion());
+    }
+
+    @Test
+    void deltaCollapsesChangesToEachUsersLatestState() {
+        registry.markOnline(snapshot("alice"));
+        long seen = registry.getVersion();
+        registry.markOnline(snapshot("bob"));
+        registry.markOnline(snapshot("carol"));
+        registry.markOffline("bob");
+
+        PresenceDelta delta = registry.getChangesSince(seen);
+
+        assertFalse(delta.isFull());
+        assertEquals(seen, delta.getSinceVersion());
+        assertEquals(4L, delta.getVersion());
+        assertEquals(List.of("carol"), usernames(delta.getOnline()));
+        assertEquals(List.of("bob"), delta.getOffline());
+    }
+
+    @Test
+    void upToDateClientGetsAnEmptyDelta() {
+        registry.markOnline(snapshot("alice"));
+
+        assertTrue(registry.getChangesSince(registry.getVersion()).isEmpty());
+    }
+
+    @Test
+    void clientBehindTheChangeLogGetsAFullSnapshot() {
+        registry.markOnline(snapshot("alice"));
+        for (int i = 0; i < 5; i++) {
+            registry.markOnline(snapshot("user" + i));
+        }
+
+        PresenceDelta delta = registry.getChangesSince(1L);
+
+        assertTrue(delta.isFull());
+        assertEquals(6, delta.getOnline().size());
+        assertTrue(registry.getChangesSince(-1L).isFull());
+        // A version the registry never reached is treated like an unknown one
+        assertTrue(registry.getChangesSince(100L).isFull());
+    }
+
+    @Test
+    void profileUpdateKeepsTheOnlineTime() {
+        registry.markOnline(new PresenceSnapshot("alice", "Al", null, 1_000L));
+        long seen = registry.getVersion();
+
+        registry.updateProfile("alice", "Alice", "avatars/alice.png");
+        registry.updateProfile("nobody", "Nobody", null);
+
+        PresenceDelta delta = registry.getChangesSince(seen);
+        assertEquals(1, delta.getOnline().size());
+        PresenceSnapshot updated = delta.getOnline().get(0);
+        assertEquals("Alice", updated.getNickName());
+        assertEquals("avatars/alice.png", updated.getAvatarKey());
+        assertEquals(1_000L, updated.getSinceMillis());
+        assertEquals(seen + 1, registry.getVersion());
+    }
+
+    private static PresenceSnapshot snapshot(String username) {
+        return new PresenceSnapshot(username, null, null, 0L);
+    }
+
+    private static List<String> usernames(List<PresenceSnapshot> snapshots) {
+        List<String> usernames = new ArrayList<>();
+        for (PresenceSnapshot snapshot : snapshots) {
+            usernames.add(snapshot.getUsername());
+        }
+        return usernames;
+    }
+}
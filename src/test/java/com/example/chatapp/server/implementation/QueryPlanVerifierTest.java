@@ -0,0 +1,106 @@
+package com.example.chatapp.server.implementation;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryPlanVerifierTest {
+
+    private static final Path SOURCES = Paths.get("src", "main", "java");
+    private static final Path VERIFIER = SOURCES.resolve(Paths.get("com", "example", "chatapp", "server",
+            "implementation", "QueryPlanVerifier.java"));
+    private static final String CREATE_QUERY = "createQuery(";
+
+    @Test
+    void everyQueryTheServerRunsHasACase() throws IOException {
+        Set<String> checked = new HashSet<>();
+        for (String hql : QueryPlanVerifier.checkedQueries()) {
+            checked.add(normalize(hql));
+        }
+        String verifierSource = read(VERIFIER);
+
+        List<String> missing = new ArrayList<>();
+        for (Path file : sourceFiles()) {
+            if (file.equals(VERIFIER)) {
+                continue;
+            }
+            String source = read(file);
+            for (int at = source.indexOf(CREATE_QUERY); at >= 0; at = source.indexOf(CREATE_QUERY, at + 1)) {
+                String query = queryArgument(source, at + CREATE_QUERY.length());
+                boolean covered = query.startsWith("\"")
+                        ? checked.contains(normalize(query.substring(1)))
+                        // A query kept in a constant or built by a method is covered if the verifier uses it
+                        : !query.isEmpty() && verifierSource.contains(query);
+                if (!covered) {
+                    missing.add(file.getFileName() + ": " + query);
+                }
+            }
+        }
+
+        assertEquals(List.of(), missing);
+    }
+
+    /**
+     * The first argument of a createQuery call: a quote followed by the text of its string
+     * literals if it is made of literals only, otherwise the name it starts with.
+     */
+    private static String queryArgument(String source, int start) {
+        int i = skipSpace(source, start);
+        if (source.charAt(i) != '"') {
+            int end = i;
+            while (Character.isJavaIdentifierPart(source.charAt(end))) {
+                end++;
+            }
+            return source.substring(i, end);
+        }
+        StringBuilder text = new StringBuilder("\"");
+        while (source.charAt(i) == '"') {
+            int end = i + 1;
+            while (source.charAt(end) != '"') {
+                end += source.charAt(end) == '\\' ? 2 : 1;
+            }
+            text.append(source, i + 1, end);
+            i = skipSpace(source, end + 1);
+            if (source.charAt(i) != '+') {
+                break;
+            }
+            i = skipSpace(source, i + 1);
+        }
+        // A literal joined with anything else is built at run time and cannot be matched
+        char next = source.charAt(i);
+        return next == ',' || next == ')' ? text.toString() : "built at run time: " + text;
+    }
+
+    private static int skipSpace(String source, int i) {
+        while (Character.isWhitespace(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String normalize(String hql) {
+        return hql.trim().replaceAll("\\s+", " ");
+    }
+
+    private static List<Path> sourceFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(SOURCES)) {
+            return files.filter(file -> file.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.chatapp.server.implementation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(2, new RingBuffer<String>(0).capacity());
+        assertEquals(2, new RingBuffer<String>(2).capacity());
+        assertEquals(4, new RingBuffer<String>(3).capacity());
+        assertEquals(1024, new RingBuffer<String>(1000).capacity());
+        assertEquals(1024, new RingBuffer<String>(1024).capacity());
+    }
+
+    @Test
+    void emptyBufferDrainsNothing() {
+        RingBuffer<String> buffer = new RingBuffer<>(4);
+        List<String> drained = new ArrayList<>();
+
+        assertEquals(0, buffer.drainTo(drained, 10));
+        assertTrue(drained.isEmpty());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void fullBufferRejectsOffersUntilDrained() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(1, buffer.drainTo(drained, 1));
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+    }
+
+    @Test
+    void keepsOrderAcrossWraparound() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        // Many more elements than slots, drained in uneven steps
+        for (int round = 0; round < 50; round++) {
+            while (buffer.offer(next)) {
+                next++;
+            }
+            buffer.drainTo(drained, round % 3 + 1);
+        }
+        buffer.drainTo(drained, Integer.MAX_VALUE);
+
+        assertEquals(next, drained.size());
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(i, (int) drained.get(i));
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        List<Integer> drained = new ArrayList<>();
+        while (drained.size() < producers * perProducer) {
+            buffer.drainTo(drained, 128);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Integer> unique = new HashSet<>(drained);
+        assertEquals(producers * perProducer, unique.size());
+        // Each producer's elements come out in the order it offered them
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (int value : drained) {
+            int producer = value / perProducer;
+            assertTrue(value > last[producer]);
+            last[producer] = value;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.chatapp.server.implementation;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Stand-ins for interfaces such as {@code SessionFactory}, built from a single handler.
+ */
+final class TestProxies {
+
+    /**
+     * Answers a call by method name; the value is returned to the caller as is.
+     */
+    interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    private TestProxies() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(TestProxies.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+}
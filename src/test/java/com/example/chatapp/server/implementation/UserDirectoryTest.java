@@ -0,0 +1,111 @@
+package com.example.chatapp.server.implementation;
+
+import com.example.chatapp.domain.ChatUser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDirectoryTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void loadsOnceThenServesFromTheCache() {
+        UserDirectory directory = new UserDirectory(10);
+
+        assertEquals("alice", directory.get("alice", this::load).getUsername());
+        assertEquals("alice", directory.get("alice", this::load).getUsername());
+
+        assertEquals(1, loads.get());
+        assertEquals(1L, directory.getHitCount());
+        assertEquals(1L, directory.getMissCount());
+        assertNull(directory.get(null, this::load));
+    }
+
+    @Test
+    void changesToAReturnedUserStayOutOfTheCacheUntilPut() {
+        UserDirectory directory = new UserDirectory(10);
+        directory.put(user("alice", "Al"));
+
+        ChatUser copy = directory.get("alice", this::load);
+        copy.setNickName("Uncommitted");
+        assertEquals("Al", directory.get("alice", this::load).getNickName());
+        assertNotSame(copy, directory.get("alice", this::load));
+
+        directory.put(copy);
+        copy.setNickName("Changed after put");
+        assertEquals("Uncommitted", directory.get("alice", this::load).getNickName());
+    }
+
+    @Test
+    void invalidationDuringALoadIsNotUndone() {
+        UserDirectory directory = new UserDirectory(10);
+
+        // The user is removed while the loader is still reading the old row
+        ChatUser loaded = directory.get("alice", username -> {
+            directory.invalidate(username);
+            return user(username, "Stale");
+        });
+        assertEquals("Stale", loaded.getNickName());
+
+        assertEquals("Fresh", directory.get("alice", username -> user(username, "Fresh")).getNickName());
+    }
+
+    @Test
+    void putDuringALoadWins() {
+        UserDirectory directory = new UserDirectory(10);
+
+        directory.get("alice", username -> {
+            directory.put(user(username, "Committed"));
+            return user(username, "Stale");
+        });
+
+        assertEquals("Committed", directory.get("alice", this::load).getNickName());
+    }
+
+    @Test
+    void evictsUsersThatWereNotReadSinceTheLastSweep() {
+        UserDirectory directory = new UserDirectory(3);
+        for (String name : List.of("a", "b", "c")) {
+            directory.put(user(name, null));
+        }
+        // Read "a" and "c" so that they get a second chance
+        directory.get("a", this::load);
+        directory.get("c", this::load);
+
+        directory.put(user("d", null));
+
+        assertEquals(3, directory.size());
+        assertEquals(1L, directory.getEvictionCount());
+        directory.get("a", this::load);
+        directory.get("c", this::load);
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void warmUpStopsAtTheLimit() {
+        UserDirectory directory = new UserDirectory(2);
+
+        directory.putAll(List.of(user("a", null), user("b", null), user("c", null)));
+
+        assertEquals(2, directory.size());
+        assertFalse(directory.getEvictionCount() > 0);
+        assertTrue(directory.get("a", this::load) != null);
+    }
+
+    private ChatUser load(String username) {
+        loads.incrementAndGet();
+        return user(username, null);
+    }
+
+    private static ChatUser user(String username, String nickName) {
+        return new ChatUser(username, "secret", username + "@example.com", nickName, null, false);
+    }
+}